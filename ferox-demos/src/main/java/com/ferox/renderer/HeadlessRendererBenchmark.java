@@ -0,0 +1,434 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer;
+
+import com.ferox.math.Matrix4;
+import com.ferox.math.Vector3;
+import com.ferox.math.Vector4;
+import com.ferox.math.bounds.Frustum;
+import com.ferox.renderer.builder.Texture2DBuilder;
+import com.ferox.renderer.geom.Geometry;
+import com.ferox.renderer.geom.Shapes;
+import com.ferox.renderer.impl.headless.CommandLog;
+import com.ferox.renderer.impl.headless.HeadlessSurfaceFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HeadlessRendererBenchmark replays representative scenes through {@link Framework#invoke(Task)} on the
+ * headless recording backend, so it measures only the CPU cost of the renderer: state tracking, uniform
+ * packing, and task dispatch. Each scene draws a grid of objects with per-object transforms. The fixed
+ * function scene also changes lights and materials, the glsl scene updates uniforms, and the state scene
+ * toggles blending and depth state between objects. The buffered scene is the glsl scene recorded into
+ * {@link GlslCommandBuffer GlslCommandBuffers} by a thread pool, one per slice of the grid, and replayed on
+ * the context thread. Reported times are per frame, both in total and only the time spent running the scene
+ * on the context thread, and call counts are the per-frame averages taken from the backend's {@link
+ * CommandLog}.
+ * <p/>
+ * Usage: HeadlessRendererBenchmark [-frames N] [-grid N] [-version major.minor]
+ */
+public class HeadlessRendererBenchmark {
+    private static final String VERTEX_120 = "#version 120\n" +
+                                             "attribute vec4 vertex;\n" +
+                                             "attribute vec3 normal;\n" +
+                                             "uniform mat4 projection;\n" +
+                                             "uniform mat4 modelview;\n" +
+                                             "uniform vec4 color;\n" +
+                                             "varying vec4 vColor;\n" +
+                                             "void main() {\n" +
+                                             "vColor = color * max(normal.z, 0.2);\n" +
+                                             "gl_Position = projection * modelview * vertex;\n" +
+                                             "}\n";
+    private static final String FRAGMENT_120 = "#version 120\n" +
+                                               "varying vec4 vColor;\n" +
+                                               "void main() {\n" +
+                                               "gl_FragColor = vColor;\n" +
+                                               "}\n";
+    private static final String VERTEX_150 = "#version 150\n" +
+                                             "in vec4 vertex;\n" +
+                                             "in vec3 normal;\n" +
+                                             "uniform mat4 projection;\n" +
+                                             "uniform mat4 modelview;\n" +
+                                             "uniform vec4 color;\n" +
+                                             "out vec4 vColor;\n" +
+                                             "void main() {\n" +
+                                             "vColor = color * max(normal.z, 0.2);\n" +
+                                             "gl_Position = projection * modelview * vertex;\n" +
+                                             "}\n";
+    private static final String FRAGMENT_150 = "#version 150\n" +
+                                               "in vec4 vColor;\n" +
+                                               "out vec4 fColor;\n" +
+                                               "void main() {\n" +
+                                               "fColor = vColor;\n" +
+                                               "}\n";
+
+    public static void main(String[] args) throws Exception {
+        int frames = 500;
+        int grid = 10;
+        String version = "3.2";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("-frames")) {
+                frames = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("-grid")) {
+                grid = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("-version")) {
+                version = args[i + 1];
+            } else {
+                System.err.println("Usage: HeadlessRendererBenchmark [-frames N] [-grid N] " +
+                                   "[-version major.minor]");
+                return;
+            }
+        }
+
+        String[] parts = version.split("\\.");
+        CommandLog log = new CommandLog(0);
+        HeadlessSurfaceFactory factory = new HeadlessSurfaceFactory(Integer.parseInt(parts[0]),
+                                                                    Integer.parseInt(parts[1]), log);
+        Framework framework = factory.newFramework();
+        try {
+            OnscreenSurfaceOptions options = new OnscreenSurfaceOptions().windowed(800, 600)
+                                                                         .withDepthBuffer(24);
+            OnscreenSurface surface = framework.createSurface(options);
+            Geometry shape = Shapes.createSphere(framework, 0.5, 16);
+            Texture2D texture = createTexture(framework);
+            String vertex = (framework.getCapabilities().getMajorVersion() >= 3 ? VERTEX_150 : VERTEX_120);
+            String fragment = (framework.getCapabilities().getMajorVersion() >= 3 ? FRAGMENT_150
+                                                                                  : FRAGMENT_120);
+            Shader shader = framework.newShader().withVertexShader(vertex).withFragmentShader(fragment)
+                                     .build();
+
+            System.out.printf("OpenGL %s, %d objects per frame, %d frames%n", version, grid * grid * grid,
+                              frames);
+            run("ffp", framework, log, new FixedFunctionScene(surface, shape, texture, grid), frames);
+            run("glsl", framework, log, new GlslScene(surface, shape, shader, grid, false), frames);
+            run("state", framework, log, new GlslScene(surface, shape, shader, grid, true), frames);
+
+            int threads = Runtime.getRuntime().availableProcessors();
+            ExecutorService workers = Executors.newFixedThreadPool(threads);
+            try {
+                run("buffer", framework, log, new BufferedGlslScene(surface, shape, shader, grid, workers),
+                    frames);
+            } finally {
+                workers.shutdown();
+            }
+        } finally {
+            framework.destroy().get();
+        }
+    }
+
+    private static Texture2D createTexture(Framework framework) {
+        byte[] data = new byte[64 * 64 * 4];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Texture2DBuilder b = framework.newTexture2D().width(64).height(64).interpolated();
+        b.rgba().mipmap(0).fromUnsignedNormalized(data);
+        return b.build();
+    }
+
+    private static void run(String name, Framework framework, CommandLog log, Task<Void> scene, int frames)
+            throws Exception {
+        TimedScene timed = new TimedScene(scene);
+        // warm up the JIT before measuring
+        for (int i = 0; i < frames; i++) {
+            runFrame(framework, timed);
+        }
+
+        framework.invoke(new ResetLog(log)).get();
+        timed.elapsed = 0L;
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            runFrame(framework, timed);
+        }
+        double frameTime = (System.nanoTime() - start) / 1e6 / frames;
+        double contextTime = timed.elapsed / 1e6 / frames;
+
+        System.out.printf("%-6s %8.3f ms/frame %8.3f ms/frame on context %8.1f draws/frame " +
+                          "%8.1f calls/frame%n", name, frameTime, contextTime,
+                          log.getDrawCount() / (double) frames, log.getTotalCount() / (double) frames);
+    }
+
+    private static void runFrame(Framework framework, TimedScene timed) throws Exception {
+        if (timed.scene instanceof BufferedGlslScene) {
+            // record on the worker threads before queuing the replay task
+            ((BufferedGlslScene) timed.scene).record();
+        }
+        framework.invoke(timed).get();
+    }
+
+    private static class TimedScene implements Task<Void> {
+        private final Task<Void> scene;
+        // only written on the context thread, and read after the invoked future completes
+        private long elapsed;
+
+        public TimedScene(Task<Void> scene) {
+            this.scene = scene;
+        }
+
+        @Override
+        public Void run(HardwareAccessLayer access) {
+            long start = System.nanoTime();
+            scene.run(access);
+            elapsed += System.nanoTime() - start;
+            return null;
+        }
+    }
+
+    private static class ResetLog implements Task<Void> {
+        private final CommandLog log;
+
+        public ResetLog(CommandLog log) {
+            this.log = log;
+        }
+
+        @Override
+        public Void run(HardwareAccessLayer access) {
+            // reset on the context thread that writes into the log
+            log.reset();
+            return null;
+        }
+    }
+
+    private static class FixedFunctionScene implements Task<Void> {
+        private final Surface surface;
+        private final Geometry shape;
+        private final Texture2D texture;
+        private final int grid;
+
+        private final Frustum view;
+        private final Matrix4 modelview;
+        private final Vector4 diffuse;
+
+        public FixedFunctionScene(Surface surface, Geometry shape, Texture2D texture, int grid) {
+            this.surface = surface;
+            this.shape = shape;
+            this.texture = texture;
+            this.grid = grid;
+
+            view = new Frustum(60.0, 1.0, 1.0, 100.0);
+            view.setOrientation(new Vector3(0, 0, 2.0 * grid), new Vector3(0, 0, -1), new Vector3(0, 1, 0));
+            modelview = new Matrix4();
+            diffuse = new Vector4();
+        }
+
+        @Override
+        public Void run(HardwareAccessLayer access) {
+            Context c = access.setActiveSurface(surface);
+            FixedFunctionRenderer r = c.getFixedFunctionRenderer();
+            r.clear(true, true, true);
+
+            r.setProjectionMatrix(view.getProjectionMatrix());
+            r.setModelViewMatrix(view.getViewMatrix());
+            r.setLightingEnabled(true);
+            r.setLightEnabled(0, true);
+            r.setLightPosition(0, new Vector4(0, 0, grid, 1));
+            r.setLightEnabled(1, true);
+            r.setLightPosition(1, new Vector4(grid, grid, 0, 0));
+            r.setTexture(0, texture);
+
+            r.setVertices(shape.getVertices());
+            r.setNormals(shape.getNormals());
+            r.setTextureCoordinates(0, shape.getTextureCoordinates());
+            r.setIndices(shape.getIndices());
+
+            for (int z = 0; z < grid; z++) {
+                for (int y = 0; y < grid; y++) {
+                    for (int x = 0; x < grid; x++) {
+                        diffuse.set(x / (double) grid, y / (double) grid, z / (double) grid, 1.0);
+                        r.setMaterialDiffuse(diffuse);
+
+                        modelview.setIdentity().setCol(3, new Vector4(x - grid / 2.0, y - grid / 2.0,
+                                                                      z - grid / 2.0, 1));
+                        r.setModelViewMatrix(modelview.mul(view.getViewMatrix(), modelview));
+                        r.render(shape.getPolygonType(), shape.getIndexOffset(), shape.getIndexCount());
+                    }
+                }
+            }
+            c.flush();
+            return null;
+        }
+    }
+
+    private static class GlslScene implements Task<Void> {
+        private final Surface surface;
+        private final Geometry shape;
+        private final Shader shader;
+        private final int grid;
+        private final boolean toggleState;
+
+        private final Shader.Uniform projection;
+        private final Shader.Uniform modelview;
+        private final Shader.Uniform color;
+        private final Shader.Attribute vertex;
+        private final Shader.Attribute normal;
+
+        private final Frustum view;
+        private final Matrix4 transform;
+        private final Vector4 diffuse;
+
+        public GlslScene(Surface surface, Geometry shape, Shader shader, int grid, boolean toggleState) {
+            this.surface = surface;
+            this.shape = shape;
+            this.shader = shader;
+            this.grid = grid;
+            this.toggleState = toggleState;
+
+            projection = shader.getUniform("projection");
+            modelview = shader.getUniform("modelview");
+            color = shader.getUniform("color");
+            vertex = shader.getAttribute("vertex");
+            normal = shader.getAttribute("normal");
+
+            view = new Frustum(60.0, 1.0, 1.0, 100.0);
+            view.setOrientation(new Vector3(0, 0, 2.0 * grid), new Vector3(0, 0, -1), new Vector3(0, 1, 0));
+            transform = new Matrix4();
+            diffuse = new Vector4();
+        }
+
+        @Override
+        public Void run(HardwareAccessLayer access) {
+            Context c = access.setActiveSurface(surface);
+            GlslRenderer r = c.getGlslRenderer();
+            r.clear(true, true, true);
+
+            r.setShader(shader);
+            r.setUniform(projection, view.getProjectionMatrix());
+            r.bindAttribute(vertex, shape.getVertices());
+            r.bindAttribute(normal, shape.getNormals());
+            r.setIndices(shape.getIndices());
+
+            int count = 0;
+            for (int z = 0; z < grid; z++) {
+                for (int y = 0; y < grid; y++) {
+                    for (int x = 0; x < grid; x++) {
+                        if (toggleState) {
+                            boolean transparent = (count++ & 1) == 0;
+                            r.setBlendingEnabled(transparent);
+                            r.setDepthWriteMask(!transparent);
+                            r.setBlendMode(Renderer.BlendFunction.ADD, Renderer.BlendFactor.SRC_ALPHA,
+                                           transparent ? Renderer.BlendFactor.ONE_MINUS_SRC_ALPHA
+                                                       : Renderer.BlendFactor.ZERO);
+                        }
+
+                        diffuse.set(x / (double) grid, y / (double) grid, z / (double) grid, 0.5);
+                        r.setUniform(color, diffuse);
+
+                        transform.setIdentity().setCol(3, new Vector4(x - grid / 2.0, y - grid / 2.0,
+                                                                      z - grid / 2.0, 1));
+                        r.setUniform(modelview, transform.mul(view.getViewMatrix(), transform));
+                        r.render(shape.getPolygonType(), shape.getIndexOffset(), shape.getIndexCount());
+                    }
+                }
+            }
+            c.flush();
+            return null;
+        }
+    }
+
+    private static class BufferedGlslScene implements Task<Void> {
+        private final Surface surface;
+        private final Geometry shape;
+        private final Shader shader;
+        private final ExecutorService workers;
+
+        private final Frustum view;
+        private final List<Callable<Void>> slices;
+        private final GlslCommandBuffer[] buffers;
+
+        public BufferedGlslScene(Surface surface, final Geometry shape, Shader shader, final int grid,
+                                 ExecutorService workers) {
+            this.surface = surface;
+            this.shape = shape;
+            this.shader = shader;
+            this.workers = workers;
+
+            final Shader.Uniform modelview = shader.getUniform("modelview");
+            final Shader.Uniform color = shader.getUniform("color");
+
+            view = new Frustum(60.0, 1.0, 1.0, 100.0);
+            view.setOrientation(new Vector3(0, 0, 2.0 * grid), new Vector3(0, 0, -1), new Vector3(0, 1, 0));
+
+            buffers = new GlslCommandBuffer[grid];
+            slices = new ArrayList<>();
+            for (int i = 0; i < grid; i++) {
+                final int z = i;
+                final GlslCommandBuffer buffer = new GlslCommandBuffer();
+                buffers[i] = buffer;
+                slices.add(new Callable<Void>() {
+                    private final Matrix4 transform = new Matrix4();
+                    private final Vector4 diffuse = new Vector4();
+                    private final Vector4 column = new Vector4();
+
+                    @Override
+                    public Void call() throws Exception {
+                        buffer.clearCommands();
+                        for (int y = 0; y < grid; y++) {
+                            for (int x = 0; x < grid; x++) {
+                                diffuse.set(x / (double) grid, y / (double) grid, z / (double) grid, 0.5);
+                                buffer.setUniform(color, diffuse);
+
+                                column.set(x - grid / 2.0, y - grid / 2.0, z - grid / 2.0, 1);
+                                transform.setIdentity().setCol(3, column);
+                                buffer.setUniform(modelview, transform.mul(view.getViewMatrix(), transform));
+                                buffer.render(shape.getPolygonType(), shape.getIndexOffset(),
+                                              shape.getIndexCount());
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+        }
+
+        public void record() throws InterruptedException {
+            workers.invokeAll(slices);
+        }
+
+        @Override
+        public Void run(HardwareAccessLayer access) {
+            Context c = access.setActiveSurface(surface);
+            GlslRenderer r = c.getGlslRenderer();
+            r.clear(true, true, true);
+
+            r.setShader(shader);
+            r.setUniform(shader.getUniform("projection"), view.getProjectionMatrix());
+            r.bindAttribute(shader.getAttribute("vertex"), shape.getVertices());
+            r.bindAttribute(shader.getAttribute("normal"), shape.getNormals());
+            r.setIndices(shape.getIndices());
+
+            for (GlslCommandBuffer buffer : buffers) {
+                buffer.replay(r);
+            }
+            c.flush();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer;
+
+import com.ferox.renderer.loader.OpenEXRImageLoader;
+import com.ferox.renderer.loader.TextureCache;
+import com.ferox.renderer.loader.TextureLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * TextureCacheBenchmark reports the time to load a set of texture files without a cache, with a cold {@link
+ * TextureCache} that has to decode and store each file, and with a warm cache that only reads back the
+ * stored texel data. Builders are created but never built, so only the CPU side of loading is measured.
+ * OpenEXR files (ending in .exr) are loaded with {@link OpenEXRImageLoader}, everything else with {@link
+ * TextureLoader}.
+ * <p/>
+ * Usage: TextureCacheBenchmark [-iterations N] file...
+ */
+public class TextureCacheBenchmark {
+    public static void main(String[] args) throws Exception {
+        int iterations = 5;
+        int first = 0;
+        if (args.length > 1 && args[0].equals("-iterations")) {
+            iterations = Integer.parseInt(args[1]);
+            first = 2;
+        }
+        if (args.length <= first) {
+            System.err.println("Usage: TextureCacheBenchmark [-iterations N] file...");
+            return;
+        }
+
+        File[] files = new File[args.length - first];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = new File(args[first + i]);
+        }
+
+        File dir = Files.createTempDirectory("ferox-texture-cache").toFile();
+        TextureCache cache = new TextureCache(dir);
+        ForkJoinPool pool = new ForkJoinPool();
+        Framework framework = Framework.Factory.create();
+        try {
+            // warm up the JIT and the file system cache
+            loadUncached(framework, files, pool);
+            cache.clear();
+            loadCached(framework, cache, files, pool);
+
+            long uncached = 0;
+            long cold = 0;
+            long warm = 0;
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                loadUncached(framework, files, pool);
+                uncached += System.nanoTime() - start;
+
+                cache.clear();
+                start = System.nanoTime();
+                loadCached(framework, cache, files, pool);
+                cold += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                loadCached(framework, cache, files, pool);
+                warm += System.nanoTime() - start;
+            }
+
+            System.out.printf("%d files, %d iterations%n", files.length, iterations);
+            System.out.printf("uncached: %.2f ms%n", uncached / 1e6 / iterations);
+            System.out.printf("cold:     %.2f ms%n", cold / 1e6 / iterations);
+            System.out.printf("warm:     %.2f ms (%.1fx faster than uncached)%n", warm / 1e6 / iterations,
+                              uncached / (double) warm);
+        } finally {
+            framework.destroy();
+            pool.shutdown();
+            cache.clear();
+            dir.delete();
+        }
+    }
+
+    private static void loadUncached(Framework framework, File[] files, ForkJoinPool pool)
+            throws IOException {
+        for (File f : files) {
+            if (isOpenEXR(f)) {
+                OpenEXRImageLoader.read(f, pool);
+            } else {
+                TextureLoader.readTexture(framework, f);
+            }
+        }
+    }
+
+    private static void loadCached(Framework framework, TextureCache cache, File[] files, ForkJoinPool pool)
+            throws IOException {
+        for (File f : files) {
+            if (isOpenEXR(f)) {
+                cache.readOpenEXR(f, pool);
+            } else {
+                cache.readTexture(framework, f);
+            }
+        }
+    }
+
+    private static boolean isOpenEXR(File f) {
+        return f.getName().toLowerCase().endsWith(".exr");
+    }
+}
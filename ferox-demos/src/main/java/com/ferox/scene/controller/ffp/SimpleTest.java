@@ -42,6 +42,7 @@ import com.ferox.scene.task.BuildVisibilityIndexTask;
 import com.ferox.scene.task.ComputeCameraFrustumTask;
 import com.ferox.scene.task.ComputePVSTask;
 import com.ferox.scene.task.UpdateWorldBoundsTask;
+import com.ferox.scene.task.UpdateWorldTransformTask;
 import com.ferox.scene.task.ffp.FixedFunctionRenderTask;
 import com.ferox.scene.task.light.ComputeLightGroupTask;
 import com.ferox.scene.task.light.ComputeShadowFrustumTask;
@@ -150,7 +151,7 @@ public class SimpleTest {
 
         Job renderJob = system.getScheduler()
                               .createJob("render", Timers.measuredDelta(), new AnimationController(),
-                                         new UpdateWorldBoundsTask(), new ComputeCameraFrustumTask(),
+                                         new UpdateWorldTransformTask(), new UpdateWorldBoundsTask(), new ComputeCameraFrustumTask(),
                                          new ComputeShadowFrustumTask(),
                                          new BuildVisibilityIndexTask(new QuadTree<Entity>(worldBounds, 6)),
                                          new ComputePVSTask(), new ComputeLightGroupTask(),
@@ -0,0 +1,124 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.util;
+
+import com.ferox.util.profile.Profiler;
+import com.ferox.util.profile.ProfilerData;
+
+import java.util.Map;
+
+/**
+ * ProfilerBenchmark reports the average cost of a {@link Profiler} push/pop pair, using string labels and
+ * pre-registered probe ids, while another thread takes a data snapshot every millisecond. Each frame pushes
+ * a root block with two levels of nested children, similar to how the scene and physics tasks are profiled.
+ * <p/>
+ * Usage: ProfilerBenchmark [frames]
+ */
+public class ProfilerBenchmark {
+    private static final int ROOT = Profiler.register("frame");
+    private static final int CHILD = Profiler.register("task");
+    private static final int LEAF = Profiler.register("step");
+
+    private static final int CHILDREN = 8;
+    private static final int LEAVES = 4;
+    private static final int PAIRS_PER_FRAME = 1 + CHILDREN * (1 + LEAVES);
+
+    public static void main(String[] args) throws Exception {
+        int frames = (args.length > 0 ? Integer.parseInt(args[0]) : 200000);
+
+        Thread snapshots = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        Map<Thread, ProfilerData> data = Profiler.getDataSnapshot();
+                        if (data.isEmpty()) {
+                            Thread.yield();
+                        } else {
+                            Thread.sleep(1);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // benchmark is finished
+                }
+            }
+        }, "snapshots");
+        snapshots.setDaemon(true);
+        snapshots.start();
+
+        // warm up the JIT
+        runLabels(frames / 10);
+        runProbes(frames / 10);
+
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            runLabels(frames);
+            long labels = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            runProbes(frames);
+            long probes = System.nanoTime() - start;
+
+            System.out.printf("labels: %.1f ns/pair, probes: %.1f ns/pair%n",
+                              labels / (double) frames / PAIRS_PER_FRAME,
+                              probes / (double) frames / PAIRS_PER_FRAME);
+        }
+        snapshots.interrupt();
+
+        Profiler.getDataSnapshot().get(Thread.currentThread()).print(System.out);
+    }
+
+    private static void runLabels(int frames) {
+        for (int f = 0; f < frames; f++) {
+            Profiler.push("frame");
+            for (int c = 0; c < CHILDREN; c++) {
+                Profiler.push("task");
+                for (int l = 0; l < LEAVES; l++) {
+                    Profiler.push("step");
+                    Profiler.pop();
+                }
+                Profiler.pop();
+            }
+            Profiler.pop();
+        }
+    }
+
+    private static void runProbes(int frames) {
+        for (int f = 0; f < frames; f++) {
+            Profiler.push(ROOT);
+            for (int c = 0; c < CHILDREN; c++) {
+                Profiler.push(CHILD);
+                for (int l = 0; l < LEAVES; l++) {
+                    Profiler.push(LEAF);
+                    Profiler.pop();
+                }
+                Profiler.pop();
+            }
+            Profiler.pop();
+        }
+    }
+}
@@ -54,17 +54,52 @@ import java.util.*;
  *    // render
  * }
  * </pre>
+ * <p/>
+ * Events are converted into {@link InputState} snapshots on the event thread and handed to the processing
+ * thread through a preallocated, lock-free ring buffer, so steady-state input handling does not create any
+ * objects. This requires that the attached source deliver its events from a single thread, which is true of
+ * the AWT and NEWT adapters and {@link MouseKeyEventDispatcher}. If more events arrive between calls to
+ * {@link #process()} than the buffer can hold, the overflowing transitions are merged so that only the
+ * newest state is kept, which is always delivered by the next {@link #process()}.
+ * <p/>
+ * By default every registered predicate is evaluated for every state transition. When {@link
+ * #setIndexedDispatch(boolean) indexed dispatch} is enabled, predicates that implement {@link
+ * IndexedPredicate}, which includes every predicate from {@link Predicates}, are only evaluated when one of
+ * the inputs they depend on changed in the transition. Consecutive mouse motion states can also be {@link
+ * #setMouseMotionCoalesced(boolean) coalesced} into a single transition.
  *
  * @author Michael Ludwig
  */
 public class InputManager {
-    private InputState lastState;
-    private InputState lastProcessedState;
-    private final Queue<InputState> stateQueue;
+    /**
+     * The number of states buffered between calls to {@link #process()} by the default constructor.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private static final int KEY_BUCKETS = KeyEvent.KeyCode.values().length;
+    private static final int BUTTON_BUCKETS = MouseEvent.MouseButton.values().length;
+    private static final int MOTION_BUCKET = KEY_BUCKETS + BUTTON_BUCKETS;
+    private static final int SCROLL_BUCKET = MOTION_BUCKET + 1;
+    private static final int ALWAYS_BUCKET = SCROLL_BUCKET + 1;
+
+    private final InputStateRing stateQueue;
+    private final InputState eventState; // owned by the event thread
+    private InputState lastProcessedState; // owned by the processing thread
+    private InputState frameState; // owned by the processing thread
+    private final InputState overflowState; // owned by the processing thread
 
     private final InternalListener listener; // also acts as synchronization lock
     private final List<PredicatedAction> triggers;
 
+    private boolean indexedDispatch;
+    private boolean coalesceMotion;
+
+    // triggers by the input they depend on, see bucket constants, rebuilt when the triggers change
+    private int[][] triggerIndex;
+    private int[] candidates;
+    private int[] candidateStamps;
+    private int stamp;
+
     private MouseKeyEventSource source;
 
     /**
@@ -73,12 +108,76 @@ public class InputManager {
      * source.
      */
     public InputManager() {
-        stateQueue = new ArrayDeque<InputState>();
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a new InputManager that is not attached to any MouseKeyEventSource and can buffer at least
+     * <var>bufferSize</var> states between calls to {@link #process()}.
+     *
+     * @param bufferSize The number of states to preallocate
+     *
+     * @throws IllegalArgumentException if bufferSize is less than 1
+     */
+    public InputManager(int bufferSize) {
+        stateQueue = new InputStateRing(bufferSize);
         triggers = new ArrayList<PredicatedAction>();
 
         listener = new InternalListener();
-        lastState = new InputState();
-        lastProcessedState = lastState;
+        eventState = new InputState();
+        lastProcessedState = new InputState();
+        frameState = new InputState();
+        overflowState = new InputState();
+
+        indexedDispatch = false;
+        coalesceMotion = false;
+        triggerIndex = null;
+    }
+
+    /**
+     * Set whether or not predicates are dispatched by the inputs they depend on. When enabled, a predicate
+     * that implements {@link IndexedPredicate} is only evaluated for transitions that change an input in its
+     * {@link IndexedPredicate#getInputs() mask}, and other predicates are evaluated for every transition.
+     * Triggered actions still run in the order they were registered.
+     *
+     * @param indexed True if predicates should be dispatched by their inputs
+     */
+    public void setIndexedDispatch(boolean indexed) {
+        synchronized (listener) {
+            indexedDispatch = indexed;
+        }
+    }
+
+    /**
+     * @return True if predicates are dispatched by the inputs they depend on
+     */
+    public boolean isIndexedDispatch() {
+        synchronized (listener) {
+            return indexedDispatch;
+        }
+    }
+
+    /**
+     * Set whether or not consecutive states that only differ by mouse position are coalesced into a single
+     * transition when processed. When enabled, a burst of mouse movement produces one transition from the
+     * position before the burst to the position after it, which reduces predicate evaluations when the mouse
+     * reports at a high rate. Transitions that change keys, buttons or scrolling are never merged.
+     *
+     * @param coalesce True if mouse motion should be coalesced
+     */
+    public void setMouseMotionCoalesced(boolean coalesce) {
+        synchronized (listener) {
+            coalesceMotion = coalesce;
+        }
+    }
+
+    /**
+     * @return True if consecutive mouse motion states are coalesced
+     */
+    public boolean isMouseMotionCoalesced() {
+        synchronized (listener) {
+            return coalesceMotion;
+        }
     }
 
     /**
@@ -173,6 +272,7 @@ public class InputManager {
                 // remove all occurrences of the action
                 if (it.next().trigger == trigger) {
                     it.remove();
+                    triggerIndex = null;
                 }
             }
         }
@@ -181,51 +281,207 @@ public class InputManager {
     /**
      * Process all events that have been accumulated since the last call to {@link #process()} and run all
      * actions that are triggered based on their associated predicate. This will run the actions on the
-     * calling thread.
+     * calling thread. This must not be called concurrently from multiple threads.
      */
     public void process() {
         synchronized (listener) {
             InputState prev = lastProcessedState;
-            for (InputState next : stateQueue) {
+            long end = stateQueue.tail();
+            for (long s = stateQueue.head(); s < end; s++) {
+                InputState next = stateQueue.get(s);
+                if (coalesceMotion && s + 1 < end && isMotionOnly(prev, next) &&
+                    isMotionOnly(next, stateQueue.get(s + 1))) {
+                    // the following state continues the motion, so skip this one and let the
+                    // transition span both
+                    continue;
+                }
                 processTriggers(prev, next);
                 prev = next;
             }
-            lastProcessedState = new InputState(lastState);
-            processTriggers(prev, lastProcessedState);
-            stateQueue.clear();
+
+            // a full buffer keeps the newest state aside, it must still be seen or releases could be lost
+            if (stateQueue.pollOverflow(end, overflowState)) {
+                processTriggers(prev, overflowState);
+                prev = overflowState;
+            }
+
+            // a final transition to the current time lets held-key style predicates fire every frame
+            frameState.set(prev);
+            frameState.setTimestamp(System.nanoTime());
+            processTriggers(prev, frameState);
+            stateQueue.release(end);
+
+            InputState swap = lastProcessedState;
+            lastProcessedState = frameState;
+            frameState = swap;
         }
     }
 
     private void processTriggers(InputState prev, InputState next) {
+        if (indexedDispatch) {
+            processIndexedTriggers(prev, next);
+        } else {
+            int ct = triggers.size();
+            for (int i = 0; i < ct; i++) {
+                triggers.get(i).apply(prev, next);
+            }
+        }
+    }
+
+    private void processIndexedTriggers(InputState prev, InputState next) {
+        if (triggerIndex == null) {
+            buildTriggerIndex();
+        }
+        if (++stamp == 0) {
+            // wrapped around, so old stamps could collide
+            Arrays.fill(candidateStamps, 0);
+            stamp = 1;
+        }
+
+        int count = addCandidates(ALWAYS_BUCKET, 0);
+
+        KeyboardState pk = prev.getKeyboardState();
+        KeyboardState nk = next.getKeyboardState();
+        for (int w = 0; w < KeyboardState.WORD_COUNT; w++) {
+            long changed = pk.getWord(w) ^ nk.getWord(w);
+            while (changed != 0) {
+                count = addCandidates(w * 64 + Long.numberOfTrailingZeros(changed), count);
+                changed &= changed - 1;
+            }
+        }
+
+        MouseState pm = prev.getMouseState();
+        MouseState nm = next.getMouseState();
+        int changedButtons = pm.getButtonMask() ^ nm.getButtonMask();
+        while (changedButtons != 0) {
+            count = addCandidates(KEY_BUCKETS + Integer.numberOfTrailingZeros(changedButtons), count);
+            changedButtons &= changedButtons - 1;
+        }
+        if (pm.getX() != nm.getX() || pm.getY() != nm.getY()) {
+            count = addCandidates(MOTION_BUCKET, count);
+        }
+        if (pm.getScrollCount() != nm.getScrollCount()) {
+            count = addCandidates(SCROLL_BUCKET, count);
+        }
+
+        // preserve registration order
+        Arrays.sort(candidates, 0, count);
+        for (int i = 0; i < count; i++) {
+            triggers.get(candidates[i]).apply(prev, next);
+        }
+    }
+
+    private int addCandidates(int bucket, int count) {
+        int[] bucketTriggers = triggerIndex[bucket];
+        for (int i = 0; i < bucketTriggers.length; i++) {
+            int t = bucketTriggers[i];
+            if (candidateStamps[t] != stamp) {
+                candidateStamps[t] = stamp;
+                candidates[count++] = t;
+            }
+        }
+        return count;
+    }
+
+    private void buildTriggerIndex() {
         int ct = triggers.size();
+        InputMask[] masks = new InputMask[ct];
         for (int i = 0; i < ct; i++) {
-            triggers.get(i).apply(prev, next);
+            Predicate condition = triggers.get(i).condition;
+            if (condition instanceof IndexedPredicate) {
+                masks[i] = ((IndexedPredicate) condition).getInputs();
+            } else {
+                masks[i] = InputMask.ALL;
+            }
         }
+
+        KeyEvent.KeyCode[] keys = KeyEvent.KeyCode.values();
+        MouseEvent.MouseButton[] buttons = MouseEvent.MouseButton.values();
+
+        // first pass counts the size of each bucket, second pass fills them
+        int[] sizes = new int[ALWAYS_BUCKET + 1];
+        int[][] index = null;
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 1) {
+                index = new int[sizes.length][];
+                for (int b = 0; b < sizes.length; b++) {
+                    index[b] = new int[sizes[b]];
+                }
+                Arrays.fill(sizes, 0);
+            }
+
+            for (int i = 0; i < ct; i++) {
+                InputMask mask = masks[i];
+                if (mask.isAll()) {
+                    addToBucket(index, sizes, ALWAYS_BUCKET, i);
+                    continue;
+                }
+
+                for (int k = 0; k < keys.length; k++) {
+                    if (mask.containsKey(keys[k])) {
+                        addToBucket(index, sizes, k, i);
+                    }
+                }
+                for (int b = 0; b < buttons.length; b++) {
+                    if (mask.containsButton(buttons[b])) {
+                        addToBucket(index, sizes, KEY_BUCKETS + b, i);
+                    }
+                }
+                if (mask.containsMotion()) {
+                    addToBucket(index, sizes, MOTION_BUCKET, i);
+                }
+                if (mask.containsScroll()) {
+                    addToBucket(index, sizes, SCROLL_BUCKET, i);
+                }
+            }
+        }
+
+        triggerIndex = index;
+        candidates = new int[ct];
+        candidateStamps = new int[ct];
+        stamp = 0;
     }
 
-    // caller must be synchronized on event listener
-    private void advanceState(InputState next) {
-        lastState = next;
-        stateQueue.add(next);
+    private static void addToBucket(int[][] index, int[] sizes, int bucket, int trigger) {
+        if (index != null) {
+            index[bucket][sizes[bucket]] = trigger;
+        }
+        sizes[bucket]++;
+    }
+
+    private static boolean isMotionOnly(InputState prev, InputState next) {
+        MouseState pm = prev.getMouseState();
+        MouseState nm = next.getMouseState();
+        if (pm.getButtonMask() != nm.getButtonMask() || pm.getScrollCount() != nm.getScrollCount()) {
+            return false;
+        }
+
+        KeyboardState pk = prev.getKeyboardState();
+        KeyboardState nk = next.getKeyboardState();
+        for (int w = 0; w < KeyboardState.WORD_COUNT; w++) {
+            if (pk.getWord(w) != nk.getWord(w)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /*
      * Internal class used to listen for events to prevent InputManager being
-     * used as a listener directly. It is also the monitor used by each manager.
+     * used as a listener directly. It is also the monitor used by each manager
+     * to guard the trigger list, but events are published without locking.
      */
     private class InternalListener implements KeyListener, MouseListener {
         @Override
         public void handleEvent(KeyEvent event) {
-            synchronized (this) {
-                advanceState(new InputState(lastState, event));
-            }
+            eventState.apply(event);
+            stateQueue.offer(eventState);
         }
 
         @Override
         public void handleEvent(MouseEvent event) {
-            synchronized (this) {
-                advanceState(new InputState(lastState, event));
-            }
+            eventState.apply(event);
+            stateQueue.offer(eventState);
         }
     }
 
@@ -250,6 +506,7 @@ public class InputManager {
 
             synchronized (listener) {
                 triggers.add(new PredicatedAction(action, condition));
+                triggerIndex = null;
             }
         }
     }
@@ -0,0 +1,172 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.input.logic;
+
+import com.ferox.input.KeyEvent.KeyCode;
+import com.ferox.input.MouseEvent.MouseButton;
+
+import java.util.Arrays;
+
+/**
+ * InputMask is an immutable set of the keys, mouse buttons and mouse axes that an {@link IndexedPredicate}
+ * depends on. {@link InputManager} uses the masks of its registered predicates to skip evaluating
+ * predicates whose inputs did not change in a state transition.
+ *
+ * @author Michael Ludwig
+ */
+public final class InputMask {
+    /**
+     * A mask that depends on every input, including the passage of time. Predicates with this mask are
+     * evaluated for every transition.
+     */
+    public static final InputMask ALL = new InputMask(new long[KeyboardState.WORD_COUNT], 0, false, false,
+                                                      true);
+    /**
+     * A mask that depends only on the mouse position.
+     */
+    public static final InputMask MOTION = new InputMask(new long[KeyboardState.WORD_COUNT], 0, true, false,
+                                                         false);
+    /**
+     * A mask that depends only on the scroll wheel.
+     */
+    public static final InputMask SCROLL = new InputMask(new long[KeyboardState.WORD_COUNT], 0, false, true,
+                                                         false);
+
+    private final long[] keys;
+    private final int buttons;
+    private final boolean motion;
+    private final boolean scroll;
+    private final boolean all;
+
+    private InputMask(long[] keys, int buttons, boolean motion, boolean scroll, boolean all) {
+        this.keys = keys;
+        this.buttons = buttons;
+        this.motion = motion;
+        this.scroll = scroll;
+        this.all = all;
+    }
+
+    /**
+     * Create a mask that depends on the given keys.
+     *
+     * @param codes The key codes in the mask
+     *
+     * @return A new mask
+     *
+     * @throws NullPointerException if codes or any element is null
+     */
+    public static InputMask keys(KeyCode... codes) {
+        long[] keys = new long[KeyboardState.WORD_COUNT];
+        for (KeyCode code : codes) {
+            keys[code.ordinal() >>> 6] |= (1L << code.ordinal());
+        }
+        return new InputMask(keys, 0, false, false, false);
+    }
+
+    /**
+     * Create a mask that depends on the given mouse buttons. Because the NONE button is down exactly when no
+     * other button is, a mask containing NONE depends on every button.
+     *
+     * @param buttons The buttons in the mask
+     *
+     * @return A new mask
+     *
+     * @throws NullPointerException if buttons or any element is null
+     */
+    public static InputMask buttons(MouseButton... buttons) {
+        int mask = 0;
+        for (MouseButton b : buttons) {
+            if (b == MouseButton.NONE) {
+                mask |= MouseState.ALL_BUTTONS;
+            } else {
+                mask |= (1 << b.ordinal());
+            }
+        }
+        return new InputMask(new long[KeyboardState.WORD_COUNT], mask, false, false, false);
+    }
+
+    /**
+     * Create a new mask that depends on the inputs of this mask and <var>mask</var>.
+     *
+     * @param mask The other mask
+     *
+     * @return The union of the two masks
+     *
+     * @throws NullPointerException if mask is null
+     */
+    public InputMask union(InputMask mask) {
+        if (all || mask.all) {
+            return ALL;
+        }
+
+        long[] unionKeys = Arrays.copyOf(keys, keys.length);
+        for (int i = 0; i < unionKeys.length; i++) {
+            unionKeys[i] |= mask.keys[i];
+        }
+        return new InputMask(unionKeys, buttons | mask.buttons, motion || mask.motion, scroll || mask.scroll,
+                             false);
+    }
+
+    /**
+     * @return True if this mask depends on every input and transition
+     */
+    public boolean isAll() {
+        return all;
+    }
+
+    /**
+     * @param code The key code to check
+     *
+     * @return True if this mask depends on the given key
+     */
+    public boolean containsKey(KeyCode code) {
+        return all || (keys[code.ordinal() >>> 6] & (1L << code.ordinal())) != 0;
+    }
+
+    /**
+     * @param button The button to check
+     *
+     * @return True if this mask depends on the given button
+     */
+    public boolean containsButton(MouseButton button) {
+        return all || (buttons & (1 << button.ordinal())) != 0;
+    }
+
+    /**
+     * @return True if this mask depends on the mouse position
+     */
+    public boolean containsMotion() {
+        return all || motion;
+    }
+
+    /**
+     * @return True if this mask depends on the scroll wheel
+     */
+    public boolean containsScroll() {
+        return all || scroll;
+    }
+}
@@ -31,6 +31,10 @@ import com.ferox.input.MouseEvent;
 
 /**
  * InputState represents a time-stamped snapshot of both the user's keyboard and mouse.
+ * <p/>
+ * InputManager does not create a new InputState for every event. It recycles a fixed pool of states, so the
+ * states passed to {@link Predicate predicates} and {@link Action actions} are only valid for the duration
+ * of the call. Use {@link #InputState(InputState)} to keep a copy.
  *
  * @author Michael Ludwig
  * @see KeyboardState
@@ -40,7 +44,7 @@ public class InputState {
     private final KeyboardState keyboard;
     private final MouseState mouse;
 
-    private final long timestamp; // nanos
+    private long timestamp; // nanos
 
     /**
      * Create a new InputState that has the empty or default keyboard and mouse states. Its timestamp is set
@@ -50,11 +54,11 @@ public class InputState {
         keyboard = new KeyboardState();
         mouse = new MouseState();
 
-        timestamp = System.currentTimeMillis();
+        timestamp = System.nanoTime();
     }
 
     /**
-     * Create a new InputState that clones the mouse and keyboard states from the given InputState, but has an
+     * Create a new InputState that copies the mouse and keyboard states from the given InputState, but has an
      * updated timestamp to the current system time.
      *
      * @param prev The previous input state
@@ -62,8 +66,8 @@ public class InputState {
      * @throws NullPointerException if prev is null
      */
     public InputState(InputState prev) {
-        keyboard = prev.keyboard;
-        mouse = prev.mouse;
+        keyboard = new KeyboardState(prev.keyboard);
+        mouse = new MouseState(prev.mouse);
 
         timestamp = System.nanoTime();
     }
@@ -80,7 +84,7 @@ public class InputState {
     public InputState(InputState prev, KeyEvent event) {
         if (prev != null) {
             keyboard = new KeyboardState(prev.keyboard, event);
-            mouse = prev.mouse;
+            mouse = new MouseState(prev.mouse);
         } else {
             keyboard = new KeyboardState(null, event);
             mouse = new MouseState();
@@ -100,7 +104,7 @@ public class InputState {
      */
     public InputState(InputState prev, MouseEvent event) {
         if (prev != null) {
-            keyboard = prev.keyboard;
+            keyboard = new KeyboardState(prev.keyboard);
             mouse = new MouseState(prev.mouse, event);
         } else {
             keyboard = new KeyboardState();
@@ -110,6 +114,45 @@ public class InputState {
         timestamp = System.nanoTime();
     }
 
+    /**
+     * Copy the keyboard, mouse and timestamp of <var>state</var> into this state.
+     *
+     * @param state The state to copy
+     */
+    void set(InputState state) {
+        keyboard.set(state.keyboard);
+        mouse.set(state.mouse);
+        timestamp = state.timestamp;
+    }
+
+    /**
+     * Update this state in place to reflect the given key event, with the timestamp set to the current time.
+     *
+     * @param event The key event to apply
+     */
+    void apply(KeyEvent event) {
+        keyboard.apply(event);
+        timestamp = System.nanoTime();
+    }
+
+    /**
+     * Update this state in place to reflect the given mouse event, with the timestamp set to the current
+     * time.
+     *
+     * @param event The mouse event to apply
+     */
+    void apply(MouseEvent event) {
+        mouse.apply(event);
+        timestamp = System.nanoTime();
+    }
+
+    /**
+     * @param timestamp The new timestamp of this state, in nanoseconds
+     */
+    void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
     /**
      * @return The time stamp in nanoseconds of the event that produced this input state
      */
@@ -0,0 +1,173 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.input.logic;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * InputStateRing is a bounded, lock-free ring buffer of preallocated {@link InputState InputStates} that
+ * moves state snapshots from a single event thread to a single processing thread. The producer copies its
+ * current state into the next free slot and publishes it by advancing the tail; the consumer reads every
+ * published slot and then releases them all at once by advancing the head. Slots are reused, so no objects
+ * are created after construction.
+ *
+ * @author Michael Ludwig
+ */
+final class InputStateRing {
+    private final InputState[] slots;
+    private final int mask;
+
+    private final AtomicLong head; // next sequence to consume, only written by the consumer
+    private final AtomicLong tail; // next sequence to produce, only written by the producer
+
+    private long cachedHead; // producer's last read of head, avoids a volatile read per offer
+
+    // the newest state that did not fit, and the sequence it would have had or -1, guarded by overflow
+    private final InputState overflow;
+    private long overflowSequence;
+
+    /**
+     * Create a new ring with room for at least <var>capacity</var> states.
+     *
+     * @param capacity The minimum number of states that can be buffered
+     *
+     * @throws IllegalArgumentException if capacity is less than 1
+     */
+    public InputStateRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, not: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        slots = new InputState[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new InputState();
+        }
+        mask = size - 1;
+
+        head = new AtomicLong(0);
+        tail = new AtomicLong(0);
+        cachedHead = 0;
+
+        overflow = new InputState();
+        overflowSequence = -1;
+    }
+
+    /**
+     * Copy <var>state</var> into the next free slot and publish it to the consumer. If the ring is full, the
+     * state replaces the previous overflow state instead, which the consumer retrieves with {@link
+     * #pollOverflow(long, InputState)} so the newest state is never lost. This must only be called by the
+     * producing thread.
+     *
+     * @param state The state to publish
+     *
+     * @return False if the ring is full and the state was stored as the overflow state
+     */
+    public boolean offer(InputState state) {
+        long t = tail.get();
+        if (t - cachedHead >= slots.length) {
+            cachedHead = head.get();
+            if (t - cachedHead >= slots.length) {
+                // overflow is rare, so a lock is acceptable to keep the snapshot consistent
+                synchronized (overflow) {
+                    overflow.set(state);
+                    overflowSequence = t;
+                }
+                return false;
+            }
+        }
+
+        slots[(int) t & mask].set(state);
+        tail.lazySet(t + 1); // ordered store publishes the slot contents
+        return true;
+    }
+
+    /**
+     * @return The sequence of the first unconsumed state, only meaningful to the consumer
+     */
+    public long head() {
+        return head.get();
+    }
+
+    /**
+     * @return The sequence after the last published state
+     */
+    public long tail() {
+        return tail.get();
+    }
+
+    /**
+     * Get the state stored for the given sequence, which must be between {@link #head()} and {@link #tail()}.
+     * The state remains valid until the sequence is released.
+     *
+     * @param sequence The sequence to access
+     *
+     * @return The state at that sequence
+     */
+    public InputState get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * Copy the overflow state into <var>result</var> if it is newer than every published state before
+     * <var>end</var>. An overflow state that was superseded by a published state is discarded, since states
+     * are cumulative. This must only be called by the consuming thread, before releasing <var>end</var>.
+     *
+     * @param end    The tail that the consumer processed up to
+     * @param result The state that receives the overflow state
+     *
+     * @return True if result was updated with an overflow state that must be processed after the ring
+     */
+    public boolean pollOverflow(long end, InputState result) {
+        synchronized (overflow) {
+            if (overflowSequence < 0 || overflowSequence > end) {
+                // nothing overflowed, or it happened after the consumer read the tail so it's kept for later
+                return false;
+            }
+
+            boolean newest = overflowSequence == end;
+            if (newest) {
+                result.set(overflow);
+            }
+            overflowSequence = -1;
+            return newest;
+        }
+    }
+
+    /**
+     * Release all states before <var>sequence</var> so the producer can reuse their slots. This must only be
+     * called by the consuming thread.
+     *
+     * @param sequence The new head of the ring
+     */
+    public void release(long sequence) {
+        head.lazySet(sequence);
+    }
+}
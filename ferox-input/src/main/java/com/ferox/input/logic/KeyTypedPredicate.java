@@ -34,10 +34,12 @@ import com.ferox.input.KeyEvent.KeyCode;
  *
  * @author Michael Ludwig
  */
-class KeyTypedPredicate implements Predicate {
+class KeyTypedPredicate implements IndexedPredicate {
     private final KeyCode code;
     private final long typeDuration;
 
+    private final InputMask inputs;
+
     private long startTime;
 
     public KeyTypedPredicate(KeyCode code, long typeDuration) {
@@ -51,9 +53,15 @@ class KeyTypedPredicate implements Predicate {
 
         this.code = code;
         this.typeDuration = typeDuration * 1000000; // convert from millis to nanoseconds
+        inputs = InputMask.keys(code);
         startTime = -1;
     }
 
+    @Override
+    public InputMask getInputs() {
+        return inputs;
+    }
+
     @Override
     public boolean apply(InputState prev, InputState next) {
         if (!prev.getKeyboardState().isKeyDown(code) && next.getKeyboardState().isKeyDown(code)) {
@@ -30,22 +30,39 @@ import com.ferox.input.KeyEvent;
 import com.ferox.input.KeyEvent.KeyCode;
 import com.ferox.input.KeyEvent.Type;
 
-import java.util.EnumSet;
+import java.util.Arrays;
 
 /**
- * KeyboardState represents an immutable snapshot of the user's keyboard. It can be used to query if any key
- * is held down or released.
+ * KeyboardState represents a snapshot of the user's keyboard. It can be used to query if any key is held down
+ * or released. The keys that are down are stored in a bitset indexed by {@link KeyCode#ordinal()}, so states
+ * can be copied and updated without allocating.
+ * <p/>
+ * States passed to predicates and actions by {@link InputManager} are recycled after processing, so they
+ * must be copied with {@link #KeyboardState(KeyboardState)} if they need to be kept.
  *
  * @author Michael Ludwig
  */
 public class KeyboardState {
-    private final EnumSet<KeyCode> keysDown;
+    static final int WORD_COUNT = (KeyCode.values().length + 63) >>> 6;
+
+    private final long[] keysDown;
 
     /**
      * Create a new KeyboardState that has zero keys marked as down.
      */
     public KeyboardState() {
-        keysDown = EnumSet.noneOf(KeyCode.class);
+        keysDown = new long[WORD_COUNT];
+    }
+
+    /**
+     * Create a new KeyboardState that has the same keys marked as down as <var>state</var>.
+     *
+     * @param state The state to copy
+     *
+     * @throws NullPointerException if state is null
+     */
+    public KeyboardState(KeyboardState state) {
+        keysDown = Arrays.copyOf(state.keysDown, WORD_COUNT);
     }
 
     /**
@@ -60,18 +77,45 @@ public class KeyboardState {
      */
     public KeyboardState(KeyboardState prev, KeyEvent event) {
         if (prev != null) {
-            keysDown = EnumSet.copyOf(prev.keysDown);
+            keysDown = Arrays.copyOf(prev.keysDown, WORD_COUNT);
         } else {
-            keysDown = EnumSet.noneOf(KeyCode.class);
+            keysDown = new long[WORD_COUNT];
         }
+        apply(event);
+    }
 
+    /**
+     * Copy the keys marked as down from <var>state</var> into this state.
+     *
+     * @param state The state to copy
+     */
+    void set(KeyboardState state) {
+        System.arraycopy(state.keysDown, 0, keysDown, 0, WORD_COUNT);
+    }
+
+    /**
+     * Update this state in place to reflect the given key event.
+     *
+     * @param event The key event to apply
+     */
+    void apply(KeyEvent event) {
+        int key = event.getKeyCode().ordinal();
         if (event.getEventType() == Type.PRESS) {
-            keysDown.add(event.getKeyCode());
+            keysDown[key >>> 6] |= (1L << key);
         } else {
-            keysDown.remove(event.getKeyCode());
+            keysDown[key >>> 6] &= ~(1L << key);
         }
     }
 
+    /**
+     * @param word The index of the word within the bitset
+     *
+     * @return The bits of the given word of the key bitset
+     */
+    long getWord(int word) {
+        return keysDown[word];
+    }
+
     /**
      * Return whether or not the given key is down. The PRESS event that marked the key as down could have
      * happened any number of frames in the past, but it is guaranteed that it has not been released as of
@@ -82,6 +126,7 @@ public class KeyboardState {
      * @return True if the key is held down
      */
     public boolean isKeyDown(KeyCode code) {
-        return keysDown.contains(code);
+        int key = code.ordinal();
+        return (keysDown[key >>> 6] & (1L << key)) != 0;
     }
 }
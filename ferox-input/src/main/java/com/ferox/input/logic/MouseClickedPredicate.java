@@ -34,11 +34,13 @@ import com.ferox.input.MouseEvent.MouseButton;
  *
  * @author Michael Ludwig
  */
-class MouseClickedPredicate implements Predicate {
+class MouseClickedPredicate implements IndexedPredicate {
     private final MouseButton button;
     private final long clickDuration;
     private final int numClicks;
 
+    private final InputMask inputs;
+
     private long startTime;
     private int currentClickCount;
 
@@ -60,10 +62,16 @@ class MouseClickedPredicate implements Predicate {
         this.numClicks = numClicks;
         this.clickDuration = clickDuration * 1000000; // convert from millis to nanos
 
+        inputs = InputMask.buttons(button);
         startTime = -1;
         currentClickCount = 0;
     }
 
+    @Override
+    public InputMask getInputs() {
+        return inputs;
+    }
+
     @Override
     public boolean apply(InputState prev, InputState next) {
         if (!prev.getMouseState().isButtonDown(button) && next.getMouseState().isButtonDown(button)) {
@@ -30,20 +30,25 @@ import com.ferox.input.MouseEvent;
 import com.ferox.input.MouseEvent.MouseButton;
 import com.ferox.input.MouseEvent.Type;
 
-import java.util.EnumSet;
-
 /**
- * MouseState represents an immutable snapshot of the user's mouse. It can be used to query if any button is
- * held down or released, as well as the current mouse location and scroll position.
+ * MouseState represents a snapshot of the user's mouse. It can be used to query if any button is held down or
+ * released, as well as the current mouse location and scroll position. All of its state is kept in primitive
+ * fields, with the pressed buttons as a bitmask indexed by {@link MouseButton#ordinal()}, so states can be
+ * copied and updated without allocating.
+ * <p/>
+ * States passed to predicates and actions by {@link InputManager} are recycled after processing, so they
+ * must be copied with {@link #MouseState(MouseState)} if they need to be kept.
  *
  * @author Michael Ludwig
  */
 public class MouseState {
-    private final int x;
-    private final int y;
+    static final int ALL_BUTTONS = (1 << MouseButton.values().length) - 1;
+
+    private int x;
+    private int y;
 
-    private final EnumSet<MouseButton> buttonsDown;
-    private final int scrollCount;
+    private int buttonsDown;
+    private int scrollCount;
 
     /**
      * Create a new MouseState that starts at (0, 0) and has an initial scroll value of 0.
@@ -52,10 +57,21 @@ public class MouseState {
         x = 0;
         y = 0;
 
-        buttonsDown = EnumSet.noneOf(MouseButton.class);
+        buttonsDown = 0;
         scrollCount = 0;
     }
 
+    /**
+     * Create a new MouseState that is a copy of <var>state</var>.
+     *
+     * @param state The state to copy
+     *
+     * @throws NullPointerException if state is null
+     */
+    public MouseState(MouseState state) {
+        set(state);
+    }
+
     /**
      * <p/>
      * Create a new MouseState that will mark a button as down if the event is a PRESS, or will mark it as up
@@ -71,26 +87,39 @@ public class MouseState {
      * @throws NullPointerException if event is null
      */
     public MouseState(MouseState prev, MouseEvent event) {
-        x = event.getX();
-        y = event.getY();
-
         if (prev != null) {
-            buttonsDown = EnumSet.copyOf(prev.buttonsDown);
-        } else {
-            buttonsDown = EnumSet.noneOf(MouseButton.class);
+            set(prev);
         }
+        apply(event);
+    }
+
+    /**
+     * Copy the position, buttons and scroll count of <var>state</var> into this state.
+     *
+     * @param state The state to copy
+     */
+    void set(MouseState state) {
+        x = state.x;
+        y = state.y;
+        buttonsDown = state.buttonsDown;
+        scrollCount = state.scrollCount;
+    }
+
+    /**
+     * Update this state in place to reflect the given mouse event.
+     *
+     * @param event The mouse event to apply
+     */
+    void apply(MouseEvent event) {
+        x = event.getX();
+        y = event.getY();
 
         if (event.getEventType() == Type.PRESS) {
-            buttonsDown.add(event.getButton());
+            buttonsDown |= (1 << event.getButton().ordinal());
         } else if (event.getEventType() == Type.RELEASE) {
-            buttonsDown.remove(event.getButton());
-        }
-
-        int oldScrollCount = (prev != null ? prev.scrollCount : 0);
-        if (event.getEventType() == Type.SCROLL) {
-            scrollCount = oldScrollCount + event.getScrollDelta();
-        } else {
-            scrollCount = oldScrollCount;
+            buttonsDown &= ~(1 << event.getButton().ordinal());
+        } else if (event.getEventType() == Type.SCROLL) {
+            scrollCount += event.getScrollDelta();
         }
     }
 
@@ -109,12 +138,19 @@ public class MouseState {
      */
     public boolean isButtonDown(MouseButton button) {
         if (button == MouseButton.NONE) {
-            return buttonsDown.isEmpty();
+            return (buttonsDown & ~1) == 0;
         } else {
-            return buttonsDown.contains(button);
+            return (buttonsDown & (1 << button.ordinal())) != 0;
         }
     }
 
+    /**
+     * @return The bitmask of pressed buttons, indexed by button ordinal
+     */
+    int getButtonMask() {
+        return buttonsDown;
+    }
+
     /**
      * @return The current x position of the mouse
      */
@@ -52,11 +52,17 @@ public final class Predicates {
         if (code == null) {
             throw new NullPointerException("KeyCode cannot be null");
         }
-        return new Predicate() {
+        final InputMask inputs = InputMask.keys(code);
+        return new IndexedPredicate() {
             @Override
             public boolean apply(InputState prev, InputState next) {
                 return !prev.getKeyboardState().isKeyDown(code) && next.getKeyboardState().isKeyDown(code);
             }
+
+            @Override
+            public InputMask getInputs() {
+                return inputs;
+            }
         };
     }
 
@@ -73,11 +79,17 @@ public final class Predicates {
         if (code == null) {
             throw new NullPointerException("KeyCode cannot be null");
         }
-        return new Predicate() {
+        final InputMask inputs = InputMask.keys(code);
+        return new IndexedPredicate() {
             @Override
             public boolean apply(InputState prev, InputState next) {
                 return prev.getKeyboardState().isKeyDown(code) && !next.getKeyboardState().isKeyDown(code);
             }
+
+            @Override
+            public InputMask getInputs() {
+                return inputs;
+            }
         };
     }
 
@@ -95,7 +107,7 @@ public final class Predicates {
         if (code == null) {
             throw new NullPointerException("KeyCode cannot be null");
         }
-        return new Predicate() {
+        return new LevelPredicate() {
             @Override
             public boolean apply(InputState prev, InputState next) {
                 // we use prev as the signal so that we still trigger during
@@ -153,12 +165,18 @@ public final class Predicates {
         if (button == null) {
             throw new NullPointerException("MouseButton cannot be null");
         }
-        return new Predicate() {
+        final InputMask inputs = InputMask.buttons(button);
+        return new IndexedPredicate() {
             @Override
             public boolean apply(InputState prev, InputState next) {
                 return !prev.getMouseState().isButtonDown(button) &&
                        next.getMouseState().isButtonDown(button);
             }
+
+            @Override
+            public InputMask getInputs() {
+                return inputs;
+            }
         };
     }
 
@@ -177,12 +195,18 @@ public final class Predicates {
         if (button == null) {
             throw new NullPointerException("MouseButton cannot be null");
         }
-        return new Predicate() {
+        final InputMask inputs = InputMask.buttons(button);
+        return new IndexedPredicate() {
             @Override
             public boolean apply(InputState prev, InputState next) {
                 return prev.getMouseState().isButtonDown(button) &&
                        !next.getMouseState().isButtonDown(button);
             }
+
+            @Override
+            public InputMask getInputs() {
+                return inputs;
+            }
         };
     }
 
@@ -201,7 +225,7 @@ public final class Predicates {
         if (button == null) {
             throw new NullPointerException("MouseButton cannot be null");
         }
-        return new Predicate() {
+        return new LevelPredicate() {
             @Override
             public boolean apply(InputState prev, InputState next) {
                 // see keyHeld() for why we use prev instead of next
@@ -300,13 +324,18 @@ public final class Predicates {
         if (allowAnyButton) {
             // if any button is allowed, we just look for delta movement
             // and don't care about button state
-            return new Predicate() {
+            return new IndexedPredicate() {
                 @Override
                 public boolean apply(InputState prev, InputState next) {
                     MouseState pm = prev.getMouseState();
                     MouseState nm = next.getMouseState();
                     return pm.getX() != nm.getX() || pm.getY() != nm.getY();
                 }
+
+                @Override
+                public InputMask getInputs() {
+                    return InputMask.MOTION;
+                }
             };
         } else {
             return mouseDrag(MouseButton.NONE);
@@ -334,11 +363,16 @@ public final class Predicates {
      * @return A Predicate matching forward wheel motion
      */
     public static Predicate forwardScroll() {
-        return new Predicate() {
+        return new IndexedPredicate() {
             @Override
             public boolean apply(InputState prev, InputState next) {
                 return next.getMouseState().getScrollCount() > prev.getMouseState().getScrollCount();
             }
+
+            @Override
+            public InputMask getInputs() {
+                return InputMask.SCROLL;
+            }
         };
     }
 
@@ -349,11 +383,16 @@ public final class Predicates {
      * @return A Predicate matching backward wheel motion
      */
     public static Predicate backwardScroll() {
-        return new Predicate() {
+        return new IndexedPredicate() {
             @Override
             public boolean apply(InputState prev, InputState next) {
                 return next.getMouseState().getScrollCount() < prev.getMouseState().getScrollCount();
             }
+
+            @Override
+            public InputMask getInputs() {
+                return InputMask.SCROLL;
+            }
         };
     }
 
@@ -373,7 +412,8 @@ public final class Predicates {
         if (left == null || right == null) {
             throw new NullPointerException("Predicate arguments to and() cannot be null");
         }
-        return new Predicate() {
+        final InputMask inputs = andInputs(left, right);
+        return new IndexedPredicate() {
             @Override
             public boolean apply(InputState prev, InputState next) {
                 // make sure to invoke both predicates
@@ -381,6 +421,11 @@ public final class Predicates {
                 boolean rightResult = right.apply(prev, next);
                 return leftResult && rightResult;
             }
+
+            @Override
+            public InputMask getInputs() {
+                return inputs;
+            }
         };
     }
 
@@ -400,7 +445,8 @@ public final class Predicates {
         if (left == null || right == null) {
             throw new NullPointerException("Predicate arguments to or() cannot be null");
         }
-        return new Predicate() {
+        final InputMask inputs = getInputs(left).union(getInputs(right));
+        return new IndexedPredicate() {
             @Override
             public boolean apply(InputState prev, InputState next) {
                 // make sure to invoke both predicates
@@ -408,6 +454,11 @@ public final class Predicates {
                 boolean rightResult = right.apply(prev, next);
                 return leftResult || rightResult;
             }
+
+            @Override
+            public InputMask getInputs() {
+                return inputs;
+            }
         };
     }
 
@@ -425,11 +476,59 @@ public final class Predicates {
         if (not == null) {
             throw new NullPointerException("Predicate argument to not() cannot be null");
         }
-        return new Predicate() {
+        if (not instanceof LevelPredicate) {
+            // negating a stateless level predicate is still stateless
+            return new LevelPredicate() {
+                @Override
+                public boolean apply(InputState prev, InputState next) {
+                    return !not.apply(prev, next);
+                }
+            };
+        }
+
+        // the negation is true for every transition that leaves the inputs unchanged, so it can never be
+        // skipped, and the wrapped predicate may track state so it can't be treated as a level predicate
+        return new IndexedPredicate() {
             @Override
             public boolean apply(InputState prev, InputState next) {
                 return !not.apply(prev, next);
             }
+
+            @Override
+            public InputMask getInputs() {
+                return InputMask.ALL;
+            }
         };
     }
+
+    private static InputMask getInputs(Predicate p) {
+        if (p instanceof IndexedPredicate) {
+            return ((IndexedPredicate) p).getInputs();
+        } else {
+            return InputMask.ALL;
+        }
+    }
+
+    private static InputMask andInputs(Predicate left, Predicate right) {
+        // a conjunction is false whenever an edge-triggered side is false, and skipping a stateless level
+        // predicate has no side effects, so the level side does not need to widen the mask
+        if (left instanceof LevelPredicate && !(right instanceof LevelPredicate)) {
+            return getInputs(right);
+        } else if (right instanceof LevelPredicate && !(left instanceof LevelPredicate)) {
+            return getInputs(left);
+        } else {
+            return getInputs(left).union(getInputs(right));
+        }
+    }
+
+    /*
+     * Base class for stateless predicates that can be true while their inputs are unchanged, such as held
+     * keys, which must be evaluated for every transition.
+     */
+    private abstract static class LevelPredicate implements IndexedPredicate {
+        @Override
+        public InputMask getInputs() {
+            return InputMask.ALL;
+        }
+    }
 }
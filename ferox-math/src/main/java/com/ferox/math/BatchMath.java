@@ -0,0 +1,265 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.math;
+
+/**
+ * BatchMath is a static collection of kernels that operate on many vectors, matrices or boxes at once. The
+ * values are packed into primitive arrays using the same layouts as the {@link com.ferox.math.entreri}
+ * properties, so the arrays returned by their <code>getIndexedData()</code> methods can be used directly:
+ * <ul>
+ * <li>Vectors are three consecutive values in x, y, z order.</li>
+ * <li>Matrices are sixteen consecutive values in column-major order.</li>
+ * <li>Boxes are six consecutive values, the minimum corner followed by the maximum corner.</li>
+ * </ul>
+ * Every kernel operates on a range of elements, described by a start element index and an element count. The
+ * range is validated once before the loop so that the loops themselves are simple enough for the JIT to
+ * remove bounds checks and unroll or vectorize them. Unless otherwise noted, the result array may be the
+ * same as an input array.
+ *
+ * @author Michael Ludwig
+ */
+public final class BatchMath {
+    private static final int VECTOR3 = 3;
+    private static final int MATRIX4 = 16;
+    private static final int AABB = 6;
+
+    private BatchMath() {
+    }
+
+    /**
+     * Transform the points in <var>points</var> by the single affine matrix stored at <var>matrixIndex</var>
+     * within <var>matrices</var>, storing the transformed points in <var>result</var>. The fourth row of the
+     * matrix is ignored and the points are treated as if they had a w coordinate of 1.
+     *
+     * @param matrices    Packed matrix data
+     * @param matrixIndex The element index of the matrix within matrices
+     * @param points      Packed vector data for the input points
+     * @param result      Packed vector data for the transformed points
+     * @param start       The element index of the first point to transform
+     * @param count       The number of points to transform
+     *
+     * @throws NullPointerException      if any array is null
+     * @throws IndexOutOfBoundsException if the range or matrix index is outside of the arrays
+     */
+    public static void transformPoints(double[] matrices, int matrixIndex, double[] points, double[] result,
+                                       int start, int count) {
+        checkRange(matrices, MATRIX4, matrixIndex, 1);
+        checkRange(points, VECTOR3, start, count);
+        checkRange(result, VECTOR3, start, count);
+
+        int m = matrixIndex * MATRIX4;
+        double m00 = matrices[m], m10 = matrices[m + 1], m20 = matrices[m + 2];
+        double m01 = matrices[m + 4], m11 = matrices[m + 5], m21 = matrices[m + 6];
+        double m02 = matrices[m + 8], m12 = matrices[m + 9], m22 = matrices[m + 10];
+        double m03 = matrices[m + 12], m13 = matrices[m + 13], m23 = matrices[m + 14];
+
+        int end = (start + count) * VECTOR3;
+        for (int i = start * VECTOR3; i < end; i += VECTOR3) {
+            double x = points[i];
+            double y = points[i + 1];
+            double z = points[i + 2];
+
+            result[i] = m00 * x + m01 * y + m02 * z + m03;
+            result[i + 1] = m10 * x + m11 * y + m12 * z + m13;
+            result[i + 2] = m20 * x + m21 * y + m22 * z + m23;
+        }
+    }
+
+    /**
+     * Transform each box in <var>bounds</var> by the affine matrix with the same element index in
+     * <var>matrices</var>, and store the axis-aligned box enclosing the transformed box in
+     * <var>result</var>. This computes the same boxes as {@link AxisAlignedBox#transform(AxisAlignedBox,
+     * Matrix4)} but uses a center and extent formulation that has no branches.
+     *
+     * @param matrices Packed matrix data, one matrix per box
+     * @param bounds   Packed box data for the input boxes
+     * @param result   Packed box data for the transformed boxes
+     * @param start    The element index of the first box to transform
+     * @param count    The number of boxes to transform
+     *
+     * @throws NullPointerException      if any array is null
+     * @throws IndexOutOfBoundsException if the range is outside of the arrays
+     */
+    public static void transformAxisAlignedBoxes(double[] matrices, double[] bounds, double[] result, int start,
+                                                 int count) {
+        checkRange(matrices, MATRIX4, start, count);
+        checkRange(bounds, AABB, start, count);
+        checkRange(result, AABB, start, count);
+
+        int m = start * MATRIX4;
+        int end = (start + count) * AABB;
+        for (int b = start * AABB; b < end; b += AABB) {
+            double cx = 0.5 * (bounds[b] + bounds[b + 3]);
+            double cy = 0.5 * (bounds[b + 1] + bounds[b + 4]);
+            double cz = 0.5 * (bounds[b + 2] + bounds[b + 5]);
+            double ex = 0.5 * (bounds[b + 3] - bounds[b]);
+            double ey = 0.5 * (bounds[b + 4] - bounds[b + 1]);
+            double ez = 0.5 * (bounds[b + 5] - bounds[b + 2]);
+
+            double m00 = matrices[m], m10 = matrices[m + 1], m20 = matrices[m + 2];
+            double m01 = matrices[m + 4], m11 = matrices[m + 5], m21 = matrices[m + 6];
+            double m02 = matrices[m + 8], m12 = matrices[m + 9], m22 = matrices[m + 10];
+
+            double tcx = m00 * cx + m01 * cy + m02 * cz + matrices[m + 12];
+            double tcy = m10 * cx + m11 * cy + m12 * cz + matrices[m + 13];
+            double tcz = m20 * cx + m21 * cy + m22 * cz + matrices[m + 14];
+
+            double tex = Math.abs(m00) * ex + Math.abs(m01) * ey + Math.abs(m02) * ez;
+            double tey = Math.abs(m10) * ex + Math.abs(m11) * ey + Math.abs(m12) * ez;
+            double tez = Math.abs(m20) * ex + Math.abs(m21) * ey + Math.abs(m22) * ez;
+
+            result[b] = tcx - tex;
+            result[b + 1] = tcy - tey;
+            result[b + 2] = tcz - tez;
+            result[b + 3] = tcx + tex;
+            result[b + 4] = tcy + tey;
+            result[b + 5] = tcz + tez;
+
+            m += MATRIX4;
+        }
+    }
+
+    /**
+     * Multiply the matrices in <var>a</var> with the matrices in <var>b</var> that have the same element
+     * index, storing <code>a[i] x b[i]</code> into <var>result</var>.
+     *
+     * @param a      Packed matrix data for the left side of the multiplication
+     * @param b      Packed matrix data for the right side of the multiplication
+     * @param result Packed matrix data for the products
+     * @param start  The element index of the first matrix pair
+     * @param count  The number of matrices to multiply
+     *
+     * @throws NullPointerException      if any array is null
+     * @throws IndexOutOfBoundsException if the range is outside of the arrays
+     */
+    public static void mul(double[] a, double[] b, double[] result, int start, int count) {
+        checkRange(a, MATRIX4, start, count);
+        checkRange(b, MATRIX4, start, count);
+        checkRange(result, MATRIX4, start, count);
+
+        int end = (start + count) * MATRIX4;
+        for (int i = start * MATRIX4; i < end; i += MATRIX4) {
+            mul(a, i, b, i, result, i);
+        }
+    }
+
+    /**
+     * Multiply the matrices in <var>a</var> selected by <var>aIndices</var> with the matrices in
+     * <var>b</var>, storing <code>a[aIndices[i]] x b[i]</code> into <var>result</var>. This is the typical
+     * operation when concatenating a parent's world matrix with a child's local matrix. The result array may
+     * be the same as <var>a</var> as long as no index in the range refers to an element that is also
+     * written within the range.
+     *
+     * @param a        Packed matrix data for the left side of the multiplication
+     * @param aIndices Element indices into a, indexed by the same element index as b and result
+     * @param b        Packed matrix data for the right side of the multiplication
+     * @param result   Packed matrix data for the products
+     * @param start    The element index of the first matrix in b
+     * @param count    The number of matrices to multiply
+     *
+     * @throws NullPointerException      if any array is null
+     * @throws IndexOutOfBoundsException if the range or any selected index is outside of the arrays
+     */
+    public static void mul(double[] a, int[] aIndices, double[] b, double[] result, int start, int count) {
+        checkRange(aIndices, start, count);
+        checkRange(b, MATRIX4, start, count);
+        checkRange(result, MATRIX4, start, count);
+
+        int aCount = a.length / MATRIX4;
+        int end = start + count;
+        for (int i = start; i < end; i++) {
+            int ai = aIndices[i];
+            if (ai < 0 || ai >= aCount) {
+                throw new IndexOutOfBoundsException("Matrix index out of range: " + ai);
+            }
+            mul(a, ai * MATRIX4, b, i * MATRIX4, result, i * MATRIX4);
+        }
+    }
+
+    /**
+     * Integrate the velocities in <var>velocities</var> over the time step <var>dt</var> using explicit
+     * Euler integration, adding <code>dt * velocities[i]</code> to <code>positions[i]</code>. This is
+     * equivalent to {@link Vector3#addScaled(double, Vector3)} for each element, and can be used for any pair
+     * of a value and its derivative, such as integrating accelerations into velocities.
+     *
+     * @param positions  Packed vector data for the positions, which are updated in place
+     * @param velocities Packed vector data for the velocities
+     * @param dt         The time step
+     * @param start      The element index of the first position
+     * @param count      The number of positions to update
+     *
+     * @throws NullPointerException      if any array is null
+     * @throws IndexOutOfBoundsException if the range is outside of the arrays
+     */
+    public static void integrateVelocities(double[] positions, double[] velocities, double dt, int start,
+                                           int count) {
+        checkRange(positions, VECTOR3, start, count);
+        checkRange(velocities, VECTOR3, start, count);
+
+        // the vectors are contiguous so the components can be updated in a single flat loop
+        int end = (start + count) * VECTOR3;
+        for (int i = start * VECTOR3; i < end; i++) {
+            positions[i] += dt * velocities[i];
+        }
+    }
+
+    private static void mul(double[] a, int ao, double[] b, int bo, double[] result, int ro) {
+        // load all of a first so that result can safely alias a or b
+        double a00 = a[ao], a10 = a[ao + 1], a20 = a[ao + 2], a30 = a[ao + 3];
+        double a01 = a[ao + 4], a11 = a[ao + 5], a21 = a[ao + 6], a31 = a[ao + 7];
+        double a02 = a[ao + 8], a12 = a[ao + 9], a22 = a[ao + 10], a32 = a[ao + 11];
+        double a03 = a[ao + 12], a13 = a[ao + 13], a23 = a[ao + 14], a33 = a[ao + 15];
+
+        // each column of the product only depends on the same column of b
+        for (int c = 0; c < 16; c += 4) {
+            double b0 = b[bo + c];
+            double b1 = b[bo + c + 1];
+            double b2 = b[bo + c + 2];
+            double b3 = b[bo + c + 3];
+
+            result[ro + c] = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+            result[ro + c + 1] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+            result[ro + c + 2] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+            result[ro + c + 3] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+        }
+    }
+
+    private static void checkRange(double[] data, int stride, int start, int count) {
+        if (start < 0 || count < 0 || (start + count) * stride > data.length) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + (start + count) +
+                                                ") is out of bounds for " + (data.length / stride) +
+                                                " elements");
+        }
+    }
+
+    private static void checkRange(int[] data, int start, int count) {
+        if (start < 0 || count < 0 || start + count > data.length) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + (start + count) +
+                                                ") is out of bounds for " + data.length + " elements");
+        }
+    }
+}
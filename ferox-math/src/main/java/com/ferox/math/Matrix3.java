@@ -784,6 +784,19 @@ public final class Matrix3 implements Cloneable {
         return this;
     }
 
+    /**
+     * Set this matrix to the single precision values of the given matrix, o.
+     *
+     * @param o Matrix whose values are converted into this matrix
+     *
+     * @return This matrix
+     *
+     * @throws NullPointerException if o is null
+     */
+    public Matrix3 set(@Const Matrix3f o) {
+        return set(o.m00, o.m01, o.m02, o.m10, o.m11, o.m12, o.m20, o.m21, o.m22);
+    }
+
     /**
      * Reset this matrix's values so that it represents the identity matrix.
      *
@@ -0,0 +1,419 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.math;
+
+import java.nio.FloatBuffer;
+
+/**
+ * <p/>
+ * Matrix3f is the single-precision counterpart to {@link Matrix3}. The first number in the field name is the
+ * row, the second is the column. It is intended for storing and transporting large numbers of matrices, such
+ * as transforms that are copied into FloatBuffers for rendering, and so only provides the most common
+ * operations. It can be converted to and from a Matrix3 with {@link #set(Matrix3)} and {@link
+ * Matrix3#set(Matrix3f)}.
+ * <p/>
+ * In all mathematical functions whose result is a matrix, the Matrix3f calling the method will contain the
+ * result. It is safe for the calling matrix to be any matrix parameter into the function.
+ *
+ * @author Michael Ludwig
+ */
+public final class Matrix3f implements Cloneable {
+    public float m00, m01, m02;
+    public float m10, m11, m12;
+    public float m20, m21, m22;
+
+    /**
+     * Create a new matrix with all components equal to 0.
+     */
+    public Matrix3f() {
+        set(0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f);
+    }
+
+    /**
+     * Create a new matrix that copies the values in <var>m</var>.
+     *
+     * @param m The matrix to copy
+     *
+     * @throws NullPointerException if m is null
+     */
+    public Matrix3f(@Const Matrix3f m) {
+        set(m);
+    }
+
+    /**
+     * Create a new matrix that converts the values of the double precision matrix <var>m</var>.
+     *
+     * @param m The matrix to convert
+     *
+     * @throws NullPointerException if m is null
+     */
+    public Matrix3f(@Const Matrix3 m) {
+        set(m);
+    }
+
+    /**
+     * Create a new matrix that assigns each parameter value to the identically named field.
+     *
+     * @param m00
+     * @param m01
+     * @param m02
+     * @param m10
+     * @param m11
+     * @param m12
+     * @param m20
+     * @param m21
+     * @param m22
+     */
+    public Matrix3f(float m00, float m01, float m02, float m10, float m11, float m12, float m20, float m21,
+                    float m22) {
+        set(m00, m01, m02, m10, m11, m12, m20, m21, m22);
+    }
+
+    @Override
+    public Matrix3f clone() {
+        return new Matrix3f(this);
+    }
+
+    /**
+     * Multiply <var>a</var> and <var>b</var>, storing the result in this matrix.
+     *
+     * @param a The left side of the multiplication
+     * @param b The right side of the multiplication
+     *
+     * @return This matrix
+     *
+     * @throws NullPointerException if a or b are null
+     */
+    public Matrix3f mul(@Const Matrix3f a, @Const Matrix3f b) {
+        return set(a.m00 * b.m00 + a.m01 * b.m10 + a.m02 * b.m20,
+                   a.m00 * b.m01 + a.m01 * b.m11 + a.m02 * b.m21,
+                   a.m00 * b.m02 + a.m01 * b.m12 + a.m02 * b.m22,
+                   a.m10 * b.m00 + a.m11 * b.m10 + a.m12 * b.m20,
+                   a.m10 * b.m01 + a.m11 * b.m11 + a.m12 * b.m21,
+                   a.m10 * b.m02 + a.m11 * b.m12 + a.m12 * b.m22,
+                   a.m20 * b.m00 + a.m21 * b.m10 + a.m22 * b.m20,
+                   a.m20 * b.m01 + a.m21 * b.m11 + a.m22 * b.m21,
+                   a.m20 * b.m02 + a.m21 * b.m12 + a.m22 * b.m22);
+    }
+
+    /**
+     * As {@link #mul(Matrix3f, Matrix3f)} with the first argument being this matrix.
+     *
+     * @param r The right side of the multiplication
+     *
+     * @return This matrix
+     *
+     * @throws NullPointerException if r is null
+     */
+    public Matrix3f mul(@Const Matrix3f r) {
+        return mul(this, r);
+    }
+
+    /**
+     * Compute the transpose of <var>m</var> and store it in this matrix.
+     *
+     * @param m The matrix to transpose
+     *
+     * @return This matrix
+     *
+     * @throws NullPointerException if m is null
+     */
+    public Matrix3f transpose(@Const Matrix3f m) {
+        return set(m.m00, m.m10, m.m20, m.m01, m.m11, m.m21, m.m02, m.m12, m.m22);
+    }
+
+    /**
+     * Transpose this matrix in place.
+     *
+     * @return This matrix
+     */
+    public Matrix3f transpose() {
+        return transpose(this);
+    }
+
+    /**
+     * Set this matrix to the identity matrix.
+     *
+     * @return This matrix
+     */
+    public Matrix3f setIdentity() {
+        return set(1f, 0f, 0f, 0f, 1f, 0f, 0f, 0f, 1f);
+    }
+
+    /**
+     * Set this matrix to be equivalent to the rotation represented by the quaternion <var>q</var>.
+     *
+     * @param q The quaternion to convert to matrix form
+     *
+     * @return This matrix
+     *
+     * @throws NullPointerException if q is null
+     * @throws ArithmeticException  if the length of q is 0
+     */
+    public Matrix3f set(@Const Quat4f q) {
+        float d = q.lengthSquared();
+        if (d == 0f) {
+            throw new ArithmeticException("Quaternion length is 0");
+        }
+
+        float s = 2f / d;
+
+        float xs = q.x * s, ys = q.y * s, zs = q.z * s;
+        float wx = q.w * xs, wy = q.w * ys, wz = q.w * zs;
+        float xx = q.x * xs, xy = q.x * ys, xz = q.x * zs;
+        float yy = q.y * ys, yz = q.y * zs, zz = q.z * zs;
+
+        return set(1f - (yy + zz), xy - wz, xz + wy, xy + wz, 1f - (xx + zz), yz - wx, xz - wy, yz + wx,
+                   1f - (xx + yy));
+    }
+
+    /**
+     * Set each field of this matrix to the identically named parameter.
+     *
+     * @param m00
+     * @param m01
+     * @param m02
+     * @param m10
+     * @param m11
+     * @param m12
+     * @param m20
+     * @param m21
+     * @param m22
+     *
+     * @return This matrix
+     */
+    public Matrix3f set(float m00, float m01, float m02, float m10, float m11, float m12, float m20,
+                        float m21, float m22) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+        this.m20 = m20;
+        this.m21 = m21;
+        this.m22 = m22;
+        return this;
+    }
+
+    /**
+     * Copy the values of <var>o</var> into this matrix.
+     *
+     * @param o The matrix to copy
+     *
+     * @return This matrix
+     *
+     * @throws NullPointerException if o is null
+     */
+    public Matrix3f set(@Const Matrix3f o) {
+        return set(o.m00, o.m01, o.m02, o.m10, o.m11, o.m12, o.m20, o.m21, o.m22);
+    }
+
+    /**
+     * Convert the double precision values of <var>o</var> into this matrix.
+     *
+     * @param o The matrix to convert
+     *
+     * @return This matrix
+     *
+     * @throws NullPointerException if o is null
+     */
+    public Matrix3f set(@Const Matrix3 o) {
+        return set((float) o.m00, (float) o.m01, (float) o.m02, (float) o.m10, (float) o.m11,
+                   (float) o.m12, (float) o.m20, (float) o.m21, (float) o.m22);
+    }
+
+    /**
+     * Set the values of this matrix from the nine consecutive values in <var>values</var>, starting at
+     * <var>offset</var>. The values are interpreted as rows if <var>rowMajor</var> is true, otherwise as
+     * columns.
+     *
+     * @param values   The matrix values
+     * @param offset   The index of the first value
+     * @param rowMajor True if the values are stored as rows, otherwise as columns
+     *
+     * @return This matrix
+     *
+     * @throws ArrayIndexOutOfBoundsException if values doesn't have enough elements starting at offset
+     */
+    public Matrix3f set(float[] values, int offset, boolean rowMajor) {
+        if (rowMajor) {
+            return set(values[offset + 0], values[offset + 1], values[offset + 2], values[offset + 3],
+                       values[offset + 4], values[offset + 5], values[offset + 6], values[offset + 7],
+                       values[offset + 8]);
+        } else {
+            return set(values[offset + 0], values[offset + 3], values[offset + 6], values[offset + 1],
+                       values[offset + 4], values[offset + 7], values[offset + 2], values[offset + 5],
+                       values[offset + 8]);
+        }
+    }
+
+    /**
+     * As {@link #set(float[], int, boolean)} but the values are taken from a FloatBuffer. <var>offset</var>
+     * is measured from 0, not the buffer's position.
+     *
+     * @param values   The matrix values
+     * @param offset   The index of the first value
+     * @param rowMajor True if the values are stored as rows, otherwise as columns
+     *
+     * @return This matrix
+     *
+     * @throws IndexOutOfBoundsException if values doesn't have enough elements starting at offset
+     */
+    public Matrix3f set(FloatBuffer values, int offset, boolean rowMajor) {
+        if (rowMajor) {
+            return set(values.get(offset + 0), values.get(offset + 1), values.get(offset + 2),
+                       values.get(offset + 3), values.get(offset + 4), values.get(offset + 5),
+                       values.get(offset + 6), values.get(offset + 7), values.get(offset + 8));
+        } else {
+            return set(values.get(offset + 0), values.get(offset + 3), values.get(offset + 6),
+                       values.get(offset + 1), values.get(offset + 4), values.get(offset + 7),
+                       values.get(offset + 2), values.get(offset + 5), values.get(offset + 8));
+        }
+    }
+
+    /**
+     * Store the values of this matrix into <var>store</var>, starting at <var>offset</var>, either as rows or
+     * columns depending on <var>rowMajor</var>.
+     *
+     * @param store    The array to hold the matrix values
+     * @param offset   The index of the first value
+     * @param rowMajor True if the values are stored as rows, otherwise as columns
+     *
+     * @throws ArrayIndexOutOfBoundsException if store doesn't have room for the matrix
+     */
+    public void get(float[] store, int offset, boolean rowMajor) {
+        if (rowMajor) {
+            store[offset + 0] = m00;
+            store[offset + 1] = m01;
+            store[offset + 2] = m02;
+            store[offset + 3] = m10;
+            store[offset + 4] = m11;
+            store[offset + 5] = m12;
+            store[offset + 6] = m20;
+            store[offset + 7] = m21;
+            store[offset + 8] = m22;
+        } else {
+            store[offset + 0] = m00;
+            store[offset + 1] = m10;
+            store[offset + 2] = m20;
+            store[offset + 3] = m01;
+            store[offset + 4] = m11;
+            store[offset + 5] = m21;
+            store[offset + 6] = m02;
+            store[offset + 7] = m12;
+            store[offset + 8] = m22;
+        }
+    }
+
+    /**
+     * As {@link #get(float[], int, boolean)} but the values are stored in a FloatBuffer. <var>offset</var> is
+     * measured from 0, not the buffer's position.
+     *
+     * @param store    The buffer to hold the matrix values
+     * @param offset   The index of the first value
+     * @param rowMajor True if the values are stored as rows, otherwise as columns
+     *
+     * @throws IndexOutOfBoundsException if store doesn't have room for the matrix
+     */
+    public void get(FloatBuffer store, int offset, boolean rowMajor) {
+        if (rowMajor) {
+            store.put(offset + 0, m00);
+            store.put(offset + 1, m01);
+            store.put(offset + 2, m02);
+            store.put(offset + 3, m10);
+            store.put(offset + 4, m11);
+            store.put(offset + 5, m12);
+            store.put(offset + 6, m20);
+            store.put(offset + 7, m21);
+            store.put(offset + 8, m22);
+        } else {
+            store.put(offset + 0, m00);
+            store.put(offset + 1, m10);
+            store.put(offset + 2, m20);
+            store.put(offset + 3, m01);
+            store.put(offset + 4, m11);
+            store.put(offset + 5, m21);
+            store.put(offset + 6, m02);
+            store.put(offset + 7, m12);
+            store.put(offset + 8, m22);
+        }
+    }
+
+    /**
+     * Determine if these two matrices are equal, within an error range of eps.
+     *
+     * @param e   Matrix to check approximate equality to
+     * @param eps Error tolerance of each component
+     *
+     * @return True if all component values are within eps of the corresponding component of e
+     */
+    public boolean epsilonEquals(@Const Matrix3f e, float eps) {
+        if (e == null) {
+            return false;
+        }
+
+        return Math.abs(m00 - e.m00) <= eps && Math.abs(m01 - e.m01) <= eps && Math.abs(m02 - e.m02) <= eps &&
+               Math.abs(m10 - e.m10) <= eps && Math.abs(m11 - e.m11) <= eps && Math.abs(m12 - e.m12) <= eps &&
+               Math.abs(m20 - e.m20) <= eps && Math.abs(m21 - e.m21) <= eps && Math.abs(m22 - e.m22) <= eps;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        // if conditional handles null values
+        if (!(o instanceof Matrix3f)) {
+            return false;
+        }
+        Matrix3f e = (Matrix3f) o;
+        return m00 == e.m00 && m01 == e.m01 && m02 == e.m02 &&
+               m10 == e.m10 && m11 == e.m11 && m12 == e.m12 &&
+               m20 == e.m20 && m21 == e.m21 && m22 == e.m22;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 17;
+        result += result * 31 + Float.floatToIntBits(m00);
+        result += result * 31 + Float.floatToIntBits(m01);
+        result += result * 31 + Float.floatToIntBits(m02);
+        result += result * 31 + Float.floatToIntBits(m10);
+        result += result * 31 + Float.floatToIntBits(m11);
+        result += result * 31 + Float.floatToIntBits(m12);
+        result += result * 31 + Float.floatToIntBits(m20);
+        result += result * 31 + Float.floatToIntBits(m21);
+        result += result * 31 + Float.floatToIntBits(m22);
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "[[ " + m00 + ", " + m01 + ", " + m02 + " ]" + "\n" +
+               " [ " + m10 + ", " + m11 + ", " + m12 + " ]" + "\n" +
+               " [ " + m20 + ", " + m21 + ", " + m22 + " ]" + "]";
+    }
+}
@@ -910,6 +910,20 @@ public final class Matrix4 implements Cloneable {
         return this;
     }
 
+    /**
+     * Set this matrix to the single precision values of the given matrix, o.
+     *
+     * @param o Matrix whose values are converted into this matrix
+     *
+     * @return This matrix
+     *
+     * @throws NullPointerException if o is null
+     */
+    public Matrix4 set(@Const Matrix4f o) {
+        return set(o.m00, o.m01, o.m02, o.m03, o.m10, o.m11, o.m12, o.m13, o.m20, o.m21, o.m22, o.m23,
+                   o.m30, o.m31, o.m32, o.m33);
+    }
+
     /**
      * Reset this matrix's values so that it represents the identity matrix.
      *
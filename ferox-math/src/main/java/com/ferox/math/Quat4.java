@@ -556,6 +556,19 @@ public final class Quat4 implements Cloneable {
         return set(q.x, q.y, q.z, q.w);
     }
 
+    /**
+     * Set the x, y, z, and w values of this Quat4 to the single precision values held in q.
+     *
+     * @param q Quaternion to be converted into this
+     *
+     * @return This quaternion
+     *
+     * @throws NullPointerException if q is null
+     */
+    public Quat4 set(@Const Quat4f q) {
+        return set(q.x, q.y, q.z, q.w);
+    }
+
     /**
      * Set the x, y, z, and w values of this Quat4 to the given four coordinates.
      *
@@ -0,0 +1,325 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.math;
+
+import java.nio.FloatBuffer;
+
+/**
+ * <p/>
+ * Quat4f is the single-precision counterpart to {@link Quat4}. It provides the operations needed to store,
+ * compose and transport rotations, and can be converted to and from a Quat4 with {@link #set(Quat4)} and
+ * {@link Quat4#set(Quat4f)}.
+ * <p/>
+ * In all mathematical functions whose result is a quaternion, the Quat4f calling the method will contain the
+ * result. It is safe for the calling quaternion to be any quaternion parameter into the function.
+ *
+ * @author Michael Ludwig
+ */
+public final class Quat4f implements Cloneable {
+    public float x;
+    public float y;
+    public float z;
+    public float w;
+
+    /**
+     * Create a new Quat4f initialized to the identity quaternion.
+     */
+    public Quat4f() {
+        setIdentity();
+    }
+
+    /**
+     * Create a new Quat4f that copies its values from those in <var>q</var>.
+     *
+     * @param q The quaternion to clone
+     *
+     * @throws NullPointerException if q is null
+     */
+    public Quat4f(@Const Quat4f q) {
+        set(q);
+    }
+
+    /**
+     * Create a new Quat4f that converts its values from the double precision <var>q</var>.
+     *
+     * @param q The quaternion to convert
+     *
+     * @throws NullPointerException if q is null
+     */
+    public Quat4f(@Const Quat4 q) {
+        set(q);
+    }
+
+    /**
+     * Create a new Quat4f that takes its initial values as (x, y, z, w).
+     *
+     * @param x
+     * @param y
+     * @param z
+     * @param w
+     */
+    public Quat4f(float x, float y, float z, float w) {
+        set(x, y, z, w);
+    }
+
+    @Override
+    public Quat4f clone() {
+        return new Quat4f(this);
+    }
+
+    /**
+     * Multiply <var>a</var> and <var>b</var> together and store the result in this quaternion.
+     *
+     * @param a The quaternion on the left side of the multiplication
+     * @param b The quaternion on the right side of the multiplication
+     *
+     * @return This quaternion
+     *
+     * @throws NullPointerException if a or b are null
+     */
+    public Quat4f mul(@Const Quat4f a, @Const Quat4f b) {
+        return set(a.w * b.x + a.x * b.w + a.y * b.z - a.z * b.y,
+                   a.w * b.y + a.y * b.w + a.z * b.x - a.x * b.z,
+                   a.w * b.z + a.z * b.w + a.x * b.y - a.y * b.x,
+                   a.w * b.w - a.x * b.x - a.y * b.y - a.z * b.z);
+    }
+
+    /**
+     * As {@link #mul(Quat4f, Quat4f)} with the first argument being this quaternion.
+     *
+     * @param q The quaternion on the right side of the multiplication
+     *
+     * @return This quaternion
+     *
+     * @throws NullPointerException if q is null
+     */
+    public Quat4f mul(@Const Quat4f q) {
+        return mul(this, q);
+    }
+
+    /**
+     * Normalize the quaternion <var>a</var> and store it in this quaternion.
+     *
+     * @param a The quaternion being normalized
+     *
+     * @return This quaternion
+     *
+     * @throws ArithmeticException  if a cannot be normalized
+     * @throws NullPointerException if a is null
+     */
+    public Quat4f normalize(@Const Quat4f a) {
+        float d = a.length();
+        if (d == 0f) {
+            throw new ArithmeticException("Cannot normalize quaternion with 0 length");
+        }
+        float s = 1f / d;
+        return set(s * a.x, s * a.y, s * a.z, s * a.w);
+    }
+
+    /**
+     * Normalize this quaternion in place.
+     *
+     * @return This quaternion
+     *
+     * @throws ArithmeticException if this quaternion cannot be normalized
+     */
+    public Quat4f normalize() {
+        return normalize(this);
+    }
+
+    /**
+     * @return The length of this quaternion (identical to a 4-vector with the same components)
+     */
+    public float length() {
+        return (float) Math.sqrt(lengthSquared());
+    }
+
+    /**
+     * @return The squared length of this quaternion (identical to a 4-vector with the same components)
+     */
+    public float lengthSquared() {
+        return x * x + y * y + z * z + w * w;
+    }
+
+    /**
+     * Set this quaternion to the identity quaternion, which is (0, 0, 0, 1).
+     *
+     * @return This quaternion
+     */
+    public Quat4f setIdentity() {
+        return set(0f, 0f, 0f, 1f);
+    }
+
+    /**
+     * Set the four components of this quaternion.
+     *
+     * @param x The new x value
+     * @param y The new y value
+     * @param z The new z value
+     * @param w The new w value
+     *
+     * @return This quaternion
+     */
+    public Quat4f set(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+        return this;
+    }
+
+    /**
+     * Copy the values of <var>q</var> into this quaternion.
+     *
+     * @param q The quaternion to copy
+     *
+     * @return This quaternion
+     *
+     * @throws NullPointerException if q is null
+     */
+    public Quat4f set(@Const Quat4f q) {
+        return set(q.x, q.y, q.z, q.w);
+    }
+
+    /**
+     * Convert the double precision values of <var>q</var> into this quaternion.
+     *
+     * @param q The quaternion to convert
+     *
+     * @return This quaternion
+     *
+     * @throws NullPointerException if q is null
+     */
+    public Quat4f set(@Const Quat4 q) {
+        return set((float) q.x, (float) q.y, (float) q.z, (float) q.w);
+    }
+
+    /**
+     * Set the quaternion to the four consecutive values starting at <var>offset</var> in <var>vals</var>, in
+     * x, y, z, w order.
+     *
+     * @param vals   Array of values containing the new quaternion
+     * @param offset The index of the x coordinate
+     *
+     * @return This quaternion
+     *
+     * @throws ArrayIndexOutOfBoundsException if vals doesn't have four values starting at offset
+     */
+    public Quat4f set(float[] vals, int offset) {
+        return set(vals[offset], vals[offset + 1], vals[offset + 2], vals[offset + 3]);
+    }
+
+    /**
+     * As {@link #set(float[], int)} but the values are taken from a FloatBuffer.
+     *
+     * @param vals   The float value source
+     * @param offset The index into vals for the x coordinate
+     *
+     * @return This quaternion
+     *
+     * @throws ArrayIndexOutOfBoundsException if there isn't enough values in vals starting at offset
+     */
+    public Quat4f set(FloatBuffer vals, int offset) {
+        return set(vals.get(offset), vals.get(offset + 1), vals.get(offset + 2), vals.get(offset + 3));
+    }
+
+    /**
+     * Store the four components of this quaternion into <var>vals</var>, starting at <var>offset</var>.
+     *
+     * @param vals   The array to store the quaternion in
+     * @param offset The index of the x coordinate
+     *
+     * @throws ArrayIndexOutOfBoundsException if vals doesn't have room for four values starting at offset
+     */
+    public void get(float[] vals, int offset) {
+        vals[offset] = x;
+        vals[offset + 1] = y;
+        vals[offset + 2] = z;
+        vals[offset + 3] = w;
+    }
+
+    /**
+     * As {@link #get(float[], int)}, but with a FloatBuffer. <var>offset</var> is measured from 0, not the
+     * buffer's position.
+     *
+     * @param store  The FloatBuffer to hold the quaternion
+     * @param offset The first index to use in the store
+     *
+     * @throws ArrayIndexOutOfBoundsException if store doesn't have enough space for the quaternion
+     */
+    public void get(FloatBuffer store, int offset) {
+        store.put(offset, x);
+        store.put(offset + 1, y);
+        store.put(offset + 2, z);
+        store.put(offset + 3, w);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + x + ", " + y + ", " + z + ", " + w + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 17;
+
+        result += 31 * result + Float.floatToIntBits(x);
+        result += 31 * result + Float.floatToIntBits(y);
+        result += 31 * result + Float.floatToIntBits(z);
+        result += 31 * result + Float.floatToIntBits(w);
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        // this conditional correctly handles null values
+        if (!(o instanceof Quat4f)) {
+            return false;
+        }
+        Quat4f v = (Quat4f) o;
+        return x == v.x && y == v.y && z == v.z && w == v.w;
+    }
+
+    /**
+     * Determine if these two quaternions are equal, within an error range of eps. Returns false if q is
+     * null.
+     *
+     * @param q   Quaternion to check approximate equality to
+     * @param eps Error tolerance of each component
+     *
+     * @return True if all component values are within eps of the corresponding component of q
+     */
+    public boolean epsilonEquals(@Const Quat4f q, float eps) {
+        if (q == null) {
+            return false;
+        }
+
+        return Math.abs(x - q.x) <= eps && Math.abs(y - q.y) <= eps && Math.abs(z - q.z) <= eps &&
+               Math.abs(w - q.w) <= eps;
+    }
+}
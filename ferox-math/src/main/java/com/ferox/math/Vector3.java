@@ -664,6 +664,19 @@ public final class Vector3 implements Cloneable {
         return set(v.x, v.y, v.z);
     }
 
+    /**
+     * Set the x, y, and z values of this Vector3 to the single precision values of <var>v</var>.
+     *
+     * @param v Vector to be converted into this
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if v is null
+     */
+    public Vector3 set(@Const Vector3f v) {
+        return set(v.x, v.y, v.z);
+    }
+
     /**
      * Set the x, y, and z values of this Vector3 to the given three coordinates.
      *
@@ -0,0 +1,434 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.math;
+
+import java.nio.FloatBuffer;
+
+/**
+ * <p/>
+ * Vector3f is the single-precision counterpart to {@link Vector3}. It is intended for memory-bound workloads,
+ * such as large arrays of transforms or vertex data that is destined for a FloatBuffer, where the extra
+ * precision of doubles is not needed. It provides the common vector operations, and can be converted to and
+ * from a Vector3 with {@link #set(Vector3)} and {@link Vector3#set(Vector3f)}. Computations that need full
+ * precision should convert to a Vector3 first.
+ * <p/>
+ * The {@link Const} annotation has the same meaning as it does for Vector3. In all mathematical functions
+ * whose result is a vector, the Vector3f calling the method will contain the result. It is safe for the
+ * calling vector to be any vector parameter into the function.
+ *
+ * @author Michael Ludwig
+ */
+public final class Vector3f implements Cloneable {
+    public float x;
+    public float y;
+    public float z;
+
+    /**
+     * Create a new vector with all components equal to 0.
+     */
+    public Vector3f() {
+        this(0f, 0f, 0f);
+    }
+
+    /**
+     * Create a new vector that copies the x, y, and z values from <var>v</var>.
+     *
+     * @param v The vector to copy
+     *
+     * @throws NullPointerException if v is null
+     */
+    public Vector3f(@Const Vector3f v) {
+        this(v.x, v.y, v.z);
+    }
+
+    /**
+     * Create a new vector that converts the x, y, and z values from the double precision <var>v</var>.
+     *
+     * @param v The vector to convert
+     *
+     * @throws NullPointerException if v is null
+     */
+    public Vector3f(@Const Vector3 v) {
+        set(v);
+    }
+
+    /**
+     * Create a new vector with the given x, y, and z values.
+     *
+     * @param x The x value
+     * @param y The y value
+     * @param z The z value
+     */
+    public Vector3f(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    @Override
+    public Vector3f clone() {
+        return new Vector3f(this);
+    }
+
+    /**
+     * @return Length of this vector
+     */
+    public float length() {
+        return (float) Math.sqrt(lengthSquared());
+    }
+
+    /**
+     * @return Squared length of this vector
+     */
+    public float lengthSquared() {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * Compute the dot product between this vector and <var>v</var>.
+     *
+     * @param v The other vector in the dot product
+     *
+     * @return The dot product
+     *
+     * @throws NullPointerException if v is null
+     */
+    public float dot(@Const Vector3f v) {
+        return x * v.x + y * v.y + z * v.z;
+    }
+
+    /**
+     * Compute the cross product <code>a X b</code> and store it in this vector.
+     *
+     * @param a The left side of the cross product
+     * @param b The right side of the cross product
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if a or b are null
+     */
+    public Vector3f cross(@Const Vector3f a, @Const Vector3f b) {
+        return set(a.y * b.z - b.y * a.z, a.z * b.x - b.z * a.x, a.x * b.y - b.x * a.y);
+    }
+
+    /**
+     * Compute <code>a + b</code> and store it in this vector.
+     *
+     * @param a The left side of the addition
+     * @param b The right side of the addition
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if a or b are null
+     */
+    public Vector3f add(@Const Vector3f a, @Const Vector3f b) {
+        return set(a.x + b.x, a.y + b.y, a.z + b.z);
+    }
+
+    /**
+     * Compute <code>a + scalar * b</code> and store it in this vector.
+     *
+     * @param a      The left side of the addition
+     * @param scalar The scale factor applied to b
+     * @param b      The vector that is scaled and then added
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if a or b are null
+     */
+    public Vector3f addScaled(@Const Vector3f a, float scalar, @Const Vector3f b) {
+        return set(a.x + scalar * b.x, a.y + scalar * b.y, a.z + scalar * b.z);
+    }
+
+    /**
+     * Compute <code>a - b</code> and store it in this vector.
+     *
+     * @param a The left side of the subtraction
+     * @param b The right side of the subtraction
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if a or b are null
+     */
+    public Vector3f sub(@Const Vector3f a, @Const Vector3f b) {
+        return set(a.x - b.x, a.y - b.y, a.z - b.z);
+    }
+
+    /**
+     * Scale <var>v</var> by <var>scalar</var> and store it in this vector.
+     *
+     * @param v      The vector to scale
+     * @param scalar The scale factor
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if v is null
+     */
+    public Vector3f scale(@Const Vector3f v, float scalar) {
+        return set(scalar * v.x, scalar * v.y, scalar * v.z);
+    }
+
+    /**
+     * Normalize <var>v</var> to be of length 1 and store it in this vector.
+     *
+     * @param v The vector to normalize
+     *
+     * @return This vector
+     *
+     * @throws ArithmeticException  if v cannot be normalized
+     * @throws NullPointerException if v is null
+     */
+    public Vector3f normalize(@Const Vector3f v) {
+        float d = v.length();
+        if (d == 0f) {
+            throw new ArithmeticException("Cannot normalize vector with 0 length");
+        }
+        return scale(v, 1f / d);
+    }
+
+    /**
+     * Compute <code>[m] x [a']</code> where <var>[a']</var> is the 4x1 matrix formed by the three values of
+     * <var>a</var> and the specified <var>w</var>, and store the first three components in this vector.
+     *
+     * @param m The affine transform to transform a with
+     * @param a The vector being transformed by m
+     * @param w The fourth component of a, 1 for points and 0 for directions
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if m or a are null
+     */
+    public Vector3f transform(@Const Matrix4f m, @Const Vector3f a, float w) {
+        return set(m.m00 * a.x + m.m01 * a.y + m.m02 * a.z + m.m03 * w,
+                   m.m10 * a.x + m.m11 * a.y + m.m12 * a.z + m.m13 * w,
+                   m.m20 * a.x + m.m21 * a.y + m.m22 * a.z + m.m23 * w);
+    }
+
+    /**
+     * As {@link #transform(Matrix4f, Vector3f, float)} with a w of 1, so this vector is transformed as a
+     * point.
+     *
+     * @param m The matrix transforming this vector
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if m is null
+     */
+    public Vector3f transform(@Const Matrix4f m) {
+        return transform(m, this, 1f);
+    }
+
+    /**
+     * As {@link #add(Vector3f, Vector3f)} with the first argument being this vector.
+     *
+     * @param v The vector to add
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if v is null
+     */
+    public Vector3f add(@Const Vector3f v) {
+        return add(this, v);
+    }
+
+    /**
+     * As {@link #sub(Vector3f, Vector3f)} with the first argument being this vector.
+     *
+     * @param v The vector to subtract
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if v is null
+     */
+    public Vector3f sub(@Const Vector3f v) {
+        return sub(this, v);
+    }
+
+    /**
+     * As {@link #scale(Vector3f, float)} with the first argument being this vector.
+     *
+     * @param scalar The scale factor
+     *
+     * @return This vector
+     */
+    public Vector3f scale(float scalar) {
+        return scale(this, scalar);
+    }
+
+    /**
+     * Normalize this vector in place.
+     *
+     * @return This vector
+     *
+     * @throws ArithmeticException if this vector cannot be normalized
+     */
+    public Vector3f normalize() {
+        return normalize(this);
+    }
+
+    /**
+     * Set the x, y, and z values of this vector.
+     *
+     * @param x The new x value
+     * @param y The new y value
+     * @param z The new z value
+     *
+     * @return This vector
+     */
+    public Vector3f set(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    /**
+     * Copy the values of <var>v</var> into this vector.
+     *
+     * @param v The vector to copy
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if v is null
+     */
+    public Vector3f set(@Const Vector3f v) {
+        return set(v.x, v.y, v.z);
+    }
+
+    /**
+     * Convert the double precision values of <var>v</var> into this vector.
+     *
+     * @param v The vector to convert
+     *
+     * @return This vector
+     *
+     * @throws NullPointerException if v is null
+     */
+    public Vector3f set(@Const Vector3 v) {
+        return set((float) v.x, (float) v.y, (float) v.z);
+    }
+
+    /**
+     * Set the vector coordinates to be the three consecutive values starting at <var>offset</var> in
+     * <var>vals</var>.
+     *
+     * @param vals   Array of values containing the new vector
+     * @param offset The index of the x coordinate
+     *
+     * @return This vector
+     *
+     * @throws ArrayIndexOutOfBoundsException if vals doesn't have three values starting at offset
+     */
+    public Vector3f set(float[] vals, int offset) {
+        return set(vals[offset], vals[offset + 1], vals[offset + 2]);
+    }
+
+    /**
+     * As {@link #set(float[], int)} but the values are taken from a FloatBuffer.
+     *
+     * @param vals   The float value source
+     * @param offset The index into vals for the x coordinate
+     *
+     * @return This vector
+     *
+     * @throws ArrayIndexOutOfBoundsException if there isn't enough values in vals starting at offset
+     */
+    public Vector3f set(FloatBuffer vals, int offset) {
+        return set(vals.get(offset), vals.get(offset + 1), vals.get(offset + 2));
+    }
+
+    /**
+     * Store the three coordinates of this vector into <var>vals</var>, starting at <var>offset</var>.
+     *
+     * @param vals   The array to store the vector in
+     * @param offset The index of the x coordinate
+     *
+     * @throws ArrayIndexOutOfBoundsException if vals doesn't have room for three values starting at offset
+     */
+    public void get(float[] vals, int offset) {
+        vals[offset] = x;
+        vals[offset + 1] = y;
+        vals[offset + 2] = z;
+    }
+
+    /**
+     * As {@link #get(float[], int)}, but with a FloatBuffer. <var>offset</var> is measured from 0, not the
+     * buffer's position.
+     *
+     * @param store  The FloatBuffer to hold the vector
+     * @param offset The first index to use in the store
+     *
+     * @throws ArrayIndexOutOfBoundsException if store doesn't have enough space for the vector
+     */
+    public void get(FloatBuffer store, int offset) {
+        store.put(offset, x);
+        store.put(offset + 1, y);
+        store.put(offset + 2, z);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + x + ", " + y + ", " + z + "]";
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 17;
+
+        result += 31 * result + Float.floatToIntBits(x);
+        result += 31 * result + Float.floatToIntBits(y);
+        result += 31 * result + Float.floatToIntBits(z);
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object v) {
+        // this conditional correctly handles null values
+        if (!(v instanceof Vector3f)) {
+            return false;
+        }
+        Vector3f e = (Vector3f) v;
+        return x == e.x && y == e.y && z == e.z;
+    }
+
+    /**
+     * Determine if these two vectors are equal, within an error range of eps. Returns false if v is null.
+     *
+     * @param v   Vector to check approximate equality to
+     * @param eps Error tolerance of each component
+     *
+     * @return True if all component values are within eps of the corresponding component of v
+     */
+    public boolean epsilonEquals(@Const Vector3f v, float eps) {
+        if (v == null) {
+            return false;
+        }
+
+        return Math.abs(x - v.x) <= eps && Math.abs(y - v.y) <= eps && Math.abs(z - v.z) <= eps;
+    }
+}
@@ -97,6 +97,17 @@ public class AxisAlignedBoxProperty implements Property<AxisAlignedBoxProperty>,
         return a;
     }
 
+    /**
+     * Return the packed array backing this property, which holds six values per index, the minimum corner
+     * followed by the maximum corner. The array instance is replaced when the capacity changes so it
+     * should not be held across capacity changes.
+     *
+     * @return The packed data array
+     */
+    public double[] getIndexedData() {
+        return data;
+    }
+
     @Override
     public void setCapacity(int size) {
         data = Arrays.copyOf(data, size * REQUIRED_ELEMENTS);
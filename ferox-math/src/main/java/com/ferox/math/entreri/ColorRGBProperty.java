@@ -92,6 +92,17 @@ public class ColorRGBProperty implements Property<ColorRGBProperty>, Property.Va
         return c;
     }
 
+    /**
+     * Return the packed array backing this property, which holds three HDR values per index in red,
+     * green, blue order. The array instance is replaced when the capacity changes so it should not be
+     * held across capacity changes.
+     *
+     * @return The packed data array
+     */
+    public double[] getIndexedData() {
+        return data;
+    }
+
     @Override
     public void setCapacity(int size) {
         data = Arrays.copyOf(data, size * REQUIRED_ELEMENTS);
@@ -92,6 +92,17 @@ public class Matrix3Property implements Property<Matrix3Property>, Property.Valu
         return m;
     }
 
+    /**
+     * Return the packed array backing this property, which holds nine values per index in column-major
+     * order. The array instance is replaced when the capacity changes so it should not be held across
+     * capacity changes.
+     *
+     * @return The packed data array
+     */
+    public double[] getIndexedData() {
+        return data;
+    }
+
     @Override
     public int getCapacity() {
         return data.length / REQUIRED_ELEMENTS;
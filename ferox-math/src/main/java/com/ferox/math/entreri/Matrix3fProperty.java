@@ -0,0 +1,234 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.math.entreri;
+
+import com.ferox.math.Const;
+import com.ferox.math.Matrix3;
+import com.ferox.math.Matrix3f;
+import com.ferox.math.Matrix4;
+import com.lhkbob.entreri.property.*;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Matrix3fProperty is a value-semantics Property for handling Matrix3f instances.
+ * Internally it packs them into a single float array, which uses half the memory of the
+ * equivalent double precision property and can be copied directly into FloatBuffers.
+ *
+ * @author Michael Ludwig
+ */
+public class Matrix3fProperty implements Property<Matrix3fProperty>, Property.ValueSemantics {
+    private static final int REQUIRED_ELEMENTS = 9;
+
+    private final Matrix3f dflt;
+    private final boolean clone;
+    private float[] data;
+
+    /**
+     * Create a new Matrix3fProperty.
+     */
+    public Matrix3fProperty() {
+        this(new Matrix3f(), true);
+    }
+
+    /**
+     * Create a new Matrix3fProperty with the selected default and clone policy.
+     * @param dflt The default matrix
+     * @param clone True if the property clones the value
+     */
+    public Matrix3fProperty(Matrix3f dflt, boolean clone) {
+        this.dflt = new Matrix3f(dflt);
+        this.clone = clone;
+        data = new float[REQUIRED_ELEMENTS];
+    }
+
+    /**
+     * Constructor suitable for code generation with entreri.
+     * @param dflt
+     * @param clonePolicy
+     */
+    public Matrix3fProperty(DefaultMatrix3f dflt, DoNotClone clonePolicy) {
+        this((dflt == null ? new Matrix3f() : new Matrix3f(dflt.m00(), dflt.m01(), dflt.m02(),
+                dflt.m10(), dflt.m11(), dflt.m12(), dflt.m20(), dflt.m21(), dflt.m22())), clonePolicy == null);
+    }
+
+    public void get(int index, Matrix3f result) {
+        result.set(data, index * REQUIRED_ELEMENTS, false);
+    }
+
+    public void set(int index, @Const Matrix3f v) {
+        v.get(data, index * REQUIRED_ELEMENTS, false);
+    }
+
+    public Matrix3f get(int index) {
+        Matrix3f m = new Matrix3f();
+        get(index, m);
+        return m;
+    }
+
+    /**
+     * Convert the value at <var>index</var> into the double precision <var>result</var>.
+     *
+     * @param index  The component index
+     * @param result The instance to store the converted value in
+     */
+    public void get(int index, Matrix3 result) {
+        result.set(data, index * REQUIRED_ELEMENTS, false);
+    }
+
+    /**
+     * Convert the double precision value <var>v</var> and store it at <var>index</var>.
+     *
+     * @param index The component index
+     * @param v     The value to convert and store
+     */
+    public void set(int index, @Const Matrix3 v) {
+        v.get(data, index * REQUIRED_ELEMENTS, false);
+    }
+
+    /**
+     * Copy the value at <var>index</var> into <var>store</var>, starting at <var>offset</var> measured from 0,
+     * without any conversion or intermediate instance. The values are stored in column-major order.
+     *
+     * @param index  The component index
+     * @param store  The buffer to copy into
+     * @param offset The first index in the buffer that is written to
+     */
+    public void get(int index, FloatBuffer store, int offset) {
+        int base = index * REQUIRED_ELEMENTS;
+        for (int i = 0; i < REQUIRED_ELEMENTS; i++) {
+            store.put(offset + i, data[base + i]);
+        }
+    }
+
+    /**
+     * Return the packed float array backing this property, which holds nine values per index in column-major
+     * order. The array instance is replaced when the capacity changes so it should not be held across
+     * capacity changes.
+     *
+     * @return The packed data array
+     */
+    public float[] getIndexedData() {
+        return data;
+    }
+
+    @Override
+    public int getCapacity() {
+        return data.length / REQUIRED_ELEMENTS;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        data = Arrays.copyOf(data, size * REQUIRED_ELEMENTS);
+    }
+
+    @Override
+    public void swap(int indexA, int indexB) {
+        int ia = indexA * REQUIRED_ELEMENTS;
+        int ib = indexB * REQUIRED_ELEMENTS;
+
+        for (int i = 0; i < REQUIRED_ELEMENTS; i++) {
+            float t = data[ia + i];
+            data[ia + i] = data[ib + i];
+            data[ib + i] = t;
+        }
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        set(index, dflt);
+    }
+
+    @Override
+    public void clone(Matrix3fProperty src, int srcIndex, int dstIndex) {
+        if (!src.clone || !clone) {
+            setDefaultValue(dstIndex);
+        } else {
+            System.arraycopy(src.data, srcIndex * REQUIRED_ELEMENTS, data, dstIndex * REQUIRED_ELEMENTS, REQUIRED_ELEMENTS);
+        }
+    }
+
+    /**
+     * Attribute annotation to apply to Matrix3fProperty declarations.
+     *
+     * @author Michael Ludwig
+     */
+    @Attribute
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public static @interface DefaultMatrix3f {
+        /**
+         * @return Default m00 value
+         */
+        float m00();
+
+        /**
+         * @return Default m01 value
+         */
+        float m01();
+
+        /**
+         * @return Default m02 value
+         */
+        float m02();
+
+        /**
+         * @return Default m10 value
+         */
+        float m10();
+
+        /**
+         * @return Default m11 value
+         */
+        float m11();
+
+        /**
+         * @return Default m12 value
+         */
+        float m12();
+
+        /**
+         * @return Default m20 value
+         */
+        float m20();
+
+        /**
+         * @return Default m21 value
+         */
+        float m21();
+
+        /**
+         * @return Default m22 value
+         */
+        float m22();
+    }
+}
@@ -93,6 +93,17 @@ public class Matrix4Property implements Property<Matrix4Property>, Property.Valu
         return m;
     }
 
+    /**
+     * Return the packed array backing this property, which holds sixteen values per index in column-major
+     * order. The array instance is replaced when the capacity changes so it should not be held across
+     * capacity changes.
+     *
+     * @return The packed data array
+     */
+    public double[] getIndexedData() {
+        return data;
+    }
+
     @Override
     public int getCapacity() {
         return data.length / REQUIRED_ELEMENTS;
@@ -91,6 +91,17 @@ public class Quat4Property implements Property<Quat4Property>, Property.ValueSem
         return q;
     }
 
+    /**
+     * Return the packed array backing this property, which holds four values per index in x, y, z, w
+     * order. The array instance is replaced when the capacity changes so it should not be held across
+     * capacity changes.
+     *
+     * @return The packed data array
+     */
+    public double[] getIndexedData() {
+        return data;
+    }
+
     @Override
     public int getCapacity() {
         return data.length / REQUIRED_ELEMENTS;
@@ -88,6 +88,17 @@ public class Vector3Property implements Property<Vector3Property>, Property.Valu
         return v;
     }
 
+    /**
+     * Return the packed array backing this property, which holds three values per index in x, y, z order.
+     * The array instance is replaced when the capacity changes so it should not be held across capacity
+     * changes.
+     *
+     * @return The packed data array
+     */
+    public double[] getIndexedData() {
+        return data;
+    }
+
     @Override
     public void setCapacity(int size) {
         data = Arrays.copyOf(data, size * REQUIRED_ELEMENTS);
@@ -0,0 +1,201 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.math.entreri;
+
+import com.ferox.math.Const;
+import com.ferox.math.Vector3;
+import com.ferox.math.Vector3f;
+import com.lhkbob.entreri.property.*;
+
+import java.lang.annotation.*;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Vector3fProperty is a value-semantics Property for handling Vector3f instances.
+ * Internally it packs them into a single float array, which uses half the memory of the
+ * equivalent double precision property and can be copied directly into FloatBuffers.
+ *
+ * @author Michael Ludwig
+ */
+public class Vector3fProperty implements Property<Vector3fProperty>, Property.ValueSemantics {
+    private static final int REQUIRED_ELEMENTS = 3;
+
+    private final Vector3f dflt;
+    private final boolean clone;
+
+    private float[] data;
+
+    /**
+     * Create a new Vector3fProperty using the 0 vector as its default.
+     */
+    public Vector3fProperty() {
+        this(new Vector3f(), true);
+    }
+
+    /**
+     * Create a new Vector3fProperty with the selected default and clone policy.
+     * @param dflt The default vector
+     * @param clone True if the property clones the value
+     */
+    public Vector3fProperty(Vector3f dflt, boolean clone) {
+        this.dflt = new Vector3f(dflt);
+        this.clone = clone;
+        data = new float[REQUIRED_ELEMENTS];
+    }
+
+    /**
+     * Constructor suitable for code generation with entreri.
+     * @param dflt
+     * @param clonePolicy
+     */
+    public Vector3fProperty(DefaultVector3f dflt, DoNotClone clonePolicy) {
+        this((dflt == null ? new Vector3f() : new Vector3f(dflt.x(), dflt.y(), dflt.z())), clonePolicy == null);
+    }
+
+    public void get(int index, Vector3f result) {
+        result.set(data, index * REQUIRED_ELEMENTS);
+    }
+
+    public void set(int index, @Const Vector3f v) {
+        v.get(data, index * REQUIRED_ELEMENTS);
+    }
+
+    public Vector3f get(int index) {
+        Vector3f v = new Vector3f();
+        get(index, v);
+        return v;
+    }
+
+    /**
+     * Convert the value at <var>index</var> into the double precision <var>result</var>.
+     *
+     * @param index  The component index
+     * @param result The instance to store the converted value in
+     */
+    public void get(int index, Vector3 result) {
+        result.set(data, index * REQUIRED_ELEMENTS);
+    }
+
+    /**
+     * Convert the double precision value <var>v</var> and store it at <var>index</var>.
+     *
+     * @param index The component index
+     * @param v     The value to convert and store
+     */
+    public void set(int index, @Const Vector3 v) {
+        v.get(data, index * REQUIRED_ELEMENTS);
+    }
+
+    /**
+     * Copy the value at <var>index</var> into <var>store</var>, starting at <var>offset</var> measured from 0,
+     * without any conversion or intermediate instance.
+     *
+     * @param index  The component index
+     * @param store  The buffer to copy into
+     * @param offset The first index in the buffer that is written to
+     */
+    public void get(int index, FloatBuffer store, int offset) {
+        int base = index * REQUIRED_ELEMENTS;
+        for (int i = 0; i < REQUIRED_ELEMENTS; i++) {
+            store.put(offset + i, data[base + i]);
+        }
+    }
+
+    /**
+     * Return the packed float array backing this property, which holds three values per index in x, y, z order.
+     * The array instance is replaced when the capacity changes so it should not be held across capacity
+     * changes.
+     *
+     * @return The packed data array
+     */
+    public float[] getIndexedData() {
+        return data;
+    }
+
+    @Override
+    public void setCapacity(int size) {
+        data = Arrays.copyOf(data, size * REQUIRED_ELEMENTS);
+    }
+
+    @Override
+    public int getCapacity() {
+        return data.length / REQUIRED_ELEMENTS;
+    }
+
+    @Override
+    public void swap(int indexA, int indexB) {
+        int ia = indexA * REQUIRED_ELEMENTS;
+        int ib = indexB * REQUIRED_ELEMENTS;
+
+        for (int i = 0; i < REQUIRED_ELEMENTS; i++) {
+            float t = data[ia + i];
+            data[ia + i] = data[ib + i];
+            data[ib + i] = t;
+        }
+    }
+
+    @Override
+    public void setDefaultValue(int index) {
+        set(index, dflt);
+    }
+
+    @Override
+    public void clone(Vector3fProperty src, int srcIndex, int dstIndex) {
+        if (!src.clone || !clone) {
+            setDefaultValue(dstIndex);
+        } else {
+            System.arraycopy(src.data, srcIndex * REQUIRED_ELEMENTS, data, dstIndex * REQUIRED_ELEMENTS, REQUIRED_ELEMENTS);
+        }
+    }
+
+    /**
+     * Attribute annotation to apply to Vector3fProperty declarations.
+     *
+     * @author Michael Ludwig
+     */
+    @Attribute
+    @Documented
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    public static @interface DefaultVector3f {
+        /**
+         * @return Default x coordinate
+         */
+        float x();
+
+        /**
+         * @return Default y coordinate
+         */
+        float y();
+
+        /**
+         * @return Default z coordinate
+         */
+        float z();
+    }
+}
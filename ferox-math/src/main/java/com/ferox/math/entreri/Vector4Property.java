@@ -92,6 +92,17 @@ public class Vector4Property implements Property<Vector4Property>, Property.Valu
         return v;
     }
 
+    /**
+     * Return the packed array backing this property, which holds four values per index in x, y, z, w
+     * order. The array instance is replaced when the capacity changes so it should not be held across
+     * capacity changes.
+     *
+     * @return The packed data array
+     */
+    public double[] getIndexedData() {
+        return data;
+    }
+
     @Override
     public int getCapacity() {
         return data.length / REQUIRED_ELEMENTS;
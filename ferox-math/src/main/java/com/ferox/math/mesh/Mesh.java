@@ -62,6 +62,11 @@ public final class Mesh implements Iterable<Triangle> {
     private int nextTriangle;
     private int nextSet;
 
+    // indexed form computed by optimize(), null when it has not been computed for the current triangles
+    private int[] indices;
+    private float[] indexedVertices;
+    private float[][] indexedAttrs;
+
     // Mesh is not a thread safe structure, so it's okay to have it hold onto temp objects
     // used for per-triangle computations
     final Vector3 temp1 = new Vector3();
@@ -101,8 +106,172 @@ public final class Mesh implements Iterable<Triangle> {
         return new MeshBuilder();
     }
 
+    /**
+     * Compute a compact, indexed form of the mesh suitable for rendering. Triangle vertices that have the
+     * same position and the same value for every attribute are welded into a single vertex, and the
+     * triangles are reordered with Forsyth's vertex cache optimization so consecutive triangles reuse
+     * recently transformed vertices. The welded vertices are then renumbered in the order they are first
+     * referenced so that vertex fetches are mostly sequential as well.
+     * <p/>
+     * After this returns, {@link #getIndices()}, {@link #getIndexedVertices()} and {@link
+     * #getIndexedAttribute(String)} provide the arrays, which can be passed directly to the element and
+     * vertex buffer builders of the renderer. The indexed form is discarded when triangles are added to or
+     * removed from the mesh. Modifying the positions or attributes of existing triangles does not discard it,
+     * so optimize() must be invoked again to pick up those changes.
+     */
     public void optimize() {
+        // pack live triangles densely so that holes from removed triangles are skipped
+        int triCount = 0;
+        int[] liveTris = new int[nextTriangle];
+        for (int i = 0; i < nextTriangle; i++) {
+            if (triangles[i] != null) {
+                liveTris[triCount++] = i;
+            }
+        }
+
+        // weld corners with identical data using an open-addressing table of unique vertex indices
+        int cornerCount = triCount * 3;
+        int tableSize = Integer.highestOneBit(Math.max(cornerCount, 1)) << 2;
+        int[] table = new int[tableSize];
+        Arrays.fill(table, INVALID);
+        int[] uniqueCorners = new int[cornerCount]; // source corner id for each unique vertex
+        int[] newIndices = new int[cornerCount];
+        int vertexCount = 0;
+
+        for (int i = 0; i < cornerCount; i++) {
+            int corner = liveTris[i / 3] * 3 + (i % 3);
+            int slot = hashCorner(corner) & (tableSize - 1);
+            while (table[slot] != INVALID && !cornersEqual(uniqueCorners[table[slot]], corner)) {
+                slot = (slot + 1) & (tableSize - 1);
+            }
+
+            if (table[slot] == INVALID) {
+                table[slot] = vertexCount;
+                uniqueCorners[vertexCount++] = corner;
+            }
+            newIndices[i] = table[slot];
+        }
+
+        VertexCacheOptimizer.optimize(newIndices, vertexCount);
+
+        // renumber vertices by first use after reordering, and copy their data into the packed arrays
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, INVALID);
+        float[] newVertices = new float[vertexCount * 3];
+        float[][] newAttrs = new float[attrCount][];
+        for (int a = 0; a < attrCount; a++) {
+            newAttrs[a] = new float[vertexCount * attrElementSize[a]];
+        }
+
+        int nextVertex = 0;
+        for (int i = 0; i < cornerCount; i++) {
+            int v = newIndices[i];
+            if (remap[v] == INVALID) {
+                int corner = uniqueCorners[v];
+                System.arraycopy(vertices, corner * 3, newVertices, nextVertex * 3, 3);
+                for (int a = 0; a < attrCount; a++) {
+                    int size = attrElementSize[a];
+                    System.arraycopy(attrs[a], corner * size, newAttrs[a], nextVertex * size, size);
+                }
+                remap[v] = nextVertex++;
+            }
+            newIndices[i] = remap[v];
+        }
+
+        indices = newIndices;
+        indexedVertices = newVertices;
+        indexedAttrs = newAttrs;
+    }
+
+    /**
+     * Get the triangle list computed by the last call to {@link #optimize()}. Every three values form a
+     * triangle and index into the arrays returned by {@link #getIndexedVertices()} and {@link
+     * #getIndexedAttribute(String)}. The returned array is not copied, so it should not be modified.
+     *
+     * @return The optimized triangle indices, or null if the mesh has not been optimized since triangles
+     *         were last added or removed
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * Get the welded vertex positions computed by the last call to {@link #optimize()}, packed as three
+     * floats per vertex. The returned array is not copied, so it should not be modified.
+     *
+     * @return The optimized vertex positions, or null if the mesh has not been optimized since triangles
+     *         were last added or removed
+     */
+    public float[] getIndexedVertices() {
+        return indexedVertices;
+    }
+
+    /**
+     * Get the welded values of the named attribute computed by the last call to {@link #optimize()}, packed
+     * with {@link #getAttributeSize(String)} floats per vertex. The returned array is not copied, so it
+     * should not be modified.
+     *
+     * @param name The attribute name
+     *
+     * @return The optimized attribute values, or null if the mesh has not been optimized since triangles
+     *         were last added or removed
+     *
+     * @throws NullPointerException if the attribute does not exist
+     */
+    public float[] getIndexedAttribute(String name) {
+        int index = getAttributeIndex(name);
+        return (indexedAttrs == null ? null : indexedAttrs[index]);
+    }
+
+    /**
+     * @return The number of welded vertices computed by the last call to {@link #optimize()}, or 0 if the
+     *         mesh has not been optimized since triangles were last added or removed
+     */
+    public int getIndexedVertexCount() {
+        return (indexedVertices == null ? 0 : indexedVertices.length / 3);
+    }
+
+    private void invalidateIndexedForm() {
+        indices = null;
+        indexedVertices = null;
+        indexedAttrs = null;
+    }
+
+    private int hashCorner(int corner) {
+        int hash = 17;
+        for (int i = corner * 3; i < corner * 3 + 3; i++) {
+            hash = 31 * hash + floatBits(vertices[i]);
+        }
+        for (int a = 0; a < attrCount; a++) {
+            int size = attrElementSize[a];
+            for (int i = corner * size; i < (corner + 1) * size; i++) {
+                hash = 31 * hash + floatBits(attrs[a][i]);
+            }
+        }
+        // spread the bits since the table uses the low bits for its slots
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean cornersEqual(int c1, int c2) {
+        for (int i = 0; i < 3; i++) {
+            if (floatBits(vertices[c1 * 3 + i]) != floatBits(vertices[c2 * 3 + i])) {
+                return false;
+            }
+        }
+        for (int a = 0; a < attrCount; a++) {
+            int size = attrElementSize[a];
+            for (int i = 0; i < size; i++) {
+                if (floatBits(attrs[a][c1 * size + i]) != floatBits(attrs[a][c2 * size + i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
 
+    private static int floatBits(float f) {
+        // adding 0 converts -0 to +0 so they weld together
+        return Float.floatToIntBits(f + 0f);
     }
 
     public void ensureCapacity(int size) {
@@ -121,6 +290,8 @@ public final class Mesh implements Iterable<Triangle> {
     }
 
     public Triangle addTriangle() {
+        invalidateIndexedForm();
+
         // get index of new triangle, either reusing storage or appending
         int triIndex;
         if (emptyTriangles == null) {
@@ -161,6 +332,7 @@ public final class Mesh implements Iterable<Triangle> {
 
     public void removeTriangle(Triangle t) {
         validateTriangle(t);
+        invalidateIndexedForm();
 
         detachVertexUnsafe(t, Triangle.Vertex.A);
         detachVertexUnsafe(t, Triangle.Vertex.B);
@@ -450,7 +622,7 @@ public final class Mesh implements Iterable<Triangle> {
         @Override
         @Const
         public Vector3 getPosition(Triangle.Vertex v) {
-            return pos.set(vertices, index * 9 + v.ordinal());
+            return pos.set(vertices, index * 9 + v.ordinal() * 3);
         }
 
         @Override
@@ -464,7 +636,7 @@ public final class Mesh implements Iterable<Triangle> {
         public Vector4 getAttribute(int attrIndex, Triangle.Vertex v) {
             Vector4 r = attr[attrIndex];
             int size = attrElementSize[attrIndex];
-            int baseIndex = index * size * 3 + v.ordinal();
+            int baseIndex = (index * 3 + v.ordinal()) * size;
             switch (size) {
             case 4:
                 r.w = attrs[attrIndex][baseIndex + 3];
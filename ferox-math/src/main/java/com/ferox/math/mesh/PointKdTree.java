@@ -26,8 +26,417 @@
  */
 package com.ferox.math.mesh;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
+ * PointKdTree is a static, bulk-built kd-tree over 3D points that supports k-nearest-neighbor and radius
+ * queries. Points are provided as a packed float array with three values per point, the same layout used for
+ * mesh positions, and are identified by their index within that array.
+ * <p/>
+ * The tree is implicit: the points are permuted so that the median of every range is the splitting point of
+ * that range's node, with the points before it in the left subtree and the points after it in the right
+ * subtree. The only per-node state is the split axis, so the tree needs no node objects or child pointers.
+ * Queries recurse at most log2(n) levels deep and write into caller-provided arrays, so they allocate
+ * nothing. Once built, a tree is immutable and can be queried from multiple threads concurrently.
  *
+ * @author Michael Ludwig
  */
 public class PointKdTree {
+    private static final int PARALLEL_THRESHOLD = 8192;
+
+    private final float[] coords; // 3 x size, in tree order
+    private final int[] ids; // original point index, in tree order
+    private final byte[] axes; // split axis of the node whose splitting point is at that index
+
+    /**
+     * Build a tree over the first <var>count</var> points within <var>points</var>. The array is not
+     * modified or retained, so it can be reused after the tree is built.
+     *
+     * @param points The packed point data, three floats per point
+     * @param count  The number of points to include
+     *
+     * @throws NullPointerException     if points is null
+     * @throws IllegalArgumentException if count is negative or points holds fewer than count points
+     */
+    public PointKdTree(float[] points, int count) {
+        this(points, count, null);
+    }
+
+    /**
+     * Build a tree over the first <var>count</var> points within <var>points</var>, partitioning independent
+     * subtrees of large point sets in parallel on <var>pool</var>. If the pool is null, the tree is built on
+     * the calling thread.
+     *
+     * @param points The packed point data, three floats per point
+     * @param count  The number of points to include
+     * @param pool   The pool to use for building, may be null
+     *
+     * @throws NullPointerException     if points is null
+     * @throws IllegalArgumentException if count is negative or points holds fewer than count points
+     */
+    public PointKdTree(float[] points, int count, ForkJoinPool pool) {
+        if (count < 0 || count * 3 > points.length) {
+            throw new IllegalArgumentException("Invalid point count: " + count);
+        }
+
+        ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i;
+        }
+        axes = new byte[count];
+
+        BuildAction root = new BuildAction(points, 0, count, pool != null);
+        if (pool != null && count > PARALLEL_THRESHOLD) {
+            pool.invoke(root);
+        } else {
+            root.compute();
+        }
+
+        coords = new float[count * 3];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(points, ids[i] * 3, coords, i * 3, 3);
+        }
+    }
+
+    /**
+     * @return The number of points in the tree
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Find the point closest to (x, y, z).
+     *
+     * @param x The x coordinate of the query point
+     * @param y The y coordinate of the query point
+     * @param z The z coordinate of the query point
+     *
+     * @return The index of the closest point, or -1 if the tree is empty
+     */
+    public int findNearest(float x, float y, float z) {
+        if (ids.length == 0) {
+            return -1;
+        }
+        long best = nearest(x, y, z, 0, ids.length, Float.floatToIntBits(Float.POSITIVE_INFINITY), -1);
+        return (int) best;
+    }
+
+    /**
+     * Find the <var>k</var> points closest to (x, y, z), where k is the length of <var>resultIds</var>. The
+     * found point indices are stored in <var>resultIds</var> and their squared distances in
+     * <var>resultDistSq</var>, sorted from nearest to farthest. If the tree has fewer than k points, only
+     * the first {@link #size()} elements are written.
+     *
+     * @param x            The x coordinate of the query point
+     * @param y            The y coordinate of the query point
+     * @param z            The z coordinate of the query point
+     * @param resultIds    The array that receives the point indices
+     * @param resultDistSq The array that receives the squared distances, at least as long as resultIds
+     *
+     * @return The number of points found
+     *
+     * @throws NullPointerException     if either array is null
+     * @throws IllegalArgumentException if resultDistSq is shorter than resultIds
+     */
+    public int findNearest(float x, float y, float z, int[] resultIds, float[] resultDistSq) {
+        if (resultDistSq.length < resultIds.length) {
+            throw new IllegalArgumentException("Distance array must be at least as long as id array");
+        }
+
+        int k = resultIds.length;
+        if (k == 0 || ids.length == 0) {
+            return 0;
+        }
+
+        // results are kept as a max-heap on distance while searching, then sorted in place
+        int found = nearestK(x, y, z, 0, ids.length, k, resultIds, resultDistSq, 0);
+        for (int end = found - 1; end > 0; end--) {
+            swap(resultIds, resultDistSq, 0, end);
+            siftDown(resultIds, resultDistSq, 0, end);
+        }
+        return found;
+    }
+
+    /**
+     * Find all points within <var>radius</var> of (x, y, z), inclusive. The indices of the found points are
+     * stored in <var>result</var> in no particular order. If more points are found than fit in the array,
+     * only the first result.length are stored but the total count is still returned, so the query can be
+     * repeated with a larger array.
+     *
+     * @param x      The x coordinate of the query point
+     * @param y      The y coordinate of the query point
+     * @param z      The z coordinate of the query point
+     * @param radius The search radius
+     * @param result The array that receives point indices
+     *
+     * @return The total number of points within the radius
+     *
+     * @throws NullPointerException if result is null
+     */
+    public int findWithinRadius(float x, float y, float z, float radius, int[] result) {
+        return withinRadius(x, y, z, radius * radius, 0, ids.length, result, 0);
+    }
+
+    private long nearest(float x, float y, float z, int lo, int hi, int bestDistBits, int bestId) {
+        // the best candidate is threaded through the recursion packed in a long so that no state is
+        // needed outside of the stack: distance bits in the high word and point index in the low word
+        if (lo >= hi) {
+            return pack(bestDistBits, bestId);
+        }
+
+        int mid = (lo + hi) >>> 1;
+        int axis = axes[mid];
+        float diff = component(x, y, z, axis) - coords[mid * 3 + axis];
+
+        float d = distanceSquared(x, y, z, mid);
+        if (d < Float.intBitsToFloat(bestDistBits)) {
+            bestDistBits = Float.floatToIntBits(d);
+            bestId = ids[mid];
+        }
+
+        long best;
+        if (diff < 0f) {
+            best = nearest(x, y, z, lo, mid, bestDistBits, bestId);
+        } else {
+            best = nearest(x, y, z, mid + 1, hi, bestDistBits, bestId);
+        }
+
+        if (diff * diff < Float.intBitsToFloat((int) (best >>> 32))) {
+            if (diff < 0f) {
+                best = nearest(x, y, z, mid + 1, hi, (int) (best >>> 32), (int) best);
+            } else {
+                best = nearest(x, y, z, lo, mid, (int) (best >>> 32), (int) best);
+            }
+        }
+        return best;
+    }
+
+    private static long pack(int distBits, int id) {
+        return ((long) distBits << 32) | (id & 0xffffffffL);
+    }
+
+    private int nearestK(float x, float y, float z, int lo, int hi, int k, int[] heapIds, float[] heapDist,
+                         int found) {
+        if (lo >= hi) {
+            return found;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        int axis = axes[mid];
+        float diff = component(x, y, z, axis) - coords[mid * 3 + axis];
+
+        float d = distanceSquared(x, y, z, mid);
+        if (found < k) {
+            heapIds[found] = ids[mid];
+            heapDist[found] = d;
+            siftUp(heapIds, heapDist, found);
+            found++;
+        } else if (d < heapDist[0]) {
+            heapIds[0] = ids[mid];
+            heapDist[0] = d;
+            siftDown(heapIds, heapDist, 0, k);
+        }
+
+        if (diff < 0f) {
+            found = nearestK(x, y, z, lo, mid, k, heapIds, heapDist, found);
+        } else {
+            found = nearestK(x, y, z, mid + 1, hi, k, heapIds, heapDist, found);
+        }
+
+        if (found < k || diff * diff < heapDist[0]) {
+            if (diff < 0f) {
+                found = nearestK(x, y, z, mid + 1, hi, k, heapIds, heapDist, found);
+            } else {
+                found = nearestK(x, y, z, lo, mid, k, heapIds, heapDist, found);
+            }
+        }
+        return found;
+    }
+
+    private int withinRadius(float x, float y, float z, float radiusSq, int lo, int hi, int[] result,
+                             int found) {
+        if (lo >= hi) {
+            return found;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        int axis = axes[mid];
+        float diff = component(x, y, z, axis) - coords[mid * 3 + axis];
+
+        if (distanceSquared(x, y, z, mid) <= radiusSq) {
+            if (found < result.length) {
+                result[found] = ids[mid];
+            }
+            found++;
+        }
+
+        if (diff <= 0f || diff * diff <= radiusSq) {
+            found = withinRadius(x, y, z, radiusSq, lo, mid, result, found);
+        }
+        if (diff >= 0f || diff * diff <= radiusSq) {
+            found = withinRadius(x, y, z, radiusSq, mid + 1, hi, result, found);
+        }
+        return found;
+    }
+
+    private float distanceSquared(float x, float y, float z, int treeIndex) {
+        float dx = x - coords[treeIndex * 3];
+        float dy = y - coords[treeIndex * 3 + 1];
+        float dz = z - coords[treeIndex * 3 + 2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static float component(float x, float y, float z, int axis) {
+        return (axis == 0 ? x : (axis == 1 ? y : z));
+    }
+
+    private static void siftUp(int[] heapIds, float[] heapDist, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >> 1;
+            if (heapDist[parent] >= heapDist[index]) {
+                return;
+            }
+            swap(heapIds, heapDist, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heapIds, float[] heapDist, int index, int size) {
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heapDist[left] > heapDist[largest]) {
+                largest = left;
+            }
+            if (right < size && heapDist[right] > heapDist[largest]) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(heapIds, heapDist, index, largest);
+            index = largest;
+        }
+    }
+
+    private static void swap(int[] heapIds, float[] heapDist, int i, int j) {
+        int id = heapIds[i];
+        heapIds[i] = heapIds[j];
+        heapIds[j] = id;
+        float d = heapDist[i];
+        heapDist[i] = heapDist[j];
+        heapDist[j] = d;
+    }
+
+    /*
+     * Partitions a range of ids around its median along the axis of greatest extent, and then recurses
+     * into the two halves, forking them when they are large enough to be worth running in parallel.
+     */
+    private class BuildAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final float[] points;
+        private final int lo;
+        private final int hi;
+
+        // decided by the pool given to the constructor, a calling thread that happens to be a fork-join
+        // worker must not make a sequential build fork
+        private final boolean parallel;
+
+        public BuildAction(float[] points, int lo, int hi, boolean parallel) {
+            this.points = points;
+            this.lo = lo;
+            this.hi = hi;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected void compute() {
+            build(lo, hi);
+        }
+
+        private void build(int lo, int hi) {
+            while (hi - lo > 0) {
+                int mid = (lo + hi) >>> 1;
+                int axis = widestAxis(lo, hi);
+                select(lo, hi, mid, axis);
+                axes[mid] = (byte) axis;
+
+                if (parallel && hi - lo > PARALLEL_THRESHOLD) {
+                    invokeAll(new BuildAction(points, lo, mid, true),
+                              new BuildAction(points, mid + 1, hi, true));
+                    return;
+                }
+
+                // recurse on the left and loop on the right
+                build(lo, mid);
+                lo = mid + 1;
+            }
+        }
+
+        private int widestAxis(int lo, int hi) {
+            float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+            float minZ = Float.POSITIVE_INFINITY;
+            float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+            float maxZ = Float.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i++) {
+                int p = ids[i] * 3;
+                minX = Math.min(minX, points[p]);
+                maxX = Math.max(maxX, points[p]);
+                minY = Math.min(minY, points[p + 1]);
+                maxY = Math.max(maxY, points[p + 1]);
+                minZ = Math.min(minZ, points[p + 2]);
+                maxZ = Math.max(maxZ, points[p + 2]);
+            }
+
+            float dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+            if (dx >= dy && dx >= dz) {
+                return 0;
+            } else if (dy >= dz) {
+                return 1;
+            } else {
+                return 2;
+            }
+        }
+
+        // quickselect so that ids[nth] is the point that would be there if the range were sorted on axis
+        private void select(int lo, int hi, int nth, int axis) {
+            hi--; // make inclusive
+            while (hi > lo) {
+                float pivot = value((lo + hi) >>> 1, axis);
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (value(i, axis) < pivot) {
+                        i++;
+                    }
+                    while (value(j, axis) > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int t = ids[i];
+                        ids[i] = ids[j];
+                        ids[j] = t;
+                        i++;
+                        j--;
+                    }
+                }
+
+                if (nth <= j) {
+                    hi = j;
+                } else if (nth >= i) {
+                    lo = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private float value(int index, int axis) {
+            return points[ids[index] * 3 + axis];
+        }
+    }
 }
@@ -26,8 +26,692 @@
  */
 package com.ferox.math.mesh;
 
+import com.ferox.math.Const;
+import com.ferox.math.Vector3;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
+ * TriangleKdTree is a static kd-tree over the triangles of a mesh that answers ray casts and closest point
+ * queries in logarithmic time. The tree is built once with the surface area heuristic, using the cost model
+ * and edge-sweep construction described in Physically Based Rendering. It does not track later changes to
+ * the source triangles; a new tree must be built if they are modified.
+ * <p/>
+ * Triangles are identified by the order they were provided in: their index within the packed vertex array,
+ * or the number of triangles visited by the {@link TriangleIterator} before them. The nodes, the leaf
+ * triangle lists and the triangle positions are all kept in flat primitive arrays. Interior nodes store the
+ * split axis, split position and above-child index in two ints, and the below child always immediately
+ * follows its parent.
+ * <p/>
+ * Queries recurse at most to the depth of the tree and do not allocate. Once built, a tree can be queried
+ * from multiple threads concurrently, and the batch ray methods can distribute rays across a {@link
+ * ForkJoinPool}.
  *
+ * @author Michael Ludwig
  */
 public class TriangleKdTree {
+    private static final int TRAVERSAL_COST = 1;
+    private static final int INTERSECT_COST = 80;
+    private static final float EMPTY_BONUS = 0.5f;
+    private static final int MAX_LEAF_SIZE = 1;
+    private static final float DETERMINANT_EPSILON = 1e-12f;
+    private static final int BATCH_SIZE = 256;
+
+    private static final int LEAF = 3;
+    private static final long NO_HIT = pack(Float.POSITIVE_INFINITY, -1);
+
+    private final float[] vertices; // 9 x triangle count
+    private final float[] bounds; // scene bounds, min then max
+
+    private int[] nodes; // 2 x node count
+    private int nodeCount;
+    private int[] leafTriangles;
+    private int leafTriangleCount;
+
+    /**
+     * Build a tree over all triangles visited by the iterator. The iterator is exhausted by this
+     * constructor.
+     *
+     * @param triangles The triangles to index
+     *
+     * @throws NullPointerException if triangles is null
+     */
+    public TriangleKdTree(TriangleIterator triangles) {
+        this(copyPositions(triangles));
+    }
+
+    /**
+     * Build a tree over all triangles currently within <var>mesh</var>, in the order they are visited by
+     * {@link Mesh#fastIterator()}.
+     *
+     * @param mesh The mesh to index
+     *
+     * @throws NullPointerException if mesh is null
+     */
+    public TriangleKdTree(Mesh mesh) {
+        this(mesh.fastIterator());
+    }
+
+    /**
+     * Build a tree over the first <var>triangleCount</var> triangles of <var>vertices</var>, which stores
+     * nine floats per triangle: the positions of vertices A, B, and C. The array is copied so it can be
+     * modified after the tree is built.
+     *
+     * @param vertices      The packed triangle positions
+     * @param triangleCount The number of triangles to index
+     *
+     * @throws NullPointerException     if vertices is null
+     * @throws IllegalArgumentException if triangleCount is negative or exceeds the data in vertices
+     */
+    public TriangleKdTree(float[] vertices, int triangleCount) {
+        this(copyPositions(vertices, triangleCount));
+    }
+
+    private TriangleKdTree(float[] vertices) {
+        this.vertices = vertices;
+        int triangleCount = vertices.length / 9;
+
+        float[] triBounds = new float[triangleCount * 6];
+        bounds = new float[] {
+                Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+                Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY
+        };
+        for (int t = 0; t < triangleCount; t++) {
+            for (int axis = 0; axis < 3; axis++) {
+                float a = vertices[t * 9 + axis];
+                float b = vertices[t * 9 + 3 + axis];
+                float c = vertices[t * 9 + 6 + axis];
+                float min = Math.min(a, Math.min(b, c));
+                float max = Math.max(a, Math.max(b, c));
+                triBounds[t * 6 + axis] = min;
+                triBounds[t * 6 + 3 + axis] = max;
+                bounds[axis] = Math.min(bounds[axis], min);
+                bounds[axis + 3] = Math.max(bounds[axis + 3], max);
+            }
+        }
+
+        nodes = new int[64];
+        leafTriangles = new int[Math.max(triangleCount, 16)];
+        int[] all = new int[triangleCount];
+        for (int i = 0; i < triangleCount; i++) {
+            all[i] = i;
+        }
+
+        int maxDepth = (int) Math.round(8 + 1.3 * Math.log(Math.max(triangleCount, 1)) / Math.log(2));
+        buildNode(all, triangleCount, Arrays.copyOf(bounds, 6), triBounds, maxDepth, 0);
+    }
+
+    private static float[] copyPositions(float[] vertices, int triangleCount) {
+        if (triangleCount < 0 || triangleCount * 9 > vertices.length) {
+            throw new IllegalArgumentException("Invalid triangle count: " + triangleCount);
+        }
+        return Arrays.copyOf(vertices, triangleCount * 9);
+    }
+
+    private static float[] copyPositions(TriangleIterator triangles) {
+        float[] data = new float[9 * 64];
+        int count = 0;
+        while (triangles.next()) {
+            if (count * 9 >= data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            int offset = count * 9;
+            triangles.getPosition(Triangle.Vertex.A).get(data, offset);
+            triangles.getPosition(Triangle.Vertex.B).get(data, offset + 3);
+            triangles.getPosition(Triangle.Vertex.C).get(data, offset + 6);
+            count++;
+        }
+        return Arrays.copyOf(data, count * 9);
+    }
+
+    /**
+     * @return The number of triangles in the tree
+     */
+    public int size() {
+        return vertices.length / 9;
+    }
+
+    /**
+     * Find the first triangle hit by the ray starting at <var>origin</var> and moving along
+     * <var>direction</var>. Only hits within <var>maxDistance</var> are reported, where the distance is
+     * measured in multiples of the direction's length. If a triangle is hit and <var>hit</var> is not null,
+     * the intersection point is stored in it.
+     *
+     * @param origin      The ray origin
+     * @param direction   The ray direction, does not need to be normalized
+     * @param maxDistance The maximum distance along the ray to search
+     * @param hit         Optional vector to store the intersection point in
+     *
+     * @return The index of the first triangle hit, or -1 if no triangle is hit
+     *
+     * @throws NullPointerException if origin or direction are null
+     */
+    public int intersect(@Const Vector3 origin, @Const Vector3 direction, double maxDistance, Vector3 hit) {
+        float ox = (float) origin.x, oy = (float) origin.y, oz = (float) origin.z;
+        float dx = (float) direction.x, dy = (float) direction.y, dz = (float) direction.z;
+        long best = castRay(ox, oy, oz, dx, dy, dz, (float) maxDistance, false);
+
+        int tri = (int) best;
+        if (tri >= 0 && hit != null) {
+            float t = distance(best);
+            hit.set(ox + t * dx, oy + t * dy, oz + t * dz);
+        }
+        return tri;
+    }
+
+    /**
+     * Determine if any triangle is hit by the ray starting at <var>origin</var> and moving along
+     * <var>direction</var>, within <var>maxDistance</var>. This is cheaper than {@link #intersect(Vector3,
+     * Vector3, double, Vector3)} because traversal stops at the first hit found instead of the closest,
+     * making it suitable for shadow and visibility rays.
+     *
+     * @param origin      The ray origin
+     * @param direction   The ray direction, does not need to be normalized
+     * @param maxDistance The maximum distance along the ray to search
+     *
+     * @return True if any triangle is hit
+     *
+     * @throws NullPointerException if origin or direction are null
+     */
+    public boolean intersectsAny(@Const Vector3 origin, @Const Vector3 direction, double maxDistance) {
+        return (int) castRay((float) origin.x, (float) origin.y, (float) origin.z, (float) direction.x,
+                       (float) direction.y, (float) direction.z, (float) maxDistance, true) >= 0;
+    }
+
+    /**
+     * Find the point on the surface of the indexed triangles that is closest to <var>point</var>, ignoring
+     * any triangles farther away than <var>maxDistance</var>. If a triangle is found and <var>result</var> is
+     * not null, the closest point is stored in it.
+     *
+     * @param point       The query point
+     * @param maxDistance The maximum distance to search, use positive infinity for no limit
+     * @param result      Optional vector to store the closest point in
+     *
+     * @return The index of the triangle containing the closest point, or -1 if there is no triangle within
+     *         maxDistance
+     *
+     * @throws NullPointerException if point is null
+     */
+    public int closestPoint(@Const Vector3 point, double maxDistance, Vector3 result) {
+        float px = (float) point.x, py = (float) point.y, pz = (float) point.z;
+        float maxDistSq = (float) (maxDistance * maxDistance);
+        long best = closest(0, px, py, pz, pack(maxDistSq, -1));
+        int tri = (int) best;
+        if (tri >= 0 && result != null) {
+            closestPoint(tri, px, py, pz, result);
+        }
+        return tri;
+    }
+
+    /**
+     * Cast many rays at once. Rays are packed into <var>rays</var> with six floats per ray: the origin
+     * followed by the direction. For each ray, the index of the first triangle hit, or -1, is stored in
+     * <var>triangles</var>, and if <var>distances</var> is not null, the distance along the ray to the hit is
+     * stored in it (positive infinity for misses). If <var>pool</var> is not null, the rays are divided into
+     * batches that are processed in parallel.
+     *
+     * @param rays        The packed ray data
+     * @param rayCount    The number of rays to cast
+     * @param maxDistance The maximum distance along each ray to search
+     * @param triangles   The array receiving hit triangle indices
+     * @param distances   Optional array receiving hit distances
+     * @param pool        Optional pool to cast rays in parallel
+     *
+     * @throws NullPointerException      if rays or triangles is null
+     * @throws IndexOutOfBoundsException if any array is too small for rayCount
+     */
+    public void intersect(float[] rays, int rayCount, float maxDistance, int[] triangles, float[] distances,
+                          ForkJoinPool pool) {
+        checkBatch(rays, rayCount, triangles.length, (distances == null ? rayCount : distances.length));
+        runBatch(new RayBatch(rays, 0, rayCount, maxDistance, triangles, distances, null), pool);
+    }
+
+    /**
+     * Determine for many rays at once whether or not they hit any triangle. Rays are packed as in {@link
+     * #intersect(float[], int, float, int[], float[], java.util.concurrent.ForkJoinPool)}. If <var>pool</var>
+     * is not null, the rays are divided into batches that are processed in parallel.
+     *
+     * @param rays        The packed ray data
+     * @param rayCount    The number of rays to cast
+     * @param maxDistance The maximum distance along each ray to search
+     * @param hits        The array receiving whether or not each ray hit a triangle
+     * @param pool        Optional pool to cast rays in parallel
+     *
+     * @throws NullPointerException      if rays or hits is null
+     * @throws IndexOutOfBoundsException if any array is too small for rayCount
+     */
+    public void intersectsAny(float[] rays, int rayCount, float maxDistance, boolean[] hits,
+                              ForkJoinPool pool) {
+        checkBatch(rays, rayCount, hits.length, rayCount);
+        runBatch(new RayBatch(rays, 0, rayCount, maxDistance, null, null, hits), pool);
+    }
+
+    private static void checkBatch(float[] rays, int rayCount, int resultLength, int distanceLength) {
+        if (rayCount < 0 || rayCount * 6 > rays.length || rayCount > resultLength ||
+            rayCount > distanceLength) {
+            throw new IndexOutOfBoundsException("Arrays are too small for ray count: " + rayCount);
+        }
+    }
+
+    private static void runBatch(RayBatch batch, ForkJoinPool pool) {
+        if (pool != null) {
+            pool.invoke(batch);
+        } else {
+            batch.castRays();
+        }
+    }
+
+    private static long pack(float distance, int triangle) {
+        return ((long) Float.floatToIntBits(distance) << 32) | (triangle & 0xffffffffL);
+    }
+
+    private static float distance(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    private long castRay(float ox, float oy, float oz, float dx, float dy, float dz, float maxDistance,
+                         boolean any) {
+        // clip the ray against the scene bounds before descending
+        float tMin = 0f;
+        float tMax = maxDistance;
+        for (int axis = 0; axis < 3; axis++) {
+            float o = (axis == 0 ? ox : (axis == 1 ? oy : oz));
+            float d = (axis == 0 ? dx : (axis == 1 ? dy : dz));
+            float invD = 1f / d;
+            float tNear = (bounds[axis] - o) * invD;
+            float tFar = (bounds[axis + 3] - o) * invD;
+            if (tNear > tFar) {
+                float t = tNear;
+                tNear = tFar;
+                tFar = t;
+            }
+            // written so that NaNs from a 0 direction inside the slab leave the interval unchanged
+            tMin = (tNear > tMin ? tNear : tMin);
+            tMax = (tFar < tMax ? tFar : tMax);
+            if (tMin > tMax) {
+                return NO_HIT;
+            }
+        }
+
+        return castRay(0, ox, oy, oz, dx, dy, dz, tMin, tMax, pack(maxDistance, -1), any);
+    }
+
+    private long castRay(int node, float ox, float oy, float oz, float dx, float dy, float dz, float tMin,
+                         float tMax, long best, boolean any) {
+        int header = nodes[node * 2];
+        int axis = header & 3;
+
+        if (axis == LEAF) {
+            int count = header >>> 2;
+            int offset = nodes[node * 2 + 1];
+            for (int i = offset; i < offset + count; i++) {
+                int tri = leafTriangles[i];
+                float t = intersectTriangle(tri, ox, oy, oz, dx, dy, dz);
+                if (t < distance(best)) {
+                    best = pack(t, tri);
+                    if (any) {
+                        return best;
+                    }
+                }
+            }
+            return best;
+        }
+
+        float o = (axis == 0 ? ox : (axis == 1 ? oy : oz));
+        float d = (axis == 0 ? dx : (axis == 1 ? dy : dz));
+        float split = Float.intBitsToFloat(nodes[node * 2 + 1]);
+        float tPlane = (split - o) / d;
+
+        int below = node + 1;
+        int above = header >>> 2;
+        boolean belowFirst = o < split || (o == split && d <= 0f);
+        int first = (belowFirst ? below : above);
+        int second = (belowFirst ? above : below);
+
+        if (tPlane > tMax || tPlane <= 0f) {
+            return castRay(first, ox, oy, oz, dx, dy, dz, tMin, tMax, best, any);
+        } else if (tPlane < tMin) {
+            return castRay(second, ox, oy, oz, dx, dy, dz, tMin, tMax, best, any);
+        } else {
+            best = castRay(first, ox, oy, oz, dx, dy, dz, tMin, tPlane, best, any);
+            if ((int) best >= 0 && (any || distance(best) <= tPlane)) {
+                // a hit within the first child is closer than anything in the second child
+                return best;
+            }
+            return castRay(second, ox, oy, oz, dx, dy, dz, tPlane, tMax, best, any);
+        }
+    }
+
+    private float intersectTriangle(int tri, float ox, float oy, float oz, float dx, float dy, float dz) {
+        // Moller-Trumbore
+        int v = tri * 9;
+        float ax = vertices[v], ay = vertices[v + 1], az = vertices[v + 2];
+        float e1x = vertices[v + 3] - ax, e1y = vertices[v + 4] - ay, e1z = vertices[v + 5] - az;
+        float e2x = vertices[v + 6] - ax, e2y = vertices[v + 7] - ay, e2z = vertices[v + 8] - az;
+
+        float px = dy * e2z - dz * e2y;
+        float py = dz * e2x - dx * e2z;
+        float pz = dx * e2y - dy * e2x;
+        float det = e1x * px + e1y * py + e1z * pz;
+        if (det > -DETERMINANT_EPSILON && det < DETERMINANT_EPSILON) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float invDet = 1f / det;
+
+        float sx = ox - ax, sy = oy - ay, sz = oz - az;
+        float u = (sx * px + sy * py + sz * pz) * invDet;
+        if (u < 0f || u > 1f) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        float qx = sy * e1z - sz * e1y;
+        float qy = sz * e1x - sx * e1z;
+        float qz = sx * e1y - sy * e1x;
+        float w = (dx * qx + dy * qy + dz * qz) * invDet;
+        if (w < 0f || u + w > 1f) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        float t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+        return (t > 0f ? t : Float.POSITIVE_INFINITY);
+    }
+
+    private long closest(int node, float px, float py, float pz, long best) {
+        int header = nodes[node * 2];
+        int axis = header & 3;
+
+        if (axis == LEAF) {
+            int count = header >>> 2;
+            int offset = nodes[node * 2 + 1];
+            for (int i = offset; i < offset + count; i++) {
+                int tri = leafTriangles[i];
+                float distSq = closestPoint(tri, px, py, pz, null);
+                if (distSq < distance(best)) {
+                    best = pack(distSq, tri);
+                }
+            }
+            return best;
+        }
+
+        float p = (axis == 0 ? px : (axis == 1 ? py : pz));
+        float diff = p - Float.intBitsToFloat(nodes[node * 2 + 1]);
+        int below = node + 1;
+        int above = header >>> 2;
+
+        // triangles only in the far child are entirely on the other side of the split plane, so they can be
+        // no closer than the plane itself
+        best = closest(diff < 0f ? below : above, px, py, pz, best);
+        if (diff * diff < distance(best)) {
+            best = closest(diff < 0f ? above : below, px, py, pz, best);
+        }
+        return best;
+    }
+
+    private float closestPoint(int tri, float px, float py, float pz, Vector3 result) {
+        // from Real-Time Collision Detection, classifies the point against the triangle's Voronoi regions
+        int o = tri * 9;
+        float ax = vertices[o], ay = vertices[o + 1], az = vertices[o + 2];
+        float abx = vertices[o + 3] - ax, aby = vertices[o + 4] - ay, abz = vertices[o + 5] - az;
+        float acx = vertices[o + 6] - ax, acy = vertices[o + 7] - ay, acz = vertices[o + 8] - az;
+        float apx = px - ax, apy = py - ay, apz = pz - az;
+
+        float v, w; // barycentric weights of B and C
+        float d1 = abx * apx + aby * apy + abz * apz;
+        float d2 = acx * apx + acy * apy + acz * apz;
+        if (d1 <= 0f && d2 <= 0f) {
+            v = 0f;
+            w = 0f;
+        } else {
+            float bpx = apx - abx, bpy = apy - aby, bpz = apz - abz;
+            float d3 = abx * bpx + aby * bpy + abz * bpz;
+            float d4 = acx * bpx + acy * bpy + acz * bpz;
+            float cpx = apx - acx, cpy = apy - acy, cpz = apz - acz;
+            float d5 = abx * cpx + aby * cpy + abz * cpz;
+            float d6 = acx * cpx + acy * cpy + acz * cpz;
+
+            float vc = d1 * d4 - d3 * d2;
+            float vb = d5 * d2 - d1 * d6;
+            float va = d3 * d6 - d5 * d4;
+            if (d3 >= 0f && d4 <= d3) {
+                v = 1f;
+                w = 0f;
+            } else if (d6 >= 0f && d5 <= d6) {
+                v = 0f;
+                w = 1f;
+            } else if (vc <= 0f && d1 >= 0f && d3 <= 0f) {
+                v = d1 / (d1 - d3);
+                w = 0f;
+            } else if (vb <= 0f && d2 >= 0f && d6 <= 0f) {
+                v = 0f;
+                w = d2 / (d2 - d6);
+            } else if (va <= 0f && (d4 - d3) >= 0f && (d5 - d6) >= 0f) {
+                w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+                v = 1f - w;
+            } else {
+                float denom = 1f / (va + vb + vc);
+                v = vb * denom;
+                w = vc * denom;
+            }
+        }
+
+        float cx = ax + v * abx + w * acx;
+        float cy = ay + v * aby + w * acy;
+        float cz = az + v * abz + w * acz;
+        if (result != null) {
+            result.set(cx, cy, cz);
+        }
+
+        float ex = px - cx, ey = py - cy, ez = pz - cz;
+        return ex * ex + ey * ey + ez * ez;
+    }
+
+    private int newNode() {
+        if (nodeCount * 2 >= nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        }
+        return nodeCount++;
+    }
+
+    private void makeLeaf(int node, int[] triangles, int count) {
+        if (leafTriangleCount + count > leafTriangles.length) {
+            leafTriangles = Arrays.copyOf(leafTriangles,
+                                          Math.max(leafTriangles.length * 2, leafTriangleCount + count));
+        }
+        System.arraycopy(triangles, 0, leafTriangles, leafTriangleCount, count);
+        nodes[node * 2] = LEAF | (count << 2);
+        nodes[node * 2 + 1] = leafTriangleCount;
+        leafTriangleCount += count;
+    }
+
+    private void buildNode(int[] triangles, int count, float[] nodeBounds, float[] triBounds, int depth,
+                           int badRefines) {
+        int node = newNode();
+        if (count <= MAX_LEAF_SIZE || depth == 0) {
+            makeLeaf(node, triangles, count);
+            return;
+        }
+
+        float[] extent = new float[] {
+                nodeBounds[3] - nodeBounds[0], nodeBounds[4] - nodeBounds[1], nodeBounds[5] - nodeBounds[2]
+        };
+        float invTotalArea = 1f / (2f * (extent[0] * extent[1] + extent[0] * extent[2] +
+                                         extent[1] * extent[2]));
+        float oldCost = INTERSECT_COST * count;
+
+        // edges are sorted by position, with start edges before end edges at the same position, and the
+        // triangle in the low bits
+        long[] edges = new long[2 * count];
+        float bestCost = Float.POSITIVE_INFINITY;
+        int bestAxis = -1;
+        int bestOffset = -1;
+
+        int axis = (extent[0] > extent[1] && extent[0] > extent[2]) ? 0 : (extent[1] > extent[2] ? 1 : 2);
+        for (int retries = 0; retries < 3 && bestAxis < 0; retries++) {
+            for (int i = 0; i < count; i++) {
+                int tri = triangles[i];
+                edges[2 * i] = edge(triBounds[tri * 6 + axis], false, tri);
+                edges[2 * i + 1] = edge(triBounds[tri * 6 + 3 + axis], true, tri);
+            }
+            Arrays.sort(edges);
+
+            int other1 = (axis + 1) % 3;
+            int other2 = (axis + 2) % 3;
+            int below = 0;
+            int above = count;
+            for (int i = 0; i < 2 * count; i++) {
+                boolean end = isEnd(edges[i]);
+                if (end) {
+                    above--;
+                }
+
+                float split = edgePosition(edges[i]);
+                if (split > nodeBounds[axis] && split < nodeBounds[axis + 3]) {
+                    float belowArea = 2f * (extent[other1] * extent[other2] +
+                                            (split - nodeBounds[axis]) * (extent[other1] + extent[other2]));
+                    float aboveArea = 2f * (extent[other1] * extent[other2] +
+                                            (nodeBounds[axis + 3] - split) * (extent[other1] +
+                                                                             extent[other2]));
+                    float pBelow = belowArea * invTotalArea;
+                    float pAbove = aboveArea * invTotalArea;
+                    float bonus = (above == 0 || below == 0) ? EMPTY_BONUS : 0f;
+                    float cost = TRAVERSAL_COST +
+                                 INTERSECT_COST * (1f - bonus) * (pBelow * below + pAbove * above);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestOffset = i;
+                    }
+                }
+
+                if (!end) {
+                    below++;
+                }
+            }
+            if (bestAxis < 0) {
+                axis = (axis + 1) % 3;
+            }
+        }
+
+        if (bestCost > oldCost) {
+            badRefines++;
+        }
+        if ((bestCost > 4f * oldCost && count < 16) || bestAxis < 0 || badRefines == 3) {
+            makeLeaf(node, triangles, count);
+            return;
+        }
+
+        // the edges currently hold the last axis that was swept, which is only the best axis if the
+        // best split was found on the final attempt
+        if (axis != bestAxis) {
+            for (int i = 0; i < count; i++) {
+                int tri = triangles[i];
+                edges[2 * i] = edge(triBounds[tri * 6 + bestAxis], false, tri);
+                edges[2 * i + 1] = edge(triBounds[tri * 6 + 3 + bestAxis], true, tri);
+            }
+            Arrays.sort(edges);
+        }
+
+        int[] belowTris = new int[count];
+        int belowCount = 0;
+        for (int i = 0; i < bestOffset; i++) {
+            if (!isEnd(edges[i])) {
+                belowTris[belowCount++] = (int) (edges[i] & 0x7fffffff);
+            }
+        }
+        int[] aboveTris = new int[count];
+        int aboveCount = 0;
+        for (int i = bestOffset + 1; i < 2 * count; i++) {
+            if (isEnd(edges[i])) {
+                aboveTris[aboveCount++] = (int) (edges[i] & 0x7fffffff);
+            }
+        }
+
+        float split = edgePosition(edges[bestOffset]);
+        float[] belowBounds = Arrays.copyOf(nodeBounds, 6);
+        belowBounds[bestAxis + 3] = split;
+        float[] aboveBounds = Arrays.copyOf(nodeBounds, 6);
+        aboveBounds[bestAxis] = split;
+
+        buildNode(belowTris, belowCount, belowBounds, triBounds, depth - 1, badRefines);
+        int aboveChild = nodeCount;
+        buildNode(aboveTris, aboveCount, aboveBounds, triBounds, depth - 1, badRefines);
+
+        nodes[node * 2] = bestAxis | (aboveChild << 2);
+        nodes[node * 2 + 1] = Float.floatToIntBits(split);
+    }
+
+    private static long edge(float position, boolean end, int triangle) {
+        // flip the float bits so that the signed int order matches the float order
+        int bits = Float.floatToIntBits(position + 0f);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | (end ? 0x80000000L : 0L) | triangle;
+    }
+
+    private static float edgePosition(long edge) {
+        int bits = (int) (edge >> 32);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return Float.intBitsToFloat(bits);
+    }
+
+    private static boolean isEnd(long edge) {
+        return (edge & 0x80000000L) != 0;
+    }
+
+    /*
+     * Casts a contiguous range of rays from a batch, splitting it into halves that are forked when it is
+     * larger than the batch size.
+     */
+    private class RayBatch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final float[] rays;
+        private final int start;
+        private final int end;
+        private final float maxDistance;
+
+        private final int[] triangles;
+        private final float[] distances;
+        private final boolean[] hits;
+
+        public RayBatch(float[] rays, int start, int end, float maxDistance, int[] triangles,
+                        float[] distances, boolean[] hits) {
+            this.rays = rays;
+            this.start = start;
+            this.end = end;
+            this.maxDistance = maxDistance;
+            this.triangles = triangles;
+            this.distances = distances;
+            this.hits = hits;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > BATCH_SIZE) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new RayBatch(rays, start, mid, maxDistance, triangles, distances, hits),
+                          new RayBatch(rays, mid, end, maxDistance, triangles, distances, hits));
+            } else {
+                castRays();
+            }
+        }
+
+        private void castRays() {
+            boolean any = hits != null;
+            for (int i = start; i < end; i++) {
+                int r = i * 6;
+                long best = castRay(rays[r], rays[r + 1], rays[r + 2], rays[r + 3], rays[r + 4], rays[r + 5],
+                                    maxDistance, any);
+                if (any) {
+                    hits[i] = (int) best >= 0;
+                } else {
+                    triangles[i] = (int) best;
+                    if (distances != null) {
+                        distances[i] = ((int) best < 0 ? Float.POSITIVE_INFINITY : distance(best));
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,223 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.math.mesh;
+
+import java.util.Arrays;
+
+/**
+ * VertexCacheOptimizer reorders indexed triangles to improve post-transform vertex cache locality using Tom
+ * Forsyth's "Linear-Speed Vertex Cache Optimisation". Each vertex is scored by its position in a simulated
+ * LRU cache and by the number of triangles still waiting to use it, and the triangle with the highest summed
+ * score is emitted next. The algorithm does not depend on the exact cache size of the hardware and performs
+ * well for any FIFO or LRU cache that is not larger than the simulated one.
+ *
+ * @author Michael Ludwig
+ */
+final class VertexCacheOptimizer {
+    private static final int CACHE_SIZE = 32;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRI_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    private VertexCacheOptimizer() {
+    }
+
+    /**
+     * Reorder the triangles in <var>indices</var> in place. Each consecutive triple of values forms a
+     * triangle, and every value must be in the range [0, vertexCount). The winding of each triangle is
+     * preserved.
+     *
+     * @param indices     The triangle index list to reorder
+     * @param vertexCount The number of unique vertices referenced by indices
+     */
+    static void optimize(int[] indices, int vertexCount) {
+        int triCount = indices.length / 3;
+        if (triCount < 2) {
+            return;
+        }
+
+        // build a compact vertex to triangle adjacency, valence[v] tracks the active triangles of v that
+        // are stored at the start of its segment in vertexTris
+        int[] valence = new int[vertexCount];
+        for (int i = 0; i < indices.length; i++) {
+            valence[indices[i]]++;
+        }
+        int[] offsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] = offsets[v] + valence[v];
+        }
+        int[] vertexTris = new int[indices.length];
+        int[] fill = Arrays.copyOf(offsets, vertexCount);
+        for (int i = 0; i < indices.length; i++) {
+            vertexTris[fill[indices[i]]++] = i / 3;
+        }
+
+        int[] cachePos = new int[vertexCount];
+        Arrays.fill(cachePos, -1);
+        float[] vertexScore = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            vertexScore[v] = score(-1, valence[v]);
+        }
+
+        float[] triScore = new float[triCount];
+        for (int t = 0; t < triCount; t++) {
+            triScore[t] = vertexScore[indices[t * 3]] + vertexScore[indices[t * 3 + 1]] +
+                          vertexScore[indices[t * 3 + 2]];
+        }
+        boolean[] emitted = new boolean[triCount];
+
+        // the cache has room for the three vertices of the next triangle before the tail is evicted
+        int[] cache = new int[CACHE_SIZE + 3];
+        int[] newCache = new int[CACHE_SIZE + 3];
+        int cacheCount = 0;
+
+        int[] output = new int[indices.length];
+        int scanCursor = 0;
+        int best = -1;
+
+        for (int outTri = 0; outTri < triCount; outTri++) {
+            if (best < 0) {
+                // nothing in the cache is adjacent to a remaining triangle, so pick the best remaining
+                // triangle by scanning forward; triangles before the cursor are already emitted
+                float bestScore = -1f;
+                for (int t = scanCursor; t < triCount; t++) {
+                    if (!emitted[t] && triScore[t] > bestScore) {
+                        bestScore = triScore[t];
+                        best = t;
+                    }
+                }
+            }
+
+            emitted[best] = true;
+            int newCount = 0;
+            for (int k = 0; k < 3; k++) {
+                int v = indices[best * 3 + k];
+                output[outTri * 3 + k] = v;
+
+                // remove the triangle from the vertex's active list
+                int start = offsets[v];
+                int end = start + valence[v];
+                for (int i = start; i < end; i++) {
+                    if (vertexTris[i] == best) {
+                        vertexTris[i] = vertexTris[end - 1];
+                        vertexTris[end - 1] = best;
+                        break;
+                    }
+                }
+                valence[v]--;
+
+                newCache[newCount++] = v;
+                cachePos[v] = -2; // mark as already placed for the merge below
+            }
+
+            // the remaining cache entries follow in their previous order, with duplicates skipped
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                if (cachePos[v] != -2) {
+                    newCache[newCount++] = v;
+                }
+            }
+
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+            cacheCount = Math.min(newCount, CACHE_SIZE);
+
+            // evicted vertices lose their cache bonus
+            for (int i = cacheCount; i < newCount; i++) {
+                int v = cache[i];
+                cachePos[v] = -1;
+                updateVertex(v, indices, valence, offsets, vertexTris, cachePos, vertexScore, triScore);
+            }
+
+            best = -1;
+            float bestScore = -1f;
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                cachePos[v] = i;
+                updateVertex(v, indices, valence, offsets, vertexTris, cachePos, vertexScore, triScore);
+            }
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                int start = offsets[v];
+                int end = start + valence[v];
+                for (int j = start; j < end; j++) {
+                    int t = vertexTris[j];
+                    if (triScore[t] > bestScore) {
+                        bestScore = triScore[t];
+                        best = t;
+                    }
+                }
+            }
+
+            while (scanCursor < triCount && emitted[scanCursor]) {
+                scanCursor++;
+            }
+        }
+
+        System.arraycopy(output, 0, indices, 0, indices.length);
+    }
+
+    private static void updateVertex(int v, int[] indices, int[] valence, int[] offsets, int[] vertexTris,
+                                     int[] cachePos, float[] vertexScore, float[] triScore) {
+        float newScore = score(cachePos[v], valence[v]);
+        float delta = newScore - vertexScore[v];
+        vertexScore[v] = newScore;
+
+        if (delta != 0f) {
+            int start = offsets[v];
+            int end = start + valence[v];
+            for (int i = start; i < end; i++) {
+                triScore[vertexTris[i]] += delta;
+            }
+        }
+    }
+
+    private static float score(int cachePosition, int remainingValence) {
+        if (remainingValence <= 0) {
+            // no triangle needs the vertex anymore
+            return -1f;
+        }
+
+        float score = 0f;
+        if (cachePosition >= 0) {
+            if (cachePosition < 3) {
+                // vertices of the last triangle get a fixed score so that strip-like orders are not
+                // favored over fan-like orders that reuse more of the cache
+                score = LAST_TRI_SCORE;
+            } else {
+                float scaler = 1f / (CACHE_SIZE - 3);
+                score = (float) Math.pow(1f - (cachePosition - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+
+        // boost vertices with few remaining triangles so that lone triangles are not left behind
+        score += VALENCE_BOOST_SCALE * (float) Math.pow(remainingValence, -VALENCE_BOOST_POWER);
+        return score;
+    }
+}
@@ -26,6 +26,7 @@
  */
 package com.ferox.physics.dynamics;
 
+import com.ferox.math.BatchMath;
 import com.ferox.math.Const;
 import com.ferox.math.Matrix3;
 import com.ferox.math.Quat4;
@@ -67,6 +68,12 @@ public class ExplicitEulerIntegrator implements Integrator {
         integrateVector(v, dt, position);
     }
 
+    @Override
+    public void integrateLinearVelocities(double[] velocities, double dt, double[] positions, int start,
+                                          int count) {
+        BatchMath.integrateVelocities(positions, velocities, dt, start, count);
+    }
+
     @Override
     public void integrateAngularVelocity(@Const Vector3 v, double dt, Matrix3 orientation) {
         // clamp angular velocity
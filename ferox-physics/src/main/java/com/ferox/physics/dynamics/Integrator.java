@@ -76,6 +76,23 @@ public interface Integrator {
      */
     public void integrateLinearVelocity(@Const Vector3 v, double dt, Vector3 position);
 
+    /**
+     * Integrate many linear velocities at once, as if {@link #integrateLinearVelocity(Vector3, double,
+     * Vector3)} were called for each element in the range. The velocities and positions are packed three
+     * values per element, in the same layout used by {@link com.ferox.math.BatchMath}.
+     *
+     * @param velocities The packed linear velocities
+     * @param dt         The time delta in seconds
+     * @param positions  The packed positions that are updated in place
+     * @param start      The element index of the first velocity and position
+     * @param count      The number of elements to integrate
+     *
+     * @throws NullPointerException      if velocities or positions are null
+     * @throws IndexOutOfBoundsException if the range is outside of the arrays
+     */
+    public void integrateLinearVelocities(double[] velocities, double dt, double[] positions, int start,
+                                          int count);
+
     /**
      * Integrate the given angular velocity vector {@code a} over the time delta {@code dt}, measured in
      * seconds. The computed delta orientation should be accumulated into the 'current' orientation stored in
@@ -27,7 +27,10 @@
 package com.ferox.physics.task;
 
 import com.ferox.math.*;
+import com.ferox.math.entreri.AxisAlignedBoxProperty;
 import com.ferox.math.entreri.BoundsResult;
+import com.ferox.math.entreri.Matrix4Property;
+import com.ferox.math.entreri.Vector3Property;
 import com.ferox.physics.collision.CollisionBody;
 import com.ferox.physics.dynamics.ExplicitEulerIntegrator;
 import com.ferox.physics.dynamics.Gravity;
@@ -42,6 +45,7 @@ import com.lhkbob.entreri.task.Job;
 import com.lhkbob.entreri.task.ParallelAware;
 import com.lhkbob.entreri.task.Task;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -73,6 +77,16 @@ public class IntegrationTask implements Task {
     private final Vector3 force = new Vector3();
     private final Matrix3 rotation = new Matrix3();
 
+    // packed per-body state for the batched integration and bounds update
+    private CollisionBody[] bodies = new CollisionBody[0];
+    private RigidBody[] rigidBodies = new RigidBody[0];
+    private Gravity[] gravities = new Gravity[0];
+    private final Matrix4Property transforms = new Matrix4Property();
+    private final Vector3Property positions = new Vector3Property();
+    private final Vector3Property velocities = new Vector3Property();
+    private final AxisAlignedBoxProperty localBounds = new AxisAlignedBoxProperty();
+    private final AxisAlignedBoxProperty transformedBounds = new AxisAlignedBoxProperty();
+
     /**
      * Create a new IntegrationTask that uses the default gravity vector along the y-axis with acceleration
      * equal to Earth's. An explicit Euler integrator is used.
@@ -126,25 +140,71 @@ public class IntegrationTask implements Task {
         Vector3 angVelocity = new Vector3();
         Matrix3 tensor = new Matrix3();
 
+        // 1. Integrate angular velocities accumulated from previous time step and gather the bodies' state
+        // into packed arrays for the batched steps
+        int count = 0;
         while (iterator.next()) {
+            if (count == bodies.length) {
+                ensureCapacity(Math.max(16, 2 * count));
+            }
+
             collisionBody.getTransform(transform);
+            bodies[count] = collisionBody.getEntity().get(CollisionBody.class);
 
             if (rigidBody.isAlive()) {
-                // 1. Integrate velocities accumulated from previous time step
+                rigidBodies[count] = rigidBody.getEntity().get(RigidBody.class);
+                gravities[count] = (gravity.isAlive() ? gravity.getEntity().get(Gravity.class) : null);
+
                 predictedRotation.setUpper(transform);
                 predictedPosition.set(transform.m03, transform.m13, transform.m23);
+                integrator.integrateAngularVelocity(rigidBody.getAngularVelocity(angVelocity), dt,
+                                                    predictedRotation);
+                setTransform(predictedRotation, predictedPosition, transform);
 
-                integrator.integrateLinearVelocity(rigidBody.getVelocity(velocity), dt, predictedPosition);
-                integrator.integrateAngularVelocity(rigidBody.getAngularVelocity(angVelocity), dt, predictedRotation);
+                velocities.set(count, rigidBody.getVelocity(velocity));
+            } else {
+                // static bodies have no velocity so the batched integration leaves them in place
+                velocities.set(count, velocity.set(0, 0, 0));
+            }
 
-                // push values back into transform
-                setTransform(predictedRotation, predictedPosition, transform);
-                collisionBody.setTransform(transform);
+            positions.set(count, predictedPosition.set(transform.m03, transform.m13, transform.m23));
+            transforms.set(count, transform);
+            localBounds.set(count, collisionBody.getShape().getBounds());
+            count++;
+        }
+
+        // 2. Integrate linear velocities and update world bounds over all bodies at once
+        integrator.integrateLinearVelocities(velocities.getIndexedData(), dt, positions.getIndexedData(), 0,
+                                             count);
+
+        double[] t = transforms.getIndexedData();
+        double[] p = positions.getIndexedData();
+        for (int i = 0; i < count; i++) {
+            // push values back into the translation column of the packed transform
+            t[i * 16 + 12] = p[i * 3];
+            t[i * 16 + 13] = p[i * 3 + 1];
+            t[i * 16 + 14] = p[i * 3 + 2];
+        }
+
+        BatchMath.transformAxisAlignedBoxes(t, localBounds.getIndexedData(), transformedBounds.getIndexedData(),
+                                            0, count);
+
+        for (int i = 0; i < count; i++) {
+            CollisionBody body = bodies[i];
+            RigidBody rb = rigidBodies[i];
+            Gravity g = gravities[i];
+            bodies[i] = null;
+            rigidBodies[i] = null;
+            gravities[i] = null;
+
+            transforms.get(i, transform);
+            if (rb != null) {
+                body.setTransform(transform);
             }
 
-            // 2. Update world bounds and accumulate scene union
-            worldBounds.transform(collisionBody.getShape().getBounds(), transform);
-            collisionBody.setWorldBounds(worldBounds);
+            // 3. Store world bounds and accumulate scene union
+            transformedBounds.get(i, worldBounds);
+            body.setWorldBounds(worldBounds);
             if (firstBounds) {
                 union.set(worldBounds);
                 firstBounds = false;
@@ -152,27 +212,27 @@ public class IntegrationTask implements Task {
                 union.union(worldBounds);
             }
 
-            if (rigidBody.isAlive()) {
-                // 3. Compute inertia tensors for bodies
-                rigidBody.getInertiaTensorInverse(tensor);
+            if (rb != null) {
+                // 4. Compute inertia tensors for bodies
+                rb.getInertiaTensorInverse(tensor);
 
-                collisionBody.getShape().getInertiaTensor(rigidBody.getMass(), inertia);
+                body.getShape().getInertiaTensor(rb.getMass(), inertia);
                 inertia.set(1.0 / inertia.x, 1.0 / inertia.y, 1.0 / inertia.z);
 
                 rotation.setUpper(transform);
                 tensor.mulDiagonal(rotation, inertia).mulTransposeRight(rotation);
-                rigidBody.setInertiaTensorInverse(tensor);
+                rb.setInertiaTensorInverse(tensor);
 
-                // 4. Compute and apply gravity force
-                if (gravity.isAlive()) {
-                    force.scale(gravity.getGravity(velocity), rigidBody.getMass());
+                // 5. Compute and apply gravity force
+                if (g != null) {
+                    force.scale(g.getGravity(velocity), rb.getMass());
                 } else {
-                    force.scale(defaultGravity, rigidBody.getMass());
+                    force.scale(defaultGravity, rb.getMass());
                 }
 
-                Vector3 lv = rigidBody.getVelocity(velocity);
-                integrator.integrateLinearAcceleration(force.scale(force, 1.0 / rigidBody.getMass()), dt, lv);
-                rigidBody.setVelocity(lv);
+                Vector3 lv = rb.getVelocity(velocity);
+                integrator.integrateLinearAcceleration(force.scale(force, 1.0 / rb.getMass()), dt, lv);
+                rb.setVelocity(lv);
             }
         }
 
@@ -182,6 +242,18 @@ public class IntegrationTask implements Task {
         return null;
     }
 
+    private void ensureCapacity(int size) {
+        bodies = Arrays.copyOf(bodies, size);
+        rigidBodies = Arrays.copyOf(rigidBodies, size);
+        gravities = Arrays.copyOf(gravities, size);
+
+        transforms.setCapacity(size);
+        positions.setCapacity(size);
+        velocities.setCapacity(size);
+        localBounds.setCapacity(size);
+        transformedBounds.setCapacity(size);
+    }
+
     private void setTransform(@Const Matrix3 r, @Const Vector3 p, Matrix4 t) {
         t.setUpper(r);
 
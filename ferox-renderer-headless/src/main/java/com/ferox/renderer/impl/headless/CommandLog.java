@@ -0,0 +1,339 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import java.util.Arrays;
+
+/**
+ * <p/>
+ * CommandLog records the OpenGL calls that the headless backend would have issued. Every call increments a
+ * per-command counter, and as long as the log has room, the call is also appended to a compact log where each
+ * entry is packed into a single int: the command ordinal in the high 8 bits and a 24-bit argument (usually
+ * an object id or an element count) in the low bits. Once the log's capacity is reached only the counters
+ * continue to update.
+ * <p/>
+ * A CommandLog is owned by a {@link HeadlessSurfaceFactory} and shared by every context it creates. It is
+ * only written to from the framework's context thread, and is not otherwise synchronized. It should be
+ * inspected or reset from another thread only after waiting on the Future of a task submitted to the
+ * framework, which provides the necessary happens-before ordering.
+ *
+ * @author Michael Ludwig
+ */
+public class CommandLog {
+    /**
+     * The default number of entries retained by the log before only counting calls.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private static final int ARG_MASK = 0xffffff;
+
+    /**
+     * The OpenGL operations that the headless backend records.
+     */
+    public static enum Command {
+        // context level binding
+        MAKE_CURRENT,
+        RELEASE,
+        FLUSH,
+        BIND_FRAMEBUFFER,
+        BIND_ARRAY_BUFFER,
+        BIND_ELEMENT_BUFFER,
+        USE_PROGRAM,
+        ACTIVE_TEXTURE,
+        BIND_TEXTURE,
+
+        // shared renderer state
+        CLEAR,
+        LINE_ANTI_ALIASING,
+        LINE_WIDTH,
+        POINT_ANTI_ALIASING,
+        POINT_WIDTH,
+        POLY_ANTI_ALIASING,
+        BLEND_COLOR,
+        BLEND_FACTORS,
+        BLEND_EQUATIONS,
+        ENABLE_BLENDING,
+        COLOR_MASK,
+        DEPTH_OFFSET,
+        ENABLE_DEPTH_OFFSET,
+        DEPTH_TEST,
+        DEPTH_MASK,
+        DRAW_STYLE,
+        STENCIL_MASK,
+        STENCIL_TEST,
+        ENABLE_STENCIL_TEST,
+        STENCIL_UPDATE,
+        VIEWPORT,
+        DRAW_ELEMENTS,
+        DRAW_ARRAYS,
+        DRAW_ELEMENTS_INSTANCED,
+        DRAW_ARRAYS_INSTANCED,
+
+        // glsl and vertex attribute state
+        UNIFORM,
+        ENABLE_ATTRIBUTE,
+        ATTRIBUTE_POINTER,
+        ATTRIBUTE_VALUE,
+        ATTRIBUTE_DIVISOR,
+        BIND_UNIFORM_BUFFER,
+
+        // fixed function state
+        MATRIX_MODE,
+        LOAD_MATRIX,
+        ALPHA_TEST,
+        FOG_COLOR,
+        ENABLE_FOG,
+        FOG_DENSITY,
+        FOG_RANGE,
+        FOG_MODE,
+        GLOBAL_LIGHTING,
+        LIGHT_COLOR,
+        ENABLE_LIGHT,
+        LIGHT_POSITION,
+        LIGHT_DIRECTION,
+        LIGHT_ANGLE,
+        LIGHT_EXPONENT,
+        LIGHT_ATTENUATION,
+        ENABLE_LIGHTING,
+        MATERIAL_COLOR,
+        MATERIAL_SHININESS,
+        ENABLE_TEXTURE,
+        TEXTURE_COLOR,
+        COMBINE_FUNCTION,
+        COMBINE_SOURCE,
+        COMBINE_OPERAND,
+        TEXTURE_GEN,
+        TEXTURE_EYE_PLANES,
+        TEXTURE_OBJECT_PLANES,
+        ACTIVE_CLIENT_TEXTURE,
+
+        // resource management
+        GEN_BUFFER,
+        BUFFER_DATA,
+        BUFFER_SUB_DATA,
+        DELETE_BUFFER,
+        CREATE_PROGRAM,
+        CREATE_SHADER,
+        COMPILE_SHADER,
+        ATTACH_SHADER,
+        BIND_FRAG_DATA_LOCATION,
+        LINK_PROGRAM,
+        UNIFORM_BLOCK_BINDING,
+        DELETE_SHADER,
+        DELETE_PROGRAM,
+        GEN_TEXTURE,
+        TEX_IMAGE,
+        TEX_SUB_IMAGE,
+        TEX_PARAMETER,
+        GENERATE_MIPMAP,
+        DELETE_TEXTURE
+    }
+
+    private static final Command[] COMMANDS = Command.values();
+
+    private final long[] counts;
+    private long bytesUploaded;
+
+    private final int capacity;
+    private int[] entries;
+    private int size;
+
+    /**
+     * Create a new CommandLog that retains up to {@link #DEFAULT_CAPACITY} entries.
+     */
+    public CommandLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new CommandLog that retains up to <var>capacity</var> entries. A capacity of 0 disables the
+     * log, leaving only the per-command counters.
+     *
+     * @param capacity The maximum number of entries retained
+     *
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public CommandLog(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be at least 0, not: " + capacity);
+        }
+        this.capacity = capacity;
+        counts = new long[COMMANDS.length];
+        entries = new int[Math.min(capacity, 1024)];
+        size = 0;
+    }
+
+    /**
+     * Record a call to <var>command</var> with an argument of 0.
+     *
+     * @param command The recorded command
+     */
+    public void record(Command command) {
+        record(command, 0);
+    }
+
+    /**
+     * Record a call to <var>command</var>. Only the low 24 bits of <var>arg</var> are retained in the log.
+     *
+     * @param command The recorded command
+     * @param arg     The argument stored with the entry
+     */
+    public void record(Command command, int arg) {
+        counts[command.ordinal()]++;
+        if (size < capacity) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, Math.min(capacity, entries.length * 2));
+            }
+            entries[size++] = (command.ordinal() << 24) | (arg & ARG_MASK);
+        }
+    }
+
+    /**
+     * Record a call to <var>command</var> that transfers <var>bytes</var> of data to the GPU. The byte count
+     * is accumulated into {@link #getBytesUploaded()}.
+     *
+     * @param command The recorded command
+     * @param arg     The argument stored with the entry
+     * @param bytes   The number of bytes transferred
+     */
+    public void recordUpload(Command command, int arg, long bytes) {
+        bytesUploaded += bytes;
+        record(command, arg);
+    }
+
+    /**
+     * @param command The command to look up
+     *
+     * @return The number of times the command was recorded since the last reset
+     */
+    public long getCount(Command command) {
+        return counts[command.ordinal()];
+    }
+
+    /**
+     * @return The total number of recorded calls since the last reset, including calls beyond the log's
+     *         capacity
+     */
+    public long getTotalCount() {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of draw calls recorded since the last reset
+     */
+    public long getDrawCount() {
+        return counts[Command.DRAW_ELEMENTS.ordinal()] + counts[Command.DRAW_ARRAYS.ordinal()] +
+               counts[Command.DRAW_ELEMENTS_INSTANCED.ordinal()] +
+               counts[Command.DRAW_ARRAYS_INSTANCED.ordinal()];
+    }
+
+    /**
+     * @return The number of bytes of buffer and texture data uploaded since the last reset
+     */
+    public long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    /**
+     * @return The number of entries currently retained in the log
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The maximum number of entries retained in the log
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return True if calls were counted but not retained because the log was full
+     */
+    public boolean isTruncated() {
+        return getTotalCount() > size;
+    }
+
+    /**
+     * @param index The entry index, from 0 to size() - 1
+     *
+     * @return The command of the given entry
+     *
+     * @throws IndexOutOfBoundsException if index is invalid
+     */
+    public Command getCommand(int index) {
+        return COMMANDS[getEntry(index) >>> 24];
+    }
+
+    /**
+     * @param index The entry index, from 0 to size() - 1
+     *
+     * @return The 24-bit argument of the given entry
+     *
+     * @throws IndexOutOfBoundsException if index is invalid
+     */
+    public int getArgument(int index) {
+        return getEntry(index) & ARG_MASK;
+    }
+
+    private int getEntry(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index must be in [0, " + size + "), not: " + index);
+        }
+        return entries[index];
+    }
+
+    /**
+     * Clear the log and reset all counters to 0.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        bytesUploaded = 0;
+        size = 0;
+    }
+
+    /**
+     * @return A table of the non-zero counters, one command per line
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                sb.append(String.format("%-24s %d%n", COMMANDS[i], counts[i]));
+            }
+        }
+        sb.append(String.format("%-24s %d%n", "TOTAL", getTotalCount()));
+        sb.append(String.format("%-24s %d%n", "BYTES_UPLOADED", bytesUploaded));
+        return sb.toString();
+    }
+}
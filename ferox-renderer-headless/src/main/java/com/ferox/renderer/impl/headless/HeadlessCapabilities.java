@@ -0,0 +1,110 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.renderer.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * HeadlessCapabilities reports a fixed, generous feature set for a requested OpenGL version. Because the
+ * headless backend never talks to a driver, the reported limits are chosen to match common desktop hardware
+ * so that the renderer exercises the same code paths it would on a real context.
+ *
+ * @author Michael Ludwig
+ */
+public class HeadlessCapabilities extends Capabilities {
+    /**
+     * Create capabilities for the given OpenGL version. A major version of 3 or higher reports GLSL 330 and
+     * causes the fixed function renderer to be emulated with shaders, otherwise GLSL 120 is reported and the
+     * fixed function renderer is used directly.
+     *
+     * @param majorVersion The OpenGL major version
+     * @param minorVersion The OpenGL minor version
+     * @param modes        The display modes reported as available
+     *
+     * @throws IllegalArgumentException if majorVersion is less than 2
+     */
+    public HeadlessCapabilities(int majorVersion, int minorVersion, DisplayMode[] modes) {
+        if (majorVersion < 2) {
+            throw new IllegalArgumentException("Headless backend requires at least OpenGL 2, not: " +
+                                               majorVersion);
+        }
+        this.majorVersion = majorVersion;
+        this.minorVersion = minorVersion;
+        boolean modern = majorVersion >= 3;
+
+        vendor = "Ferox-Headless";
+        isDebugEnabled = Boolean.getBoolean(Framework.Factory.DEBUG_PROPERTY);
+        availableModes = Arrays.copyOf(modes, modes.length);
+        supportsMultipleOnscreenSurfaces = true;
+
+        maxTextureSize = 16384;
+        maxTextureCubeMapSize = 16384;
+        maxTexture3DSize = 2048;
+        maxRenderbufferSize = 16384;
+        maxArrayImages = (modern ? 2048 : 0);
+
+        fpTextures = true;
+        s3tcTextures = true;
+        hasDepthStencilTextures = true;
+        hasIntegerTextures = modern;
+        maxAnisoLevel = 16;
+
+        Set<Class<? extends Sampler>> targets = new HashSet<>();
+        targets.add(Texture1D.class);
+        targets.add(Texture2D.class);
+        targets.add(Texture3D.class);
+        targets.add(TextureCubeMap.class);
+        targets.add(DepthMap2D.class);
+        targets.add(DepthCubeMap.class);
+        if (modern) {
+            targets.add(Texture1DArray.class);
+            targets.add(Texture2DArray.class);
+        }
+        supportedTargets = targets;
+
+        geometryShaderSupport = modern && (majorVersion > 3 || minorVersion >= 2);
+        instancingSupport = modern && (majorVersion > 3 || minorVersion >= 3);
+        glslVersion = (modern ? 330 : 120);
+        maxVertexAttributes = 16;
+        maxUniformBlockBindings = (modern && (majorVersion > 3 || minorVersion >= 1) ? 36 : 0);
+        maxTextureUnits = 32;
+        maxVertexSamplers = 16;
+        maxFragmentSamplers = 16;
+        maxGeometrySamplers = (geometryShaderSupport ? 16 : 0);
+
+        fboSupported = !Boolean.getBoolean(Framework.Factory.DISABLE_FBO_PROPERTY);
+        pbuffersSupported = false;
+        maxColorTargets = 8;
+        depthBufferSizes = new int[] { 0, 16, 24, 32 };
+        stencilBufferSizes = new int[] { 0, 8 };
+        msaaSamples = new int[] { 0, 2, 4, 8 };
+    }
+}
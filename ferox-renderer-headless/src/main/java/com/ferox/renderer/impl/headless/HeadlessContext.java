@@ -0,0 +1,223 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.renderer.Capabilities;
+import com.ferox.renderer.FixedFunctionRenderer;
+import com.ferox.renderer.GlslRenderer;
+import com.ferox.renderer.impl.*;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+import com.ferox.renderer.impl.resources.BufferImpl;
+import com.ferox.renderer.impl.resources.ShaderImpl;
+import com.ferox.renderer.impl.resources.TextureImpl;
+
+/**
+ * HeadlessContext is an implementation of OpenGLContext that records the binding calls it would make into
+ * the {@link CommandLog} of its {@link HeadlessSurfaceFactory}. It performs the same redundant-bind
+ * filtering as the real backends so that the recorded call counts are representative.
+ *
+ * @author Michael Ludwig
+ */
+public class HeadlessContext implements OpenGLContext {
+    private final HeadlessSurfaceFactory factory;
+    private final CommandLog log;
+
+    private final SharedState sharedState;
+    private final FixedFunctionRenderer fixed;
+    private final GlslRenderer glsl;
+
+    private int fbo;
+
+    /**
+     * Create a new HeadlessContext that records into the log of the given factory.
+     *
+     * @param factory The factory that owns the context
+     *
+     * @throws NullPointerException if factory is null
+     */
+    public HeadlessContext(HeadlessSurfaceFactory factory) {
+        if (factory == null) {
+            throw new NullPointerException("Factory cannot be null");
+        }
+        this.factory = factory;
+        log = factory.getCommandLog();
+
+        Capabilities caps = factory.getCapabilities();
+        sharedState = new SharedState(caps.getMaxTextureUnits());
+
+        HeadlessRendererDelegate shared = new HeadlessRendererDelegate(this, sharedState);
+        HeadlessGlslRenderer baseRenderer = new HeadlessGlslRenderer(this, shared,
+                                                                     caps.getMaxVertexAttributes(),
+                                                                     caps.hasInstancingSupport(),
+                                                                     caps.getMaxUniformBlockBindings());
+        glsl = (caps.isDebugEnabled() ? new DebugGlslRenderer(this, baseRenderer) : baseRenderer);
+
+        if (caps.getMajorVersion() < 3) {
+            HeadlessFixedFunctionRenderer baseFFP = new HeadlessFixedFunctionRenderer(this, shared);
+            fixed = (caps.isDebugEnabled() ? new DebugFixedFunctionRenderer(this, baseFFP) : baseFFP);
+        } else {
+            // we don't bother wrapping this in a debug ffp renderer since glsl will already be debug
+            fixed = new ShaderFixedFunctionEmulator(glsl);
+        }
+    }
+
+    /**
+     * @return The log this context records into
+     */
+    public CommandLog getCommandLog() {
+        return log;
+    }
+
+    /**
+     * @return The factory that created this context
+     */
+    public HeadlessSurfaceFactory getSurfaceFactory() {
+        return factory;
+    }
+
+    /**
+     * Set the active texture. This should be called before any texture operations are needed, since it
+     * switches which texture unit is active.
+     *
+     * @param tex The texture unit, 0 based
+     */
+    public void setActiveTexture(int tex) {
+        if (tex != sharedState.activeTexture) {
+            sharedState.activeTexture = tex;
+            log.record(Command.ACTIVE_TEXTURE, tex);
+        }
+    }
+
+    /**
+     * Bind the given framebuffer object.
+     *
+     * @param fboId The id of the fbo
+     */
+    public void bindFbo(int fboId) {
+        if (fbo != fboId) {
+            fbo = fboId;
+            log.record(Command.BIND_FRAMEBUFFER, fboId);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // nothing to destroy
+    }
+
+    @Override
+    public void makeCurrent() {
+        log.record(Command.MAKE_CURRENT);
+    }
+
+    @Override
+    public void release() {
+        log.record(Command.RELEASE);
+    }
+
+    @Override
+    public String checkGLErrors() {
+        // calls are never actually issued so there can't be any errors
+        return null;
+    }
+
+    @Override
+    public FixedFunctionRenderer getFixedFunctionRenderer() {
+        return fixed;
+    }
+
+    @Override
+    public GlslRenderer getGlslRenderer() {
+        return glsl;
+    }
+
+    @Override
+    public void bindArrayVBO(BufferImpl.BufferHandle vbo) {
+        if (vbo != null && vbo.isDestroyed()) {
+            vbo = null;
+        }
+
+        if (vbo != sharedState.arrayVBO) {
+            sharedState.arrayVBO = vbo;
+            int bufferID = (vbo == null || vbo.inmemoryBuffer != null ? 0 : vbo.vboID);
+            log.record(Command.BIND_ARRAY_BUFFER, bufferID);
+        }
+    }
+
+    @Override
+    public void bindElementVBO(BufferImpl.BufferHandle vbo) {
+        if (vbo != null && vbo.isDestroyed()) {
+            vbo = null;
+        }
+
+        if (vbo != sharedState.elementVBO) {
+            sharedState.elementVBO = vbo;
+            int bufferID = (vbo == null || vbo.inmemoryBuffer != null ? 0 : vbo.vboID);
+            log.record(Command.BIND_ELEMENT_BUFFER, bufferID);
+        }
+    }
+
+    @Override
+    public void bindShader(ShaderImpl.ShaderHandle shader) {
+        if (shader != null && shader.isDestroyed()) {
+            shader = null;
+        }
+
+        if (shader != sharedState.shader) {
+            sharedState.shader = shader;
+            log.record(Command.USE_PROGRAM, shader == null ? 0 : shader.programID);
+        }
+    }
+
+    @Override
+    public void bindTexture(int textureUnit, TextureImpl.TextureHandle texture) {
+        if (texture != null && texture.isDestroyed()) {
+            texture = null;
+        }
+
+        TextureImpl.TextureHandle prevTex = sharedState.textures[textureUnit];
+
+        if (texture != prevTex) {
+            setActiveTexture(textureUnit);
+
+            if (prevTex != null && (texture == null || prevTex.target != texture.target)) {
+                // unbind old texture
+                log.record(Command.BIND_TEXTURE, 0);
+            }
+            if (texture != null) {
+                log.record(Command.BIND_TEXTURE, texture.texID);
+            }
+
+            sharedState.textures[textureUnit] = texture;
+        }
+    }
+
+    @Override
+    public SharedState getState() {
+        return sharedState;
+    }
+}
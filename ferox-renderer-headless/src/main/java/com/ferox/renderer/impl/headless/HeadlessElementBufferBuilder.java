@@ -0,0 +1,85 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.renderer.DataType;
+import com.ferox.renderer.ElementBuffer;
+import com.ferox.renderer.impl.BufferUtil;
+import com.ferox.renderer.impl.FrameworkImpl;
+import com.ferox.renderer.impl.OpenGLContext;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+import com.ferox.renderer.impl.resources.AbstractElementBufferBuilder;
+import com.ferox.renderer.impl.resources.BufferImpl;
+
+import java.nio.ByteBuffer;
+
+/**
+ *
+ */
+public class HeadlessElementBufferBuilder extends AbstractElementBufferBuilder {
+    public HeadlessElementBufferBuilder(FrameworkImpl framework) {
+        super(framework);
+    }
+
+    @Override
+    protected int generateNewBufferID(OpenGLContext ctx) {
+        int id = HeadlessResourceFactory.newObjectId(ctx);
+        HeadlessResourceFactory.getLog(ctx).record(Command.GEN_BUFFER, id);
+        return id;
+    }
+
+    @Override
+    protected void pushBufferData(OpenGLContext ctx, DataType type, ByteBuffer buffer) {
+        HeadlessResourceFactory.getLog(ctx).recordUpload(Command.BUFFER_DATA, buffer.remaining(),
+                                                         buffer.remaining());
+    }
+
+    public static void refreshElementBuffer(OpenGLContext ctx, ElementBuffer vbo) {
+        BufferImpl.BufferHandle h = ((BufferImpl) vbo).getHandle();
+        Object data = ((BufferImpl) vbo).getDataArray();
+        int[] ranges = ((BufferImpl) vbo).takeDirtyRanges();
+
+        if (h.inmemoryBuffer != null) {
+            // refill the inmemory buffer, don't need to validate size since that is fixed
+            for (int i = 0; i < ranges.length; i += 2) {
+                BufferUtil.copy(data, ranges[i], ranges[i + 1], h.inmemoryBuffer);
+            }
+        } else {
+            ctx.bindElementVBO(h);
+            int elementSize = BufferUtil.getElementSize(data);
+            if (h.streaming && ranges.length == 2 && ranges[1] == vbo.getLength()) {
+                // orphan the old storage so the driver doesn't stall on draws still using it
+                HeadlessResourceFactory.getLog(ctx).recordUpload(Command.BUFFER_DATA,
+                                                                 vbo.getLength() * elementSize, 0);
+            }
+            for (int i = 0; i < ranges.length; i += 2) {
+                long size = (long) ranges[i + 1] * elementSize;
+                HeadlessResourceFactory.getLog(ctx).recordUpload(Command.BUFFER_SUB_DATA, (int) size, size);
+            }
+        }
+    }
+}
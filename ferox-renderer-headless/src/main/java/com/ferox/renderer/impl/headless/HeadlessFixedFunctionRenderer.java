@@ -0,0 +1,212 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.math.Const;
+import com.ferox.math.Matrix4;
+import com.ferox.math.Vector3;
+import com.ferox.math.Vector4;
+import com.ferox.renderer.impl.AbstractFixedFunctionRenderer;
+import com.ferox.renderer.impl.FixedFunctionState.ColorPurpose;
+import com.ferox.renderer.impl.FixedFunctionState.FogMode;
+import com.ferox.renderer.impl.FixedFunctionState.MatrixMode;
+import com.ferox.renderer.impl.FixedFunctionState.VertexTarget;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+import com.ferox.renderer.impl.resources.BufferImpl;
+import com.ferox.renderer.impl.resources.TextureImpl;
+
+/**
+ * HeadlessFixedFunctionRenderer is a complete implementation of FixedFunctionRenderer that records its
+ * low-level calls into the context's {@link CommandLog}. It is only used when the emulated OpenGL version is
+ * below 3, matching the behavior of the real backends.
+ *
+ * @author Michael Ludwig
+ */
+public class HeadlessFixedFunctionRenderer extends AbstractFixedFunctionRenderer {
+    private final CommandLog log;
+
+    public HeadlessFixedFunctionRenderer(HeadlessContext context, HeadlessRendererDelegate delegate) {
+        super(context, delegate);
+        log = context.getCommandLog();
+    }
+
+    @Override
+    protected void glMatrixMode(MatrixMode mode) {
+        log.record(Command.MATRIX_MODE, mode.ordinal());
+    }
+
+    @Override
+    protected void glSetMatrix(@Const Matrix4 matrix) {
+        log.record(Command.LOAD_MATRIX);
+    }
+
+    @Override
+    protected void glAlphaTest(Comparison test, double ref) {
+        log.record(Command.ALPHA_TEST, test.ordinal());
+    }
+
+    @Override
+    protected void glFogColor(@Const Vector4 color) {
+        log.record(Command.FOG_COLOR);
+    }
+
+    @Override
+    protected void glEnableFog(boolean enable) {
+        log.record(Command.ENABLE_FOG, enable ? 1 : 0);
+    }
+
+    @Override
+    protected void glFogDensity(double density) {
+        log.record(Command.FOG_DENSITY);
+    }
+
+    @Override
+    protected void glFogRange(double start, double end) {
+        log.record(Command.FOG_RANGE);
+    }
+
+    @Override
+    protected void glFogMode(FogMode fog) {
+        log.record(Command.FOG_MODE, fog.ordinal());
+    }
+
+    @Override
+    protected void glGlobalLighting(@Const Vector4 ambient) {
+        log.record(Command.GLOBAL_LIGHTING);
+    }
+
+    @Override
+    protected void glLightColor(int light, ColorPurpose lc, @Const Vector4 color) {
+        log.record(Command.LIGHT_COLOR, light);
+    }
+
+    @Override
+    protected void glEnableLight(int light, boolean enable) {
+        log.record(Command.ENABLE_LIGHT, light);
+    }
+
+    @Override
+    protected void glLightPosition(int light, @Const Vector4 pos) {
+        log.record(Command.LIGHT_POSITION, light);
+    }
+
+    @Override
+    protected void glLightDirection(int light, @Const Vector3 dir) {
+        log.record(Command.LIGHT_DIRECTION, light);
+    }
+
+    @Override
+    protected void glLightAngle(int light, double angle) {
+        log.record(Command.LIGHT_ANGLE, light);
+    }
+
+    @Override
+    protected void glLightExponent(int light, double exponent) {
+        log.record(Command.LIGHT_EXPONENT, light);
+    }
+
+    @Override
+    protected void glLightAttenuation(int light, double constant, double linear, double quadratic) {
+        log.record(Command.LIGHT_ATTENUATION, light);
+    }
+
+    @Override
+    protected void glEnableLighting(boolean enable) {
+        log.record(Command.ENABLE_LIGHTING, enable ? 1 : 0);
+    }
+
+    @Override
+    protected void glMaterialColor(ColorPurpose component, @Const Vector4 color) {
+        log.record(Command.MATERIAL_COLOR, component.ordinal());
+    }
+
+    @Override
+    protected void glMaterialShininess(double shininess) {
+        log.record(Command.MATERIAL_SHININESS);
+    }
+
+    @Override
+    protected void glEnableTexture(TextureImpl.Target target, boolean enable) {
+        log.record(Command.ENABLE_TEXTURE, enable ? 1 : 0);
+    }
+
+    @Override
+    protected void glTextureColor(@Const Vector4 color) {
+        log.record(Command.TEXTURE_COLOR);
+    }
+
+    @Override
+    protected void glCombineFunction(CombineFunction func, boolean rgb) {
+        log.record(Command.COMBINE_FUNCTION, func.ordinal());
+    }
+
+    @Override
+    protected void glCombineSrc(int operand, CombineSource src, boolean rgb) {
+        log.record(Command.COMBINE_SOURCE, operand);
+    }
+
+    @Override
+    protected void glCombineOp(int operand, CombineOperand op, boolean rgb) {
+        log.record(Command.COMBINE_OPERAND, operand);
+    }
+
+    @Override
+    protected void glTexGen(TexCoordSource gen) {
+        log.record(Command.TEXTURE_GEN, gen.ordinal());
+    }
+
+    @Override
+    protected void glTexEyePlanes(@Const Matrix4 planes) {
+        log.record(Command.TEXTURE_EYE_PLANES);
+    }
+
+    @Override
+    protected void glTexObjPlanes(@Const Matrix4 planes) {
+        log.record(Command.TEXTURE_OBJECT_PLANES);
+    }
+
+    @Override
+    protected void glActiveTexture(int unit) {
+        ((HeadlessContext) context).setActiveTexture(unit);
+    }
+
+    @Override
+    protected void glActiveClientTexture(int unit) {
+        log.record(Command.ACTIVE_CLIENT_TEXTURE, unit);
+    }
+
+    @Override
+    protected void glAttributePointer(VertexTarget target, BufferImpl.BufferHandle handle, int offset,
+                                      int stride, int elementSize) {
+        log.record(Command.ATTRIBUTE_POINTER, target.ordinal());
+    }
+
+    @Override
+    protected void glEnableAttribute(VertexTarget target, boolean enable) {
+        log.record(Command.ENABLE_ATTRIBUTE, target.ordinal());
+    }
+}
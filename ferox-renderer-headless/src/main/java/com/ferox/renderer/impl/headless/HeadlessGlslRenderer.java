@@ -0,0 +1,106 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.renderer.Shader;
+import com.ferox.renderer.impl.AbstractGlslRenderer;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+import com.ferox.renderer.impl.resources.BufferImpl;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * HeadlessGlslRenderer is a complete implementation of GlslRenderer that records its low-level calls into
+ * the context's {@link CommandLog}.
+ *
+ * @author Michael Ludwig
+ */
+public class HeadlessGlslRenderer extends AbstractGlslRenderer {
+    private final CommandLog log;
+
+    public HeadlessGlslRenderer(HeadlessContext context, HeadlessRendererDelegate delegate,
+                                int numVertexAttribs, boolean instancingSupport, int numUniformBlockBindings) {
+        super(context, delegate, numVertexAttribs, instancingSupport, numUniformBlockBindings);
+        log = context.getCommandLog();
+    }
+
+    @Override
+    protected void glUniform(int uniform, Shader.VariableType type, IntBuffer values) {
+        log.record(Command.UNIFORM, uniform);
+    }
+
+    @Override
+    protected void glUniform(int uniform, Shader.VariableType type, FloatBuffer values) {
+        log.record(Command.UNIFORM, uniform);
+    }
+
+    @Override
+    protected void glEnableAttribute(int attr, boolean enable) {
+        log.record(Command.ENABLE_ATTRIBUTE, attr);
+    }
+
+    @Override
+    protected void glAttributePointer(int attr, BufferImpl.BufferHandle handle, int offset, int stride,
+                                      int elementSize) {
+        log.record(Command.ATTRIBUTE_POINTER, attr);
+    }
+
+    @Override
+    protected void glAttributeDivisor(int attr, int divisor) {
+        log.record(Command.ATTRIBUTE_DIVISOR, attr);
+    }
+
+    @Override
+    protected void glAttributeValue(int attr, int rowCount, float v1, float v2, float v3, float v4) {
+        log.record(Command.ATTRIBUTE_VALUE, attr);
+    }
+
+    @Override
+    protected void glAttributeValue(int attr, int rowCount, boolean unsigned, int v1, int v2, int v3,
+                                    int v4) {
+        log.record(Command.ATTRIBUTE_VALUE, attr);
+    }
+
+    @Override
+    protected int glGenUniformBuffer() {
+        int id = HeadlessResourceFactory.newObjectId(context);
+        log.record(Command.GEN_BUFFER, id);
+        return id;
+    }
+
+    @Override
+    protected void glUniformBufferData(int buffer, ByteBuffer data) {
+        log.recordUpload(Command.BUFFER_DATA, buffer, data.remaining());
+    }
+
+    @Override
+    protected void glBindUniformBuffer(int binding, int buffer) {
+        log.record(Command.BIND_UNIFORM_BUFFER, buffer);
+    }
+}
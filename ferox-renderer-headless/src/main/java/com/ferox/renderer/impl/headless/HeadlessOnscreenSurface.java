@@ -0,0 +1,227 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.input.KeyListener;
+import com.ferox.input.MouseListener;
+import com.ferox.renderer.DisplayMode;
+import com.ferox.renderer.OnscreenSurfaceOptions;
+import com.ferox.renderer.impl.AbstractOnscreenSurface;
+import com.ferox.renderer.impl.FrameworkImpl;
+import com.ferox.renderer.impl.OpenGLContext;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+
+/**
+ * HeadlessOnscreenSurface is an OnscreenSurface without a window. It owns a {@link HeadlessContext} like a
+ * real window would, keeps track of the window properties that are assigned to it, and never produces input
+ * events. Flushing the surface records a buffer swap.
+ *
+ * @author Michael Ludwig
+ */
+public class HeadlessOnscreenSurface extends AbstractOnscreenSurface {
+    private final HeadlessDestructible impl;
+
+    private final boolean fullscreen;
+    private final int depthBits;
+    private final int stencilBits;
+    private final int samples;
+
+    private int width;
+    private int height;
+    private int x;
+    private int y;
+    private String title;
+    private boolean vsync;
+    private boolean closeable;
+
+    public HeadlessOnscreenSurface(FrameworkImpl framework, HeadlessSurfaceFactory factory,
+                                   OnscreenSurfaceOptions options) {
+        impl = new HeadlessDestructible(framework, new HeadlessContext(factory));
+
+        DisplayMode mode = options.getFullscreenMode();
+        fullscreen = mode != null;
+        width = (fullscreen ? mode.getWidth() : options.getWidth());
+        height = (fullscreen ? mode.getHeight() : options.getHeight());
+        depthBits = options.getDepthBufferBits();
+        stencilBits = options.getStencilBufferBits();
+        samples = options.getSampleCount();
+
+        title = "";
+        closeable = true;
+    }
+
+    @Override
+    public void onSurfaceActivate(OpenGLContext context) {
+        super.onSurfaceActivate(context);
+        ((HeadlessContext) context).bindFbo(0);
+    }
+
+    @Override
+    public synchronized DisplayMode getDisplayMode() {
+        return new DisplayMode(width, height, 24, 60);
+    }
+
+    @Override
+    public int getMultiSamples() {
+        return samples;
+    }
+
+    @Override
+    public int getDepthBufferBits() {
+        return depthBits;
+    }
+
+    @Override
+    public int getStencilBufferBits() {
+        return stencilBits;
+    }
+
+    @Override
+    public boolean isFullscreen() {
+        return fullscreen;
+    }
+
+    @Override
+    public synchronized boolean isVSyncEnabled() {
+        return vsync;
+    }
+
+    @Override
+    public synchronized void setVSyncEnabled(boolean enable) {
+        vsync = enable;
+    }
+
+    @Override
+    public synchronized String getTitle() {
+        return title;
+    }
+
+    @Override
+    public synchronized void setTitle(String title) {
+        this.title = (title == null ? "" : title);
+    }
+
+    @Override
+    public synchronized int getX() {
+        return x;
+    }
+
+    @Override
+    public synchronized int getY() {
+        return y;
+    }
+
+    @Override
+    public synchronized void setWindowSize(int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Dimensions must be at least 1");
+        }
+        if (fullscreen) {
+            throw new IllegalStateException("Surface is fullscreen");
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public synchronized void setLocation(int x, int y) {
+        if (fullscreen) {
+            throw new IllegalStateException("Surface is fullscreen");
+        }
+        this.x = x;
+        this.y = y;
+    }
+
+    @Override
+    public synchronized boolean isCloseable() {
+        return closeable;
+    }
+
+    @Override
+    public synchronized void setCloseable(boolean userCloseable) {
+        closeable = userCloseable;
+    }
+
+    @Override
+    public synchronized int getWidth() {
+        return width;
+    }
+
+    @Override
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void addMouseListener(MouseListener listener) {
+        // there is no window to generate events
+    }
+
+    @Override
+    public void removeMouseListener(MouseListener listener) {
+        // there is no window to generate events
+    }
+
+    @Override
+    public void addKeyListener(KeyListener listener) {
+        // there is no window to generate events
+    }
+
+    @Override
+    public void removeKeyListener(KeyListener listener) {
+        // there is no window to generate events
+    }
+
+    @Override
+    public SurfaceDestructible getSurfaceDestructible() {
+        return impl;
+    }
+
+    @Override
+    public void flush(OpenGLContext context) {
+        ((HeadlessContext) context).getCommandLog().record(Command.FLUSH);
+    }
+
+    private static class HeadlessDestructible extends SurfaceDestructible {
+        private final HeadlessContext context;
+
+        public HeadlessDestructible(FrameworkImpl framework, HeadlessContext context) {
+            super(framework);
+            this.context = context;
+        }
+
+        @Override
+        public OpenGLContext getContext() {
+            return context;
+        }
+
+        @Override
+        protected void destroyImpl() {
+            context.destroy();
+        }
+    }
+}
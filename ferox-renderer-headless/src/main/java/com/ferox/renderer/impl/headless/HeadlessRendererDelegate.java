@@ -0,0 +1,193 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.math.Const;
+import com.ferox.math.Vector4;
+import com.ferox.renderer.Renderer.*;
+import com.ferox.renderer.impl.RendererDelegate;
+import com.ferox.renderer.impl.SharedState;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+import com.ferox.renderer.impl.resources.BufferImpl;
+
+/**
+ * HeadlessRendererDelegate is a concrete implementation of RendererDelegate that records each low-level call
+ * into the context's {@link CommandLog}.
+ *
+ * @author Michael Ludwig
+ */
+public class HeadlessRendererDelegate extends RendererDelegate {
+    private final CommandLog log;
+
+    /**
+     * Create a new delegate that records into the log of the given context.
+     *
+     * @param context     The owning context
+     * @param sharedState The shared state of the context
+     */
+    public HeadlessRendererDelegate(HeadlessContext context, SharedState sharedState) {
+        super(context, sharedState);
+        log = context.getCommandLog();
+    }
+
+    @Override
+    public void clear(boolean clearColor, boolean clearDepth, boolean clearStencil, @Const Vector4 color,
+                      double depth, int stencil) {
+        if (color == null) {
+            throw new NullPointerException("Clear color cannot be null");
+        }
+        if (depth < 0f || depth > 1f) {
+            throw new IllegalArgumentException("Clear depth must be in [0, 1], not: " + depth);
+        }
+
+        int bits = (clearColor ? 1 : 0) | (clearDepth ? 2 : 0) | (clearStencil ? 4 : 0);
+        log.record(Command.CLEAR, bits);
+    }
+
+    @Override
+    protected void glEnableLineAntiAliasing(boolean enable) {
+        log.record(Command.LINE_ANTI_ALIASING, enable ? 1 : 0);
+    }
+
+    @Override
+    protected void glLineWidth(double width) {
+        log.record(Command.LINE_WIDTH);
+    }
+
+    @Override
+    protected void glEnablePointAntiAliasing(boolean enable) {
+        log.record(Command.POINT_ANTI_ALIASING, enable ? 1 : 0);
+    }
+
+    @Override
+    protected void glPointWidth(double width) {
+        log.record(Command.POINT_WIDTH);
+    }
+
+    @Override
+    protected void glEnablePolyAntiAliasing(boolean enable) {
+        log.record(Command.POLY_ANTI_ALIASING, enable ? 1 : 0);
+    }
+
+    @Override
+    protected void glBlendColor(@Const Vector4 color) {
+        log.record(Command.BLEND_COLOR);
+    }
+
+    @Override
+    protected void glBlendFactors(BlendFactor srcRgb, BlendFactor dstRgb, BlendFactor srcAlpha,
+                                  BlendFactor dstAlpha) {
+        log.record(Command.BLEND_FACTORS);
+    }
+
+    @Override
+    protected void glBlendEquations(BlendFunction funcRgb, BlendFunction funcAlpha) {
+        log.record(Command.BLEND_EQUATIONS);
+    }
+
+    @Override
+    protected void glEnableBlending(boolean enable) {
+        log.record(Command.ENABLE_BLENDING, enable ? 1 : 0);
+    }
+
+    @Override
+    protected void glColorMask(boolean red, boolean green, boolean blue, boolean alpha) {
+        log.record(Command.COLOR_MASK);
+    }
+
+    @Override
+    protected void glDepthOffset(double factor, double units) {
+        log.record(Command.DEPTH_OFFSET);
+    }
+
+    @Override
+    protected void glEnableDepthOffset(boolean enable) {
+        log.record(Command.ENABLE_DEPTH_OFFSET, enable ? 1 : 0);
+    }
+
+    @Override
+    protected void glDepthTest(Comparison test) {
+        log.record(Command.DEPTH_TEST, test.ordinal());
+    }
+
+    @Override
+    protected void glDepthMask(boolean mask) {
+        log.record(Command.DEPTH_MASK, mask ? 1 : 0);
+    }
+
+    @Override
+    protected void glDrawStyle(DrawStyle front, DrawStyle back) {
+        log.record(Command.DRAW_STYLE);
+    }
+
+    @Override
+    protected void glStencilMask(boolean front, int mask) {
+        log.record(Command.STENCIL_MASK);
+    }
+
+    @Override
+    protected void glStencilTest(Comparison test, int refValue, int mask, boolean isFront) {
+        log.record(Command.STENCIL_TEST);
+    }
+
+    @Override
+    protected void glEnableStencilTest(boolean enable) {
+        log.record(Command.ENABLE_STENCIL_TEST, enable ? 1 : 0);
+    }
+
+    @Override
+    protected void glStencilUpdate(StencilUpdate stencilFail, StencilUpdate depthFail,
+                                   StencilUpdate depthPass, boolean isFront) {
+        log.record(Command.STENCIL_UPDATE);
+    }
+
+    @Override
+    protected void glViewport(int x, int y, int width, int height) {
+        log.record(Command.VIEWPORT);
+    }
+
+    @Override
+    protected void glDrawElements(PolygonType type, BufferImpl.BufferHandle handle, int offset, int count) {
+        log.record(Command.DRAW_ELEMENTS, count);
+    }
+
+    @Override
+    protected void glDrawArrays(PolygonType type, int first, int count) {
+        log.record(Command.DRAW_ARRAYS, count);
+    }
+
+    @Override
+    protected void glDrawElementsInstanced(PolygonType type, BufferImpl.BufferHandle handle, int offset,
+                                           int count, int instanceCount) {
+        log.record(Command.DRAW_ELEMENTS_INSTANCED, count * instanceCount);
+    }
+
+    @Override
+    protected void glDrawArraysInstanced(PolygonType type, int first, int count, int instanceCount) {
+        log.record(Command.DRAW_ARRAYS_INSTANCED, count * instanceCount);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.renderer.ElementBuffer;
+import com.ferox.renderer.Sampler;
+import com.ferox.renderer.VertexBuffer;
+import com.ferox.renderer.builder.*;
+import com.ferox.renderer.impl.FrameworkImpl;
+import com.ferox.renderer.impl.OpenGLContext;
+import com.ferox.renderer.impl.ResourceFactory;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+import com.ferox.renderer.impl.resources.AbstractResource;
+import com.ferox.renderer.impl.resources.BufferImpl;
+import com.ferox.renderer.impl.resources.ShaderImpl;
+import com.ferox.renderer.impl.resources.TextureImpl;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HeadlessResourceFactory is the ResourceFactory of the headless backend. Its builders record the calls
+ * that would allocate and upload resources into the {@link CommandLog} of the current {@link
+ * HeadlessContext}, and never retain a copy of the uploaded data.
+ *
+ * @author Michael Ludwig
+ */
+public class HeadlessResourceFactory implements ResourceFactory {
+    @Override
+    public VertexBufferBuilder newVertexBufferBuilder(FrameworkImpl framework) {
+        return new HeadlessVertexBufferBuilder(framework);
+    }
+
+    @Override
+    public ElementBufferBuilder newElementBufferBuilder(FrameworkImpl framework) {
+        return new HeadlessElementBufferBuilder(framework);
+    }
+
+    @Override
+    public ShaderBuilder newShaderBuilder(FrameworkImpl framework) {
+        return new HeadlessShaderBuilder(framework);
+    }
+
+    @Override
+    public Texture2DBuilder newTexture2DBuilder(FrameworkImpl framework) {
+        return new HeadlessTexture2DBuilder(framework);
+    }
+
+    @Override
+    public Texture2DArrayBuilder newTexture2DArrayBuilder(FrameworkImpl framework) {
+        return new HeadlessTexture2DArrayBuilder(framework);
+    }
+
+    @Override
+    public Texture1DBuilder newTexture1DBuilder(FrameworkImpl framework) {
+        return new HeadlessTexture1DBuilder(framework);
+    }
+
+    @Override
+    public Texture1DArrayBuilder newTexture1DArrayBuilder(FrameworkImpl framework) {
+        return new HeadlessTexture1DArrayBuilder(framework);
+    }
+
+    @Override
+    public Texture3DBuilder newTexture3DBuilder(FrameworkImpl framework) {
+        return new HeadlessTexture3DBuilder(framework);
+    }
+
+    @Override
+    public TextureCubeMapBuilder newTextureCubeMapBuilder(FrameworkImpl framework) {
+        return new HeadlessTextureCubeMapBuilder(framework);
+    }
+
+    @Override
+    public DepthMap2DBuilder newDepthMap2DBuilder(FrameworkImpl framework) {
+        return new HeadlessDepthMap2DBuilder(framework);
+    }
+
+    @Override
+    public DepthCubeMapBuilder newDepthCubeMapBuilder(FrameworkImpl framework) {
+        return new HeadlessDepthCubeMapBuilder(framework);
+    }
+
+    @Override
+    public void deleteVBO(OpenGLContext context, BufferImpl.BufferHandle vbo) {
+        if (vbo.vboID > 0) {
+            getLog(context).record(Command.DELETE_BUFFER, vbo.vboID);
+        }
+    }
+
+    @Override
+    public void deleteShader(OpenGLContext context, ShaderImpl.ShaderHandle shader) {
+        CommandLog log = getLog(context);
+        log.record(Command.DELETE_SHADER, shader.vertexShaderID);
+        log.record(Command.DELETE_SHADER, shader.fragmentShaderID);
+        if (shader.geometryShaderID > 0) {
+            log.record(Command.DELETE_SHADER, shader.geometryShaderID);
+        }
+        log.record(Command.DELETE_PROGRAM, shader.programID);
+    }
+
+    @Override
+    public void deleteTexture(OpenGLContext context, TextureImpl.TextureHandle texture) {
+        getLog(context).record(Command.DELETE_TEXTURE, texture.texID);
+    }
+
+    @Override
+    public void refresh(OpenGLContext context, AbstractResource<?> resource) {
+        if (resource instanceof ElementBuffer) {
+            HeadlessElementBufferBuilder.refreshElementBuffer(context, (ElementBuffer) resource);
+        } else if (resource instanceof VertexBuffer) {
+            HeadlessVertexBufferBuilder.refreshVertexBuffer(context, (VertexBuffer) resource);
+        } else if (resource instanceof Sampler) {
+            HeadlessSamplerBuilder.refreshTexture(context, (Sampler) resource);
+        }
+
+        // otherwise the resource does not support refreshing its state
+    }
+
+    static CommandLog getLog(OpenGLContext context) {
+        return ((HeadlessContext) context).getCommandLog();
+    }
+
+    static int newObjectId(OpenGLContext context) {
+        return ((HeadlessContext) context).getSurfaceFactory().newObjectId();
+    }
+
+    /**
+     * @param array A primitive array or ByteBuffer holding resource data
+     *
+     * @return The size of the array in bytes, or 0 if it is null. A ByteBuffer's size is its remaining bytes
+     */
+    static long getByteSize(Object array) {
+        if (array instanceof ByteBuffer) {
+            return ((ByteBuffer) array).remaining();
+        } else if (array instanceof float[]) {
+            return 4L * ((float[]) array).length;
+        } else if (array instanceof int[]) {
+            return 4L * ((int[]) array).length;
+        } else if (array instanceof short[]) {
+            return 2L * ((short[]) array).length;
+        } else if (array instanceof byte[]) {
+            return ((byte[]) array).length;
+        } else {
+            return 0L;
+        }
+    }
+}
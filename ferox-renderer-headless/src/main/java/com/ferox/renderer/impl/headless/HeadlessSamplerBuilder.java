@@ -0,0 +1,129 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.math.Const;
+import com.ferox.math.Vector4;
+import com.ferox.renderer.Renderer;
+import com.ferox.renderer.Sampler;
+import com.ferox.renderer.builder.SamplerBuilder;
+import com.ferox.renderer.impl.FrameworkImpl;
+import com.ferox.renderer.impl.OpenGLContext;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+import com.ferox.renderer.impl.resources.AbstractSamplerBuilder;
+import com.ferox.renderer.impl.resources.TextureImpl;
+
+import java.nio.ByteBuffer;
+
+/**
+ *
+ */
+public abstract class HeadlessSamplerBuilder<T extends Sampler, B extends SamplerBuilder<B>>
+        extends AbstractSamplerBuilder<T, B> {
+    public HeadlessSamplerBuilder(Class<B> builderType, Class<T> textureType, TextureImpl.Target target,
+                                  FrameworkImpl framework) {
+        super(builderType, textureType, target, framework);
+    }
+
+    @Override
+    protected int generateTextureID(OpenGLContext context) {
+        int id = HeadlessResourceFactory.newObjectId(context);
+        HeadlessResourceFactory.getLog(context).record(Command.GEN_TEXTURE, id);
+        return id;
+    }
+
+    public static void refreshTexture(OpenGLContext context, Sampler sampler) {
+        TextureImpl t = (TextureImpl) sampler;
+        TextureImpl.TextureHandle h = t.getHandle();
+        CommandLog log = HeadlessResourceFactory.getLog(context);
+
+        context.bindTexture(0, h);
+        for (int i = 0; i < t.getImageCount(); i++) {
+            for (int m = t.getBaseMipmap(); m <= t.getMaxMipmap(); m++) {
+                Object data = t.getDataArray(i, m);
+                if (data != null) {
+                    log.recordUpload(Command.TEX_SUB_IMAGE, m, HeadlessResourceFactory.getByteSize(data));
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void generateMipmaps(OpenGLContext context) {
+        if (framework.getCapabilities().getMajorVersion() >= 3) {
+            HeadlessResourceFactory.getLog(context).record(Command.GENERATE_MIPMAP);
+        }
+    }
+
+    @Override
+    protected void pushImage(OpenGLContext context, int image, int mipmap, ByteBuffer imageData,
+                             TextureImpl.FullFormat format, int width, int height, int depth) {
+        long size = (imageData == null ? 0 : imageData.remaining());
+        HeadlessResourceFactory.getLog(context).recordUpload(Command.TEX_IMAGE, mipmap, size);
+    }
+
+    @Override
+    protected void setBorderColor(OpenGLContext context, @Const Vector4 borderColor) {
+        HeadlessResourceFactory.getLog(context).record(Command.TEX_PARAMETER);
+    }
+
+    @Override
+    protected void setAnisotropy(OpenGLContext context, double anisotropy) {
+        HeadlessResourceFactory.getLog(context).record(Command.TEX_PARAMETER);
+    }
+
+    @Override
+    protected void setWrapMode(OpenGLContext context, Sampler.WrapMode mode) {
+        CommandLog log = HeadlessResourceFactory.getLog(context);
+        log.record(Command.TEX_PARAMETER);
+        log.record(Command.TEX_PARAMETER);
+        log.record(Command.TEX_PARAMETER);
+    }
+
+    @Override
+    protected void setInterpolated(OpenGLContext context, boolean interpolated, boolean hasMipmaps) {
+        CommandLog log = HeadlessResourceFactory.getLog(context);
+        log.record(Command.TEX_PARAMETER);
+        log.record(Command.TEX_PARAMETER);
+    }
+
+    @Override
+    protected void setMipmapRange(OpenGLContext context, int base, int max) {
+        CommandLog log = HeadlessResourceFactory.getLog(context);
+        log.record(Command.TEX_PARAMETER);
+        log.record(Command.TEX_PARAMETER);
+    }
+
+    @Override
+    protected void setDepthComparison(OpenGLContext context, Renderer.Comparison comparison) {
+        CommandLog log = HeadlessResourceFactory.getLog(context);
+        log.record(Command.TEX_PARAMETER);
+        if (comparison != null) {
+            log.record(Command.TEX_PARAMETER);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.renderer.ResourceException;
+import com.ferox.renderer.Shader;
+import com.ferox.renderer.impl.FrameworkImpl;
+import com.ferox.renderer.impl.OpenGLContext;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+import com.ferox.renderer.impl.resources.AbstractShaderBuilder;
+import com.ferox.renderer.impl.resources.ShaderImpl;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * HeadlessShaderBuilder records shader compilation into the {@link CommandLog}. Because there is no driver
+ * to report the active variables of a linked program, the uniforms, attributes and fragment outputs are
+ * found by scanning the global declarations of the source code. Every declared variable is reported as
+ * active, and only one variable per declaration statement is recognized. Every uniform block is laid out
+ * with the std140 rules, regardless of its declared layout.
+ *
+ * @author Michael Ludwig
+ */
+public class HeadlessShaderBuilder extends AbstractShaderBuilder {
+    private static final Pattern COMMENTS = Pattern.compile("//[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern DECLARATION = Pattern.compile(
+            "(?:layout\\s*\\(\\s*location\\s*=\\s*(\\d+)\\s*\\)\\s*)?" +
+            "(?:(?:flat|smooth|noperspective|centroid|invariant)\\s+)*" +
+            "\\b(uniform|attribute|in|out)\\s+(?:(?:lowp|mediump|highp)\\s+)?" +
+            "(\\w+)\\s+(\\w+)\\s*(?:\\[\\s*(\\d+)\\s*\\])?\\s*;");
+    private static final Pattern BLOCK = Pattern.compile(
+            "(?:layout\\s*\\([^)]*\\)\\s*)?\\buniform\\s+(\\w+)\\s*\\{([^}]*)\\}\\s*(\\w+)?\\s*;");
+    private static final Pattern MEMBER = Pattern.compile(
+            "(?:(?:lowp|mediump|highp)\\s+)?(\\w+)\\s+(\\w+)\\s*(?:\\[\\s*(\\d+)\\s*\\])?\\s*;");
+
+    private static final Map<String, Shader.VariableType> TYPES = new HashMap<>();
+
+    static {
+        for (Shader.VariableType type : Shader.VariableType.values()) {
+            // VEC3 -> vec3, SAMPLER_2D_SHADOW -> sampler2DShadow, ISAMPLER_CUBE -> isamplerCube
+            StringBuilder name = new StringBuilder();
+            for (String part : type.name().split("_")) {
+                if (name.length() == 0) {
+                    name.append(part.toLowerCase());
+                } else if (Character.isDigit(part.charAt(0))) {
+                    name.append(part);
+                } else {
+                    name.append(part.charAt(0)).append(part.substring(1).toLowerCase());
+                }
+            }
+            TYPES.put(name.toString(), type);
+        }
+    }
+
+    private final Map<ShaderType, String> sources;
+    private final Map<String, Integer> boundOutputs;
+
+    public HeadlessShaderBuilder(FrameworkImpl framework) {
+        super(framework);
+        sources = new EnumMap<>(ShaderType.class);
+        boundOutputs = new HashMap<>();
+    }
+
+    @Override
+    protected int createNewProgram(OpenGLContext context) {
+        int id = HeadlessResourceFactory.newObjectId(context);
+        HeadlessResourceFactory.getLog(context).record(Command.CREATE_PROGRAM, id);
+        return id;
+    }
+
+    @Override
+    protected int createNewShader(OpenGLContext context, ShaderType type) {
+        int id = HeadlessResourceFactory.newObjectId(context);
+        HeadlessResourceFactory.getLog(context).record(Command.CREATE_SHADER, id);
+        return id;
+    }
+
+    @Override
+    protected void compileShader(OpenGLContext context, ShaderType type, int shaderID, String code) {
+        HeadlessResourceFactory.getLog(context).record(Command.COMPILE_SHADER, shaderID);
+        sources.put(type, COMMENTS.matcher(code).replaceAll(" "));
+    }
+
+    @Override
+    protected void attachShader(OpenGLContext context, int programID, int shaderID) {
+        HeadlessResourceFactory.getLog(context).record(Command.ATTACH_SHADER, shaderID);
+    }
+
+    @Override
+    protected void linkProgram(OpenGLContext context, int programID) {
+        HeadlessResourceFactory.getLog(context).record(Command.LINK_PROGRAM, programID);
+    }
+
+    @Override
+    protected List<ShaderImpl.UniformImpl> getUniforms(OpenGLContext context,
+                                                       ShaderImpl.ShaderHandle handle) {
+        Map<String, ShaderImpl.UniformImpl> uniforms = new LinkedHashMap<>();
+        int nextLocation = 0;
+        for (String code : sources.values()) {
+            Matcher m = DECLARATION.matcher(code);
+            while (m.find()) {
+                if (!m.group(2).equals("uniform") || uniforms.containsKey(m.group(4))) {
+                    continue;
+                }
+
+                int[] indices = new int[getLength(m)];
+                for (int i = 0; i < indices.length; i++) {
+                    indices[i] = nextLocation++;
+                }
+                uniforms.put(m.group(4),
+                             new ShaderImpl.UniformImpl(handle, getType(m), m.group(4), indices));
+            }
+        }
+        return new ArrayList<>(uniforms.values());
+    }
+
+    @Override
+    protected List<ShaderImpl.AttributeImpl> getAttributes(OpenGLContext context,
+                                                           ShaderImpl.ShaderHandle handle) {
+        List<ShaderImpl.AttributeImpl> attributes = new ArrayList<>();
+        int nextIndex = 0;
+
+        Matcher m = DECLARATION.matcher(sources.get(ShaderType.VERTEX));
+        while (m.find()) {
+            String qualifier = m.group(2);
+            if (!qualifier.equals("attribute") && !qualifier.equals("in")) {
+                continue;
+            }
+
+            Shader.VariableType type = getType(m);
+            int length = getLength(m);
+            int index = (m.group(1) != null ? Integer.parseInt(m.group(1)) : nextIndex);
+            attributes.add(new ShaderImpl.AttributeImpl(handle, type, m.group(4), length, index));
+            nextIndex = Math.max(nextIndex, index + type.getColumnCount() * length);
+        }
+        return attributes;
+    }
+
+    @Override
+    protected List<ShaderImpl.UniformBlockImpl> getUniformBlocks(OpenGLContext context,
+                                                                 ShaderImpl.ShaderHandle handle) {
+        Map<String, ShaderImpl.UniformBlockImpl> blocks = new LinkedHashMap<>();
+        int nextIndex = 0;
+        for (String code : sources.values()) {
+            Matcher b = BLOCK.matcher(code);
+            while (b.find()) {
+                String name = b.group(1);
+                if (blocks.containsKey(name)) {
+                    continue;
+                }
+
+                // members of blocks with an instance name are qualified by the block name
+                String prefix = (b.group(3) == null ? "" : name + ".");
+                List<ShaderImpl.BlockMemberImpl> members = new ArrayList<>();
+                int offset = 0;
+
+                Matcher m = MEMBER.matcher(b.group(2));
+                while (m.find()) {
+                    Shader.VariableType type = TYPES.get(m.group(1));
+                    if (type == null || type.getPrimitiveType() == null) {
+                        throw new ResourceException("Unsupported uniform block member type for " +
+                                                    m.group(2) + ": " + m.group(1));
+                    }
+                    int length = (m.group(3) == null ? 1 : Integer.parseInt(m.group(3)));
+
+                    // std140: vectors align to 2 or 4 components, and matrix columns and array elements
+                    // are padded out to a vec4
+                    int align;
+                    int size;
+                    int matrixStride = 0;
+                    int arrayStride = 0;
+                    if (type.getColumnCount() > 1) {
+                        matrixStride = 16;
+                        align = 16;
+                        size = type.getColumnCount() * matrixStride;
+                    } else {
+                        size = type.getRowCount() * 4;
+                        align = (type.getRowCount() == 1 ? 4 : (type.getRowCount() == 2 ? 8 : 16));
+                    }
+                    if (length > 1) {
+                        align = 16;
+                        arrayStride = roundUp(size, 16);
+                        size = arrayStride * length;
+                    }
+
+                    offset = roundUp(offset, align);
+                    members.add(new ShaderImpl.BlockMemberImpl(type, prefix + m.group(2), members.size(),
+                                                               length, offset, arrayStride, matrixStride));
+                    offset += size;
+                }
+
+                blocks.put(name, new ShaderImpl.UniformBlockImpl(handle, name, nextIndex++,
+                                                                 roundUp(offset, 16), members));
+            }
+        }
+        return new ArrayList<>(blocks.values());
+    }
+
+    @Override
+    protected void bindUniformBlock(OpenGLContext context, int programID, int blockIndex, int binding) {
+        HeadlessResourceFactory.getLog(context).record(Command.UNIFORM_BLOCK_BINDING, binding);
+    }
+
+    @Override
+    protected void bindFragmentLocation(OpenGLContext context, int programID, String variable, int buffer) {
+        HeadlessResourceFactory.getLog(context).record(Command.BIND_FRAG_DATA_LOCATION, buffer);
+        boundOutputs.put(variable, buffer);
+    }
+
+    @Override
+    protected int getFragmentLocation(OpenGLContext context, int programID, String variable) {
+        Integer bound = boundOutputs.get(variable);
+        if (bound != null) {
+            return bound;
+        }
+
+        // emulate the linker by assigning unbound outputs the lowest unused locations in declaration order
+        Set<Integer> used = new HashSet<>(boundOutputs.values());
+        int nextLocation = 0;
+        Matcher m = DECLARATION.matcher(sources.get(ShaderType.FRAGMENT));
+        while (m.find()) {
+            if (!m.group(2).equals("out")) {
+                continue;
+            }
+
+            String name = m.group(4);
+            int location;
+            if (boundOutputs.containsKey(name)) {
+                continue;
+            } else if (m.group(1) != null) {
+                location = Integer.parseInt(m.group(1));
+            } else {
+                while (used.contains(nextLocation)) {
+                    nextLocation++;
+                }
+                location = nextLocation;
+            }
+            used.add(location);
+
+            if (name.equals(variable)) {
+                return location;
+            }
+        }
+        return -1;
+    }
+
+    private static Shader.VariableType getType(Matcher declaration) {
+        Shader.VariableType type = TYPES.get(declaration.group(3));
+        if (type == null) {
+            throw new ResourceException("Unsupported variable type for " + declaration.group(4) + ": " +
+                                        declaration.group(3));
+        }
+        return type;
+    }
+
+    private static int roundUp(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+
+    private static int getLength(Matcher declaration) {
+        return (declaration.group(5) == null ? 1 : Integer.parseInt(declaration.group(5)));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.renderer.*;
+import com.ferox.renderer.impl.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p/>
+ * HeadlessSurfaceFactory is a SurfaceFactory that never touches a GPU or windowing system. Its contexts
+ * and surfaces record the OpenGL calls the renderer would have made into a shared {@link CommandLog}, which
+ * makes it possible to measure the CPU-side cost of the renderer and the call counts of a frame on machines
+ * without a display.
+ * <p/>
+ * The headless backend does not register itself in META-INF, so that it can coexist on the classpath with
+ * a real backend. Frameworks are created explicitly with {@link #newFramework()}.
+ *
+ * @author Michael Ludwig
+ */
+public class HeadlessSurfaceFactory implements SurfaceFactory {
+    /**
+     * System property that selects the emulated OpenGL version, as "major.minor". The default is 3.2.
+     */
+    public static final String VERSION_PROPERTY = "ferox.headless.version";
+
+    private static final DisplayMode DEFAULT_MODE = new DisplayMode(1920, 1080, 24, 60);
+
+    private final HeadlessCapabilities caps;
+    private final CommandLog log;
+    private final AtomicInteger nextObjectId;
+
+    /**
+     * Create a new HeadlessSurfaceFactory with the OpenGL version specified by {@link #VERSION_PROPERTY} and
+     * a log of default capacity.
+     */
+    public HeadlessSurfaceFactory() {
+        this(getVersion(0), getVersion(1), new CommandLog());
+    }
+
+    /**
+     * Create a new HeadlessSurfaceFactory that emulates the given OpenGL version and records into the given
+     * log.
+     *
+     * @param majorVersion The OpenGL major version
+     * @param minorVersion The OpenGL minor version
+     * @param log          The log shared by all contexts of the factory
+     *
+     * @throws NullPointerException     if log is null
+     * @throws IllegalArgumentException if majorVersion is less than 2
+     */
+    public HeadlessSurfaceFactory(int majorVersion, int minorVersion, CommandLog log) {
+        if (log == null) {
+            throw new NullPointerException("CommandLog cannot be null");
+        }
+        caps = new HeadlessCapabilities(majorVersion, minorVersion, new DisplayMode[] { DEFAULT_MODE });
+        this.log = log;
+        nextObjectId = new AtomicInteger(1);
+    }
+
+    private static int getVersion(int part) {
+        String[] version = System.getProperty(VERSION_PROPERTY, "3.2").split("\\.");
+        return (part < version.length ? Integer.parseInt(version[part].trim()) : 0);
+    }
+
+    /**
+     * Create and initialize a new Framework that uses this surface factory and a {@link
+     * HeadlessResourceFactory}. A surface factory should only be used by a single framework.
+     *
+     * @return The new framework
+     */
+    public FrameworkImpl newFramework() {
+        FrameworkImpl framework = new FrameworkImpl(this, new HeadlessResourceFactory());
+        framework.initialize();
+        return framework;
+    }
+
+    /**
+     * @return The log that all contexts and resources of this factory record into
+     */
+    public CommandLog getCommandLog() {
+        return log;
+    }
+
+    /**
+     * @return A new, unique, positive OpenGL object name
+     */
+    public int newObjectId() {
+        return nextObjectId.getAndIncrement();
+    }
+
+    @Override
+    public AbstractTextureSurface createTextureSurface(FrameworkImpl framework, TextureSurfaceOptions options,
+                                                       OpenGLContext sharedContext) {
+        if (!caps.getFBOSupport()) {
+            throw new SurfaceCreationException("No render-to-texture support when FBOs are disabled");
+        }
+        return new HeadlessTextureSurface(framework, this, options);
+    }
+
+    @Override
+    public AbstractOnscreenSurface createOnscreenSurface(FrameworkImpl framework,
+                                                         OnscreenSurfaceOptions options,
+                                                         OpenGLContext sharedContext) {
+        return new HeadlessOnscreenSurface(framework, this, options);
+    }
+
+    @Override
+    public OpenGLContext createOffscreenContext(OpenGLContext sharedContext) {
+        return new HeadlessContext(this);
+    }
+
+    @Override
+    public DisplayMode getDefaultDisplayMode() {
+        return DEFAULT_MODE;
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        return caps;
+    }
+
+    @Override
+    public void destroy() {
+        // do nothing, there are no native resources to clean up
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.renderer.Sampler;
+import com.ferox.renderer.TextureSurfaceOptions;
+import com.ferox.renderer.impl.AbstractTextureSurface;
+import com.ferox.renderer.impl.FrameworkImpl;
+import com.ferox.renderer.impl.OpenGLContext;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+import com.ferox.renderer.impl.resources.TextureImpl;
+
+/**
+ * HeadlessTextureSurface is a TextureSurface that behaves like an FBO surface: it has no context of its own
+ * and binds a framebuffer object name on whichever context activates it.
+ *
+ * @author Michael Ludwig
+ */
+public class HeadlessTextureSurface extends AbstractTextureSurface {
+    private final HeadlessDestructible impl;
+    private final int fboId;
+
+    public HeadlessTextureSurface(FrameworkImpl framework, HeadlessSurfaceFactory factory,
+                                  TextureSurfaceOptions options) {
+        super(framework, options);
+        impl = new HeadlessDestructible(framework);
+        fboId = factory.newObjectId();
+    }
+
+    @Override
+    public SurfaceDestructible getSurfaceDestructible() {
+        return impl;
+    }
+
+    @Override
+    public void flush(OpenGLContext context) {
+        CommandLog log = ((HeadlessContext) context).getCommandLog();
+        log.record(Command.FLUSH, fboId);
+        for (int i = 0; i < getFramework().getCapabilities().getMaxColorBuffers(); i++) {
+            TextureImpl.RenderTargetImpl target = getColorBuffer(i);
+            if (target != null && target.getSampler().getMaxMipmap() > target.getSampler().getBaseMipmap()) {
+                log.record(Command.GENERATE_MIPMAP, target.getSampler().getHandle().texID);
+            }
+        }
+    }
+
+    @Override
+    public int getDepthBufferBits() {
+        TextureImpl.RenderTargetImpl depth = getDepthBuffer();
+        if (depth != null) {
+            return (depth.getSampler().getFormat() == Sampler.TexelFormat.DEPTH_STENCIL ? 24 : 32);
+        } else {
+            return (getDepthRenderBufferFormat() != null ? 24 : 0);
+        }
+    }
+
+    @Override
+    public int getStencilBufferBits() {
+        TextureImpl.RenderTargetImpl depth = getDepthBuffer();
+        if (depth != null) {
+            return (depth.getSampler().getFormat() == Sampler.TexelFormat.DEPTH_STENCIL ? 8 : 0);
+        } else {
+            return (getDepthRenderBufferFormat() == Sampler.TexelFormat.DEPTH_STENCIL ? 8 : 0);
+        }
+    }
+
+    @Override
+    public void onSurfaceActivate(OpenGLContext context) {
+        super.onSurfaceActivate(context);
+        ((HeadlessContext) context).bindFbo(fboId);
+    }
+
+    private static class HeadlessDestructible extends SurfaceDestructible {
+        public HeadlessDestructible(FrameworkImpl framework) {
+            super(framework);
+        }
+
+        @Override
+        public OpenGLContext getContext() {
+            return null;
+        }
+
+        @Override
+        protected void destroyImpl() {
+            // nothing to destroy since the fbo only exists as a name
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.renderer.*;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the validation and bookkeeping of attribute divisors and instanced rendering against the commands
+ * recorded by the headless backend.
+ */
+public class HeadlessInstancingTest {
+    private static final String VERTEX = "#version 150\n" +
+                                         "in vec4 vertex;\n" +
+                                         "in vec4 offset;\n" +
+                                         "void main() {\n" +
+                                         "gl_Position = vertex + offset;\n" +
+                                         "}\n";
+    private static final String FRAGMENT = "#version 150\n" +
+                                           "out vec4 color;\n" +
+                                           "void main() {\n" +
+                                           "color = vec4(1.0);\n" +
+                                           "}\n";
+
+    private Framework framework;
+    private CommandLog log;
+    private Surface surface;
+    private Shader shader;
+    private Shader other;
+
+    private void createFramework(int majorVersion, int minorVersion) {
+        log = new CommandLog();
+        framework = new HeadlessSurfaceFactory(majorVersion, minorVersion, log).newFramework();
+        surface = framework.createSurface(new OnscreenSurfaceOptions().windowed(64, 64));
+        shader = framework.newShader().withVertexShader(VERTEX).withFragmentShader(FRAGMENT).build();
+        other = framework.newShader().withVertexShader(VERTEX).withFragmentShader(FRAGMENT).build();
+    }
+
+    @After
+    public void destroyFramework() throws Exception {
+        if (framework != null) {
+            framework.destroy().get();
+        }
+    }
+
+    private <T> T run(final GlslTask<T> task) throws Exception {
+        try {
+            return framework.invoke(new Task<T>() {
+                @Override
+                public T run(HardwareAccessLayer access) {
+                    GlslRenderer r = access.setActiveSurface(surface).getGlslRenderer();
+                    r.setShader(shader);
+                    log.reset();
+                    return task.run(r);
+                }
+            }).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static interface GlslTask<T> {
+        public T run(GlslRenderer r);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDivisor() throws Exception {
+        createFramework(3, 3);
+        run(new GlslTask<Void>() {
+            @Override
+            public Void run(GlslRenderer r) {
+                r.setAttributeDivisor(shader.getAttribute("offset"), -1);
+                return null;
+            }
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeInstanceCount() throws Exception {
+        createFramework(3, 3);
+        run(new GlslTask<Void>() {
+            @Override
+            public Void run(GlslRenderer r) {
+                r.render(Renderer.PolygonType.TRIANGLES, 0, 3, -1);
+                return null;
+            }
+        });
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testDivisorWithoutInstancing() throws Exception {
+        createFramework(3, 2);
+        assertFalse(framework.getCapabilities().hasInstancingSupport());
+        run(new GlslTask<Void>() {
+            @Override
+            public Void run(GlslRenderer r) {
+                // a divisor of 0 is per-vertex data, which is always supported
+                r.setAttributeDivisor(shader.getAttribute("offset"), 0);
+                r.setAttributeDivisor(shader.getAttribute("offset"), 1);
+                return null;
+            }
+        });
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testInstancesWithoutInstancing() throws Exception {
+        createFramework(3, 2);
+        run(new GlslTask<Void>() {
+            @Override
+            public Void run(GlslRenderer r) {
+                // a single instance is a regular draw, which is always supported
+                r.render(Renderer.PolygonType.TRIANGLES, 0, 3, 1);
+                r.render(Renderer.PolygonType.TRIANGLES, 0, 3, 2);
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void testDivisorOnlySentWhenChanged() throws Exception {
+        createFramework(3, 3);
+        assertTrue(framework.getCapabilities().hasInstancingSupport());
+        run(new GlslTask<Void>() {
+            @Override
+            public Void run(GlslRenderer r) {
+                r.setAttributeDivisor(shader.getAttribute("offset"), 1);
+                r.setAttributeDivisor(shader.getAttribute("offset"), 1);
+                return null;
+            }
+        });
+        assertEquals(1, log.getCount(Command.ATTRIBUTE_DIVISOR));
+    }
+
+    @Test
+    public void testDivisorResetOnShaderChange() throws Exception {
+        createFramework(3, 3);
+        run(new GlslTask<Void>() {
+            @Override
+            public Void run(GlslRenderer r) {
+                r.setAttributeDivisor(shader.getAttribute("offset"), 1);
+                r.setShader(other);
+                return null;
+            }
+        });
+        // once to set it and once to reset it when the shader changed
+        assertEquals(2, log.getCount(Command.ATTRIBUTE_DIVISOR));
+        assertEquals(log.getArgument(indexOf(Command.ATTRIBUTE_DIVISOR, 0)),
+                     log.getArgument(indexOf(Command.ATTRIBUTE_DIVISOR, 1)));
+    }
+
+    @Test
+    public void testInstancedDrawRecorded() throws Exception {
+        createFramework(3, 3);
+        int polygons = run(new GlslTask<Integer>() {
+            @Override
+            public Integer run(GlslRenderer r) {
+                return r.render(Renderer.PolygonType.TRIANGLES, 0, 6, 5);
+            }
+        });
+        assertEquals(10, polygons);
+        assertEquals(1, log.getCount(Command.DRAW_ARRAYS_INSTANCED));
+        assertEquals(0, log.getCount(Command.DRAW_ARRAYS));
+        // the headless backend logs the total vertex count across instances
+        assertEquals(30, log.getArgument(indexOf(Command.DRAW_ARRAYS_INSTANCED, 0)));
+        assertEquals(1, log.getDrawCount());
+    }
+
+    @Test
+    public void testSingleAndZeroInstances() throws Exception {
+        createFramework(3, 3);
+        int polygons = run(new GlslTask<Integer>() {
+            @Override
+            public Integer run(GlslRenderer r) {
+                return r.render(Renderer.PolygonType.TRIANGLES, 0, 6, 1) +
+                       r.render(Renderer.PolygonType.TRIANGLES, 0, 6, 0);
+            }
+        });
+        assertEquals(2, polygons);
+        // one instance is a regular draw, and zero instances draw nothing
+        assertEquals(1, log.getCount(Command.DRAW_ARRAYS));
+        assertEquals(0, log.getCount(Command.DRAW_ARRAYS_INSTANCED));
+    }
+
+    private int indexOf(Command command, int occurrence) {
+        for (int i = 0; i < log.size(); i++) {
+            if (log.getCommand(i) == command && occurrence-- == 0) {
+                return i;
+            }
+        }
+        fail("Missing " + command);
+        return -1;
+    }
+}
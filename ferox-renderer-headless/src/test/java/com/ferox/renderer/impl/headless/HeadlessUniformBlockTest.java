@@ -0,0 +1,296 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl.headless;
+
+import com.ferox.math.Vector4;
+import com.ferox.renderer.*;
+import com.ferox.renderer.impl.headless.CommandLog.Command;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that uniform block data is uploaded, cached and bound as expected by looking at the commands
+ * recorded by the headless backend.
+ */
+public class HeadlessUniformBlockTest {
+    private static final String VERTEX = "#version 150\n" +
+                                         "uniform Material {\n" +
+                                         "vec4 diffuse;\n" +
+                                         "float shininess;\n" +
+                                         "};\n" +
+                                         "uniform Frame {\n" +
+                                         "mat4 projection;\n" +
+                                         "};\n" +
+                                         "in vec4 vertex;\n" +
+                                         "void main() {\n" +
+                                         "gl_Position = projection * vertex + diffuse * shininess;\n" +
+                                         "}\n";
+    private static final String OTHER_VERTEX = "#version 150\n" +
+                                               "uniform Material {\n" +
+                                               "vec4 diffuse;\n" +
+                                               "float shininess;\n" +
+                                               "};\n" +
+                                               "in vec4 vertex;\n" +
+                                               "void main() {\n" +
+                                               "gl_Position = vertex + diffuse * shininess;\n" +
+                                               "}\n";
+    private static final String FRAGMENT = "#version 150\n" +
+                                           "out vec4 color;\n" +
+                                           "void main() {\n" +
+                                           "color = vec4(1.0);\n" +
+                                           "}\n";
+
+    private Framework framework;
+    private CommandLog log;
+    private Surface surface;
+    private Shader shader;
+    private Shader other;
+
+    @Before
+    public void createFramework() {
+        log = new CommandLog();
+        framework = new HeadlessSurfaceFactory(3, 3, log).newFramework();
+        surface = framework.createSurface(new OnscreenSurfaceOptions().windowed(64, 64));
+        shader = framework.newShader().withVertexShader(VERTEX).withFragmentShader(FRAGMENT).build();
+        other = framework.newShader().withVertexShader(OTHER_VERTEX).withFragmentShader(FRAGMENT).build();
+    }
+
+    @After
+    public void destroyFramework() throws Exception {
+        framework.destroy().get();
+    }
+
+    private void run(final GlslTask task) throws Exception {
+        try {
+            framework.invoke(new Task<Void>() {
+                @Override
+                public Void run(HardwareAccessLayer access) {
+                    GlslRenderer r = access.setActiveSurface(surface).getGlslRenderer();
+                    r.setShader(shader);
+                    log.reset();
+                    task.run(r);
+                    return null;
+                }
+            }).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static interface GlslTask {
+        public void run(GlslRenderer r);
+    }
+
+    private UniformBlockData material(Shader shader, double shininess) {
+        Shader.UniformBlock block = shader.getUniformBlock("Material");
+        UniformBlockData data = new UniformBlockData(block);
+        data.set(block.getMember("diffuse"), new Vector4(1, 0, 0, 1));
+        data.set(block.getMember("shininess"), shininess);
+        return data;
+    }
+
+    @Test
+    public void testStd140Layout() {
+        Shader.UniformBlock block = shader.getUniformBlock("Material");
+        assertEquals(0, block.getMember("diffuse").getOffset());
+        assertEquals(16, block.getMember("shininess").getOffset());
+        assertEquals(32, block.getSize());
+
+        UniformBlockData data = material(shader, 5.0);
+        assertEquals(1f, data.getData().getFloat(0), 0f);
+        assertEquals(1f, data.getData().getFloat(12), 0f);
+        assertEquals(5f, data.getData().getFloat(16), 0f);
+    }
+
+    @Test
+    public void testUploadOnce() throws Exception {
+        run(new GlslTask() {
+            @Override
+            public void run(GlslRenderer r) {
+                Shader.UniformBlock block = shader.getUniformBlock("Material");
+                r.setUniformBlock(block, material(shader, 5.0));
+                // equal contents in a new instance are ignored entirely
+                r.setUniformBlock(block, material(shader, 5.0));
+            }
+        });
+        assertEquals(1, log.getCount(Command.GEN_BUFFER));
+        assertEquals(1, log.getCount(Command.BUFFER_DATA));
+        assertEquals(1, log.getCount(Command.BIND_UNIFORM_BUFFER));
+    }
+
+    @Test
+    public void testCachedDataIsRebound() throws Exception {
+        run(new GlslTask() {
+            @Override
+            public void run(GlslRenderer r) {
+                Shader.UniformBlock block = shader.getUniformBlock("Material");
+                r.setUniformBlock(block, material(shader, 5.0));
+                r.setUniformBlock(block, material(shader, 10.0));
+                r.setUniformBlock(block, material(shader, 5.0));
+            }
+        });
+        // the third assignment binds the first buffer again without uploading it
+        assertEquals(2, log.getCount(Command.BUFFER_DATA));
+        assertEquals(3, log.getCount(Command.BIND_UNIFORM_BUFFER));
+        assertEquals(log.getArgument(indexOf(Command.BIND_UNIFORM_BUFFER, 0)),
+                     log.getArgument(indexOf(Command.BIND_UNIFORM_BUFFER, 2)));
+    }
+
+    @Test
+    public void testDataCopied() throws Exception {
+        run(new GlslTask() {
+            @Override
+            public void run(GlslRenderer r) {
+                Shader.UniformBlock block = shader.getUniformBlock("Material");
+                UniformBlockData data = material(shader, 5.0);
+                r.setUniformBlock(block, data);
+                data.set(block.getMember("shininess"), 10.0);
+                r.setUniformBlock(block, data);
+            }
+        });
+        assertEquals(2, log.getCount(Command.BUFFER_DATA));
+    }
+
+    @Test
+    public void testNullDataUnbinds() throws Exception {
+        run(new GlslTask() {
+            @Override
+            public void run(GlslRenderer r) {
+                Shader.UniformBlock block = shader.getUniformBlock("Material");
+                r.setUniformBlock(block, null);
+                r.setUniformBlock(block, material(shader, 5.0));
+                r.setUniformBlock(block, null);
+                r.setUniformBlock(block, null);
+            }
+        });
+        assertEquals(2, log.getCount(Command.BIND_UNIFORM_BUFFER));
+        assertEquals(0, log.getArgument(indexOf(Command.BIND_UNIFORM_BUFFER, 1)));
+    }
+
+    @Test
+    public void testShaderChangeUnbinds() throws Exception {
+        run(new GlslTask() {
+            @Override
+            public void run(GlslRenderer r) {
+                r.setUniformBlock(shader.getUniformBlock("Material"), material(shader, 5.0));
+                Shader.UniformBlock frame = shader.getUniformBlock("Frame");
+                r.setUniformBlock(frame, new UniformBlockData(frame));
+                log.reset();
+
+                r.setShader(other);
+            }
+        });
+        // both bindings are released so their buffers can be recycled safely
+        assertEquals(2, log.getCount(Command.BIND_UNIFORM_BUFFER));
+        assertEquals(0, log.getArgument(indexOf(Command.BIND_UNIFORM_BUFFER, 0)));
+        assertEquals(0, log.getArgument(indexOf(Command.BIND_UNIFORM_BUFFER, 1)));
+    }
+
+    @Test
+    public void testBoundBufferNotRecycled() throws Exception {
+        run(new GlslTask() {
+            @Override
+            public void run(GlslRenderer r) {
+                Shader.UniformBlock block = shader.getUniformBlock("Material");
+                // enough distinct contents to fill the cache several times over
+                for (int i = 0; i < 200; i++) {
+                    r.setUniformBlock(block, material(shader, i));
+                }
+            }
+        });
+
+        // only one binding point is used, so the buffer bound by the last bind command is the only one that
+        // must not be overwritten
+        int bound = 0;
+        int uploads = 0;
+        for (int i = 0; i < log.size(); i++) {
+            if (log.getCommand(i) == Command.BIND_UNIFORM_BUFFER) {
+                bound = log.getArgument(i);
+            } else if (log.getCommand(i) == Command.BUFFER_DATA) {
+                assertTrue(bound == 0 || log.getArgument(i) != bound);
+                uploads++;
+            }
+        }
+        assertEquals(200, uploads);
+        // recycling keeps the number of buffers bounded
+        assertTrue(log.getCount(Command.GEN_BUFFER) < 200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDataTooSmall() throws Exception {
+        run(new GlslTask() {
+            @Override
+            public void run(GlslRenderer r) {
+                r.setUniformBlock(shader.getUniformBlock("Frame"), material(shader, 5.0));
+            }
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBlockFromOtherShader() throws Exception {
+        run(new GlslTask() {
+            @Override
+            public void run(GlslRenderer r) {
+                r.setUniformBlock(other.getUniformBlock("Material"), material(other, 5.0));
+            }
+        });
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullBlock() throws Exception {
+        run(new GlslTask() {
+            @Override
+            public void run(GlslRenderer r) {
+                r.setUniformBlock(null, material(shader, 5.0));
+            }
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMemberTypeMismatch() {
+        Shader.UniformBlock block = shader.getUniformBlock("Material");
+        new UniformBlockData(block).set(block.getMember("shininess"), new Vector4());
+    }
+
+    private int indexOf(Command command, int occurrence) {
+        for (int i = 0; i < log.size(); i++) {
+            if (log.getCommand(i) == command && occurrence-- == 0) {
+                return i;
+            }
+        }
+        fail("Missing " + command);
+        return -1;
+    }
+}
@@ -215,6 +215,8 @@ public class JoglCapabilities extends Capabilities {
 
         geometryShaderSupport = gl.isExtensionAvailable("GL_EXT_geometry_shader4") ||
                                 (majorVersion >= 3 && minorVersion >= 2);
+        // glVertexAttribDivisor and the instanced draw calls are both core in 3.3
+        instancingSupport = majorVersion > 3 || (majorVersion == 3 && minorVersion >= 3);
 
         int[] query = new int[1];
         fboSupported =
@@ -229,6 +231,14 @@ public class JoglCapabilities extends Capabilities {
         gl.glGetIntegerv(GL2.GL_MAX_VERTEX_ATTRIBS, query, 0);
         maxVertexAttributes = query[0];
 
+        // uniform buffer objects are core in 3.1
+        if (majorVersion > 3 || (majorVersion == 3 && minorVersion >= 1)) {
+            gl.glGetIntegerv(GL3.GL_MAX_UNIFORM_BUFFER_BINDINGS, query, 0);
+            maxUniformBlockBindings = query[0];
+        } else {
+            maxUniformBlockBindings = 0;
+        }
+
         gl.glGetIntegerv(GL2.GL_MAX_TEXTURE_IMAGE_UNITS, query, 0);
         maxFragmentSamplers = query[0];
         gl.glGetIntegerv(GL2.GL_MAX_VERTEX_TEXTURE_IMAGE_UNITS, query, 0);
@@ -80,7 +80,9 @@ public class JoglContext implements OpenGLContext {
         sharedState = new SharedState(caps.getMaxTextureUnits());
 
         JoglRendererDelegate shared = new JoglRendererDelegate(this, sharedState);
-        JoglGlslRenderer baseGlsl = new JoglGlslRenderer(this, shared, caps.getMaxVertexAttributes());
+        JoglGlslRenderer baseGlsl = new JoglGlslRenderer(this, shared, caps.getMaxVertexAttributes(),
+                                                         caps.hasInstancingSupport(),
+                                                         caps.getMaxUniformBlockBindings());
         glsl = (caps.isDebugEnabled() ? new DebugGlslRenderer(this, baseGlsl) : baseGlsl);
 
         if (caps.getMajorVersion() < 3) {
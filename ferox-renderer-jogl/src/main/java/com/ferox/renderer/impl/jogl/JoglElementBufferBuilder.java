@@ -59,32 +59,33 @@ public class JoglElementBufferBuilder extends AbstractElementBufferBuilder {
 
     @Override
     protected void pushBufferData(OpenGLContext ctx, DataType type, ByteBuffer buffer) {
-        getGL(ctx).glBufferData(GL.GL_ELEMENT_ARRAY_BUFFER, buffer.capacity(), buffer, GL2GL3.GL_STATIC_READ);
+        getGL(ctx).glBufferData(GL.GL_ELEMENT_ARRAY_BUFFER, buffer.capacity(), buffer,
+                                (streaming ? GL2GL3.GL_STREAM_DRAW : GL2GL3.GL_STATIC_READ));
     }
 
     public static void refreshElementBuffer(OpenGLContext ctx, ElementBuffer vbo) {
         BufferImpl.BufferHandle h = ((BufferImpl) vbo).getHandle();
         Object data = ((BufferImpl) vbo).getDataArray();
+        int[] ranges = ((BufferImpl) vbo).takeDirtyRanges();
 
         if (h.inmemoryBuffer != null) {
             // refill the inmemory buffer, don't need to validate size since that is fixed
-            if (vbo.getDataType().getJavaPrimitive().equals(float.class)) {
-                h.inmemoryBuffer.clear();
-                h.inmemoryBuffer.asFloatBuffer().put((float[]) data);
-            } else if (vbo.getDataType().getJavaPrimitive().equals(int.class)) {
-                h.inmemoryBuffer.clear();
-                h.inmemoryBuffer.asIntBuffer().put((int[]) data);
-            } else if (vbo.getDataType().getJavaPrimitive().equals(short.class)) {
-                h.inmemoryBuffer.clear();
-                h.inmemoryBuffer.asShortBuffer().put((short[]) data);
-            } else if (vbo.getDataType().getJavaPrimitive().equals(byte.class)) {
-                h.inmemoryBuffer.clear();
-                h.inmemoryBuffer.put((byte[]) data);
+            for (int i = 0; i < ranges.length; i += 2) {
+                BufferUtil.copy(data, ranges[i], ranges[i + 1], h.inmemoryBuffer);
             }
         } else {
             ctx.bindElementVBO(h);
-            ByteBuffer buffer = BufferUtil.newBuffer(data);
-            getGL(ctx).glBufferSubData(GL.GL_ELEMENT_ARRAY_BUFFER, 0, buffer.capacity(), buffer);
+            int elementSize = BufferUtil.getElementSize(data);
+            if (h.streaming && ranges.length == 2 && ranges[1] == vbo.getLength()) {
+                // orphan the old storage so the driver doesn't stall on draws still using it
+                getGL(ctx).glBufferData(GL.GL_ELEMENT_ARRAY_BUFFER, (long) vbo.getLength() * elementSize,
+                                        null, GL2GL3.GL_STREAM_DRAW);
+            }
+            for (int i = 0; i < ranges.length; i += 2) {
+                ByteBuffer buffer = BufferUtil.newBuffer(data, ranges[i], ranges[i + 1]);
+                getGL(ctx).glBufferSubData(GL.GL_ELEMENT_ARRAY_BUFFER, ranges[i] * elementSize,
+                                           buffer.capacity(), buffer);
+            }
         }
     }
 }
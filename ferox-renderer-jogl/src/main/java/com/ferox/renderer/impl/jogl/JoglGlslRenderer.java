@@ -32,14 +32,17 @@ import com.ferox.renderer.impl.AbstractSurface;
 import com.ferox.renderer.impl.resources.BufferImpl;
 
 import javax.media.opengl.GL2GL3;
+import javax.media.opengl.GL3;
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
 public class JoglGlslRenderer extends AbstractGlslRenderer {
     private GL2GL3 gl;
 
-    public JoglGlslRenderer(JoglContext context, JoglRendererDelegate delegate, int numVertexAttribs) {
-        super(context, delegate, numVertexAttribs);
+    public JoglGlslRenderer(JoglContext context, JoglRendererDelegate delegate, int numVertexAttribs,
+                            boolean instancingSupport, int numUniformBlockBindings) {
+        super(context, delegate, numVertexAttribs, instancingSupport, numUniformBlockBindings);
     }
 
     @Override
@@ -223,4 +226,28 @@ public class JoglGlslRenderer extends AbstractGlslRenderer {
             }
         }
     }
+
+    @Override
+    protected void glAttributeDivisor(int attr, int divisor) {
+        // divisors are core in 3.3, so the context is guaranteed to expose the GL3 profile
+        gl.getGL3().glVertexAttribDivisor(attr, divisor);
+    }
+
+    @Override
+    protected int glGenUniformBuffer() {
+        int[] id = new int[1];
+        gl.glGenBuffers(1, id, 0);
+        return id[0];
+    }
+
+    @Override
+    protected void glUniformBufferData(int buffer, ByteBuffer data) {
+        gl.glBindBuffer(GL3.GL_UNIFORM_BUFFER, buffer);
+        gl.glBufferData(GL3.GL_UNIFORM_BUFFER, data.remaining(), data, GL3.GL_STATIC_DRAW);
+    }
+
+    @Override
+    protected void glBindUniformBuffer(int binding, int buffer) {
+        gl.getGL3().glBindBufferBase(GL3.GL_UNIFORM_BUFFER, binding, buffer);
+    }
 }
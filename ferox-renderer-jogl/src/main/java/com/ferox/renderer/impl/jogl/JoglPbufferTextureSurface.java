@@ -98,6 +98,7 @@ public class JoglPbufferTextureSurface extends AbstractTextureSurface {
 
     @Override
     public void onSurfaceActivate(OpenGLContext context) {
+        super.onSurfaceActivate(context);
         ((JoglContext) context).bindFbo(0);
     }
 
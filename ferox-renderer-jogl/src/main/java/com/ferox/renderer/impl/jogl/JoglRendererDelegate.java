@@ -274,60 +274,94 @@ public class JoglRendererDelegate extends RendererDelegate {
 
     @Override
     protected void glDrawElements(PolygonType type, BufferImpl.BufferHandle h, int offset, int count) {
+        drawElements(type, h, offset, count, 1);
+    }
+
+    @Override
+    protected void glDrawArrays(PolygonType type, int first, int count) {
+        drawArrays(type, first, count, 1);
+    }
+
+    @Override
+    protected void glDrawElementsInstanced(PolygonType type, BufferImpl.BufferHandle h, int offset, int count,
+                                           int instanceCount) {
+        drawElements(type, h, offset, count, instanceCount);
+    }
+
+    @Override
+    protected void glDrawArraysInstanced(PolygonType type, int first, int count, int instanceCount) {
+        drawArrays(type, first, count, instanceCount);
+    }
+
+    private void drawElements(PolygonType type, BufferImpl.BufferHandle h, int offset, int count,
+                              int instances) {
         if (useGL3StyleFallback && actualFront != null) {
             // render twice but we need to hold onto the actual faces because glDrawStyle updates them
             DrawStyle front = actualFront;
             DrawStyle back = actualBack;
 
             glDrawStyle(DrawStyle.NONE, back);
-            glDrawElementsReal(type, h, offset, count);
+            glDrawElementsReal(type, h, offset, count, instances);
             glDrawStyle(front, DrawStyle.NONE);
-            glDrawElementsReal(type, h, offset, count);
+            glDrawElementsReal(type, h, offset, count, instances);
 
             // restore back to what the high-level state considers us to be in
             actualFront = front;
             actualBack = back;
         } else {
             // can render with a single pass
-            glDrawElementsReal(type, h, offset, count);
+            glDrawElementsReal(type, h, offset, count, instances);
         }
     }
 
-    @Override
-    protected void glDrawArrays(PolygonType type, int first, int count) {
+    private void drawArrays(PolygonType type, int first, int count, int instances) {
         if (useGL3StyleFallback && actualFront != null) {
             // render twice but we need to hold onto the actual faces because glDrawStyle updates them
             DrawStyle front = actualFront;
             DrawStyle back = actualBack;
 
             glDrawStyle(DrawStyle.NONE, back);
-            glDrawArraysReal(type, first, count);
+            glDrawArraysReal(type, first, count, instances);
             glDrawStyle(front, DrawStyle.NONE);
-            glDrawArraysReal(type, first, count);
+            glDrawArraysReal(type, first, count, instances);
 
             // restore back to what the high-level state considers us to be in
             actualFront = front;
             actualBack = back;
         } else {
             // can render with a single pass
-            glDrawArraysReal(type, first, count);
+            glDrawArraysReal(type, first, count, instances);
         }
     }
 
-    private void glDrawElementsReal(PolygonType type, BufferImpl.BufferHandle h, int offset, int count) {
+    private void glDrawElementsReal(PolygonType type, BufferImpl.BufferHandle h, int offset, int count,
+                                    int instances) {
         int glPolyType = Utils.getGLPolygonConnectivity(type);
         int glDataType = Utils.getGLType(h.type);
 
         if (h.inmemoryBuffer != null) {
             h.inmemoryBuffer.clear().position(offset * h.type.getByteCount());
-            gl.glDrawElements(glPolyType, count, glDataType, h.inmemoryBuffer);
+            if (instances == 1) {
+                gl.glDrawElements(glPolyType, count, glDataType, h.inmemoryBuffer);
+            } else {
+                gl.glDrawElementsInstanced(glPolyType, count, glDataType, h.inmemoryBuffer, instances);
+            }
         } else {
-            gl.glDrawElements(glPolyType, count, glDataType, offset * h.type.getByteCount());
+            if (instances == 1) {
+                gl.glDrawElements(glPolyType, count, glDataType, offset * h.type.getByteCount());
+            } else {
+                gl.glDrawElementsInstanced(glPolyType, count, glDataType, offset * h.type.getByteCount(),
+                                           instances);
+            }
         }
     }
 
-    private void glDrawArraysReal(PolygonType type, int first, int count) {
+    private void glDrawArraysReal(PolygonType type, int first, int count, int instances) {
         int glPolyType = Utils.getGLPolygonConnectivity(type);
-        gl.glDrawArrays(glPolyType, first, count);
+        if (instances == 1) {
+            gl.glDrawArrays(glPolyType, first, count);
+        } else {
+            gl.glDrawArraysInstanced(glPolyType, first, count, instances);
+        }
     }
 }
@@ -52,6 +52,11 @@ public class JoglShaderBuilder extends AbstractShaderBuilder {
         return ((JoglContext) ctx).getGLContext().getGL().getGL2GL3();
     }
 
+    private static GL3 getGL3(OpenGLContext ctx) {
+        // uniform blocks are core in 3.1, so the context is guaranteed to expose the GL3 profile when used
+        return ((JoglContext) ctx).getGLContext().getGL().getGL3();
+    }
+
     @Override
     protected int createNewProgram(OpenGLContext context) {
         return getGL(context).glCreateProgram();
@@ -158,7 +163,21 @@ public class JoglShaderBuilder extends AbstractShaderBuilder {
         int[] nameLen = new int[1];
         int[] len = new int[1];
         int[] type = new int[1];
+
+        boolean hasBlocks = framework.getCapabilities().getMaxUniformBlockBindings() > 0;
+        int[] uniformIndex = new int[1];
+        int[] blockIndex = new int[1];
         for (int i = 0; i < numUniforms; i++) {
+            if (hasBlocks) {
+                uniformIndex[0] = i;
+                getGL3(context).glGetActiveUniformsiv(programID, 1, uniformIndex, 0,
+                                                      GL3.GL_UNIFORM_BLOCK_INDEX, blockIndex, 0);
+                if (blockIndex[0] >= 0) {
+                    // block members have no location, they are reported by getUniformBlocks()
+                    continue;
+                }
+            }
+
             // read uniform properties
             getGL(context)
                     .glGetActiveUniform(programID, i, maxUniformNameLength, nameLen, 0, len, 0, type, 0, name,
@@ -223,6 +242,74 @@ public class JoglShaderBuilder extends AbstractShaderBuilder {
         return new ArrayList<>(attributes.values());
     }
 
+    @Override
+    protected List<ShaderImpl.UniformBlockImpl> getUniformBlocks(OpenGLContext context,
+                                                                 ShaderImpl.ShaderHandle handle) {
+        List<ShaderImpl.UniformBlockImpl> blocks = new ArrayList<>();
+        GL3 gl = getGL3(context);
+
+        int programID = handle.programID;
+        int[] query = new int[1];
+        gl.glGetProgramiv(programID, GL3.GL_ACTIVE_UNIFORM_BLOCKS, query, 0);
+        int numBlocks = query[0];
+
+        gl.glGetProgramiv(programID, GL3.GL_ACTIVE_UNIFORM_BLOCK_MAX_NAME_LENGTH, query, 0);
+        int maxBlockNameLength = query[0];
+        byte[] blockNameBytes = new byte[maxBlockNameLength];
+
+        gl.glGetProgramiv(programID, GL2GL3.GL_ACTIVE_UNIFORM_MAX_LENGTH, query, 0);
+        int maxUniformNameLength = query[0];
+        byte[] name = new byte[maxUniformNameLength];
+
+        int[] nameLen = new int[1];
+        int[] len = new int[1];
+        int[] type = new int[1];
+        for (int i = 0; i < numBlocks; i++) {
+            gl.glGetActiveUniformBlockName(programID, i, maxBlockNameLength, nameLen, 0, blockNameBytes, 0);
+            String blockName = getSafeName(blockNameBytes, nameLen[0]);
+
+            gl.glGetActiveUniformBlockiv(programID, i, GL3.GL_UNIFORM_BLOCK_DATA_SIZE, query, 0);
+            int size = query[0];
+            gl.glGetActiveUniformBlockiv(programID, i, GL3.GL_UNIFORM_BLOCK_ACTIVE_UNIFORMS, query, 0);
+            int numMembers = query[0];
+
+            List<ShaderImpl.BlockMemberImpl> members = new ArrayList<>();
+            if (numMembers > 0) {
+                int[] indices = new int[numMembers];
+                gl.glGetActiveUniformBlockiv(programID, i, GL3.GL_UNIFORM_BLOCK_ACTIVE_UNIFORM_INDICES,
+                                             indices, 0);
+
+                int[] offsets = new int[numMembers];
+                int[] arrayStrides = new int[numMembers];
+                int[] matrixStrides = new int[numMembers];
+                gl.glGetActiveUniformsiv(programID, numMembers, indices, 0, GL3.GL_UNIFORM_OFFSET, offsets,
+                                         0);
+                gl.glGetActiveUniformsiv(programID, numMembers, indices, 0, GL3.GL_UNIFORM_ARRAY_STRIDE,
+                                         arrayStrides, 0);
+                gl.glGetActiveUniformsiv(programID, numMembers, indices, 0, GL3.GL_UNIFORM_MATRIX_STRIDE,
+                                         matrixStrides, 0);
+
+                for (int j = 0; j < numMembers; j++) {
+                    gl.glGetActiveUniform(programID, indices[j], maxUniformNameLength, nameLen, 0, len, 0,
+                                          type, 0, name, 0);
+                    members.add(new ShaderImpl.BlockMemberImpl(Utils.getVariableType(type[0]),
+                                                               getSafeName(name, nameLen[0]), indices[j],
+                                                               len[0], offsets[j], arrayStrides[j],
+                                                               matrixStrides[j]));
+                }
+            }
+
+            blocks.add(new ShaderImpl.UniformBlockImpl(handle, blockName, i, size, members));
+        }
+
+        return blocks;
+    }
+
+    @Override
+    protected void bindUniformBlock(OpenGLContext context, int programID, int blockIndex, int binding) {
+        getGL3(context).glUniformBlockBinding(programID, blockIndex, binding);
+    }
+
     @Override
     protected void bindFragmentLocation(OpenGLContext context, int programID, String variable, int buffer) {
         getGL(context).glBindFragDataLocation(programID, buffer, variable);
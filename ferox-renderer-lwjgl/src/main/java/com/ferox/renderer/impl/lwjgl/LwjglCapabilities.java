@@ -175,6 +175,8 @@ public class LwjglCapabilities extends Capabilities {
         glslVersion = (int) Math.floor(100 * glslVersionNum);
 
         geometryShaderSupport = caps.GL_EXT_geometry_shader4 || (majorVersion >= 3 && minorVersion >= 2);
+        // glVertexAttribDivisor and the instanced draw calls are both core in 3.3
+        instancingSupport = majorVersion > 3 || (majorVersion == 3 && minorVersion >= 3);
 
         fboSupported = !forceNoFBO && (majorVersion >= 3 || caps.GL_EXT_framebuffer_object);
         if (fboSupported) {
@@ -185,6 +187,13 @@ public class LwjglCapabilities extends Capabilities {
 
         maxVertexAttributes = GL11.glGetInteger(GL20.GL_MAX_VERTEX_ATTRIBS);
 
+        // uniform buffer objects are core in 3.1
+        if (majorVersion > 3 || (majorVersion == 3 && minorVersion >= 1)) {
+            maxUniformBlockBindings = GL11.glGetInteger(GL31.GL_MAX_UNIFORM_BUFFER_BINDINGS);
+        } else {
+            maxUniformBlockBindings = 0;
+        }
+
         maxFragmentSamplers = GL11.glGetInteger(GL20.GL_MAX_TEXTURE_IMAGE_UNITS);
         maxVertexSamplers = GL11.glGetInteger(GL20.GL_MAX_VERTEX_TEXTURE_IMAGE_UNITS);
 
@@ -84,7 +84,9 @@ public class LwjglContext implements OpenGLContext {
         sharedState = new SharedState(caps.getMaxTextureUnits());
 
         LwjglRendererDelegate shared = new LwjglRendererDelegate(this, sharedState);
-        LwjglGlslRenderer baseRenderer = new LwjglGlslRenderer(this, shared, caps.getMaxVertexAttributes());
+        LwjglGlslRenderer baseRenderer = new LwjglGlslRenderer(this, shared, caps.getMaxVertexAttributes(),
+                                                               caps.hasInstancingSupport(),
+                                                               caps.getMaxUniformBlockBindings());
         glsl = (caps.isDebugEnabled() ? new DebugGlslRenderer(this, baseRenderer) : baseRenderer);
 
         if (caps.getMajorVersion() < 3) {
@@ -52,15 +52,16 @@ public class LwjglElementBufferBuilder extends AbstractElementBufferBuilder {
 
     @Override
     protected void pushBufferData(OpenGLContext ctx, DataType type, ByteBuffer buffer) {
+        int usage = (streaming ? GL15.GL_STREAM_DRAW : GL15.GL_STATIC_READ);
         switch (type) {
         case UNSIGNED_INT:
-            GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer.asIntBuffer(), GL15.GL_STATIC_READ);
+            GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer.asIntBuffer(), usage);
             break;
         case UNSIGNED_SHORT:
-            GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer.asShortBuffer(), GL15.GL_STATIC_READ);
+            GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer.asShortBuffer(), usage);
             break;
         case UNSIGNED_BYTE:
-            GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, GL15.GL_STATIC_READ);
+            GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, usage);
             break;
         default:
             throw new RuntimeException("Unexpected element buffer data type: " + type);
@@ -70,34 +71,24 @@ public class LwjglElementBufferBuilder extends AbstractElementBufferBuilder {
     public static void refreshElementBuffer(OpenGLContext ctx, ElementBuffer vbo) {
         BufferImpl.BufferHandle h = ((BufferImpl) vbo).getHandle();
         Object data = ((BufferImpl) vbo).getDataArray();
+        int[] ranges = ((BufferImpl) vbo).takeDirtyRanges();
 
         if (h.inmemoryBuffer != null) {
             // refill the inmemory buffer, don't need to validate size since that is fixed
-            if (vbo.getDataType().getJavaPrimitive().equals(float.class)) {
-                h.inmemoryBuffer.clear();
-                h.inmemoryBuffer.asFloatBuffer().put((float[]) data);
-            } else if (vbo.getDataType().getJavaPrimitive().equals(int.class)) {
-                h.inmemoryBuffer.clear();
-                h.inmemoryBuffer.asIntBuffer().put((int[]) data);
-            } else if (vbo.getDataType().getJavaPrimitive().equals(short.class)) {
-                h.inmemoryBuffer.clear();
-                h.inmemoryBuffer.asShortBuffer().put((short[]) data);
-            } else if (vbo.getDataType().getJavaPrimitive().equals(byte.class)) {
-                h.inmemoryBuffer.clear();
-                h.inmemoryBuffer.put((byte[]) data);
+            for (int i = 0; i < ranges.length; i += 2) {
+                BufferUtil.copy(data, ranges[i], ranges[i + 1], h.inmemoryBuffer);
             }
         } else {
             ctx.bindElementVBO(h);
-            if (vbo.getDataType().getJavaPrimitive().equals(float.class)) {
-                GL15.glBufferSubData(GL15.GL_ELEMENT_ARRAY_BUFFER, 0,
-                                     BufferUtil.newFloatBuffer((float[]) data));
-            } else if (vbo.getDataType().getJavaPrimitive().equals(int.class)) {
-                GL15.glBufferSubData(GL15.GL_ELEMENT_ARRAY_BUFFER, 0, BufferUtil.newIntBuffer((int[]) data));
-            } else if (vbo.getDataType().getJavaPrimitive().equals(short.class)) {
-                GL15.glBufferSubData(GL15.GL_ELEMENT_ARRAY_BUFFER, 0,
-                                     BufferUtil.newShortBuffer((short[]) data));
-            } else if (vbo.getDataType().getJavaPrimitive().equals(byte.class)) {
-                GL15.glBufferSubData(GL15.GL_ELEMENT_ARRAY_BUFFER, 0, BufferUtil.newBuffer((byte[]) data));
+            int elementSize = BufferUtil.getElementSize(data);
+            if (h.streaming && ranges.length == 2 && ranges[1] == vbo.getLength()) {
+                // orphan the old storage so the driver doesn't stall on draws still using it
+                GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, (long) vbo.getLength() * elementSize,
+                                  GL15.GL_STREAM_DRAW);
+            }
+            for (int i = 0; i < ranges.length; i += 2) {
+                GL15.glBufferSubData(GL15.GL_ELEMENT_ARRAY_BUFFER, ranges[i] * elementSize,
+                                     BufferUtil.newBuffer(data, ranges[i], ranges[i + 1]));
             }
         }
     }
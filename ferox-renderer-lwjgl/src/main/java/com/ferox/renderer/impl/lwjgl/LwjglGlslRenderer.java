@@ -29,15 +29,20 @@ package com.ferox.renderer.impl.lwjgl;
 import com.ferox.renderer.Shader;
 import com.ferox.renderer.impl.AbstractGlslRenderer;
 import com.ferox.renderer.impl.resources.BufferImpl;
+import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
 public class LwjglGlslRenderer extends AbstractGlslRenderer {
-    public LwjglGlslRenderer(LwjglContext context, LwjglRendererDelegate delegate, int numVertexAttribs) {
-        super(context, delegate, numVertexAttribs);
+    public LwjglGlslRenderer(LwjglContext context, LwjglRendererDelegate delegate, int numVertexAttribs,
+                             boolean instancingSupport, int numUniformBlockBindings) {
+        super(context, delegate, numVertexAttribs, instancingSupport, numUniformBlockBindings);
     }
 
     @Override
@@ -216,4 +221,25 @@ public class LwjglGlslRenderer extends AbstractGlslRenderer {
             }
         }
     }
+
+    @Override
+    protected void glAttributeDivisor(int attr, int divisor) {
+        GL33.glVertexAttribDivisor(attr, divisor);
+    }
+
+    @Override
+    protected int glGenUniformBuffer() {
+        return GL15.glGenBuffers();
+    }
+
+    @Override
+    protected void glUniformBufferData(int buffer, ByteBuffer data) {
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, buffer);
+        GL15.glBufferData(GL31.GL_UNIFORM_BUFFER, data, GL15.GL_STATIC_DRAW);
+    }
+
+    @Override
+    protected void glBindUniformBuffer(int binding, int buffer) {
+        GL30.glBindBufferBase(GL31.GL_UNIFORM_BUFFER, binding, buffer);
+    }
 }
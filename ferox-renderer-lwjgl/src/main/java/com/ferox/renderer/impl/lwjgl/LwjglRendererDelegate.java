@@ -38,6 +38,7 @@ import com.ferox.renderer.impl.resources.BufferImpl;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL14;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL31;
 
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
@@ -274,47 +275,68 @@ public class LwjglRendererDelegate extends RendererDelegate {
 
     @Override
     protected void glDrawElements(PolygonType type, BufferImpl.BufferHandle h, int offset, int count) {
+        drawElements(type, h, offset, count, 1);
+    }
+
+    @Override
+    protected void glDrawArrays(PolygonType type, int first, int count) {
+        drawArrays(type, first, count, 1);
+    }
+
+    @Override
+    protected void glDrawElementsInstanced(PolygonType type, BufferImpl.BufferHandle h, int offset, int count,
+                                           int instanceCount) {
+        drawElements(type, h, offset, count, instanceCount);
+    }
+
+    @Override
+    protected void glDrawArraysInstanced(PolygonType type, int first, int count, int instanceCount) {
+        drawArrays(type, first, count, instanceCount);
+    }
+
+    private void drawElements(PolygonType type, BufferImpl.BufferHandle h, int offset, int count,
+                              int instances) {
         if (useGL3StyleFallback && actualFront != null) {
             // render twice but we need to hold onto the actual faces because glDrawStyle updates them
             DrawStyle front = actualFront;
             DrawStyle back = actualBack;
 
             glDrawStyle(DrawStyle.NONE, back);
-            glDrawElementsReal(type, h, offset, count);
+            glDrawElementsReal(type, h, offset, count, instances);
             glDrawStyle(front, DrawStyle.NONE);
-            glDrawElementsReal(type, h, offset, count);
+            glDrawElementsReal(type, h, offset, count, instances);
 
             // restore back to what the high-level state considers us to be in
             actualFront = front;
             actualBack = back;
         } else {
             // can render with a single pass
-            glDrawElementsReal(type, h, offset, count);
+            glDrawElementsReal(type, h, offset, count, instances);
         }
     }
 
-    @Override
-    protected void glDrawArrays(PolygonType type, int first, int count) {
+    private void drawArrays(PolygonType type, int first, int count, int instances) {
         if (useGL3StyleFallback && actualFront != null) {
             // render twice but we need to hold onto the actual faces because glDrawStyle updates them
             DrawStyle front = actualFront;
             DrawStyle back = actualBack;
 
             glDrawStyle(DrawStyle.NONE, back);
-            glDrawArraysReal(type, first, count);
+            glDrawArraysReal(type, first, count, instances);
             glDrawStyle(front, DrawStyle.NONE);
-            glDrawArraysReal(type, first, count);
+            glDrawArraysReal(type, first, count, instances);
 
             // restore back to what the high-level state considers us to be in
             actualFront = front;
             actualBack = back;
         } else {
             // can render with a single pass
-            glDrawArraysReal(type, first, count);
+            glDrawArraysReal(type, first, count, instances);
         }
     }
 
-    private void glDrawElementsReal(PolygonType type, BufferImpl.BufferHandle h, int offset, int count) {
+    private void glDrawElementsReal(PolygonType type, BufferImpl.BufferHandle h, int offset, int count,
+                                    int instances) {
         int glPolyType = Utils.getGLPolygonConnectivity(type);
 
         if (h.inmemoryBuffer != null) {
@@ -323,25 +345,46 @@ public class LwjglRendererDelegate extends RendererDelegate {
             if (h.type == DataType.UNSIGNED_INT) {
                 IntBuffer wrapped = h.inmemoryBuffer.asIntBuffer();
                 wrapped.limit(offset + count).position(offset);
-                GL11.glDrawElements(glPolyType, wrapped);
+                if (instances == 1) {
+                    GL11.glDrawElements(glPolyType, wrapped);
+                } else {
+                    GL31.glDrawElementsInstanced(glPolyType, wrapped, instances);
+                }
             } else if (h.type == DataType.UNSIGNED_SHORT) {
                 ShortBuffer wrapped = h.inmemoryBuffer.asShortBuffer();
                 wrapped.limit(offset + count).position(offset);
-                GL11.glDrawElements(glPolyType, wrapped);
+                if (instances == 1) {
+                    GL11.glDrawElements(glPolyType, wrapped);
+                } else {
+                    GL31.glDrawElementsInstanced(glPolyType, wrapped, instances);
+                }
             } else if (h.type == DataType.UNSIGNED_BYTE) {
                 h.inmemoryBuffer.limit(offset + count).position(offset);
-                GL11.glDrawElements(glPolyType, h.inmemoryBuffer);
+                if (instances == 1) {
+                    GL11.glDrawElements(glPolyType, h.inmemoryBuffer);
+                } else {
+                    GL31.glDrawElementsInstanced(glPolyType, h.inmemoryBuffer, instances);
+                }
             } else {
                 throw new RuntimeException("Unexpected buffer type: " + h.type);
             }
         } else {
             int glDataType = Utils.getGLType(h.type);
-            GL11.glDrawElements(glPolyType, count, glDataType, offset * h.type.getByteCount());
+            if (instances == 1) {
+                GL11.glDrawElements(glPolyType, count, glDataType, offset * h.type.getByteCount());
+            } else {
+                GL31.glDrawElementsInstanced(glPolyType, count, glDataType, offset * h.type.getByteCount(),
+                                             instances);
+            }
         }
     }
 
-    private void glDrawArraysReal(PolygonType type, int first, int count) {
+    private void glDrawArraysReal(PolygonType type, int first, int count, int instances) {
         int glPolyType = Utils.getGLPolygonConnectivity(type);
-        GL11.glDrawArrays(glPolyType, first, count);
+        if (instances == 1) {
+            GL11.glDrawArrays(glPolyType, first, count);
+        } else {
+            GL31.glDrawArraysInstanced(glPolyType, first, count, instances);
+        }
     }
 }
@@ -37,6 +37,7 @@ import org.lwjgl.opengl.EXTGeometryShader4;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
 
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
@@ -148,7 +149,20 @@ public class LwjglShaderBuilder extends AbstractShaderBuilder {
         IntBuffer nameLen = BufferUtil.newByteBuffer(DataType.INT, 1).asIntBuffer();
         IntBuffer len = BufferUtil.newByteBuffer(DataType.INT, 1).asIntBuffer();
         IntBuffer type = BufferUtil.newByteBuffer(DataType.INT, 1).asIntBuffer();
+
+        boolean hasBlocks = framework.getCapabilities().getMaxUniformBlockBindings() > 0;
+        IntBuffer uniformIndex = BufferUtil.newByteBuffer(DataType.INT, 1).asIntBuffer();
+        IntBuffer blockIndex = BufferUtil.newByteBuffer(DataType.INT, 1).asIntBuffer();
         for (int i = 0; i < numUniforms; i++) {
+            if (hasBlocks) {
+                uniformIndex.put(0, i);
+                GL31.glGetActiveUniforms(programID, uniformIndex, GL31.GL_UNIFORM_BLOCK_INDEX, blockIndex);
+                if (blockIndex.get(0) >= 0) {
+                    // block members have no location, they are reported by getUniformBlocks()
+                    continue;
+                }
+            }
+
             // read uniform properties
             name.clear();
             GL20.glGetActiveUniform(programID, i, nameLen, len, type, name);
@@ -209,6 +223,70 @@ public class LwjglShaderBuilder extends AbstractShaderBuilder {
         return new ArrayList<>(attributes.values());
     }
 
+    @Override
+    protected List<ShaderImpl.UniformBlockImpl> getUniformBlocks(OpenGLContext context,
+                                                                 ShaderImpl.ShaderHandle handle) {
+        List<ShaderImpl.UniformBlockImpl> blocks = new ArrayList<>();
+
+        int programID = handle.programID;
+        int numBlocks = GL20.glGetProgrami(programID, GL31.GL_ACTIVE_UNIFORM_BLOCKS);
+        int maxBlockNameLength = GL20.glGetProgrami(programID, GL31.GL_ACTIVE_UNIFORM_BLOCK_MAX_NAME_LENGTH);
+        int maxUniformNameLength = GL20.glGetProgrami(programID, GL20.GL_ACTIVE_UNIFORM_MAX_LENGTH);
+        ByteBuffer blockNameBytes = BufferUtil.newByteBuffer(DataType.BYTE, maxBlockNameLength);
+        ByteBuffer name = BufferUtil.newByteBuffer(DataType.BYTE, maxUniformNameLength);
+
+        // LWJGL requires room for 16 values when querying block parameters
+        IntBuffer query = BufferUtil.newByteBuffer(DataType.INT, 16).asIntBuffer();
+        IntBuffer nameLen = BufferUtil.newByteBuffer(DataType.INT, 1).asIntBuffer();
+        IntBuffer len = BufferUtil.newByteBuffer(DataType.INT, 1).asIntBuffer();
+        IntBuffer type = BufferUtil.newByteBuffer(DataType.INT, 1).asIntBuffer();
+        for (int i = 0; i < numBlocks; i++) {
+            blockNameBytes.clear();
+            GL31.glGetActiveUniformBlockName(programID, i, nameLen, blockNameBytes);
+            String blockName = getSafeName(blockNameBytes, nameLen.get(0));
+
+            GL31.glGetActiveUniformBlock(programID, i, GL31.GL_UNIFORM_BLOCK_DATA_SIZE, query);
+            int size = query.get(0);
+            GL31.glGetActiveUniformBlock(programID, i, GL31.GL_UNIFORM_BLOCK_ACTIVE_UNIFORMS, query);
+            int numMembers = query.get(0);
+
+            List<ShaderImpl.BlockMemberImpl> members = new ArrayList<>();
+            if (numMembers > 0) {
+                IntBuffer indices = BufferUtil.newByteBuffer(DataType.INT, Math.max(16, numMembers))
+                                              .asIntBuffer();
+                GL31.glGetActiveUniformBlock(programID, i, GL31.GL_UNIFORM_BLOCK_ACTIVE_UNIFORM_INDICES,
+                                             indices);
+                indices.limit(numMembers);
+
+                IntBuffer offsets = BufferUtil.newByteBuffer(DataType.INT, numMembers).asIntBuffer();
+                IntBuffer arrayStrides = BufferUtil.newByteBuffer(DataType.INT, numMembers).asIntBuffer();
+                IntBuffer matrixStrides = BufferUtil.newByteBuffer(DataType.INT, numMembers).asIntBuffer();
+                GL31.glGetActiveUniforms(programID, indices, GL31.GL_UNIFORM_OFFSET, offsets);
+                GL31.glGetActiveUniforms(programID, indices, GL31.GL_UNIFORM_ARRAY_STRIDE, arrayStrides);
+                GL31.glGetActiveUniforms(programID, indices, GL31.GL_UNIFORM_MATRIX_STRIDE, matrixStrides);
+
+                for (int j = 0; j < numMembers; j++) {
+                    int index = indices.get(j);
+                    name.clear();
+                    GL20.glGetActiveUniform(programID, index, nameLen, len, type, name);
+                    members.add(new ShaderImpl.BlockMemberImpl(Utils.getVariableType(type.get(0)),
+                                                               getSafeName(name, nameLen.get(0)), index,
+                                                               len.get(0), offsets.get(j),
+                                                               arrayStrides.get(j), matrixStrides.get(j)));
+                }
+            }
+
+            blocks.add(new ShaderImpl.UniformBlockImpl(handle, blockName, i, size, members));
+        }
+
+        return blocks;
+    }
+
+    @Override
+    protected void bindUniformBlock(OpenGLContext context, int programID, int blockIndex, int binding) {
+        GL31.glUniformBlockBinding(programID, blockIndex, binding);
+    }
+
     @Override
     protected void bindFragmentLocation(OpenGLContext context, int programID, String variable, int buffer) {
         GL30.glBindFragDataLocation(programID, buffer, variable);
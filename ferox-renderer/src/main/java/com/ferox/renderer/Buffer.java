@@ -26,6 +26,8 @@
  */
 package com.ferox.renderer;
 
+import java.util.concurrent.Future;
+
 /**
  * Buffer is the high-level resource type representing an array of bytes stored on the GPU. Depending on the
  * primitive data type, the bytes are interpreted in different ways, e.g. as signed or unsigned ints, floats,
@@ -35,8 +37,11 @@ package com.ferox.renderer;
  * When a Buffer object is refreshed by {@link #refresh()}, the contents of the original primitive array that
  * defined its data are pushed to the GPU. To animate buffers, you should maintain the reference to the
  * original data and mutate as necessary, and refresh() when ready. If a buffer is to be refreshed every frame
- * or multiple times per frame, {@link com.ferox.renderer.builder.BufferBuilder#dynamic()} should be called
- * when constructing the buffer.
+ * or multiple times per frame, {@link com.ferox.renderer.builder.BufferBuilder#dynamic()} or {@link
+ * com.ferox.renderer.builder.BufferBuilder#streaming()} should be called when constructing the buffer.
+ * <p/>
+ * When only part of a large buffer changes, the modified elements can be flagged with {@link #markDirty(int,
+ * int)}. The next refresh then pushes only the marked ranges instead of the entire array.
  *
  * @author Michael Ludwig
  */
@@ -58,4 +63,34 @@ public interface Buffer extends Resource {
      * @return The primitive interpretation of the bytes within the buffer
      */
     public DataType getDataType();
+
+    /**
+     * Mark the elements from <var>offset</var> to <var>offset + length - 1</var> as modified. If any range
+     * has been marked, the next refresh of this buffer, through {@link #refresh()} or {@link
+     * HardwareAccessLayer#refresh(Resource)}, only pushes the marked ranges to the GPU. If no range has been
+     * marked, a refresh pushes the entire buffer as before. The marked ranges are cleared by each refresh.
+     * Overlapping and adjacent ranges are merged, and many disjoint ranges may be merged into a single span
+     * that covers them.
+     * <p/>
+     * Like the length, the offset and length are measured in units of the data type.
+     *
+     * @param offset The first modified element
+     * @param length The number of modified elements
+     *
+     * @throws IndexOutOfBoundsException if the range is not within the buffer
+     */
+    public void markDirty(int offset, int length);
+
+    /**
+     * Convenience method that marks the range as dirty, as in {@link #markDirty(int, int)}, and then queues a
+     * refresh via {@link #refresh()}.
+     *
+     * @param offset The first modified element
+     * @param length The number of modified elements
+     *
+     * @return A future linked to the queued refresh
+     *
+     * @throws IndexOutOfBoundsException if the range is not within the buffer
+     */
+    public Future<Void> refresh(int offset, int length);
 }
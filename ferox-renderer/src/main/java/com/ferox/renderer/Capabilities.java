@@ -61,8 +61,10 @@ public abstract class Capabilities {
 
     // glsl
     protected boolean geometryShaderSupport = false; //
+    protected boolean instancingSupport = false; //
     protected int glslVersion;
     protected int maxVertexAttributes = 0; //
+    protected int maxUniformBlockBindings = 0; //
     protected int maxTextureUnits = 0; //
 
     protected int maxVertexSamplers = 0; //
@@ -296,6 +298,17 @@ public abstract class Capabilities {
         return maxVertexAttributes;
     }
 
+    /**
+     * Get the number of uniform buffer binding points available to the shaders. A shader can declare at most
+     * this many uniform blocks. If this is 0, uniform blocks are not supported and {@link
+     * Shader#getUniformBlocks()} will always be empty.
+     *
+     * @return Number of uniform block bindings
+     */
+    public int getMaxUniformBlockBindings() {
+        return maxUniformBlockBindings;
+    }
+
     /**
      * Whether or not offscreen surfaces can be implemented using frame buffer objects, which is significantly
      * faster than relying on pbuffers.
@@ -357,4 +370,15 @@ public abstract class Capabilities {
     public boolean hasGeometryShaderSupport() {
         return geometryShaderSupport;
     }
+
+    /**
+     * @return True if the GlslRenderer can render multiple instances in a single call, and attributes can
+     *         have per-instance divisors
+     *
+     * @see GlslRenderer#render(Renderer.PolygonType, int, int, int)
+     * @see GlslRenderer#setAttributeDivisor(Shader.Attribute, int)
+     */
+    public boolean hasInstancingSupport() {
+        return instancingSupport;
+    }
 }
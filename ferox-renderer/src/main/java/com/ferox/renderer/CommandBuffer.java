@@ -0,0 +1,813 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer;
+
+import com.ferox.math.*;
+import com.ferox.renderer.Renderer.*;
+
+import java.util.Arrays;
+
+/**
+ * <p/>
+ * CommandBuffer records a sequence of {@link Renderer} calls into compact primitive arrays so that they can
+ * be replayed later. Unlike a Renderer, a CommandBuffer is not tied to a Context and can be recorded on any
+ * thread. This allows the CPU work of traversing a scene and computing per-draw values to be spread across
+ * multiple threads, leaving only {@link #replay(Renderer)} to run on the context thread within a {@link
+ * Task}.
+ * <p/>
+ * The recording methods have the same names and arguments as the Renderer methods they represent. Values are
+ * copied when recorded so the caller is free to modify vectors and matrices afterwards. Resources are
+ * referenced and not copied. The arguments of the shared Renderer calls are validated when they are
+ * recorded, and a recording method throws the same exceptions as the Renderer method it represents, leaving
+ * the buffer unchanged. Checks that depend on the context, such as whether a resource has been destroyed,
+ * are deferred and thrown by replay() after the preceding commands have been applied. Subclasses document
+ * which of their own checks are deferred. Redundant state changes are still skipped by the renderer as the
+ * buffer is replayed.
+ * <p/>
+ * A CommandBuffer is not thread safe. Each buffer should be recorded by a single thread, and then handed to
+ * the context thread, e.g. by capturing it in the Task passed to {@link Framework#invoke(Task)}. The
+ * buffer must not be modified while it is being replayed. A buffer may be replayed any number of times until
+ * {@link #clearCommands()} is called.
+ *
+ * @param <R> The type of renderer the buffer is replayed into
+ *
+ * @author Michael Ludwig
+ * @see FixedFunctionCommandBuffer
+ * @see GlslCommandBuffer
+ */
+public abstract class CommandBuffer<R extends Renderer> {
+    private static final BlendFactor[] BLEND_FACTORS = BlendFactor.values();
+    private static final BlendFunction[] BLEND_FUNCTIONS = BlendFunction.values();
+    private static final Comparison[] COMPARISONS = Comparison.values();
+    private static final DrawStyle[] DRAW_STYLES = DrawStyle.values();
+    private static final StencilUpdate[] STENCIL_UPDATES = StencilUpdate.values();
+    private static final PolygonType[] POLYGON_TYPES = PolygonType.values();
+
+    // command codes shared by all renderers, subclasses start at FIRST_CUSTOM_COMMAND
+    private static final int BLENDING_ENABLED = 0;
+    private static final int BLEND_COLOR = 1;
+    private static final int BLEND_MODE_RGB = 2;
+    private static final int BLEND_MODE_ALPHA = 3;
+    private static final int COLOR_WRITE_MASK = 4;
+    private static final int DEPTH_TEST = 5;
+    private static final int DEPTH_WRITE_MASK = 6;
+    private static final int DEPTH_OFFSETS = 7;
+    private static final int DEPTH_OFFSETS_ENABLED = 8;
+    private static final int DRAW_STYLE = 9;
+    private static final int STENCIL_TEST_ENABLED = 10;
+    private static final int STENCIL_TEST_FRONT = 11;
+    private static final int STENCIL_TEST_BACK = 12;
+    private static final int STENCIL_UPDATE_FRONT = 13;
+    private static final int STENCIL_UPDATE_BACK = 14;
+    private static final int STENCIL_WRITE_MASK = 15;
+    private static final int POINT_AA_ENABLED = 16;
+    private static final int LINE_AA_ENABLED = 17;
+    private static final int POLYGON_AA_ENABLED = 18;
+    private static final int POINT_SIZE = 19;
+    private static final int LINE_SIZE = 20;
+    private static final int VIEWPORT = 21;
+    private static final int INDICES = 22;
+    private static final int RENDER = 23;
+    private static final int RESET = 24;
+    private static final int CLEAR = 25;
+
+    protected static final int FIRST_CUSTOM_COMMAND = 64;
+
+    // command stream, each command is its code followed by its integer arguments
+    private int[] ints;
+    private int intCount;
+
+    // double and object arguments, stored in the order the commands consume them
+    private double[] doubles;
+    private int doubleCount;
+    // values already converted to the form OpenGL consumes, e.g. column-major matrices
+    private float[] floats;
+    private int floatCount;
+    private Object[] objects;
+    private int objectCount;
+
+    private int commandCount;
+
+    // array sizes before the command being recorded, so a command with invalid arguments can be discarded
+    private int commandIntStart;
+    private int commandDoubleStart;
+    private int commandFloatStart;
+    private int commandObjectStart;
+
+    // replay cursors
+    private int intCursor;
+    private int doubleCursor;
+    private int floatCursor;
+    private int objectCursor;
+
+    private final Vector4 tmpVector4;
+
+    /**
+     * Create a new and empty CommandBuffer.
+     */
+    public CommandBuffer() {
+        ints = new int[64];
+        doubles = new double[64];
+        floats = new float[64];
+        objects = new Object[16];
+        tmpVector4 = new Vector4();
+    }
+
+    /**
+     * @return The number of commands recorded since the buffer was created or last cleared
+     */
+    public int size() {
+        return commandCount;
+    }
+
+    /**
+     * @return True if no commands have been recorded
+     */
+    public boolean isEmpty() {
+        return commandCount == 0;
+    }
+
+    /**
+     * Remove all recorded commands so that the buffer can be reused. The internal arrays keep their capacity
+     * so a buffer that is cleared and recorded every frame does not allocate once it reaches its steady
+     * size.
+     */
+    public void clearCommands() {
+        // release references to resources
+        Arrays.fill(objects, 0, objectCount, null);
+        intCount = 0;
+        doubleCount = 0;
+        floatCount = 0;
+        objectCount = 0;
+        commandCount = 0;
+    }
+
+    /**
+     * Replay every recorded command, in order, into the given renderer. This must be called on the thread of
+     * the renderer's context, i.e. from within a Task.
+     *
+     * @param renderer The renderer that receives the commands
+     *
+     * @return The total number of polygons rendered by the recorded render() calls
+     *
+     * @throws NullPointerException if renderer is null
+     */
+    public int replay(R renderer) {
+        if (renderer == null) {
+            throw new NullPointerException("Renderer cannot be null");
+        }
+
+        intCursor = 0;
+        doubleCursor = 0;
+        floatCursor = 0;
+        objectCursor = 0;
+
+        int rendered = 0;
+        while (intCursor < intCount) {
+            int command = ints[intCursor++];
+            if (command >= FIRST_CUSTOM_COMMAND) {
+                rendered += replay(command, renderer);
+            } else {
+                rendered += replayShared(command, renderer);
+            }
+        }
+        return rendered;
+    }
+
+    private int replayShared(int command, R r) {
+        switch (command) {
+        case BLENDING_ENABLED:
+            r.setBlendingEnabled(nextBoolean());
+            break;
+        case BLEND_COLOR:
+            r.setBlendColor(nextVector4(tmpVector4));
+            break;
+        case BLEND_MODE_RGB:
+            r.setBlendModeRGB(BLEND_FUNCTIONS[nextInt()], BLEND_FACTORS[nextInt()],
+                              BLEND_FACTORS[nextInt()]);
+            break;
+        case BLEND_MODE_ALPHA:
+            r.setBlendModeAlpha(BLEND_FUNCTIONS[nextInt()], BLEND_FACTORS[nextInt()],
+                                BLEND_FACTORS[nextInt()]);
+            break;
+        case COLOR_WRITE_MASK:
+            r.setColorWriteMask(nextBoolean(), nextBoolean(), nextBoolean(), nextBoolean());
+            break;
+        case DEPTH_TEST:
+            r.setDepthTest(COMPARISONS[nextInt()]);
+            break;
+        case DEPTH_WRITE_MASK:
+            r.setDepthWriteMask(nextBoolean());
+            break;
+        case DEPTH_OFFSETS:
+            r.setDepthOffsets(nextDouble(), nextDouble());
+            break;
+        case DEPTH_OFFSETS_ENABLED:
+            r.setDepthOffsetsEnabled(nextBoolean());
+            break;
+        case DRAW_STYLE:
+            r.setDrawStyle(DRAW_STYLES[nextInt()], DRAW_STYLES[nextInt()]);
+            break;
+        case STENCIL_TEST_ENABLED:
+            r.setStencilTestEnabled(nextBoolean());
+            break;
+        case STENCIL_TEST_FRONT:
+            r.setStencilTestFront(COMPARISONS[nextInt()], nextInt(), nextInt());
+            break;
+        case STENCIL_TEST_BACK:
+            r.setStencilTestBack(COMPARISONS[nextInt()], nextInt(), nextInt());
+            break;
+        case STENCIL_UPDATE_FRONT:
+            r.setStencilUpdateFront(STENCIL_UPDATES[nextInt()], STENCIL_UPDATES[nextInt()],
+                                    STENCIL_UPDATES[nextInt()]);
+            break;
+        case STENCIL_UPDATE_BACK:
+            r.setStencilUpdateBack(STENCIL_UPDATES[nextInt()], STENCIL_UPDATES[nextInt()],
+                                   STENCIL_UPDATES[nextInt()]);
+            break;
+        case STENCIL_WRITE_MASK:
+            r.setStencilWriteMask(nextInt(), nextInt());
+            break;
+        case POINT_AA_ENABLED:
+            r.setPointAntiAliasingEnabled(nextBoolean());
+            break;
+        case LINE_AA_ENABLED:
+            r.setLineAntiAliasingEnabled(nextBoolean());
+            break;
+        case POLYGON_AA_ENABLED:
+            r.setPolygonAntiAliasingEnabled(nextBoolean());
+            break;
+        case POINT_SIZE:
+            r.setPointSize(nextDouble());
+            break;
+        case LINE_SIZE:
+            r.setLineSize(nextDouble());
+            break;
+        case VIEWPORT:
+            r.setViewport(nextInt(), nextInt(), nextInt(), nextInt());
+            break;
+        case INDICES:
+            r.setIndices((ElementBuffer) nextObject());
+            break;
+        case RENDER:
+            return r.render(POLYGON_TYPES[nextInt()], nextInt(), nextInt());
+        case RESET:
+            r.reset();
+            break;
+        case CLEAR:
+            r.clear(nextBoolean(), nextBoolean(), nextBoolean(), nextVector4(tmpVector4), nextDouble(),
+                    nextInt());
+            break;
+        default:
+            throw new IllegalStateException("Unknown command: " + command);
+        }
+        return 0;
+    }
+
+    /**
+     * Replay a single command recorded by a subclass, with a code of at least {@link #FIRST_CUSTOM_COMMAND}.
+     * The command's arguments must be read with the next*() methods in the same order they were written.
+     *
+     * @param command  The command code
+     * @param renderer The renderer to replay into
+     *
+     * @return The number of polygons rendered by the command, or 0
+     */
+    protected abstract int replay(int command, R renderer);
+
+    /**
+     * Start recording a new command. Its arguments must be written immediately afterwards with the put*()
+     * methods. Arguments should be validated before this is called, if a put*() method rejects an argument
+     * the partially written command is discarded.
+     *
+     * @param command The command code
+     */
+    protected void command(int command) {
+        commandIntStart = intCount;
+        commandDoubleStart = doubleCount;
+        commandFloatStart = floatCount;
+        commandObjectStart = objectCount;
+        commandCount++;
+        putInt(command);
+    }
+
+    private void discardCommand() {
+        Arrays.fill(objects, commandObjectStart, objectCount, null);
+        intCount = commandIntStart;
+        doubleCount = commandDoubleStart;
+        floatCount = commandFloatStart;
+        objectCount = commandObjectStart;
+        commandCount--;
+    }
+
+    private void checkNotNull(Object value, String message) {
+        if (value == null) {
+            discardCommand();
+            throw new NullPointerException(message);
+        }
+    }
+
+    protected void putInt(int value) {
+        if (intCount == ints.length) {
+            ints = Arrays.copyOf(ints, ints.length * 2);
+        }
+        ints[intCount++] = value;
+    }
+
+    protected void putBoolean(boolean value) {
+        putInt(value ? 1 : 0);
+    }
+
+    protected void putEnum(Enum<?> value) {
+        checkNotNull(value, "Enum argument cannot be null");
+        putInt(value.ordinal());
+    }
+
+    protected void putDouble(double value) {
+        if (doubleCount == doubles.length) {
+            doubles = Arrays.copyOf(doubles, doubles.length * 2);
+        }
+        doubles[doubleCount++] = value;
+    }
+
+    protected void putVector4(@Const Vector4 v) {
+        checkNotNull(v, "Vector argument cannot be null");
+        reserveDoubles(4);
+        v.get(doubles, doubleCount);
+        doubleCount += 4;
+    }
+
+    protected void putVector3(@Const Vector3 v) {
+        checkNotNull(v, "Vector argument cannot be null");
+        reserveDoubles(3);
+        v.get(doubles, doubleCount);
+        doubleCount += 3;
+    }
+
+    protected void putMatrix3(@Const Matrix3 m) {
+        checkNotNull(m, "Matrix argument cannot be null");
+        reserveDoubles(9);
+        m.get(doubles, doubleCount, false);
+        doubleCount += 9;
+    }
+
+    protected void putMatrix4(@Const Matrix4 m) {
+        checkNotNull(m, "Matrix argument cannot be null");
+        reserveDoubles(16);
+        m.get(doubles, doubleCount, false);
+        doubleCount += 16;
+    }
+
+    private void reserveDoubles(int count) {
+        if (doubleCount + count > doubles.length) {
+            doubles = Arrays.copyOf(doubles, Math.max(doubles.length * 2, doubleCount + count));
+        }
+    }
+
+    /**
+     * Reserve space for <var>count</var> float values, which must then be written into the array returned by
+     * {@link #getFloats()} starting at the returned offset. This lets values be converted once when they are
+     * recorded, instead of every time they are replayed.
+     *
+     * @param count The number of floats to reserve
+     *
+     * @return The offset of the first reserved float
+     */
+    protected int reserveFloats(int count) {
+        if (floatCount + count > floats.length) {
+            floats = Arrays.copyOf(floats, Math.max(floats.length * 2, floatCount + count));
+        }
+        int offset = floatCount;
+        floatCount += count;
+        return offset;
+    }
+
+    /**
+     * @return The array holding the float values, this can change after {@link #reserveFloats(int)}
+     */
+    protected float[] getFloats() {
+        return floats;
+    }
+
+    /**
+     * @return The array holding the command stream and integer arguments, this can change after any put*()
+     */
+    protected int[] getInts() {
+        return ints;
+    }
+
+    protected void putObject(Object value) {
+        if (objectCount == objects.length) {
+            objects = Arrays.copyOf(objects, objects.length * 2);
+        }
+        objects[objectCount++] = value;
+    }
+
+    protected int nextInt() {
+        return ints[intCursor++];
+    }
+
+    protected boolean nextBoolean() {
+        return ints[intCursor++] != 0;
+    }
+
+    /**
+     * Skip over the next <var>count</var> integers so that they can be read in bulk from {@link #getInts()}.
+     *
+     * @param count The number of integers to consume
+     *
+     * @return The offset of the first integer in the array
+     */
+    protected int nextInts(int count) {
+        int offset = intCursor;
+        intCursor += count;
+        return offset;
+    }
+
+    /**
+     * Consume the next <var>count</var> floats written after {@link #reserveFloats(int)}, so that they can be
+     * read in bulk from {@link #getFloats()}.
+     *
+     * @param count The number of floats to consume
+     *
+     * @return The offset of the first float in the array
+     */
+    protected int nextFloats(int count) {
+        int offset = floatCursor;
+        floatCursor += count;
+        return offset;
+    }
+
+    protected double nextDouble() {
+        return doubles[doubleCursor++];
+    }
+
+    protected Vector4 nextVector4(Vector4 result) {
+        result.set(doubles, doubleCursor);
+        doubleCursor += 4;
+        return result;
+    }
+
+    protected Vector3 nextVector3(Vector3 result) {
+        result.set(doubles, doubleCursor);
+        doubleCursor += 3;
+        return result;
+    }
+
+    protected Matrix3 nextMatrix3(Matrix3 result) {
+        result.set(doubles, doubleCursor, false);
+        doubleCursor += 9;
+        return result;
+    }
+
+    protected Matrix4 nextMatrix4(Matrix4 result) {
+        result.set(doubles, doubleCursor, false);
+        doubleCursor += 16;
+        return result;
+    }
+
+    protected Object nextObject() {
+        return objects[objectCursor++];
+    }
+
+    /**
+     * Check the offset and count of a recorded render() call.
+     *
+     * @param offset The first vertex or index
+     * @param count  The number of vertices or indices
+     *
+     * @throws IllegalArgumentException if offset or count are negative
+     */
+    protected static void checkRange(int offset, int count) {
+        if (offset < 0 || count < 0) {
+            throw new IllegalArgumentException("First and count must be at least 0, not: " + offset + ", " +
+                                               count);
+        }
+    }
+
+    /**
+     * Record a call to {@link Renderer#setBlendingEnabled(boolean)}.
+     */
+    public void setBlendingEnabled(boolean enable) {
+        command(BLENDING_ENABLED);
+        putBoolean(enable);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setBlendColor(Vector4)}.
+     */
+    public void setBlendColor(@Const Vector4 color) {
+        command(BLEND_COLOR);
+        putVector4(color);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setBlendMode(BlendFunction, BlendFactor, BlendFactor)}.
+     */
+    public void setBlendMode(BlendFunction function, BlendFactor src, BlendFactor dst) {
+        setBlendModeRGB(function, src, dst);
+        setBlendModeAlpha(function, src, dst);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setBlendModeRGB(BlendFunction, BlendFactor, BlendFactor)}.
+     */
+    public void setBlendModeRGB(BlendFunction function, BlendFactor src, BlendFactor dst) {
+        if (dst == BlendFactor.SRC_ALPHA_SATURATE) {
+            throw new IllegalArgumentException("Cannot use SRC_ALPHA_SATURATE for dest BlendFactor");
+        }
+        command(BLEND_MODE_RGB);
+        putEnum(function);
+        putEnum(src);
+        putEnum(dst);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setBlendModeAlpha(BlendFunction, BlendFactor, BlendFactor)}.
+     */
+    public void setBlendModeAlpha(BlendFunction function, BlendFactor src, BlendFactor dst) {
+        if (dst == BlendFactor.SRC_ALPHA_SATURATE) {
+            throw new IllegalArgumentException("Cannot use SRC_ALPHA_SATURATE for dest BlendFactor");
+        }
+        command(BLEND_MODE_ALPHA);
+        putEnum(function);
+        putEnum(src);
+        putEnum(dst);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setColorWriteMask(boolean, boolean, boolean, boolean)}.
+     */
+    public void setColorWriteMask(boolean red, boolean green, boolean blue, boolean alpha) {
+        command(COLOR_WRITE_MASK);
+        putBoolean(red);
+        putBoolean(green);
+        putBoolean(blue);
+        putBoolean(alpha);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setDepthTest(Comparison)}.
+     */
+    public void setDepthTest(Comparison test) {
+        command(DEPTH_TEST);
+        putEnum(test);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setDepthWriteMask(boolean)}.
+     */
+    public void setDepthWriteMask(boolean mask) {
+        command(DEPTH_WRITE_MASK);
+        putBoolean(mask);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setDepthOffsets(double, double)}.
+     */
+    public void setDepthOffsets(double factor, double units) {
+        command(DEPTH_OFFSETS);
+        putDouble(factor);
+        putDouble(units);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setDepthOffsetsEnabled(boolean)}.
+     */
+    public void setDepthOffsetsEnabled(boolean enable) {
+        command(DEPTH_OFFSETS_ENABLED);
+        putBoolean(enable);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setDrawStyle(DrawStyle)}.
+     */
+    public void setDrawStyle(DrawStyle style) {
+        setDrawStyle(style, style);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setDrawStyle(DrawStyle, DrawStyle)}.
+     */
+    public void setDrawStyle(DrawStyle front, DrawStyle back) {
+        command(DRAW_STYLE);
+        putEnum(front);
+        putEnum(back);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setStencilTestEnabled(boolean)}.
+     */
+    public void setStencilTestEnabled(boolean enable) {
+        command(STENCIL_TEST_ENABLED);
+        putBoolean(enable);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setStencilTest(Comparison, int, int)}.
+     */
+    public void setStencilTest(Comparison test, int refValue, int testMask) {
+        setStencilTestFront(test, refValue, testMask);
+        setStencilTestBack(test, refValue, testMask);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setStencilTestFront(Comparison, int, int)}.
+     */
+    public void setStencilTestFront(Comparison test, int refValue, int testMask) {
+        command(STENCIL_TEST_FRONT);
+        putEnum(test);
+        putInt(refValue);
+        putInt(testMask);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setStencilTestBack(Comparison, int, int)}.
+     */
+    public void setStencilTestBack(Comparison test, int refValue, int testMask) {
+        command(STENCIL_TEST_BACK);
+        putEnum(test);
+        putInt(refValue);
+        putInt(testMask);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setStencilUpdate(StencilUpdate, StencilUpdate, StencilUpdate)}.
+     */
+    public void setStencilUpdate(StencilUpdate stencilFail, StencilUpdate depthFail,
+                                 StencilUpdate depthPass) {
+        setStencilUpdateFront(stencilFail, depthFail, depthPass);
+        setStencilUpdateBack(stencilFail, depthFail, depthPass);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setStencilUpdateFront(StencilUpdate, StencilUpdate, StencilUpdate)}.
+     */
+    public void setStencilUpdateFront(StencilUpdate stencilFail, StencilUpdate depthFail,
+                                      StencilUpdate depthPass) {
+        command(STENCIL_UPDATE_FRONT);
+        putEnum(stencilFail);
+        putEnum(depthFail);
+        putEnum(depthPass);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setStencilUpdateBack(StencilUpdate, StencilUpdate, StencilUpdate)}.
+     */
+    public void setStencilUpdateBack(StencilUpdate stencilFail, StencilUpdate depthFail,
+                                     StencilUpdate depthPass) {
+        command(STENCIL_UPDATE_BACK);
+        putEnum(stencilFail);
+        putEnum(depthFail);
+        putEnum(depthPass);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setStencilWriteMask(int)}.
+     */
+    public void setStencilWriteMask(int mask) {
+        setStencilWriteMask(mask, mask);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setStencilWriteMask(int, int)}.
+     */
+    public void setStencilWriteMask(int front, int back) {
+        command(STENCIL_WRITE_MASK);
+        putInt(front);
+        putInt(back);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setPointAntiAliasingEnabled(boolean)}.
+     */
+    public void setPointAntiAliasingEnabled(boolean enable) {
+        command(POINT_AA_ENABLED);
+        putBoolean(enable);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setLineAntiAliasingEnabled(boolean)}.
+     */
+    public void setLineAntiAliasingEnabled(boolean enable) {
+        command(LINE_AA_ENABLED);
+        putBoolean(enable);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setPolygonAntiAliasingEnabled(boolean)}.
+     */
+    public void setPolygonAntiAliasingEnabled(boolean enable) {
+        command(POLYGON_AA_ENABLED);
+        putBoolean(enable);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setPointSize(double)}.
+     */
+    public void setPointSize(double width) {
+        if (width < 1.0) {
+            throw new IllegalArgumentException("Point width must be at least 1, not: " + width);
+        }
+        command(POINT_SIZE);
+        putDouble(width);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setLineSize(double)}.
+     */
+    public void setLineSize(double width) {
+        if (width < 1.0) {
+            throw new IllegalArgumentException("Line width must be at least 1, not: " + width);
+        }
+        command(LINE_SIZE);
+        putDouble(width);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setViewport(int, int, int, int)}.
+     */
+    public void setViewport(int x, int y, int width, int height) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Invalid size, dimensions must be positive: " +
+                                               width + ", " + height);
+        }
+        command(VIEWPORT);
+        putInt(x);
+        putInt(y);
+        putInt(width);
+        putInt(height);
+    }
+
+    /**
+     * Record a call to {@link Renderer#setIndices(ElementBuffer)}.
+     */
+    public void setIndices(ElementBuffer indices) {
+        command(INDICES);
+        putObject(indices);
+    }
+
+    /**
+     * Record a call to {@link Renderer#render(PolygonType, int, int)}. The polygon count is summed into the
+     * value returned by {@link #replay(Renderer)}.
+     */
+    public void render(PolygonType polyType, int offset, int count) {
+        checkRange(offset, count);
+        command(RENDER);
+        putEnum(polyType);
+        putInt(offset);
+        putInt(count);
+    }
+
+    /**
+     * Record a call to {@link Renderer#reset()}.
+     */
+    public void reset() {
+        command(RESET);
+    }
+
+    /**
+     * Record a call to {@link Renderer#clear(boolean, boolean, boolean)}.
+     */
+    public void clear(boolean clearColor, boolean clearDepth, boolean clearStencil) {
+        clear(clearColor, clearDepth, clearStencil, tmpVector4.set(0, 0, 0, 0), 1.0, 0);
+    }
+
+    /**
+     * Record a call to {@link Renderer#clear(boolean, boolean, boolean, Vector4, double, int)}.
+     */
+    public void clear(boolean clearColor, boolean clearDepth, boolean clearStencil, @Const Vector4 color,
+                      double depth, int stencil) {
+        command(CLEAR);
+        putBoolean(clearColor);
+        putBoolean(clearDepth);
+        putBoolean(clearStencil);
+        putVector4(color);
+        putDouble(depth);
+        putInt(stencil);
+    }
+}
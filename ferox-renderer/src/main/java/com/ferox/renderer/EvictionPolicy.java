@@ -0,0 +1,85 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer;
+
+import java.util.List;
+
+/**
+ * <p/>
+ * EvictionPolicy decides which GPU resources a {@link Framework} destroys when the memory used by its
+ * samplers and buffers exceeds the budget configured with {@link Framework#setMemoryBudget(long,
+ * EvictionPolicy)}.
+ * Evicted resources are destroyed exactly as if {@link Resource#destroy()} had been called, so an application
+ * that streams content must check {@link Resource#isDestroyed()} and rebuild what it still needs.
+ * <p/>
+ * Policies are invoked on the Framework's internal thread and should be fast. {@link LruEvictionPolicy} is
+ * the default implementation that evicts the least recently used resources first.
+ *
+ * @author Michael Ludwig
+ */
+public interface EvictionPolicy {
+    /**
+     * The kind of resource a candidate represents.
+     */
+    public static enum Kind {
+        SAMPLER,
+        BUFFER
+    }
+
+    /**
+     * A Candidate describes a live resource that may be evicted.
+     */
+    public static interface Candidate {
+        /**
+         * @return The kind of resource
+         */
+        public Kind getKind();
+
+        /**
+         * @return The number of bytes of GPU memory the resource holds
+         */
+        public long getMemorySize();
+
+        /**
+         * @return The number of nanoseconds since the resource was last used by a renderer, or since it was
+         *         created if it has never been used
+         */
+        public long getIdleTime();
+    }
+
+    /**
+     * Choose the candidates to evict. Every candidate in the returned list is destroyed, in order. The
+     * returned list may free less than {@code bytesOverBudget} if the policy prefers to keep resources that
+     * are still in active use, in which case the Framework will ask again later.
+     *
+     * @param candidates      All resources that can be evicted, in no particular order
+     * @param bytesOverBudget The number of bytes that must be freed to get back within the budget
+     *
+     * @return The candidates to evict, which must be elements of {@code candidates}
+     */
+    public List<Candidate> selectEvictions(List<Candidate> candidates, long bytesOverBudget);
+}
@@ -0,0 +1,509 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer;
+
+import com.ferox.math.Const;
+import com.ferox.math.Matrix4;
+import com.ferox.math.Vector3;
+import com.ferox.math.Vector4;
+import com.ferox.renderer.FixedFunctionRenderer.CombineFunction;
+import com.ferox.renderer.FixedFunctionRenderer.CombineOperand;
+import com.ferox.renderer.FixedFunctionRenderer.CombineSource;
+import com.ferox.renderer.FixedFunctionRenderer.TexCoordSource;
+import com.ferox.renderer.Renderer.Comparison;
+
+/**
+ * FixedFunctionCommandBuffer is a {@link CommandBuffer} that records the calls of a {@link
+ * FixedFunctionRenderer} in addition to the shared Renderer calls. Per-draw matrices and material colors are
+ * the bulk of the work in the fixed-function pipeline, so recording them on worker threads moves most of the
+ * CPU cost of a frame off the context thread.
+ * <p/>
+ * Apart from null enums, vectors and matrices, the fixed-function arguments are validated when the buffer is
+ * replayed, since most of them depend on the context's capabilities, such as the number of lights and
+ * texture units.
+ *
+ * @author Michael Ludwig
+ */
+public class FixedFunctionCommandBuffer extends CommandBuffer<FixedFunctionRenderer> {
+    private static final Comparison[] COMPARISONS = Comparison.values();
+    private static final CombineFunction[] COMBINE_FUNCTIONS = CombineFunction.values();
+    private static final CombineOperand[] COMBINE_OPERANDS = CombineOperand.values();
+    private static final CombineSource[] COMBINE_SOURCES = CombineSource.values();
+    private static final TexCoordSource[] TEX_COORD_SOURCES = TexCoordSource.values();
+
+    private static final int FOG_ENABLED = FIRST_CUSTOM_COMMAND;
+    private static final int FOG_COLOR = FIRST_CUSTOM_COMMAND + 1;
+    private static final int FOG_LINEAR = FIRST_CUSTOM_COMMAND + 2;
+    private static final int FOG_EXPONENTIAL = FIRST_CUSTOM_COMMAND + 3;
+    private static final int ALPHA_TEST = FIRST_CUSTOM_COMMAND + 4;
+    private static final int LIGHTING_ENABLED = FIRST_CUSTOM_COMMAND + 5;
+    private static final int GLOBAL_AMBIENT = FIRST_CUSTOM_COMMAND + 6;
+    private static final int LIGHT_ENABLED = FIRST_CUSTOM_COMMAND + 7;
+    private static final int LIGHT_POSITION = FIRST_CUSTOM_COMMAND + 8;
+    private static final int LIGHT_COLOR = FIRST_CUSTOM_COMMAND + 9;
+    private static final int SPOTLIGHT = FIRST_CUSTOM_COMMAND + 10;
+    private static final int LIGHT_ATTENUATION = FIRST_CUSTOM_COMMAND + 11;
+    private static final int MATERIAL = FIRST_CUSTOM_COMMAND + 12;
+    private static final int MATERIAL_DIFFUSE = FIRST_CUSTOM_COMMAND + 13;
+    private static final int MATERIAL_AMBIENT = FIRST_CUSTOM_COMMAND + 14;
+    private static final int MATERIAL_SPECULAR = FIRST_CUSTOM_COMMAND + 15;
+    private static final int MATERIAL_EMISSIVE = FIRST_CUSTOM_COMMAND + 16;
+    private static final int MATERIAL_SHININESS = FIRST_CUSTOM_COMMAND + 17;
+    private static final int TEXTURE = FIRST_CUSTOM_COMMAND + 18;
+    private static final int TEXTURE_COLOR = FIRST_CUSTOM_COMMAND + 19;
+    private static final int TEXTURE_COORD_SOURCE = FIRST_CUSTOM_COMMAND + 20;
+    private static final int TEXTURE_OBJECT_PLANES = FIRST_CUSTOM_COMMAND + 21;
+    private static final int TEXTURE_EYE_PLANES = FIRST_CUSTOM_COMMAND + 22;
+    private static final int TEXTURE_TRANSFORM = FIRST_CUSTOM_COMMAND + 23;
+    private static final int TEXTURE_COMBINE_RGB = FIRST_CUSTOM_COMMAND + 24;
+    private static final int TEXTURE_COMBINE_ALPHA = FIRST_CUSTOM_COMMAND + 25;
+    private static final int PROJECTION_MATRIX = FIRST_CUSTOM_COMMAND + 26;
+    private static final int MODELVIEW_MATRIX = FIRST_CUSTOM_COMMAND + 27;
+    private static final int VERTICES = FIRST_CUSTOM_COMMAND + 28;
+    private static final int NORMALS = FIRST_CUSTOM_COMMAND + 29;
+    private static final int COLORS = FIRST_CUSTOM_COMMAND + 30;
+    private static final int TEXTURE_COORDINATES = FIRST_CUSTOM_COMMAND + 31;
+
+    // replay temporaries, up to 4 colors are needed for setMaterial()
+    private final Vector4 v1 = new Vector4();
+    private final Vector4 v2 = new Vector4();
+    private final Vector4 v3 = new Vector4();
+    private final Vector4 v4 = new Vector4();
+    private final Vector3 v3d = new Vector3();
+    private final Matrix4 m = new Matrix4();
+
+    @Override
+    protected int replay(int command, FixedFunctionRenderer r) {
+        switch (command) {
+        case FOG_ENABLED:
+            r.setFogEnabled(nextBoolean());
+            break;
+        case FOG_COLOR:
+            r.setFogColor(nextVector4(v1));
+            break;
+        case FOG_LINEAR:
+            r.setFogLinear(nextDouble(), nextDouble());
+            break;
+        case FOG_EXPONENTIAL:
+            r.setFogExponential(nextDouble(), nextBoolean());
+            break;
+        case ALPHA_TEST:
+            r.setAlphaTest(COMPARISONS[nextInt()], nextDouble());
+            break;
+        case LIGHTING_ENABLED:
+            r.setLightingEnabled(nextBoolean());
+            break;
+        case GLOBAL_AMBIENT:
+            r.setGlobalAmbientLight(nextVector4(v1));
+            break;
+        case LIGHT_ENABLED:
+            r.setLightEnabled(nextInt(), nextBoolean());
+            break;
+        case LIGHT_POSITION:
+            r.setLightPosition(nextInt(), nextVector4(v1));
+            break;
+        case LIGHT_COLOR:
+            r.setLightColor(nextInt(), nextVector4(v1), nextVector4(v2), nextVector4(v3));
+            break;
+        case SPOTLIGHT:
+            r.setSpotlight(nextInt(), nextVector3(v3d), nextDouble(), nextDouble());
+            break;
+        case LIGHT_ATTENUATION:
+            r.setLightAttenuation(nextInt(), nextDouble(), nextDouble(), nextDouble());
+            break;
+        case MATERIAL:
+            r.setMaterial(nextVector4(v1), nextVector4(v2), nextVector4(v3), nextVector4(v4));
+            break;
+        case MATERIAL_DIFFUSE:
+            r.setMaterialDiffuse(nextVector4(v1));
+            break;
+        case MATERIAL_AMBIENT:
+            r.setMaterialAmbient(nextVector4(v1));
+            break;
+        case MATERIAL_SPECULAR:
+            r.setMaterialSpecular(nextVector4(v1));
+            break;
+        case MATERIAL_EMISSIVE:
+            r.setMaterialEmissive(nextVector4(v1));
+            break;
+        case MATERIAL_SHININESS:
+            r.setMaterialShininess(nextDouble());
+            break;
+        case TEXTURE:
+            r.setTexture(nextInt(), (Sampler) nextObject());
+            break;
+        case TEXTURE_COLOR:
+            r.setTextureColor(nextInt(), nextVector4(v1));
+            break;
+        case TEXTURE_COORD_SOURCE:
+            r.setTextureCoordinateSource(nextInt(), TEX_COORD_SOURCES[nextInt()]);
+            break;
+        case TEXTURE_OBJECT_PLANES:
+            r.setTextureObjectPlanes(nextInt(), nextMatrix4(m));
+            break;
+        case TEXTURE_EYE_PLANES:
+            r.setTextureEyePlanes(nextInt(), nextMatrix4(m));
+            break;
+        case TEXTURE_TRANSFORM:
+            r.setTextureTransform(nextInt(), nextMatrix4(m));
+            break;
+        case TEXTURE_COMBINE_RGB:
+            r.setTextureCombineRGB(nextInt(), COMBINE_FUNCTIONS[nextInt()], COMBINE_SOURCES[nextInt()],
+                                   COMBINE_OPERANDS[nextInt()], COMBINE_SOURCES[nextInt()],
+                                   COMBINE_OPERANDS[nextInt()], COMBINE_SOURCES[nextInt()],
+                                   COMBINE_OPERANDS[nextInt()]);
+            break;
+        case TEXTURE_COMBINE_ALPHA:
+            r.setTextureCombineAlpha(nextInt(), COMBINE_FUNCTIONS[nextInt()], COMBINE_SOURCES[nextInt()],
+                                     COMBINE_OPERANDS[nextInt()], COMBINE_SOURCES[nextInt()],
+                                     COMBINE_OPERANDS[nextInt()], COMBINE_SOURCES[nextInt()],
+                                     COMBINE_OPERANDS[nextInt()]);
+            break;
+        case PROJECTION_MATRIX:
+            r.setProjectionMatrix(nextMatrix4(m));
+            break;
+        case MODELVIEW_MATRIX:
+            r.setModelViewMatrix(nextMatrix4(m));
+            break;
+        case VERTICES:
+            r.setVertices((VertexAttribute) nextObject());
+            break;
+        case NORMALS:
+            r.setNormals((VertexAttribute) nextObject());
+            break;
+        case COLORS:
+            r.setColors((VertexAttribute) nextObject());
+            break;
+        case TEXTURE_COORDINATES:
+            r.setTextureCoordinates(nextInt(), (VertexAttribute) nextObject());
+            break;
+        default:
+            throw new IllegalStateException("Unknown command: " + command);
+        }
+        return 0;
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setFogEnabled(boolean)}.
+     */
+    public void setFogEnabled(boolean enable) {
+        command(FOG_ENABLED);
+        putBoolean(enable);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setFogColor(Vector4)}.
+     */
+    public void setFogColor(@Const Vector4 color) {
+        command(FOG_COLOR);
+        putVector4(color);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setFogLinear(double, double)}.
+     */
+    public void setFogLinear(double start, double end) {
+        command(FOG_LINEAR);
+        putDouble(start);
+        putDouble(end);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setFogExponential(double, boolean)}.
+     */
+    public void setFogExponential(double density, boolean squared) {
+        command(FOG_EXPONENTIAL);
+        putDouble(density);
+        putBoolean(squared);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setAlphaTest(Comparison, double)}.
+     */
+    public void setAlphaTest(Comparison test, double refValue) {
+        command(ALPHA_TEST);
+        putEnum(test);
+        putDouble(refValue);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setLightingEnabled(boolean)}.
+     */
+    public void setLightingEnabled(boolean enable) {
+        command(LIGHTING_ENABLED);
+        putBoolean(enable);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setGlobalAmbientLight(Vector4)}.
+     */
+    public void setGlobalAmbientLight(@Const Vector4 ambient) {
+        command(GLOBAL_AMBIENT);
+        putVector4(ambient);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setLightEnabled(int, boolean)}.
+     */
+    public void setLightEnabled(int light, boolean enable) {
+        command(LIGHT_ENABLED);
+        putInt(light);
+        putBoolean(enable);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setLightPosition(int, Vector4)}.
+     */
+    public void setLightPosition(int light, @Const Vector4 pos) {
+        command(LIGHT_POSITION);
+        putInt(light);
+        putVector4(pos);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setLightColor(int, Vector4, Vector4, Vector4)}.
+     */
+    public void setLightColor(int light, @Const Vector4 amb, @Const Vector4 diff, @Const Vector4 spec) {
+        command(LIGHT_COLOR);
+        putInt(light);
+        putVector4(amb);
+        putVector4(diff);
+        putVector4(spec);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setSpotlight(int, Vector3, double, double)}.
+     */
+    public void setSpotlight(int light, @Const Vector3 dir, double angle, double exponent) {
+        command(SPOTLIGHT);
+        putInt(light);
+        putVector3(dir);
+        putDouble(angle);
+        putDouble(exponent);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setLightAttenuation(int, double, double, double)}.
+     */
+    public void setLightAttenuation(int light, double constant, double linear, double quadratic) {
+        command(LIGHT_ATTENUATION);
+        putInt(light);
+        putDouble(constant);
+        putDouble(linear);
+        putDouble(quadratic);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setMaterial(Vector4, Vector4, Vector4, Vector4)}.
+     */
+    public void setMaterial(@Const Vector4 amb, @Const Vector4 diff, @Const Vector4 spec,
+                            @Const Vector4 emm) {
+        command(MATERIAL);
+        putVector4(amb);
+        putVector4(diff);
+        putVector4(spec);
+        putVector4(emm);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setMaterialDiffuse(Vector4)}.
+     */
+    public void setMaterialDiffuse(@Const Vector4 diff) {
+        command(MATERIAL_DIFFUSE);
+        putVector4(diff);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setMaterialAmbient(Vector4)}.
+     */
+    public void setMaterialAmbient(@Const Vector4 amb) {
+        command(MATERIAL_AMBIENT);
+        putVector4(amb);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setMaterialSpecular(Vector4)}.
+     */
+    public void setMaterialSpecular(@Const Vector4 spec) {
+        command(MATERIAL_SPECULAR);
+        putVector4(spec);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setMaterialEmissive(Vector4)}.
+     */
+    public void setMaterialEmissive(@Const Vector4 emm) {
+        command(MATERIAL_EMISSIVE);
+        putVector4(emm);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setMaterialShininess(double)}.
+     */
+    public void setMaterialShininess(double shininess) {
+        command(MATERIAL_SHININESS);
+        putDouble(shininess);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setTexture(int, Sampler)}.
+     */
+    public void setTexture(int tex, Sampler image) {
+        command(TEXTURE);
+        putInt(tex);
+        putObject(image);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setTextureColor(int, Vector4)}.
+     */
+    public void setTextureColor(int tex, @Const Vector4 color) {
+        command(TEXTURE_COLOR);
+        putInt(tex);
+        putVector4(color);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setTextureCoordinateSource(int, TexCoordSource)}.
+     */
+    public void setTextureCoordinateSource(int tex, TexCoordSource gen) {
+        command(TEXTURE_COORD_SOURCE);
+        putInt(tex);
+        putEnum(gen);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setTextureObjectPlanes(int, Matrix4)}.
+     */
+    public void setTextureObjectPlanes(int tex, @Const Matrix4 planes) {
+        command(TEXTURE_OBJECT_PLANES);
+        putInt(tex);
+        putMatrix4(planes);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setTextureEyePlanes(int, Matrix4)}.
+     */
+    public void setTextureEyePlanes(int tex, @Const Matrix4 planes) {
+        command(TEXTURE_EYE_PLANES);
+        putInt(tex);
+        putMatrix4(planes);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setTextureTransform(int, Matrix4)}.
+     */
+    public void setTextureTransform(int tex, @Const Matrix4 matrix) {
+        command(TEXTURE_TRANSFORM);
+        putInt(tex);
+        putMatrix4(matrix);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setTextureCombineRGB(int, CombineFunction,
+     * CombineSource, CombineOperand, CombineSource, CombineOperand, CombineSource, CombineOperand)}.
+     */
+    public void setTextureCombineRGB(int tex, CombineFunction function, CombineSource src0,
+                                     CombineOperand op0, CombineSource src1, CombineOperand op1,
+                                     CombineSource src2, CombineOperand op2) {
+        command(TEXTURE_COMBINE_RGB);
+        putCombine(tex, function, src0, op0, src1, op1, src2, op2);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setTextureCombineAlpha(int, CombineFunction,
+     * CombineSource, CombineOperand, CombineSource, CombineOperand, CombineSource, CombineOperand)}.
+     */
+    public void setTextureCombineAlpha(int tex, CombineFunction function, CombineSource src0,
+                                       CombineOperand op0, CombineSource src1, CombineOperand op1,
+                                       CombineSource src2, CombineOperand op2) {
+        command(TEXTURE_COMBINE_ALPHA);
+        putCombine(tex, function, src0, op0, src1, op1, src2, op2);
+    }
+
+    private void putCombine(int tex, CombineFunction function, CombineSource src0, CombineOperand op0,
+                            CombineSource src1, CombineOperand op1, CombineSource src2,
+                            CombineOperand op2) {
+        putInt(tex);
+        putEnum(function);
+        putEnum(src0);
+        putEnum(op0);
+        putEnum(src1);
+        putEnum(op1);
+        putEnum(src2);
+        putEnum(op2);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setProjectionMatrix(Matrix4)}.
+     */
+    public void setProjectionMatrix(@Const Matrix4 projection) {
+        command(PROJECTION_MATRIX);
+        putMatrix4(projection);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setModelViewMatrix(Matrix4)}.
+     */
+    public void setModelViewMatrix(@Const Matrix4 modelView) {
+        command(MODELVIEW_MATRIX);
+        putMatrix4(modelView);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setVertices(VertexAttribute)}.
+     */
+    public void setVertices(VertexAttribute vertices) {
+        command(VERTICES);
+        putObject(vertices);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setNormals(VertexAttribute)}.
+     */
+    public void setNormals(VertexAttribute normals) {
+        command(NORMALS);
+        putObject(normals);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setColors(VertexAttribute)}.
+     */
+    public void setColors(VertexAttribute colors) {
+        command(COLORS);
+        putObject(colors);
+    }
+
+    /**
+     * Record a call to {@link FixedFunctionRenderer#setTextureCoordinates(int, VertexAttribute)}.
+     */
+    public void setTextureCoordinates(int tex, VertexAttribute texCoords) {
+        command(TEXTURE_COORDINATES);
+        putInt(tex);
+        putObject(texCoords);
+    }
+}
@@ -36,6 +36,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.concurrent.Future;
 
 /**
@@ -91,6 +92,9 @@ public interface Framework extends Destructible {
         public static final String DISABLE_PBUFFER_PROPERTY = "ferox.disable.pbuffer";
         public static final String DISABLE_FBO_PROPERTY = "ferox.disable.fbo";
         public static final String DEBUG_PROPERTY = "ferox.debug";
+        public static final String TASK_QUEUE_CAPACITY_PROPERTY = "ferox.queue.capacity";
+        public static final String UPLOAD_BUDGET_PROPERTY = "ferox.queue.upload.budget";
+        public static final String DESTROY_BUDGET_PROPERTY = "ferox.queue.destroy.budget";
 
         private Factory() {
         }
@@ -162,6 +166,32 @@ public interface Framework extends Destructible {
             System.setProperty(DEBUG_PROPERTY, Boolean.FALSE.toString());
         }
 
+        /**
+         * Configure the task queue of the context thread for frameworks created after this method is
+         * called. Tasks are split into a render lane, an upload lane for resource builders, and a destroy
+         * lane for resource destruction. Each lane holds at most {@code capacity} pending tasks before
+         * producers block. Render tasks have priority; while render tasks are pending, up to {@code
+         * uploadBudget} upload tasks and {@code destroyBudget} destroy tasks are run after each render
+         * task. When no render tasks are pending the other lanes run without limit.
+         *
+         * @param capacity      The maximum number of pending tasks per lane
+         * @param uploadBudget  The number of upload tasks that may run between two render tasks
+         * @param destroyBudget The number of destroy tasks that may run between two render tasks
+         *
+         * @throws IllegalArgumentException if capacity is less than 1, or if either budget is negative
+         */
+        public static void setTaskQueue(int capacity, int uploadBudget, int destroyBudget) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Capacity must be at least 1, not: " + capacity);
+            }
+            if (uploadBudget < 0 || destroyBudget < 0) {
+                throw new IllegalArgumentException("Budgets cannot be negative");
+            }
+            System.setProperty(TASK_QUEUE_CAPACITY_PROPERTY, Integer.toString(capacity));
+            System.setProperty(UPLOAD_BUDGET_PROPERTY, Integer.toString(uploadBudget));
+            System.setProperty(DESTROY_BUDGET_PROPERTY, Integer.toString(destroyBudget));
+        }
+
         public static Framework create() {
             Class<? extends ResourceFactory> resourceFactory = getImplementation(ResourceFactory.class);
             Class<? extends SurfaceFactory> surfaceFactory = getImplementation(SurfaceFactory.class);
@@ -383,6 +413,68 @@ public interface Framework extends Destructible {
      */
     public DepthCubeMapBuilder newDepthCubeMap();
 
+    /**
+     * <p/>
+     * Build every builder in <var>builders</var> within a single task on the framework thread. This avoids a
+     * round trip through the task queue per resource, which dominates the cost of creating many small
+     * resources during start up or when streaming. Each builder's configuration is validated before the task
+     * is queued, and the builders are no longer usable after this returns.
+     * <p/>
+     * The resources are created in the order of the list. If any resource cannot be created, the resources
+     * already created by the batch are destroyed and the returned Future fails with an ExecutionException
+     * whose cause is the ResourceException.
+     *
+     * @param builders The builders to build, all created by this Framework
+     *
+     * @return A Future that completes with the resources, in the same order as <var>builders</var>
+     *
+     * @throws NullPointerException     if builders is null or contains null elements
+     * @throws IllegalArgumentException if a builder was not created by this Framework
+     * @throws IllegalStateException    if a builder was already built, or is in the list twice
+     * @throws ResourceException        if a builder's configuration is invalid
+     */
+    public Future<List<Resource>> buildAll(List<? extends Builder<?>> builders);
+
+    /**
+     * Get the number of bytes of GPU memory held by the live samplers of this Framework. This accounts for
+     * the texel format, every image and every allocated mipmap level. Destroyed samplers are no longer
+     * counted.
+     *
+     * @return The sampler memory in bytes
+     */
+    public long getSamplerMemoryUsage();
+
+    /**
+     * Get the number of bytes of GPU memory held by the live vertex and element buffers of this Framework.
+     * Dynamic buffers that are kept in client memory are not counted.
+     *
+     * @return The buffer memory in bytes
+     */
+    public long getBufferMemoryUsage();
+
+    /**
+     * @return The current memory budget in bytes, 0 if no budget is enforced
+     */
+    public long getMemoryBudget();
+
+    /**
+     * <p/>
+     * Limit the GPU memory used by samplers and buffers. Whenever the combined {@link
+     * #getSamplerMemoryUsage() sampler} and {@link #getBufferMemoryUsage() buffer} memory exceeds the
+     * budget, the policy is asked to choose idle resources that are then destroyed on the framework thread.
+     * The budget is checked when resources are built and when surfaces are flushed. Evicted resources report
+     * true from {@link Resource#isDestroyed()} and must be rebuilt before they can be used again.
+     * <p/>
+     * Shaders are never evicted. A budget of 0 or less, or a null policy, disables eviction; memory usage is
+     * tracked regardless.
+     *
+     * @param bytes  The budget in bytes
+     * @param policy The policy that chooses what to evict
+     *
+     * @see LruEvictionPolicy
+     */
+    public void setMemoryBudget(long bytes, EvictionPolicy policy);
+
     /**
      * Get the capabilities of this Framework. This is allowed to return null after the Framework is destroyed
      * although Frameworks might not behave this way.
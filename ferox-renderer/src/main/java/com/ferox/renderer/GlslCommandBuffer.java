@@ -0,0 +1,833 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer;
+
+import com.ferox.math.*;
+import com.ferox.renderer.impl.AbstractGlslRenderer;
+import com.ferox.renderer.impl.ValidatedGlslRenderer;
+
+/**
+ * GlslCommandBuffer is a {@link CommandBuffer} that records the calls of a {@link GlslRenderer} in addition
+ * to the shared Renderer calls. Uniform and attribute values are validated against the variable's type and
+ * converted to the floats and ints OpenGL consumes when they're recorded, so the values for many draws can
+ * be computed and packed on worker threads. The context thread only checks that the variables belong to the
+ * bound shader and that resources haven't been destroyed before it issues the OpenGL calls.
+ * <p/>
+ * The non-array forms of the uniform and attribute methods are recorded as the array form with an index of
+ * 0, which is how {@link GlslRenderer} defines them. A GlslCommandBuffer can only be replayed by the
+ * GlslRenderer provided by a {@link HardwareAccessLayer}.
+ *
+ * @author Michael Ludwig
+ */
+public class GlslCommandBuffer extends CommandBuffer<GlslRenderer> {
+    private static final int SHADER = FIRST_CUSTOM_COMMAND;
+    private static final int BIND_ATTRIBUTE = FIRST_CUSTOM_COMMAND + 1;
+    private static final int ATTRIBUTE_FLOAT = FIRST_CUSTOM_COMMAND + 2;
+    private static final int ATTRIBUTE_INT = FIRST_CUSTOM_COMMAND + 3;
+    private static final int UNIFORM_FLOAT = FIRST_CUSTOM_COMMAND + 4;
+    private static final int UNIFORM_INT = FIRST_CUSTOM_COMMAND + 5;
+    private static final int UNIFORM_SAMPLER = FIRST_CUSTOM_COMMAND + 6;
+    private static final int ATTRIBUTE_DIVISOR = FIRST_CUSTOM_COMMAND + 7;
+    private static final int RENDER_INSTANCED = FIRST_CUSTOM_COMMAND + 8;
+    private static final int UNIFORM_BLOCK = FIRST_CUSTOM_COMMAND + 9;
+
+    private static final Renderer.PolygonType[] POLYGON_TYPES = Renderer.PolygonType.values();
+
+    // the vector types by component count - 1
+    private static final Shader.VariableType[] FLOAT_TYPES = {
+            Shader.VariableType.FLOAT, Shader.VariableType.VEC2, Shader.VariableType.VEC3,
+            Shader.VariableType.VEC4
+    };
+    private static final Shader.VariableType[] INT_TYPES = {
+            Shader.VariableType.INT, Shader.VariableType.IVEC2, Shader.VariableType.IVEC3,
+            Shader.VariableType.IVEC4
+    };
+    private static final Shader.VariableType[] UINT_TYPES = {
+            Shader.VariableType.UINT, Shader.VariableType.UVEC2, Shader.VariableType.UVEC3,
+            Shader.VariableType.UVEC4
+    };
+    private static final Shader.VariableType[] BOOL_TYPES = {
+            Shader.VariableType.BOOL, Shader.VariableType.BVEC2, Shader.VariableType.BVEC3,
+            Shader.VariableType.BVEC4
+    };
+
+    /**
+     * Replay the recorded commands into the given renderer, see {@link CommandBuffer#replay(Renderer)}.
+     *
+     * @param renderer The renderer to replay into
+     *
+     * @return The number of polygons rendered by the replayed commands
+     *
+     * @throws NullPointerException     if renderer is null
+     * @throws IllegalArgumentException if renderer was not provided by a HardwareAccessLayer
+     */
+    @Override
+    public int replay(GlslRenderer renderer) {
+        if (renderer != null && !(renderer instanceof ValidatedGlslRenderer)) {
+            throw new IllegalArgumentException("GlslCommandBuffer must be replayed by the renderer of a " +
+                                               "HardwareAccessLayer");
+        }
+        return super.replay(renderer);
+    }
+
+    @Override
+    protected int replay(int command, GlslRenderer renderer) {
+        ValidatedGlslRenderer r = (ValidatedGlslRenderer) renderer;
+        switch (command) {
+        case SHADER:
+            r.setShader((Shader) nextObject());
+            break;
+        case BIND_ATTRIBUTE:
+            r.bindValidatedAttribute((Shader.Attribute) nextObject(), nextInt(), nextInt(),
+                                     (VertexAttribute) nextObject());
+            break;
+        case ATTRIBUTE_FLOAT: {
+            Shader.Attribute var = (Shader.Attribute) nextObject();
+            r.setValidatedAttribute(var, nextInt(), getFloats(),
+                                    nextFloats(4 * var.getType().getColumnCount()));
+            break;
+        }
+        case ATTRIBUTE_INT:
+            r.setValidatedAttribute((Shader.Attribute) nextObject(), nextInt(), getInts(), nextInts(4));
+            break;
+        case UNIFORM_FLOAT: {
+            Shader.Uniform var = (Shader.Uniform) nextObject();
+            r.setValidatedUniform(var, nextInt(), getFloats(),
+                                  nextFloats(var.getType().getPrimitiveCount()));
+            break;
+        }
+        case UNIFORM_INT: {
+            Shader.Uniform var = (Shader.Uniform) nextObject();
+            r.setValidatedUniform(var, nextInt(), getInts(), nextInts(var.getType().getPrimitiveCount()));
+            break;
+        }
+        case UNIFORM_SAMPLER:
+            r.setValidatedUniform((Shader.Uniform) nextObject(), nextInt(), (Sampler) nextObject());
+            break;
+        case ATTRIBUTE_DIVISOR:
+            r.setAttributeArrayDivisor((Shader.Attribute) nextObject(), nextInt(), nextInt());
+            break;
+        case RENDER_INSTANCED:
+            return r.render(POLYGON_TYPES[nextInt()], nextInt(), nextInt(), nextInt());
+        case UNIFORM_BLOCK:
+            r.setUniformBlock((Shader.UniformBlock) nextObject(), (UniformBlockData) nextObject());
+            break;
+        default:
+            throw new IllegalStateException("Unknown command: " + command);
+        }
+        return 0;
+    }
+
+    private static void checkUniform(Shader.Uniform var, int index) {
+        if (var == null) {
+            throw new NullPointerException("Uniform cannot be null");
+        }
+        if (index < 0 || var.getLength() <= index) {
+            throw new IndexOutOfBoundsException("Index is outside of usable uniform length");
+        }
+    }
+
+    private static void checkAttribute(Shader.Attribute var, int index) {
+        if (var == null) {
+            throw new NullPointerException("Attribute cannot be null");
+        }
+        if (index < 0 || var.getLength() <= index) {
+            throw new IndexOutOfBoundsException("Index is outside of usable attribute length");
+        }
+    }
+
+    private static void checkType(Shader.Variable var, Shader.VariableType type, String kind) {
+        if (var.getType() != type) {
+            throw new IllegalArgumentException(kind + " must have a type of " + type);
+        }
+    }
+
+    private void variable(int command, Object var, int index) {
+        command(command);
+        putObject(var);
+        putInt(index);
+    }
+
+    // start a command whose values are written to getFloats() at the returned offset
+    private int floatVariable(int command, Object var, int index, int count) {
+        variable(command, var, index);
+        return reserveFloats(count);
+    }
+
+    private static void putColumn(float[] values, int offset, double v1, double v2, double v3, double v4) {
+        values[offset] = (float) v1;
+        values[offset + 1] = (float) v2;
+        values[offset + 2] = (float) v3;
+        values[offset + 3] = (float) v4;
+    }
+
+    private void intAttribute(Shader.Attribute var, int index, int size, int v1, int v2, int v3, int v4) {
+        checkAttribute(var, index);
+        if (var.getType() != INT_TYPES[size - 1] && var.getType() != UINT_TYPES[size - 1]) {
+            throw new IllegalArgumentException("Attribute must have a type of " + INT_TYPES[size - 1] +
+                                               " or " + UINT_TYPES[size - 1]);
+        }
+
+        variable(ATTRIBUTE_INT, var, index);
+        putInt(v1);
+        putInt(v2);
+        putInt(v3);
+        putInt(v4);
+    }
+
+    private void intUniform(Shader.Uniform var, int index, int size, int v1, int v2, int v3, int v4) {
+        checkUniform(var, index);
+        if (var.getType() != INT_TYPES[size - 1] && var.getType() != UINT_TYPES[size - 1] &&
+            var.getType() != BOOL_TYPES[size - 1]) {
+            throw new IllegalArgumentException("Uniform must have a type of " + INT_TYPES[size - 1] + ", " +
+                                               UINT_TYPES[size - 1] + ", or " + BOOL_TYPES[size - 1]);
+        }
+
+        variable(UNIFORM_INT, var, index);
+        putInt(v1);
+        if (size > 1) {
+            putInt(v2);
+        }
+        if (size > 2) {
+            putInt(v3);
+        }
+        if (size > 3) {
+            putInt(v4);
+        }
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setShader(Shader)}.
+     */
+    public void setShader(Shader shader) {
+        command(SHADER);
+        putObject(shader);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#bindAttribute(Shader.Attribute, VertexAttribute)}.
+     */
+    public void bindAttribute(Shader.Attribute var, VertexAttribute attr) {
+        bindAttributeArray(var, 0, 0, attr);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#bindAttribute(Shader.Attribute, int, VertexAttribute)}.
+     */
+    public void bindAttribute(Shader.Attribute var, int column, VertexAttribute attr) {
+        bindAttributeArray(var, 0, column, attr);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#bindAttributeArray(Shader.Attribute, int, VertexAttribute)}.
+     */
+    public void bindAttributeArray(Shader.Attribute var, int index, VertexAttribute attr) {
+        bindAttributeArray(var, index, 0, attr);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#bindAttributeArray(Shader.Attribute, int, int, VertexAttribute)}.
+     */
+    public void bindAttributeArray(Shader.Attribute var, int index, int column, VertexAttribute attr) {
+        checkAttribute(var, index);
+        if (column < 0 || var.getType().getColumnCount() <= column) {
+            throw new IllegalArgumentException("GLSL attribute with a type of " + var.getType() +
+                                               " cannot use " + (column + 1) + " columns");
+        }
+        if (attr != null) {
+            AbstractGlslRenderer.validateBufferType(var.getType(), attr);
+        }
+
+        variable(BIND_ATTRIBUTE, var, index);
+        putInt(column);
+        putObject(attr);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeDivisor(Shader.Attribute, int)}.
+     */
+    public void setAttributeDivisor(Shader.Attribute var, int divisor) {
+        setAttributeArrayDivisor(var, 0, divisor);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArrayDivisor(Shader.Attribute, int, int)}.
+     */
+    public void setAttributeArrayDivisor(Shader.Attribute var, int index, int divisor) {
+        if (divisor < 0) {
+            throw new IllegalArgumentException("Divisor must be at least 0, not: " + divisor);
+        }
+        checkAttribute(var, index);
+
+        variable(ATTRIBUTE_DIVISOR, var, index);
+        putInt(divisor);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#render(Renderer.PolygonType, int, int, int)}.
+     */
+    public void render(Renderer.PolygonType polyType, int offset, int count, int instanceCount) {
+        if (instanceCount < 0) {
+            throw new IllegalArgumentException("Instance count must be at least 0, not: " + instanceCount);
+        }
+        checkRange(offset, count);
+
+        command(RENDER_INSTANCED);
+        putEnum(polyType);
+        putInt(offset);
+        putInt(count);
+        putInt(instanceCount);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttribute(Shader.Attribute, double)}.
+     */
+    public void setAttribute(Shader.Attribute var, double val) {
+        setAttributeArray(var, 0, val);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttribute(Shader.Attribute, double, double)}.
+     */
+    public void setAttribute(Shader.Attribute var, double v1, double v2) {
+        setAttributeArray(var, 0, v1, v2);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttribute(Shader.Attribute, Vector3)}.
+     */
+    public void setAttribute(Shader.Attribute var, @Const Vector3 v) {
+        setAttributeArray(var, 0, v);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttribute(Shader.Attribute, Vector4)}.
+     */
+    public void setAttribute(Shader.Attribute var, @Const Vector4 v) {
+        setAttributeArray(var, 0, v);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttribute(Shader.Attribute, double, double, double, double)}.
+     */
+    public void setAttribute(Shader.Attribute var, double m00, double m01, double m10, double m11) {
+        setAttributeArray(var, 0, m00, m01, m10, m11);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttribute(Shader.Attribute, Matrix3)}.
+     */
+    public void setAttribute(Shader.Attribute var, @Const Matrix3 v) {
+        setAttributeArray(var, 0, v);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttribute(Shader.Attribute, Matrix4)}.
+     */
+    public void setAttribute(Shader.Attribute var, @Const Matrix4 v) {
+        setAttributeArray(var, 0, v);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttribute(Shader.Attribute, int)}.
+     */
+    public void setAttribute(Shader.Attribute var, int val) {
+        setAttributeArray(var, 0, val);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttribute(Shader.Attribute, int, int)}.
+     */
+    public void setAttribute(Shader.Attribute var, int v1, int v2) {
+        setAttributeArray(var, 0, v1, v2);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttribute(Shader.Attribute, int, int, int)}.
+     */
+    public void setAttribute(Shader.Attribute var, int v1, int v2, int v3) {
+        setAttributeArray(var, 0, v1, v2, v3);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttribute(Shader.Attribute, int, int, int, int)}.
+     */
+    public void setAttribute(Shader.Attribute var, int v1, int v2, int v3, int v4) {
+        setAttributeArray(var, 0, v1, v2, v3, v4);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArray(Shader.Attribute, int, double)}.
+     */
+    public void setAttributeArray(Shader.Attribute var, int index, double val) {
+        checkAttribute(var, index);
+        checkType(var, Shader.VariableType.FLOAT, "Attribute");
+
+        int offset = floatVariable(ATTRIBUTE_FLOAT, var, index, 4);
+        putColumn(getFloats(), offset, val, 0, 0, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArray(Shader.Attribute, int, double, double)}.
+     */
+    public void setAttributeArray(Shader.Attribute var, int index, double v1, double v2) {
+        checkAttribute(var, index);
+        checkType(var, Shader.VariableType.VEC2, "Attribute");
+
+        int offset = floatVariable(ATTRIBUTE_FLOAT, var, index, 4);
+        putColumn(getFloats(), offset, v1, v2, 0, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArray(Shader.Attribute, int, Vector3)}.
+     */
+    public void setAttributeArray(Shader.Attribute var, int index, @Const Vector3 v) {
+        checkAttribute(var, index);
+        checkType(var, Shader.VariableType.VEC3, "Attribute");
+
+        int offset = floatVariable(ATTRIBUTE_FLOAT, var, index, 4);
+        putColumn(getFloats(), offset, v.x, v.y, v.z, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArray(Shader.Attribute, int, Vector4)}.
+     */
+    public void setAttributeArray(Shader.Attribute var, int index, @Const Vector4 v) {
+        setAttributeArray(var, index, v.x, v.y, v.z, v.w);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArray(Shader.Attribute, int, double, double, double,
+     * double)}.
+     */
+    public void setAttributeArray(Shader.Attribute var, int index, double m00, double m01, double m10,
+                                  double m11) {
+        checkAttribute(var, index);
+        if (var.getType() == Shader.VariableType.VEC4) {
+            int offset = floatVariable(ATTRIBUTE_FLOAT, var, index, 4);
+            putColumn(getFloats(), offset, m00, m01, m10, m11);
+        } else if (var.getType() == Shader.VariableType.MAT2) {
+            int offset = floatVariable(ATTRIBUTE_FLOAT, var, index, 8);
+            putColumn(getFloats(), offset, m00, m01, 0, 0);
+            putColumn(getFloats(), offset + 4, m10, m11, 0, 0);
+        } else {
+            throw new IllegalArgumentException("Attribute must have a type of VEC4 or MAT2");
+        }
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArray(Shader.Attribute, int, Matrix3)}.
+     */
+    public void setAttributeArray(Shader.Attribute var, int index, @Const Matrix3 v) {
+        checkAttribute(var, index);
+        checkType(var, Shader.VariableType.MAT3, "Attribute");
+        if (v == null) {
+            throw new NullPointerException("Matrix argument cannot be null");
+        }
+
+        int offset = floatVariable(ATTRIBUTE_FLOAT, var, index, 12);
+        float[] values = getFloats();
+        putColumn(values, offset, v.m00, v.m01, v.m02, 0);
+        putColumn(values, offset + 4, v.m10, v.m11, v.m12, 0);
+        putColumn(values, offset + 8, v.m20, v.m21, v.m22, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArray(Shader.Attribute, int, Matrix4)}.
+     */
+    public void setAttributeArray(Shader.Attribute var, int index, @Const Matrix4 v) {
+        checkAttribute(var, index);
+        checkType(var, Shader.VariableType.MAT4, "Attribute");
+        if (v == null) {
+            throw new NullPointerException("Matrix argument cannot be null");
+        }
+
+        int offset = floatVariable(ATTRIBUTE_FLOAT, var, index, 16);
+        float[] values = getFloats();
+        putColumn(values, offset, v.m00, v.m01, v.m02, v.m03);
+        putColumn(values, offset + 4, v.m10, v.m11, v.m12, v.m13);
+        putColumn(values, offset + 8, v.m20, v.m21, v.m22, v.m23);
+        putColumn(values, offset + 12, v.m30, v.m31, v.m32, v.m33);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArray(Shader.Attribute, int, int)}.
+     */
+    public void setAttributeArray(Shader.Attribute var, int index, int val) {
+        intAttribute(var, index, 1, val, 0, 0, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArray(Shader.Attribute, int, int, int)}.
+     */
+    public void setAttributeArray(Shader.Attribute var, int index, int v1, int v2) {
+        intAttribute(var, index, 2, v1, v2, 0, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArray(Shader.Attribute, int, int, int, int)}.
+     */
+    public void setAttributeArray(Shader.Attribute var, int index, int v1, int v2, int v3) {
+        intAttribute(var, index, 3, v1, v2, v3, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setAttributeArray(Shader.Attribute, int, int, int, int, int)}.
+     */
+    public void setAttributeArray(Shader.Attribute var, int index, int v1, int v2, int v3, int v4) {
+        intAttribute(var, index, 4, v1, v2, v3, v4);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, double)}.
+     */
+    public void setUniform(Shader.Uniform var, double val) {
+        setUniformArray(var, 0, val);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, double, double)}.
+     */
+    public void setUniform(Shader.Uniform var, double v1, double v2) {
+        setUniformArray(var, 0, v1, v2);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, Vector3)}.
+     */
+    public void setUniform(Shader.Uniform var, @Const Vector3 v) {
+        setUniformArray(var, 0, v);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, Vector4)}.
+     */
+    public void setUniform(Shader.Uniform var, @Const Vector4 v) {
+        setUniformArray(var, 0, v);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, double, double, double, double)}.
+     */
+    public void setUniform(Shader.Uniform var, double m00, double m01, double m10, double m11) {
+        setUniformArray(var, 0, m00, m01, m10, m11);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, Matrix3)}.
+     */
+    public void setUniform(Shader.Uniform var, @Const Matrix3 v) {
+        setUniformArray(var, 0, v);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, Matrix4)}.
+     */
+    public void setUniform(Shader.Uniform var, @Const Matrix4 v) {
+        setUniformArray(var, 0, v);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, int)}.
+     */
+    public void setUniform(Shader.Uniform var, int val) {
+        setUniformArray(var, 0, val);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, int, int)}.
+     */
+    public void setUniform(Shader.Uniform var, int v1, int v2) {
+        setUniformArray(var, 0, v1, v2);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, int, int, int)}.
+     */
+    public void setUniform(Shader.Uniform var, int v1, int v2, int v3) {
+        setUniformArray(var, 0, v1, v2, v3);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, int, int, int, int)}.
+     */
+    public void setUniform(Shader.Uniform var, int v1, int v2, int v3, int v4) {
+        setUniformArray(var, 0, v1, v2, v3, v4);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, boolean)}.
+     */
+    public void setUniform(Shader.Uniform var, boolean val) {
+        setUniformArray(var, 0, val);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, boolean, boolean)}.
+     */
+    public void setUniform(Shader.Uniform var, boolean v1, boolean v2) {
+        setUniformArray(var, 0, v1, v2);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, boolean, boolean, boolean)}.
+     */
+    public void setUniform(Shader.Uniform var, boolean v1, boolean v2, boolean v3) {
+        setUniformArray(var, 0, v1, v2, v3);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, boolean, boolean, boolean, boolean)}.
+     */
+    public void setUniform(Shader.Uniform var, boolean v1, boolean v2, boolean v3, boolean v4) {
+        setUniformArray(var, 0, v1, v2, v3, v4);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, Sampler)}.
+     */
+    public void setUniform(Shader.Uniform var, Sampler texture) {
+        setUniformArray(var, 0, texture);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, ColorRGB)}.
+     */
+    public void setUniform(Shader.Uniform var, @Const ColorRGB color) {
+        setUniformArray(var, 0, color);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniform(Shader.Uniform, ColorRGB, boolean)}.
+     */
+    public void setUniform(Shader.Uniform var, @Const ColorRGB color, boolean isHDR) {
+        setUniformArray(var, 0, color, isHDR);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, double)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, double val) {
+        checkUniform(var, index);
+        checkType(var, Shader.VariableType.FLOAT, "Uniform");
+
+        int offset = floatVariable(UNIFORM_FLOAT, var, index, 1);
+        getFloats()[offset] = (float) val;
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, double, double)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, double v1, double v2) {
+        checkUniform(var, index);
+        checkType(var, Shader.VariableType.VEC2, "Uniform");
+
+        int offset = floatVariable(UNIFORM_FLOAT, var, index, 2);
+        float[] values = getFloats();
+        values[offset] = (float) v1;
+        values[offset + 1] = (float) v2;
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, Vector3)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, @Const Vector3 v) {
+        setUniformArray(var, index, v.x, v.y, v.z);
+    }
+
+    private void setUniformArray(Shader.Uniform var, int index, double x, double y, double z) {
+        checkUniform(var, index);
+        checkType(var, Shader.VariableType.VEC3, "Uniform");
+
+        int offset = floatVariable(UNIFORM_FLOAT, var, index, 3);
+        float[] values = getFloats();
+        values[offset] = (float) x;
+        values[offset + 1] = (float) y;
+        values[offset + 2] = (float) z;
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, Vector4)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, @Const Vector4 v) {
+        setUniformArray(var, index, v.x, v.y, v.z, v.w);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, double, double, double,
+     * double)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, double m00, double m01, double m10,
+                                double m11) {
+        checkUniform(var, index);
+        if (var.getType() != Shader.VariableType.VEC4 && var.getType() != Shader.VariableType.MAT2) {
+            throw new IllegalArgumentException("Uniform must have a type of VEC4 or MAT2");
+        }
+
+        int offset = floatVariable(UNIFORM_FLOAT, var, index, 4);
+        putColumn(getFloats(), offset, m00, m01, m10, m11);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, Matrix3)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, @Const Matrix3 v) {
+        checkUniform(var, index);
+        checkType(var, Shader.VariableType.MAT3, "Uniform");
+        if (v == null) {
+            throw new NullPointerException("Matrix argument cannot be null");
+        }
+
+        int offset = floatVariable(UNIFORM_FLOAT, var, index, 9);
+        v.get(getFloats(), offset, false);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, Matrix4)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, @Const Matrix4 v) {
+        checkUniform(var, index);
+        checkType(var, Shader.VariableType.MAT4, "Uniform");
+        if (v == null) {
+            throw new NullPointerException("Matrix argument cannot be null");
+        }
+
+        int offset = floatVariable(UNIFORM_FLOAT, var, index, 16);
+        v.get(getFloats(), offset, false);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, int)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, int val) {
+        intUniform(var, index, 1, val, 0, 0, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, int, int)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, int v1, int v2) {
+        intUniform(var, index, 2, v1, v2, 0, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, int, int, int)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, int v1, int v2, int v3) {
+        intUniform(var, index, 3, v1, v2, v3, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, int, int, int, int)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, int v1, int v2, int v3, int v4) {
+        intUniform(var, index, 4, v1, v2, v3, v4);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, boolean)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, boolean val) {
+        intUniform(var, index, 1, val ? 1 : 0, 0, 0, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, boolean, boolean)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, boolean v1, boolean v2) {
+        intUniform(var, index, 2, v1 ? 1 : 0, v2 ? 1 : 0, 0, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, boolean, boolean, boolean)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, boolean v1, boolean v2, boolean v3) {
+        intUniform(var, index, 3, v1 ? 1 : 0, v2 ? 1 : 0, v3 ? 1 : 0, 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, boolean, boolean, boolean,
+     * boolean)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, boolean v1, boolean v2, boolean v3,
+                                boolean v4) {
+        intUniform(var, index, 4, v1 ? 1 : 0, v2 ? 1 : 0, v3 ? 1 : 0, v4 ? 1 : 0);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, Sampler)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, Sampler texture) {
+        checkUniform(var, index);
+        if (var.getType().getPrimitiveType() != null) {
+            throw new IllegalArgumentException("Uniform type must be a SAMPLER variety");
+        }
+        if (texture != null) {
+            AbstractGlslRenderer.validateSamplerType(var.getType(), texture);
+        }
+
+        variable(UNIFORM_SAMPLER, var, index);
+        putObject(texture);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, ColorRGB)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, @Const ColorRGB color) {
+        setUniformArray(var, index, color, false);
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformArray(Shader.Uniform, int, ColorRGB, boolean)}.
+     */
+    public void setUniformArray(Shader.Uniform var, int index, @Const ColorRGB color, boolean isHDR) {
+        if (isHDR) {
+            setUniformArray(var, index, color.redHDR(), color.greenHDR(), color.blueHDR());
+        } else {
+            setUniformArray(var, index, color.red(), color.green(), color.blue());
+        }
+    }
+
+    /**
+     * Record a call to {@link GlslRenderer#setUniformBlock(Shader.UniformBlock, UniformBlockData)}.
+     */
+    public void setUniformBlock(Shader.UniformBlock block, UniformBlockData data) {
+        if (block == null) {
+            throw new NullPointerException("Uniform block cannot be null");
+        }
+        if (data != null && data.getSize() < block.getSize()) {
+            throw new IllegalArgumentException("Data size (" + data.getSize() +
+                                               ") is too small for uniform block size (" + block.getSize() +
+                                               ")");
+        }
+
+        command(UNIFORM_BLOCK);
+        putObject(block);
+        // copy the data since it is mutable, the copy keeps the cached hash code so replay is just as fast
+        putObject(data == null ? null : new UniformBlockData(data));
+    }
+}
@@ -71,7 +71,7 @@ public interface GlslRenderer extends Renderer {
      * <p/>
      * Each shader has its own set of attributes and uniforms, so after activating the shader it is important
      * to bind all attributes and assign uniform values. Binding a new shader unbinds all vertex arrays that
-     * were previously attached to the old attributes.
+     * were previously attached to the old attributes and resets every attribute divisor to 0.
      * <p/>
      * Shaders remember the last state of their uniforms but not their attributes. Thus, setting uniform
      * values and then binding another shader, and then restoring the original shader will preserve the
@@ -603,6 +603,43 @@ public interface GlslRenderer extends Renderer {
      */
     public void bindAttributeArray(Shader.Attribute var, int index, int column, VertexAttribute attr);
 
+    /**
+     * Set the instance divisor of the given attribute. A divisor of 0, the default, advances the attribute
+     * once per vertex. A positive divisor advances the attribute once every <var>divisor</var> instances
+     * when rendering with {@link #render(Renderer.PolygonType, int, int, int)}, so the bound VertexBuffer
+     * holds per-instance data. The divisor applies to every column of matrix attributes and is independent
+     * of the VertexAttribute bound to the variable, so it stays in effect when rebinding, until the shader is
+     * changed.
+     * <p/>
+     * This is equivalent to calling {@link #setAttributeArrayDivisor(Shader.Attribute, int, int)} with an
+     * index of 0.
+     *
+     * @param var     The variable whose divisor is set
+     * @param divisor The number of instances that share each value, or 0 for per-vertex data
+     *
+     * @throws NullPointerException          if var is null
+     * @throws IllegalArgumentException      if divisor is negative, or var is not from the current shader
+     * @throws UnsupportedOperationException if divisor is not 0 and instancing is not supported
+     * @see Capabilities#hasInstancingSupport()
+     */
+    public void setAttributeDivisor(Shader.Attribute var, int divisor);
+
+    /**
+     * Set the instance divisor for the specified <var>index</var> within the attribute array. If the
+     * attribute is not an array it must be 0. In all other aspects this is equivalent to {@link
+     * #setAttributeDivisor(Shader.Attribute, int)}.
+     *
+     * @param var     The variable whose divisor is set
+     * @param index   The array index into variable
+     * @param divisor The number of instances that share each value, or 0 for per-vertex data
+     *
+     * @throws NullPointerException          if var is null
+     * @throws IllegalArgumentException      if divisor is negative, or var is not from the current shader
+     * @throws IndexOutOfBoundsException     if index is out of bounds for the defined variable
+     * @throws UnsupportedOperationException if divisor is not 0 and instancing is not supported
+     */
+    public void setAttributeArrayDivisor(Shader.Attribute var, int index, int divisor);
+
     /**
      * Bind the constant value to the specified {@code index} within the attribute array. The array index must
      * be at least 0 and less than the length of the variable. If the attribute is not an array it must be 0.
@@ -1039,4 +1076,50 @@ public interface GlslRenderer extends Renderer {
      * @throws IndexOutOfBoundsException if index is out of bounds for the defined variable
      */
     public void setUniformArray(Shader.Uniform var, int index, @Const ColorRGB color, boolean isHDR);
+
+    /**
+     * Source the values of every member of <var>block</var> from <var>data</var> with a single call. This
+     * replaces setting each member individually, so a block of per-material or per-frame values can be
+     * assigned once per draw. Block assignments are reset and their buffers unbound whenever the shader is
+     * changed.
+     * <p/>
+     * The renderer keeps a bounded cache of uploaded block contents keyed by the data's hash code and
+     * contents. Data that is equal to the data already assigned to the block is ignored, and data that has
+     * been assigned recently is bound again without re-uploading it. The data is copied, so it can be
+     * modified after this call returns without affecting the block.
+     *
+     * @param block The block to assign
+     * @param data  The packed values for the block, or null to clear the assignment
+     *
+     * @throws NullPointerException     if block is null
+     * @throws IllegalArgumentException if block is not from the current shader, or data is not sized for the
+     *                                  block
+     * @see Capabilities#getMaxUniformBlockBindings()
+     */
+    public void setUniformBlock(Shader.UniformBlock block, UniformBlockData data);
+
+    /**
+     * Render <var>instanceCount</var> instances of the polygons described by <var>offset</var> and
+     * <var>count</var>, as if {@link #render(Renderer.PolygonType, int, int)} were called once per instance
+     * but in a single draw call. Attributes with a non-zero {@link #setAttributeDivisor(Shader.Attribute,
+     * int) divisor} read their per-instance values from their bound VertexBuffer, and shaders can use
+     * gl_InstanceID to distinguish instances.
+     * <p/>
+     * An instance count of 1 is identical to the non-instanced render call and is always supported. An
+     * instance count of 0 renders nothing.
+     *
+     * @param polyType      The type of polygon to render
+     * @param offset        The index of the first vertex to render
+     * @param count         The number of vertices to render per instance
+     * @param instanceCount The number of instances to render
+     *
+     * @return The number of polygons rendered, across all instances
+     *
+     * @throws NullPointerException          if polyType is null
+     * @throws IllegalArgumentException      if offset, count or instanceCount are negative
+     * @throws UnsupportedOperationException if instanceCount is greater than 1 and instancing is not
+     *                                       supported
+     * @see Capabilities#hasInstancingSupport()
+     */
+    public int render(PolygonType polyType, int offset, int count, int instanceCount);
 }
@@ -0,0 +1,99 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LruEvictionPolicy evicts the least recently used resources first until enough memory has been freed.
+ * Resources that have been used more recently than a minimum idle time are never evicted, which keeps
+ * everything referenced by the current frame resident even when the budget cannot be met.
+ *
+ * @author Michael Ludwig
+ */
+public class LruEvictionPolicy implements EvictionPolicy {
+    private static final Comparator<Candidate> LEAST_RECENT_FIRST = new Comparator<Candidate>() {
+        @Override
+        public int compare(Candidate o1, Candidate o2) {
+            return Long.compare(o2.getIdleTime(), o1.getIdleTime());
+        }
+    };
+
+    private final long minIdleTime;
+
+    /**
+     * Create a policy that only evicts resources that have not been used for at least one second.
+     */
+    public LruEvictionPolicy() {
+        this(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Create a policy that only evicts resources that have not been used for at least the given time.
+     *
+     * @param minIdleTime The minimum idle time
+     * @param unit        The unit of minIdleTime
+     *
+     * @throws IllegalArgumentException if minIdleTime is negative
+     * @throws NullPointerException     if unit is null
+     */
+    public LruEvictionPolicy(long minIdleTime, TimeUnit unit) {
+        if (minIdleTime < 0) {
+            throw new IllegalArgumentException("Minimum idle time cannot be negative: " + minIdleTime);
+        }
+        this.minIdleTime = unit.toNanos(minIdleTime);
+    }
+
+    /**
+     * @return The minimum idle time in nanoseconds before a resource can be evicted
+     */
+    public long getMinIdleTime() {
+        return minIdleTime;
+    }
+
+    @Override
+    public List<Candidate> selectEvictions(List<Candidate> candidates, long bytesOverBudget) {
+        List<Candidate> sorted = new ArrayList<>(candidates);
+        Collections.sort(sorted, LEAST_RECENT_FIRST);
+
+        List<Candidate> evict = new ArrayList<>();
+        long freed = 0;
+        for (Candidate c : sorted) {
+            if (freed >= bytesOverBudget || c.getIdleTime() < minIdleTime) {
+                // everything after this was used more recently
+                break;
+            }
+            evict.add(c);
+            freed += c.getMemorySize();
+        }
+        return evict;
+    }
+}
@@ -198,10 +198,76 @@ public interface Shader extends Resource {
     public static interface Attribute extends Variable {
     }
 
+    /**
+     * Variable type representing a member of a named uniform block. Members do not have uniform locations,
+     * their values are read from the buffer bound to the block. The index of a member is its active uniform
+     * index within the program.
+     */
+    public static interface BlockMember extends Variable {
+        /**
+         * @return The byte offset of the first element of the member from the start of the block
+         */
+        public int getOffset();
+
+        /**
+         * @return The number of bytes between consecutive elements of an array member, or 0 if the member is
+         * not an array
+         */
+        public int getArrayStride();
+
+        /**
+         * @return The number of bytes between the columns of a matrix member, or 0 if the member is not a
+         * matrix
+         */
+        public int getMatrixStride();
+    }
+
+    /**
+     * UniformBlock represents a named block of uniforms whose values are sourced from a buffer instead of
+     * being assigned individually. The layout of the block is determined when the shader is linked, and data
+     * is packed to match the layout with a {@link UniformBlockData}. Blocks declared with the std140 layout
+     * have the same layout in every shader, so the same data can be used with each of them.
+     *
+     * @see GlslRenderer#setUniformBlock(Shader.UniformBlock, UniformBlockData)
+     */
+    public static interface UniformBlock {
+        /**
+         * @return The block name as declared in the glsl code, which is not the instance name
+         */
+        public String getName();
+
+        /**
+         * @return The compiled index of the block within the program, which is also its binding point
+         */
+        public int getIndex();
+
+        /**
+         * @return The minimum number of bytes required to hold the data of the block
+         */
+        public int getSize();
+
+        /**
+         * @return All active members of the block, ordered by their offset
+         */
+        public List<? extends BlockMember> getMembers();
+
+        /**
+         * Get the member with the given {@code name}, following the same naming rules as {@link
+         * Shader#getUniform(String)}. If the block was declared with an instance name, the member names are
+         * prefixed by the block name, e.g. 'Lights.position'. This will return null if there is no matching
+         * member.
+         *
+         * @param name The member name
+         * @return The BlockMember for the given name, or null if it doesn't exist
+         */
+        public BlockMember getMember(String name);
+    }
+
     /**
      * Get the detected uniforms from the linked shader. These are the uniforms reported by OpenGL. Unused
      * uniforms that have been compiled away will not be included. The returned list will have expanded out
-     * all struct members into individual uniform objects.
+     * all struct members into individual uniform objects. Uniforms declared within a uniform block are not
+     * included, they are reported by {@link #getUniformBlocks()}.
      *
      * @return All uniforms used in the shader, ordered by their compiled index
      */
@@ -246,6 +312,23 @@ public interface Shader extends Resource {
      */
     public Attribute getAttribute(String name);
 
+    /**
+     * Get the active uniform blocks of the linked shader. This will be empty if the shader declares no
+     * blocks, or if {@link Capabilities#getMaxUniformBlockBindings()} is 0.
+     *
+     * @return All uniform blocks used by the shader, ordered by their compiled index
+     */
+    public List<? extends UniformBlock> getUniformBlocks();
+
+    /**
+     * Get the uniform block with the given block {@code name}. This will return null if there is no matching
+     * block.
+     *
+     * @param name The block name
+     * @return The UniformBlock for the given name, or null if it doesn't exist
+     */
+    public UniformBlock getUniformBlock(String name);
+
     /**
      * Get the mapping from fragment shader output variable to the indexed color buffer. New versions support
      * defining custom output variables, in which case the mapping must have been specified by {@link
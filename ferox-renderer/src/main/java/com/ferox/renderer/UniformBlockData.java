@@ -0,0 +1,640 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer;
+
+import com.ferox.math.Const;
+import com.ferox.math.Matrix3;
+import com.ferox.math.Matrix4;
+import com.ferox.math.Vector3;
+import com.ferox.math.Vector4;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * UniformBlockData is the CPU-side storage for the values of a {@link Shader.UniformBlock}. Values are packed
+ * directly into a native ByteBuffer using the offsets and strides reported by the block's members, so the
+ * buffer can be sent to OpenGL as is. Matrices are stored in column-major order, the default for uniform
+ * blocks, and booleans are stored as 32-bit integers.
+ * <p/>
+ * The data can be used with any block that has the same layout as the block it was created from, which is
+ * guaranteed for blocks declared with the std140 layout. The members passed to the setters are not
+ * otherwise validated against the block.
+ * <p/>
+ * Equality and the hash code are based on the packed contents. The GlslRenderer relies on this to skip
+ * uploads of data it has seen before. The hash code is cached until the next modification, so instances
+ * should not be mutated while they are used as keys in a hash-based collection.
+ * <p/>
+ * UniformBlockData is not thread safe.
+ *
+ * @author Michael Ludwig
+ */
+public class UniformBlockData {
+    private final ByteBuffer data;
+
+    private int hash;
+    private boolean hashValid;
+
+    /**
+     * Create a new UniformBlockData that is sized to hold the given block. All values are initially 0.
+     *
+     * @param layout The block whose layout is used
+     *
+     * @throws NullPointerException if layout is null
+     */
+    public UniformBlockData(Shader.UniformBlock layout) {
+        if (layout == null) {
+            throw new NullPointerException("Uniform block cannot be null");
+        }
+        data = ByteBuffer.allocateDirect(layout.getSize()).order(ByteOrder.nativeOrder());
+        hashValid = false;
+    }
+
+    /**
+     * Create a new UniformBlockData that is a copy of {@code data}.
+     *
+     * @param data The data to copy
+     *
+     * @throws NullPointerException if data is null
+     */
+    public UniformBlockData(UniformBlockData data) {
+        if (data == null) {
+            throw new NullPointerException("Data to copy cannot be null");
+        }
+        this.data = ByteBuffer.allocateDirect(data.getSize()).order(ByteOrder.nativeOrder());
+        this.data.put(data.data.duplicate()).clear();
+        hash = data.hash;
+        hashValid = data.hashValid;
+    }
+
+    /**
+     * @return The size of the packed data, in bytes
+     */
+    public int getSize() {
+        return data.capacity();
+    }
+
+    /**
+     * Get a read-only view of the packed data. The returned buffer's position is 0 and its limit is {@link
+     * #getSize()}. It reflects later modifications to this data.
+     *
+     * @return The packed data
+     */
+    public ByteBuffer getData() {
+        return data.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Copy the packed contents of {@code data} into this data.
+     *
+     * @param data The data to copy
+     *
+     * @throws NullPointerException     if data is null
+     * @throws IllegalArgumentException if data is not the same size as this data
+     */
+    public void set(UniformBlockData data) {
+        if (data == null) {
+            throw new NullPointerException("Data to copy cannot be null");
+        }
+        if (data.getSize() != getSize()) {
+            throw new IllegalArgumentException("Data to copy must be " + getSize() + " bytes, not " +
+                                               data.getSize());
+        }
+        if (data != this) {
+            this.data.put(data.data.duplicate()).clear();
+            hash = data.hash;
+            hashValid = data.hashValid;
+        }
+    }
+
+    /**
+     * Set the value of the member when its type is FLOAT. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, double)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param val The new value
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not FLOAT
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, double val) {
+        setArray(var, 0, val);
+    }
+
+    /**
+     * Set the value of the member when its type is VEC2. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, double, double)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param v1  The first component of the vector
+     * @param v2  The second component of the vector
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not VEC2
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, double v1, double v2) {
+        setArray(var, 0, v1, v2);
+    }
+
+    /**
+     * Set the value of the member when its type is VEC3. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, Vector3)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param v   The new vector value
+     *
+     * @throws NullPointerException      if var or v is null
+     * @throws IllegalArgumentException  if the member's type is not VEC3
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, @Const Vector3 v) {
+        setArray(var, 0, v);
+    }
+
+    /**
+     * Set the value of the member when its type is VEC4. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, Vector4)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param v   The new vector value
+     *
+     * @throws NullPointerException      if var or v is null
+     * @throws IllegalArgumentException  if the member's type is not VEC4
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, @Const Vector4 v) {
+        setArray(var, 0, v);
+    }
+
+    /**
+     * Set the value of the member when its type is MAT2. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, double, double, double, double)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param m00 The matrix value at the 1st row and 1st column
+     * @param m01 The matrix value at the 1st row and 2nd column
+     * @param m10 The matrix value at the 2nd row and 1st column
+     * @param m11 The matrix value at the 2nd row and 2nd column
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not MAT2
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, double m00, double m01, double m10, double m11) {
+        setArray(var, 0, m00, m01, m10, m11);
+    }
+
+    /**
+     * Set the value of the member when its type is MAT3. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, Matrix3)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param val The new matrix value
+     *
+     * @throws NullPointerException      if var or val is null
+     * @throws IllegalArgumentException  if the member's type is not MAT3
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, @Const Matrix3 val) {
+        setArray(var, 0, val);
+    }
+
+    /**
+     * Set the value of the member when its type is MAT4. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, Matrix4)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param val The new matrix value
+     *
+     * @throws NullPointerException      if var or val is null
+     * @throws IllegalArgumentException  if the member's type is not MAT4
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, @Const Matrix4 val) {
+        setArray(var, 0, val);
+    }
+
+    /**
+     * Set the value of the member when its type is INT, UINT or BOOL. Booleans are stored as integers, so
+     * boolean members can be assigned 1 or 0 with this as well. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, int)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param val The integer value
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not INT, UINT or BOOL
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, int val) {
+        setArray(var, 0, val);
+    }
+
+    /**
+     * Set the value of the member when its type is IVEC2, UVEC2 or BVEC2. Booleans are stored as integers, so
+     * boolean members can be assigned 1 or 0 with this as well. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, int, int)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param v1  The first component of the vector
+     * @param v2  The second component of the vector
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not IVEC2, UVEC2 or BVEC2
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, int v1, int v2) {
+        setArray(var, 0, v1, v2);
+    }
+
+    /**
+     * Set the value of the member when its type is IVEC3, UVEC3 or BVEC3. Booleans are stored as integers, so
+     * boolean members can be assigned 1 or 0 with this as well. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, int, int, int)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param v1  The first component of the vector
+     * @param v2  The second component of the vector
+     * @param v3  The third component of the vector
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not IVEC3, UVEC3 or BVEC3
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, int v1, int v2, int v3) {
+        setArray(var, 0, v1, v2, v3);
+    }
+
+    /**
+     * Set the value of the member when its type is IVEC4, UVEC4 or BVEC4. Booleans are stored as integers, so
+     * boolean members can be assigned 1 or 0 with this as well. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, int, int, int, int)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param v1  The first component of the vector
+     * @param v2  The second component of the vector
+     * @param v3  The third component of the vector
+     * @param v4  The fourth component of the vector
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not IVEC4, UVEC4 or BVEC4
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, int v1, int v2, int v3, int v4) {
+        setArray(var, 0, v1, v2, v3, v4);
+    }
+
+    /**
+     * Set the value of the member when its type is BOOL. This is equivalent to {@link
+     * #setArray(Shader.BlockMember, int, boolean)} with an index of 0.
+     *
+     * @param var The member to assign
+     * @param val The boolean value, stored as 1 or 0
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not BOOL
+     * @throws IndexOutOfBoundsException if the member does not fit within this data
+     */
+    public void set(Shader.BlockMember var, boolean val) {
+        setArray(var, 0, val);
+    }
+
+    /**
+     * Set the value of a FLOAT member at the given array index. The index must be at least 0 and less than
+     * the length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param val   The new value
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not FLOAT
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, double val) {
+        int offset = offset(var, index, Shader.VariableType.FLOAT);
+        data.putFloat(offset, (float) val);
+    }
+
+    /**
+     * Set the value of a VEC2 member at the given array index. The index must be at least 0 and less than the
+     * length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param v1    The first component of the vector
+     * @param v2    The second component of the vector
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not VEC2
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, double v1, double v2) {
+        int offset = offset(var, index, Shader.VariableType.VEC2);
+        data.putFloat(offset, (float) v1);
+        data.putFloat(offset + 4, (float) v2);
+    }
+
+    /**
+     * Set the value of a VEC3 member at the given array index. The index must be at least 0 and less than the
+     * length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param v     The new vector value
+     *
+     * @throws NullPointerException      if var or v is null
+     * @throws IllegalArgumentException  if the member's type is not VEC3
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, @Const Vector3 v) {
+        int offset = offset(var, index, Shader.VariableType.VEC3);
+        data.putFloat(offset, (float) v.x);
+        data.putFloat(offset + 4, (float) v.y);
+        data.putFloat(offset + 8, (float) v.z);
+    }
+
+    /**
+     * Set the value of a VEC4 member at the given array index. The index must be at least 0 and less than the
+     * length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param v     The new vector value
+     *
+     * @throws NullPointerException      if var or v is null
+     * @throws IllegalArgumentException  if the member's type is not VEC4
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, @Const Vector4 v) {
+        int offset = offset(var, index, Shader.VariableType.VEC4);
+        data.putFloat(offset, (float) v.x);
+        data.putFloat(offset + 4, (float) v.y);
+        data.putFloat(offset + 8, (float) v.z);
+        data.putFloat(offset + 12, (float) v.w);
+    }
+
+    /**
+     * Set the value of a MAT2 member at the given array index. The index must be at least 0 and less than the
+     * length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param m00   The matrix value at the 1st row and 1st column
+     * @param m01   The matrix value at the 1st row and 2nd column
+     * @param m10   The matrix value at the 2nd row and 1st column
+     * @param m11   The matrix value at the 2nd row and 2nd column
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not MAT2
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, double m00, double m01, double m10,
+                         double m11) {
+        int offset = offset(var, index, Shader.VariableType.MAT2);
+        int stride = var.getMatrixStride();
+        data.putFloat(offset, (float) m00);
+        data.putFloat(offset + 4, (float) m10);
+        data.putFloat(offset + stride, (float) m01);
+        data.putFloat(offset + stride + 4, (float) m11);
+    }
+
+    /**
+     * Set the value of a MAT3 member at the given array index. The index must be at least 0 and less than the
+     * length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param val   The new matrix value
+     *
+     * @throws NullPointerException      if var or val is null
+     * @throws IllegalArgumentException  if the member's type is not MAT3
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, @Const Matrix3 val) {
+        int offset = offset(var, index, Shader.VariableType.MAT3);
+        int stride = var.getMatrixStride();
+        for (int c = 0; c < 3; c++) {
+            for (int r = 0; r < 3; r++) {
+                data.putFloat(offset + c * stride + r * 4, (float) val.get(r, c));
+            }
+        }
+    }
+
+    /**
+     * Set the value of a MAT4 member at the given array index. The index must be at least 0 and less than the
+     * length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param val   The new matrix value
+     *
+     * @throws NullPointerException      if var or val is null
+     * @throws IllegalArgumentException  if the member's type is not MAT4
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, @Const Matrix4 val) {
+        int offset = offset(var, index, Shader.VariableType.MAT4);
+        int stride = var.getMatrixStride();
+        for (int c = 0; c < 4; c++) {
+            for (int r = 0; r < 4; r++) {
+                data.putFloat(offset + c * stride + r * 4, (float) val.get(r, c));
+            }
+        }
+    }
+
+    /**
+     * Set the value of a INT, UINT or BOOL member at the given array index. Booleans are stored as integers,
+     * so boolean members can be assigned 1 or 0 with this as well. The index must be at least 0 and less than
+     * the length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param val   The integer value
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not INT, UINT or BOOL
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, int val) {
+        int offset = offset(var, index, 1);
+        data.putInt(offset, val);
+    }
+
+    /**
+     * Set the value of a IVEC2, UVEC2 or BVEC2 member at the given array index. Booleans are stored as
+     * integers, so boolean members can be assigned 1 or 0 with this as well. The index must be at least 0 and
+     * less than the length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param v1    The first component of the vector
+     * @param v2    The second component of the vector
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not IVEC2, UVEC2 or BVEC2
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, int v1, int v2) {
+        int offset = offset(var, index, 2);
+        data.putInt(offset, v1);
+        data.putInt(offset + 4, v2);
+    }
+
+    /**
+     * Set the value of a IVEC3, UVEC3 or BVEC3 member at the given array index. Booleans are stored as
+     * integers, so boolean members can be assigned 1 or 0 with this as well. The index must be at least 0 and
+     * less than the length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param v1    The first component of the vector
+     * @param v2    The second component of the vector
+     * @param v3    The third component of the vector
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not IVEC3, UVEC3 or BVEC3
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, int v1, int v2, int v3) {
+        int offset = offset(var, index, 3);
+        data.putInt(offset, v1);
+        data.putInt(offset + 4, v2);
+        data.putInt(offset + 8, v3);
+    }
+
+    /**
+     * Set the value of a IVEC4, UVEC4 or BVEC4 member at the given array index. Booleans are stored as
+     * integers, so boolean members can be assigned 1 or 0 with this as well. The index must be at least 0 and
+     * less than the length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param v1    The first component of the vector
+     * @param v2    The second component of the vector
+     * @param v3    The third component of the vector
+     * @param v4    The fourth component of the vector
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not IVEC4, UVEC4 or BVEC4
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, int v1, int v2, int v3, int v4) {
+        int offset = offset(var, index, 4);
+        data.putInt(offset, v1);
+        data.putInt(offset + 4, v2);
+        data.putInt(offset + 8, v3);
+        data.putInt(offset + 12, v4);
+    }
+
+    /**
+     * Set the value of a BOOL member at the given array index. The index must be at least 0 and less than the
+     * length of the member, and it must be 0 if the member is not an array.
+     *
+     * @param var   The member to assign
+     * @param index The array index into the member
+     * @param val   The boolean value, stored as 1 or 0
+     *
+     * @throws NullPointerException      if var is null
+     * @throws IllegalArgumentException  if the member's type is not BOOL
+     * @throws IndexOutOfBoundsException if index is out of bounds for the member, or the member does not fit
+     *                                   within this data
+     */
+    public void setArray(Shader.BlockMember var, int index, boolean val) {
+        int offset = offset(var, index, Shader.VariableType.BOOL);
+        data.putInt(offset, val ? 1 : 0);
+    }
+
+    private int offset(Shader.BlockMember var, int index, Shader.VariableType type) {
+        if (var == null) {
+            throw new NullPointerException("Block member cannot be null");
+        }
+        if (var.getType() != type) {
+            throw new IllegalArgumentException("Block member must have a type of " + type);
+        }
+        return offset(var, index);
+    }
+
+    private int offset(Shader.BlockMember var, int index, int rowCount) {
+        if (var == null) {
+            throw new NullPointerException("Block member cannot be null");
+        }
+        Shader.VariableType type = var.getType();
+        if (type.getRowCount() != rowCount || type.getColumnCount() != 1 ||
+            (type.getPrimitiveType() != DataType.INT && type.getPrimitiveType() != DataType.UNSIGNED_INT)) {
+            throw new IllegalArgumentException("Block member must be an integer type with " + rowCount +
+                                               " components, not " + type);
+        }
+        return offset(var, index);
+    }
+
+    private int offset(Shader.BlockMember var, int index) {
+        if (index < 0 || index >= var.getLength()) {
+            throw new IndexOutOfBoundsException("Index is outside of usable member length");
+        }
+        Shader.VariableType type = var.getType();
+        int offset = var.getOffset() + index * var.getArrayStride();
+        int extent = (type.getColumnCount() - 1) * var.getMatrixStride() + type.getRowCount() * 4;
+        if (offset < 0 || offset + extent > data.capacity()) {
+            throw new IndexOutOfBoundsException("Block member does not fit within the data");
+        }
+
+        hashValid = false;
+        return offset;
+    }
+
+    @Override
+    public int hashCode() {
+        if (!hashValid) {
+            hash = data.hashCode();
+            hashValid = true;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof UniformBlockData)) {
+            return false;
+        }
+        UniformBlockData d = (UniformBlockData) o;
+        return d == this || (d.hashCode() == hashCode() && d.data.equals(data));
+    }
+}
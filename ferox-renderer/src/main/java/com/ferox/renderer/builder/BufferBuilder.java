@@ -40,4 +40,17 @@ public interface BufferBuilder<B extends BufferBuilder<B>> {
      * @return The builder
      */
     public B dynamic();
+
+    /**
+     * Configure the builder to create a buffer that is replaced every frame, such as particles or CPU skinned
+     * vertices. The buffer is stored in a GPU buffer object with a streaming usage hint. When the entire
+     * buffer is refreshed, its previous storage is orphaned before the new data is pushed so the driver can
+     * hand out fresh memory instead of waiting for draws that still read the old contents. Refreshes of
+     * {@link com.ferox.renderer.Buffer#markDirty(int, int) marked ranges} update the buffer in place.
+     * <p/>
+     * This replaces any earlier call to {@link #dynamic()}, and calling dynamic() replaces streaming().
+     *
+     * @return The builder
+     */
+    public B streaming();
 }
@@ -28,10 +28,12 @@ package com.ferox.renderer.builder;
 
 import com.ferox.renderer.Resource;
 
+import java.util.concurrent.Future;
+
 /**
  * Builder is the interface inherited by all resource builders, although the sub-interfaces of builder provide
  * the actual configuration points tied to each resource type. A Builder instance can only be used once. After
- * {@link #build()} has been called it is no longer usable.
+ * {@link #build()} or {@link #buildAsync()} has been called it is no longer usable.
  *
  * @author Michael Ludwig
  */
@@ -52,4 +54,22 @@ public interface Builder<T extends Resource> {
      * @throws IllegalStateException                if build() is called a second time
      */
     public T build();
+
+    /**
+     * Construct the resource that was configured by the builder without blocking the calling thread. The
+     * builder's configuration is validated immediately, but the resource is created on the framework thread
+     * after any previously queued tasks. The calling thread can continue preparing the data for other
+     * resources while the GPU upload is pending. If this is called on the framework thread, the resource is
+     * created immediately and the returned Future has already completed.
+     * <p/>
+     * The Future's get() method throws an ExecutionException whose cause is the ResourceException that
+     * {@link #build()} would have thrown.
+     *
+     * @return A Future that completes with the new resource
+     *
+     * @throws com.ferox.renderer.ResourceException if the builder's configuration is invalid
+     * @throws IllegalStateException                if a build method was already called
+     * @see com.ferox.renderer.Framework#buildAll(java.util.List)
+     */
+    public Future<T> buildAsync();
 }
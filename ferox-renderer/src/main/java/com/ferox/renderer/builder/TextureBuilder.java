@@ -30,6 +30,8 @@ import com.ferox.math.ColorRGB;
 import com.ferox.math.Const;
 import com.ferox.math.Vector4;
 
+import java.nio.ByteBuffer;
+
 /**
  * TextureBuilder is the base builder for all {@link com.ferox.renderer.Texture} resources. Like {@link
  * SamplerBuilder} it is not an actual builder but provides the common configuration of the resource before
@@ -206,6 +208,16 @@ public interface TextureBuilder<T extends TextureBuilder<T>> extends SamplerBuil
          * @param data The data array
          */
         public void fromDXT1(byte[] data);
+
+        /**
+         * Specify the image data as a buffer holding DXT1 compressed bytes without alpha transparency. This
+         * behaves like {@link #fromDXT1(byte[])} except that the bytes between the buffer's position and
+         * limit are used. A direct buffer, such as a slice of a memory-mapped file, is uploaded as is without
+         * an intermediate copy. The buffer must not be modified until the texture has been built.
+         *
+         * @param data The data buffer
+         */
+        public void fromDXT1(ByteBuffer data);
     }
 
     /**
@@ -223,6 +235,14 @@ public interface TextureBuilder<T extends TextureBuilder<T>> extends SamplerBuil
          */
         public void fromDXT1(byte[] data);
 
+        /**
+         * Specify the image data as a buffer holding DXT1 compressed bytes with alpha transparency, with the
+         * same requirements as {@link CompressedRGBData#fromDXT1(ByteBuffer)}.
+         *
+         * @param data The data buffer
+         */
+        public void fromDXT1(ByteBuffer data);
+
         /**
          * Specify the image data array with the assumption that the byte data is stored in the DXT3
          * compressed format. The data type will be {@link com.ferox.renderer.DataType#UNSIGNED_BYTE} and the
@@ -232,6 +252,14 @@ public interface TextureBuilder<T extends TextureBuilder<T>> extends SamplerBuil
          */
         public void fromDXT3(byte[] data);
 
+        /**
+         * Specify the image data as a buffer holding DXT3 compressed bytes, with the same
+         * requirements as {@link CompressedRGBData#fromDXT1(ByteBuffer)}.
+         *
+         * @param data The data buffer
+         */
+        public void fromDXT3(ByteBuffer data);
+
         /**
          * Specify the image data array with the assumption that the byte data is stored in the DXT5
          * compressed format. The data type will be {@link com.ferox.renderer.DataType#UNSIGNED_BYTE} and the
@@ -240,6 +268,14 @@ public interface TextureBuilder<T extends TextureBuilder<T>> extends SamplerBuil
          * @param data The data array
          */
         public void fromDXT5(byte[] data);
+
+        /**
+         * Specify the image data as a buffer holding DXT5 compressed bytes, with the same
+         * requirements as {@link CompressedRGBData#fromDXT1(ByteBuffer)}.
+         *
+         * @param data The data buffer
+         */
+        public void fromDXT5(ByteBuffer data);
     }
 
     /**
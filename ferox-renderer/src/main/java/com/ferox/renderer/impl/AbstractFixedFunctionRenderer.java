@@ -621,6 +621,7 @@ public abstract class AbstractFixedFunctionRenderer extends AbstractRenderer
             }
 
             TextureImpl.TextureHandle newImage = ((TextureImpl) image).getHandle();
+            newImage.markUsed();
             enableTexture(tex, newImage);
             context.bindTexture(tex, newImage);
         }
@@ -956,6 +957,7 @@ public abstract class AbstractFixedFunctionRenderer extends AbstractRenderer
     private void setAttribute(VertexState vertex, BufferImpl.BufferHandle vbo, int offset, int stride,
                               int elementSize) {
         if (vbo != null) {
+            vbo.markUsed();
             // We are setting a new vertex attribute
             boolean accessDiffers = (vertex.offset != offset ||
                                      vertex.stride != stride ||
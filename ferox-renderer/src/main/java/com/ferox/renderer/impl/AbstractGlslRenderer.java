@@ -32,12 +32,10 @@ import com.ferox.renderer.impl.resources.BufferImpl;
 import com.ferox.renderer.impl.resources.ShaderImpl;
 import com.ferox.renderer.impl.resources.TextureImpl;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * <p/>
@@ -54,21 +52,46 @@ import java.util.Set;
  *
  * @author Michael Ludwig
  */
-public abstract class AbstractGlslRenderer extends AbstractRenderer implements GlslRenderer {
+public abstract class AbstractGlslRenderer extends AbstractRenderer implements ValidatedGlslRenderer {
+    // the number of distinct uniform block contents kept uploaded, the least recently bound unbound buffer is
+    // recycled once this is reached
+    private static final int UNIFORM_BUFFER_CACHE_SIZE = 64;
+
     protected final ShaderOnlyState state;
     protected final ShaderOnlyState defaultState;
 
+    private final boolean instancingSupport;
+
+    // access ordered so iteration starts with the least recently bound contents
+    private final LinkedHashMap<UniformBlockData, UniformBuffer> uniformBuffers;
+
     /**
-     * Create a new glsl renderer for the given context.
+     * Create a new glsl renderer for the given context that does not support instancing or uniform blocks.
      *
      * @param context             The context using the renderer
      * @param delegate            The delegate completing the implementation
      * @param numVertexAttributes The number of vertex attributes to support
      */
     public AbstractGlslRenderer(OpenGLContext context, RendererDelegate delegate, int numVertexAttributes) {
+        this(context, delegate, numVertexAttributes, false, 0);
+    }
+
+    /**
+     * Create a new glsl renderer for the given context.
+     *
+     * @param context                 The context using the renderer
+     * @param delegate                The delegate completing the implementation
+     * @param numVertexAttributes     The number of vertex attributes to support
+     * @param instancingSupport       True if instanced rendering and attribute divisors are available
+     * @param numUniformBlockBindings The number of uniform block binding points to support
+     */
+    public AbstractGlslRenderer(OpenGLContext context, RendererDelegate delegate, int numVertexAttributes,
+                                boolean instancingSupport, int numUniformBlockBindings) {
         super(context, delegate);
-        state = new ShaderOnlyState(numVertexAttributes);
+        this.instancingSupport = instancingSupport;
+        state = new ShaderOnlyState(numVertexAttributes, numUniformBlockBindings);
         defaultState = new ShaderOnlyState(state);
+        uniformBuffers = new LinkedHashMap<>(16, .75f, true);
     }
 
     private void validate(ShaderImpl.UniformImpl u, int index) {
@@ -144,6 +167,11 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
                                   a.intAttrValues[2], a.intAttrValues[3]);
                 }
             }
+            setDivisor(state.attributes[i], a.divisor);
+        }
+
+        for (int i = 0; i < shaderState.uniformBlocks.length; i++) {
+            bindUniformBlock(i, shaderState.uniformBlocks[i]);
         }
 
         if (delegate.state.shader != null && uniformState != null) {
@@ -277,6 +305,17 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
         }
 
         if (wipeAttrs) {
+            // the new shader's blocks can have different layouts, so the assignments must be made again;
+            // the buffers are unbound too so that the cache never recycles a buffer that is still bound
+            for (int i = 0; i < state.uniformBlocks.length; i++) {
+                bindUniformBlock(i, null);
+            }
+
+            // divisors are attribute state, which is not remembered by a shader
+            for (int a = 0; a < state.attributes.length; a++) {
+                setDivisor(state.attributes[a], 0);
+            }
+
             if (delegate.state.shader == null) {
                 // mostly serves to unbind prior attribute buffers
                 for (int a = 0; a < state.attributes.length; a++) {
@@ -372,57 +411,122 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
         }
         validate((ShaderImpl.AttributeImpl) attribute, index);
 
-        ShaderOnlyState.AttributeState a = state.attributes[ix(attribute, index, column)];
+        if (attr != null) {
+            validateBufferType(attribute.getType(), attr);
+        }
+        bindValidatedAttribute(attribute, index, column, attr);
+    }
+
+    @Override
+    public void bindValidatedAttribute(Shader.Attribute var, int index, int column, VertexAttribute attr) {
+        validate((ShaderImpl.AttributeImpl) var, index);
+
+        ShaderOnlyState.AttributeState a = state.attributes[ix(var, index, column)];
         if (attr != null) {
             if (attr.getVBO().isDestroyed()) {
                 throw new ResourceException("Cannot use a destroyed resource");
             }
 
-            // validate buffer type consistent with attribute type
-            switch (attribute.getType().getPrimitiveType()) {
-            case FLOAT:
-                if (!attr.getVBO().getDataType().isDecimalNumber()) {
-                    throw new IllegalArgumentException("Floating point attributes must use buffers with decimal data");
-                }
-                break;
-            case UNSIGNED_INT:
-                if (attr.getVBO().getDataType().isDecimalNumber()) {
-                    throw new IllegalArgumentException("Unsigned integer attributes cannot use buffers with decimal data");
-                }
-                if (attr.getVBO().getDataType().isSigned()) {
-                    throw new IllegalArgumentException("Unsigned integer attributes cannot use buffers with signed data");
-                }
-                break;
-            default: // INT
-                if (attr.getVBO().getDataType().isDecimalNumber()) {
-                    throw new IllegalArgumentException("Signed integer attributes cannot use buffers with decimal data");
-                }
-                if (!attr.getVBO().getDataType().isSigned()) {
-                    throw new IllegalArgumentException("Signed integer attributes cannot use buffers with unsigned data");
-                }
-                break;
-            }
-
             BufferImpl.BufferHandle newVBO = ((BufferImpl) attr.getVBO()).getHandle();
+            newVBO.markUsed();
             bindAttributeHandle(a, newVBO, attr.getOffset(), attr.getStride(), attr.getElementSize());
         } else {
             if (a.vbo != null) {
                 // set a good default attribute value
-                switch (attribute.getType().getPrimitiveType()) {
+                switch (var.getType().getPrimitiveType()) {
                 case FLOAT:
-                    bindAttribute(a, attribute.getType().getRowCount(), 0f, 0f, 0f, 0f);
+                    bindAttribute(a, var.getType().getRowCount(), 0f, 0f, 0f, 0f);
                     break;
                 case UNSIGNED_INT:
-                    bindAttribute(a, attribute.getType().getRowCount(), true, 0, 0, 0, 0);
+                    bindAttribute(a, var.getType().getRowCount(), true, 0, 0, 0, 0);
                     break;
                 default: // INT
-                    bindAttribute(a, attribute.getType().getRowCount(), false, 0, 0, 0, 0);
+                    bindAttribute(a, var.getType().getRowCount(), false, 0, 0, 0, 0);
                     break;
                 }
             }
         }
     }
 
+    /**
+     * Validate that the data type of a vertex attribute's buffer is consistent with the type of the shader
+     * attribute it's bound to.
+     *
+     * @param type The type of the shader attribute
+     * @param attr The vertex attribute
+     *
+     * @throws IllegalArgumentException if the buffer's data type can't be used by the attribute
+     */
+    public static void validateBufferType(Shader.VariableType type, VertexAttribute attr) {
+        switch (type.getPrimitiveType()) {
+        case FLOAT:
+            if (!attr.getVBO().getDataType().isDecimalNumber()) {
+                throw new IllegalArgumentException("Floating point attributes must use buffers " +
+                                                   "with decimal data");
+            }
+            break;
+        case UNSIGNED_INT:
+            if (attr.getVBO().getDataType().isDecimalNumber()) {
+                throw new IllegalArgumentException("Unsigned integer attributes cannot use buffers " +
+                                                   "with decimal data");
+            }
+            if (attr.getVBO().getDataType().isSigned()) {
+                throw new IllegalArgumentException("Unsigned integer attributes cannot use buffers " +
+                                                   "with signed data");
+            }
+            break;
+        default: // INT
+            if (attr.getVBO().getDataType().isDecimalNumber()) {
+                throw new IllegalArgumentException("Signed integer attributes cannot use buffers " +
+                                                   "with decimal data");
+            }
+            if (!attr.getVBO().getDataType().isSigned()) {
+                throw new IllegalArgumentException("Signed integer attributes cannot use buffers " +
+                                                   "with unsigned data");
+            }
+            break;
+        }
+    }
+
+    @Override
+    public void setAttributeDivisor(Shader.Attribute var, int divisor) {
+        setAttributeArrayDivisor(var, 0, divisor);
+    }
+
+    @Override
+    public void setAttributeArrayDivisor(Shader.Attribute var, int index, int divisor) {
+        if (var == null) {
+            throw new NullPointerException("Attribute can't be null");
+        }
+        if (divisor < 0) {
+            throw new IllegalArgumentException("Divisor must be at least 0, not: " + divisor);
+        }
+        if (divisor != 0 && !instancingSupport) {
+            throw new UnsupportedOperationException("Attribute divisors require instancing support");
+        }
+        validate((ShaderImpl.AttributeImpl) var, index);
+
+        // matrix attributes occupy a generic attribute per column, which all advance together
+        for (int i = 0; i < var.getType().getColumnCount(); i++) {
+            setDivisor(state.attributes[ix(var, index, i)], divisor);
+        }
+    }
+
+    private void setDivisor(ShaderOnlyState.AttributeState a, int divisor) {
+        if (a.divisor != divisor) {
+            a.divisor = divisor;
+            glAttributeDivisor(a.index, divisor);
+        }
+    }
+
+    @Override
+    public int render(PolygonType polyType, int offset, int count, int instanceCount) {
+        if (instanceCount > 1 && !instancingSupport) {
+            throw new UnsupportedOperationException("Multiple instances require instancing support");
+        }
+        return delegate.render(polyType, offset, count, instanceCount);
+    }
+
     private void bindAttributeHandle(ShaderOnlyState.AttributeState a, BufferImpl.BufferHandle handle,
                                      int offset, int stride, int elementSize) {
         boolean accessDiffers = (a.offset != offset ||
@@ -518,7 +622,7 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
 
     @Override
     public void setAttributeArray(Shader.Attribute attr, int index, @Const Vector4 v) {
-        setAttribute(attr, v.x, v.y, v.z, v.w);
+        setAttributeArray(attr, index, v.x, v.y, v.z, v.w);
     }
 
     @Override
@@ -563,8 +667,8 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
         if (attr == null) {
             throw new NullPointerException("Attribute cannot be null");
         }
-        if (attr.getType() != Shader.VariableType.MAT3) {
-            throw new IllegalArgumentException("Attribute must have a type of MAT3");
+        if (attr.getType() != Shader.VariableType.MAT4) {
+            throw new IllegalArgumentException("Attribute must have a type of MAT4");
         }
         validate((ShaderImpl.AttributeImpl) attr, index);
 
@@ -789,8 +893,8 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
 
         prepBuffer(u.floatValues, index, u.getType());
         int offset = index * u.getType().getPrimitiveCount();
-        if (!u.initialized || u.floatValues.get(offset) != v1 || u.floatValues.get(offset + 1) != v1 ||
-            u.floatValues.get(offset + 2) != v2 || u.floatValues.get(offset + 3) != v3) {
+        if (!u.initialized || u.floatValues.get(offset) != v1 || u.floatValues.get(offset + 1) != v2 ||
+            u.floatValues.get(offset + 2) != v3 || u.floatValues.get(offset + 3) != v4) {
             u.initialized = true;
             u.floatValues.put(offset, (float) v1);
             u.floatValues.put(offset + 1, (float) v2);
@@ -1011,7 +1115,15 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
         setUniformArray(var, index, v1 ? 1 : 0, v2 ? 1 : 0, v3 ? 1 : 0, v4 ? 1 : 0);
     }
 
-    private void validateSamplerType(Shader.VariableType type, Sampler texture) {
+    /**
+     * Validate that a texture can be used by a sampler uniform of the given type.
+     *
+     * @param type    The type of the sampler uniform
+     * @param texture The texture, must not be null
+     *
+     * @throws IllegalArgumentException if the texture's class or data type doesn't match the sampler type
+     */
+    public static void validateSamplerType(Shader.VariableType type, Sampler texture) {
         switch (type) {
         case SAMPLER_1D:
             if (!(texture instanceof Texture1D)) {
@@ -1225,7 +1337,16 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
         if (var.getType().getPrimitiveType() != null) {
             throw new IllegalArgumentException("Uniform type must be a SAMPLER variety");
         }
+        validate((ShaderImpl.UniformImpl) var, index);
 
+        if (texture != null) {
+            validateSamplerType(var.getType(), texture);
+        }
+        setValidatedUniform(var, index, texture);
+    }
+
+    @Override
+    public void setValidatedUniform(Shader.Uniform var, int index, Sampler texture) {
         ShaderImpl.UniformImpl u = (ShaderImpl.UniformImpl) var;
         validate(u, index);
 
@@ -1236,7 +1357,7 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
             }
 
             TextureImpl.TextureHandle handle = ((TextureImpl) texture).getHandle();
-            validateSamplerType(var.getType(), texture);
+            handle.markUsed();
 
             if (handle != u.textures[index]) {
                 context.bindTexture(textureUnit, handle);
@@ -1250,6 +1371,139 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
         }
     }
 
+    @Override
+    public void setValidatedUniform(Shader.Uniform var, int index, float[] values, int offset) {
+        ShaderImpl.UniformImpl u = (ShaderImpl.UniformImpl) var;
+        validate(u, index);
+
+        prepBuffer(u.floatValues, index, u.getType());
+        int count = u.getType().getPrimitiveCount();
+        int start = index * count;
+        boolean changed = !u.initialized;
+        for (int i = 0; i < count; i++) {
+            if (u.floatValues.get(start + i) != values[offset + i]) {
+                u.floatValues.put(start + i, values[offset + i]);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            u.initialized = true;
+            glUniform(ix(u, index), u.getType(), u.floatValues);
+        }
+    }
+
+    @Override
+    public void setValidatedUniform(Shader.Uniform var, int index, int[] values, int offset) {
+        ShaderImpl.UniformImpl u = (ShaderImpl.UniformImpl) var;
+        validate(u, index);
+
+        prepBuffer(u.intValues, index, u.getType());
+        int count = u.getType().getPrimitiveCount();
+        int start = index * count;
+        boolean changed = !u.initialized;
+        for (int i = 0; i < count; i++) {
+            if (u.intValues.get(start + i) != values[offset + i]) {
+                u.intValues.put(start + i, values[offset + i]);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            u.initialized = true;
+            glUniform(ix(u, index), u.getType(), u.intValues);
+        }
+    }
+
+    @Override
+    public void setValidatedAttribute(Shader.Attribute var, int index, float[] values, int offset) {
+        validate((ShaderImpl.AttributeImpl) var, index);
+
+        int rowCount = var.getType().getRowCount();
+        for (int i = 0; i < var.getType().getColumnCount(); i++) {
+            int o = offset + 4 * i;
+            bindAttribute(state.attributes[ix(var, index, i)], rowCount, values[o], values[o + 1],
+                          values[o + 2], values[o + 3]);
+        }
+    }
+
+    @Override
+    public void setValidatedAttribute(Shader.Attribute var, int index, int[] values, int offset) {
+        validate((ShaderImpl.AttributeImpl) var, index);
+
+        boolean unsigned = var.getType().getPrimitiveType() == DataType.UNSIGNED_INT;
+        bindAttribute(state.attributes[ix(var, index, 0)], var.getType().getRowCount(), unsigned,
+                      values[offset], values[offset + 1], values[offset + 2], values[offset + 3]);
+    }
+
+    @Override
+    public void setUniformBlock(Shader.UniformBlock block, UniformBlockData data) {
+        if (block == null) {
+            throw new NullPointerException("Uniform block cannot be null");
+        }
+
+        ShaderImpl.UniformBlockImpl b = (ShaderImpl.UniformBlockImpl) block;
+        if (b.owner != delegate.state.shader) {
+            throw new IllegalArgumentException("Uniform block does not belong to the current shader");
+        }
+        if (data != null && data.getSize() < b.getSize()) {
+            throw new IllegalArgumentException("Data size (" + data.getSize() +
+                                               ") is too small for uniform block size (" + b.getSize() + ")");
+        }
+
+        bindUniformBlock(b.getIndex(), data);
+    }
+
+    private void bindUniformBlock(int binding, UniformBlockData data) {
+        UniformBlockData current = state.uniformBlocks[binding];
+        if (data == null) {
+            if (current != null) {
+                state.uniformBlocks[binding] = null;
+                glBindUniformBuffer(binding, 0);
+            }
+            return;
+        } else if (data.equals(current)) {
+            // the equality check compares the cached hash codes first, so this is cheap when data differs
+            return;
+        }
+
+        UniformBuffer buffer = uniformBuffers.get(data);
+        if (buffer == null) {
+            // first time these contents are seen, or they've been recycled since
+            buffer = new UniformBuffer(new UniformBlockData(data), nextUniformBuffer());
+            glUniformBufferData(buffer.bufferID, buffer.contents.getData());
+            uniformBuffers.put(buffer.contents, buffer);
+        }
+
+        state.uniformBlocks[binding] = buffer.contents;
+        glBindUniformBuffer(binding, buffer.bufferID);
+    }
+
+    private int nextUniformBuffer() {
+        if (uniformBuffers.size() >= UNIFORM_BUFFER_CACHE_SIZE) {
+            Iterator<UniformBuffer> lru = uniformBuffers.values().iterator();
+            while (lru.hasNext()) {
+                UniformBuffer old = lru.next();
+                if (!isBound(old.contents)) {
+                    lru.remove();
+                    return old.bufferID;
+                }
+            }
+        }
+        // the cache is not full, or every buffer is bound because there are more binding points than cache
+        // entries, in which case the cache grows to hold the extras
+        return glGenUniformBuffer();
+    }
+
+    private boolean isBound(UniformBlockData contents) {
+        for (int i = 0; i < state.uniformBlocks.length; i++) {
+            if (state.uniformBlocks[i] == contents) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Set the given uniform's values. The uniform could have any of the INT_ types, the BOOL type or any of
      * the texture sampler type. The buffer will be set to have the correct position and size to read values.
@@ -1276,6 +1530,29 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
     protected abstract void glAttributePointer(int attr, BufferImpl.BufferHandle handle, int offset,
                                                int stride, int elementSize);
 
+    /**
+     * Invoke OpenGL commands to set the instance divisor of the given generic vertex attribute. This is only
+     * called with a non-zero divisor if the renderer was created with instancing support.
+     */
+    protected abstract void glAttributeDivisor(int attr, int divisor);
+
+    /**
+     * Create a new buffer object to hold uniform block data and return its id.
+     */
+    protected abstract int glGenUniformBuffer();
+
+    /**
+     * Replace the entire contents of the given uniform buffer with data. The buffer will have the correct
+     * position and limit to read its values.
+     */
+    protected abstract void glUniformBufferData(int buffer, ByteBuffer data);
+
+    /**
+     * Bind the uniform buffer to the indexed uniform block binding point. A buffer of 0 unbinds the binding
+     * point.
+     */
+    protected abstract void glBindUniformBuffer(int binding, int buffer);
+
     /**
      * Set the generic vertex attribute at attr to the given vector marked by v1, v2, v3, and v4. Depending on
      * rowCount, certain vector values can be ignored (i.e. if rowCount is 3, v4 is meaningless).
@@ -1285,6 +1562,16 @@ public abstract class AbstractGlslRenderer extends AbstractRenderer implements G
     protected abstract void glAttributeValue(int attr, int rowCount, boolean unsigned, int v1, int v2, int v3,
                                              int v4);
 
+    private static class UniformBuffer {
+        private final UniformBlockData contents;
+        private final int bufferID;
+
+        public UniformBuffer(UniformBlockData contents, int bufferID) {
+            this.contents = contents;
+            this.bufferID = bufferID;
+        }
+    }
+
     private static class ShaderState implements ContextState<GlslRenderer> {
         private final ShaderOnlyState shaderState;
         private final SharedState sharedState;
@@ -109,6 +109,20 @@ public abstract class AbstractTextureSurface extends AbstractSurface implements
         return height;
     }
 
+    @Override
+    public void onSurfaceActivate(OpenGLContext context) {
+        super.onSurfaceActivate(context);
+        // rendering into a target counts as using it, so attached textures aren't evicted from under us
+        for (TextureImpl.RenderTargetImpl target : colorTargets) {
+            if (target != null) {
+                target.texture.getHandle().markUsed();
+            }
+        }
+        if (depthTarget != null) {
+            depthTarget.texture.getHandle().markUsed();
+        }
+    }
+
     private int mipDim(int dimension, int mipmap) {
         return Math.max(dimension >> mipmap, 1);
     }
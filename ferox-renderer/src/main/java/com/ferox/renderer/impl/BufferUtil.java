@@ -173,10 +173,32 @@ public class BufferUtil {
         return buffer;
     }
 
+    /**
+     * Create a direct ByteBuffer holding the remaining bytes of <var>data</var>. If <var>data</var> is
+     * already direct, no copy is made and a duplicate sharing its content is returned, so memory-mapped
+     * buffers can be handed to OpenGL as is. The returned buffer will have its position at 0 and limit at the
+     * number of remaining bytes.
+     *
+     * @param data The ByteBuffer that fills the returned buffer
+     *
+     * @return A direct ByteBuffer
+     *
+     * @throws NullPointerException if data is null
+     */
+    public static ByteBuffer newBuffer(ByteBuffer data) {
+        if (data.isDirect()) {
+            return data.slice();
+        } else {
+            ByteBuffer buffer = newByteBuffer(DataType.BYTE, data.remaining());
+            buffer.put(data.duplicate()).clear();
+            return buffer;
+        }
+    }
+
     /**
      * Create a new ByteBuffer from the primitive array. The array instance must be a {@code int[]}, {@code
-     * short[]}, {@code byte[]}, or {@code float[]}. The exact interpretation of the primitives is
-     * irrelevant.
+     * short[]}, {@code byte[]}, or {@code float[]}. The exact interpretation of the primitives is irrelevant.
+     * A {@link ByteBuffer} is also accepted for byte data, see {@link #newBuffer(ByteBuffer)}.
      *
      * @param array The primitive to clone into an NIO buffer
      *
@@ -185,7 +207,9 @@ public class BufferUtil {
      * @throws IllegalArgumentException if the array isn't an expected buffer array type
      */
     public static ByteBuffer newBuffer(Object array) {
-        if (array instanceof float[]) {
+        if (array instanceof ByteBuffer) {
+            return newBuffer((ByteBuffer) array);
+        } else if (array instanceof float[]) {
             return newBuffer((float[]) array);
         } else if (array instanceof int[]) {
             return newBuffer((int[]) array);
@@ -198,9 +222,91 @@ public class BufferUtil {
         }
     }
 
+    /**
+     * Create a new ByteBuffer holding the elements of the primitive array from <var>offset</var> to
+     * <var>offset + length - 1</var>. The array may be any type supported by {@link #newBuffer(Object)}, and
+     * the offset and length are measured in elements of the array. For a ByteBuffer they are measured in
+     * bytes relative to its position. The returned buffer will have its position at 0 and limit at the
+     * capacity.
+     *
+     * @param array  The primitive array to copy from
+     * @param offset The first element to copy
+     * @param length The number of elements to copy
+     *
+     * @return A new direct ByteBuffer
+     *
+     * @throws IllegalArgumentException if the array isn't an expected buffer array type
+     */
+    public static ByteBuffer newBuffer(Object array, int offset, int length) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length * getElementSize(array));
+        buffer.order(ByteOrder.nativeOrder());
+        copy(array, offset, length, buffer, 0);
+        return buffer;
+    }
+
+    /**
+     * Copy the elements of the primitive array from <var>offset</var> to <var>offset + length - 1</var> into
+     * <var>dst</var>, writing the first element at the same element offset. The position and limit of
+     * <var>dst</var> are not modified.
+     *
+     * @param array  The primitive array to copy from
+     * @param offset The first element to copy
+     * @param length The number of elements to copy
+     * @param dst    The buffer that receives the elements
+     *
+     * @throws IllegalArgumentException if the array isn't an expected buffer array type
+     */
+    public static void copy(Object array, int offset, int length, ByteBuffer dst) {
+        copy(array, offset, length, dst, offset * getElementSize(array));
+    }
+
+    private static void copy(Object array, int offset, int length, ByteBuffer dst, int byteOffset) {
+        ByteBuffer out = dst.duplicate();
+        out.order(ByteOrder.nativeOrder());
+        out.clear().position(byteOffset);
+
+        if (array instanceof ByteBuffer) {
+            ByteBuffer in = ((ByteBuffer) array).duplicate();
+            in.position(in.position() + offset).limit(in.position() + length);
+            out.put(in);
+        } else if (array instanceof float[]) {
+            out.asFloatBuffer().put((float[]) array, offset, length);
+        } else if (array instanceof int[]) {
+            out.asIntBuffer().put((int[]) array, offset, length);
+        } else if (array instanceof short[]) {
+            out.asShortBuffer().put((short[]) array, offset, length);
+        } else if (array instanceof byte[]) {
+            out.put((byte[]) array, offset, length);
+        } else {
+            throw new IllegalArgumentException("Unsupported array type: " + array);
+        }
+    }
+
+    /**
+     * Get the number of bytes used by each element of the primitive array. The instance must be one of the
+     * array types supported by {@link #newBuffer(Object)}, and a ByteBuffer has an element size of 1.
+     *
+     * @param array The primitive array
+     *
+     * @return The byte size of each element
+     *
+     * @throws IllegalArgumentException if the array isn't an expected buffer array type
+     */
+    public static int getElementSize(Object array) {
+        if (array instanceof ByteBuffer || array instanceof byte[]) {
+            return 1;
+        } else if (array instanceof float[] || array instanceof int[]) {
+            return 4;
+        } else if (array instanceof short[]) {
+            return 2;
+        } else {
+            throw new IllegalArgumentException("Unsupported array type: " + array);
+        }
+    }
+
     /**
      * Get the length of the primitive array. The instance must be one of the array types supported by {@link
-     * #newBuffer(Object)}.
+     * #newBuffer(Object)}. The length of a ByteBuffer is its remaining byte count.
      *
      * @param array The primitive array
      *
@@ -209,7 +315,9 @@ public class BufferUtil {
      * @throws IllegalArgumentException if the array isn't an expected buffer array type
      */
     public static int getArrayLength(Object array) {
-        if (array instanceof float[]) {
+        if (array instanceof ByteBuffer) {
+            return ((ByteBuffer) array).remaining();
+        } else if (array instanceof float[]) {
             return ((float[]) array).length;
         } else if (array instanceof int[]) {
             return ((int[]) array).length;
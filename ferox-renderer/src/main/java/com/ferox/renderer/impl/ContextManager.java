@@ -26,6 +26,7 @@
  */
 package com.ferox.renderer.impl;
 
+import com.ferox.renderer.Framework;
 import com.ferox.renderer.FrameworkException;
 import com.ferox.renderer.impl.LifeCycleManager.Status;
 
@@ -41,13 +42,42 @@ import java.util.concurrent.*;
  * A newly constructed ContextManager is not ready to use until its {@link #initialize(LifeCycleManager,
  * SurfaceFactory)} is called. The ContextManager is expected to live within the life cycle of its owning
  * Framework (as enforced by the LifeCycleManager).
+ * <p/>
+ * Tasks are queued into one of several {@link Lane lanes}. Render tasks have priority, but each render task
+ * lets a configurable number of upload and destroy tasks run before the next render task so background work
+ * keeps moving. The lane capacity and budgets are read from the system properties defined in {@link
+ * Framework.Factory} when the manager is initialized.
  *
  * @author Michael Ludwig
  */
 public class ContextManager {
+    public static final int DEFAULT_LANE_CAPACITY = 16;
+    public static final int DEFAULT_UPLOAD_BUDGET = 4;
+    public static final int DEFAULT_DESTROY_BUDGET = 2;
+
+    /**
+     * The lanes of the context thread's task queue.
+     */
+    public static enum Lane {
+        /**
+         * Tasks that render or otherwise must stay ordered with rendering, such as surface management and
+         * resource refreshes. This is the default lane and has priority over the others.
+         */
+        RENDER,
+        /**
+         * Resource construction and upload from builders.
+         */
+        UPLOAD,
+        /**
+         * Destruction of resources that are no longer referenced.
+         */
+        DESTROY
+    }
+
     // "final" after initialize() is called
     private LifeCycleManager lifecycleManager;
     private ContextThread thread;
+    private TaskQueue tasks;
     private OpenGLContext sharedContext;
 
     /**
@@ -95,6 +125,10 @@ public class ContextManager {
             lifecycleManager = lifecycle;
         }
 
+        int capacity = getConfig(Framework.Factory.TASK_QUEUE_CAPACITY_PROPERTY, DEFAULT_LANE_CAPACITY, 1);
+        int uploadBudget = getConfig(Framework.Factory.UPLOAD_BUDGET_PROPERTY, DEFAULT_UPLOAD_BUDGET, 0);
+        int destroyBudget = getConfig(Framework.Factory.DESTROY_BUDGET_PROPERTY, DEFAULT_DESTROY_BUDGET, 0);
+        tasks = new TaskQueue(capacity, uploadBudget, destroyBudget);
         thread = new ContextThread(lifecycle.getManagedThreadGroup(), "gpu-task-thread");
 
         // Start the managed thread as a high priority thread so that it can run
@@ -111,6 +145,10 @@ public class ContextManager {
         }
     }
 
+    private static int getConfig(String property, int defaultValue, int minValue) {
+        return Math.max(minValue, Integer.getInteger(property, defaultValue));
+    }
+
     /**
      * @return The shared context that must be used by all surfaces for this manager
      *
@@ -123,61 +161,162 @@ public class ContextManager {
         return sharedContext;
     }
 
+    /**
+     * Invoke the given Callable on the context thread using the {@link Lane#RENDER render lane}.
+     *
+     * @param <T>              The type of data returned by task
+     * @param task             The task to run on an internal thread
+     * @param acceptOnShutdown True if the task should be queued even while shutting down
+     *
+     * @return A Future linked to the queued task, will be cancelled if the ContextManager has been shutdown
+     * or is shutting down
+     *
+     * @throws NullPointerException if task is null
+     * @see #invokeOnContextThread(Callable, Lane, boolean)
+     */
+    public <T> Future<T> invokeOnContextThread(Callable<T> task, boolean acceptOnShutdown) {
+        return invokeOnContextThread(task, Lane.RENDER, acceptOnShutdown);
+    }
+
     /**
      * <p/>
      * Invoke the given Callable on the context thread managed by this manager. If the calling thread is not
-     * the context thread, this task is queued behind any other pending tasks. However, if the calling thread
-     * is the context thread, this will run the task immediately. In this case the returned Future will have
-     * already completed.
+     * the context thread, this task is queued behind any other pending tasks in the same lane, blocking
+     * while that lane is full. Tasks in different lanes are not ordered with respect to each other. However,
+     * if the calling thread is the context thread, this will run the task immediately. In this case the
+     * returned Future will have already completed.
      * <p/>
      * If the LifeCycleManager controlling this ContextManager is being shutdown, or has been shutdown, the
      * returned Future is not queued and is preemptively cancelled. It will never be null.
      *
      * @param <T>              The type of data returned by task
      * @param task             The task to run on an internal thread
+     * @param lane             The lane to queue the task into
      * @param acceptOnShutdown True if the task should be queued even while shutting down
      *
      * @return A Future linked to the queued task, will be cancelled if the ContextManager has been shutdown
      * or is shutting down
      *
-     * @throws NullPointerException if task is null
+     * @throws NullPointerException if task or lane are null
      */
-    public <T> Future<T> invokeOnContextThread(Callable<T> task, boolean acceptOnShutdown) {
+    public <T> Future<T> invokeOnContextThread(Callable<T> task, Lane lane, boolean acceptOnShutdown) {
         if (task == null) {
             throw new NullPointerException("Task cannot be null");
         }
+        if (lane == null) {
+            throw new NullPointerException("Lane cannot be null");
+        }
         // Create the Future now so that it can be easily canceled later if need be
         Sync<T> sync = new Sync<>(task);
         Future<T> future = new FutureSync<>(sync);
 
+        // Only the status check is done while holding the lock, waiting for room in the lane happens
+        // after it's released. If the context thread stops in between, the queue is closed and the task
+        // is cancelled by the queue instead.
+        boolean accepted;
         lifecycleManager.getLock().lock();
         try {
             Status status = lifecycleManager.getStatus();
-            if (!lifecycleManager.isStopped() ||
-                (acceptOnShutdown && status == Status.STOPPING_LOW_PRIORITY)) {
-                if (isContextThread()) {
-                    // don't queue and run the task right away
-                    sync.run();
-                } else {
-                    // this is written like this to guard against interrupts
-                    boolean queued;
-                    do {
-                        try {
-                            queued = thread.tasks.offerLast(sync, 5, TimeUnit.MILLISECONDS);
-                        } catch (InterruptedException ie) {
-                            queued = false;
-                        }
-                    } while (!queued);
-                }
-            } else {
-                // LifecycleManager is shutting down or already has been, so cancel it
-                future.cancel(false);
+            accepted = !lifecycleManager.isStopped() ||
+                       (acceptOnShutdown && status == Status.STOPPING_LOW_PRIORITY);
+            if (accepted && isContextThread()) {
+                // don't queue and run the task right away
+                sync.run();
+                return future;
             }
-
-            return future;
         } finally {
             lifecycleManager.getLock().unlock();
         }
+
+        if (accepted) {
+            tasks.offer(sync, lane);
+        } else {
+            // LifecycleManager is shutting down or already has been, so cancel it
+            future.cancel(false);
+        }
+        return future;
+    }
+
+    /**
+     * Queue the given Callable on the context thread without blocking, even when called from the context
+     * thread itself. Unlike {@link #invokeOnContextThread(Callable, Lane, boolean)} the task is never run
+     * immediately, and null is returned if the lane is full or the manager is shutting down. This is meant
+     * for housekeeping that can simply try again later.
+     *
+     * @param <T>  The type of data returned by task
+     * @param task The task to run on an internal thread
+     * @param lane The lane to queue the task into
+     *
+     * @return A Future linked to the queued task, or null if it could not be queued
+     *
+     * @throws NullPointerException if task or lane are null
+     */
+    <T> Future<T> tryQueueOnContextThread(Callable<T> task, Lane lane) {
+        if (task == null) {
+            throw new NullPointerException("Task cannot be null");
+        }
+        if (lane == null) {
+            throw new NullPointerException("Lane cannot be null");
+        }
+        if (lifecycleManager.isStopped()) {
+            return null;
+        }
+
+        Sync<T> sync = new Sync<>(task);
+        return (tasks.tryOffer(sync, lane) ? new FutureSync<>(sync) : null);
+    }
+
+    /**
+     * @param lane The lane to query
+     *
+     * @return The number of tasks currently waiting in the lane
+     */
+    public int getQueueDepth(Lane lane) {
+        return tasks.getDepth(lane);
+    }
+
+    /**
+     * @param lane The lane to query
+     *
+     * @return The largest number of tasks that have been waiting in the lane since the last reset
+     */
+    public int getMaxQueueDepth(Lane lane) {
+        return tasks.getMaxDepth(lane);
+    }
+
+    /**
+     * @param lane The lane to query
+     *
+     * @return The number of tasks taken from the lane by the context thread since the last reset
+     */
+    public long getDequeuedTaskCount(Lane lane) {
+        return tasks.getDequeuedCount(lane);
+    }
+
+    /**
+     * @param lane The lane to query
+     *
+     * @return The total nanoseconds tasks from the lane waited before starting, since the last reset
+     */
+    public long getTotalQueueWaitTime(Lane lane) {
+        return tasks.getTotalWaitTime(lane);
+    }
+
+    /**
+     * @param lane The lane to query
+     *
+     * @return The longest a single task from the lane waited before starting, in nanoseconds, since the last
+     *         reset
+     */
+    public long getMaxQueueWaitTime(Lane lane) {
+        return tasks.getMaxWaitTime(lane);
+    }
+
+    /**
+     * Reset the accumulated queue metrics of every lane.
+     */
+    public void resetQueueMetrics() {
+        tasks.resetMetrics();
     }
 
     /**
@@ -322,11 +461,8 @@ public class ContextManager {
         private AbstractSurface activeSurface; // active surface, might differ from contextProvider
         private OpenGLContext currentContext; // non-null when a context is current
 
-        private final BlockingDeque<Sync<?>> tasks; // pending tasks
-
         public ContextThread(ThreadGroup group, String name) {
             super(group, name);
-            tasks = new LinkedBlockingDeque<>(10);
         }
 
         public void ensureContext(OpenGLContext context) {
@@ -410,9 +546,7 @@ public class ContextManager {
             // loop until we hit STOPPING_HIGH_PRIORITY, so that we still process tasks while in that stage
             // transition to STOPPED until all children are done
             while (lifecycleManager.getStatus().compareTo(Status.STOPPING_HIGH_PRIORITY) < 0) {
-                // Grab a single task from the queue and run it
-                // Unlocking a surface is handled by pushing a special task
-                // to the front of the queue so it skips any line from actual tasks
+                // Grab a single task from the queue and run it, the queue decides which lane it comes from
                 Sync<?> task;
                 try {
                     task = tasks.take();
@@ -428,19 +562,14 @@ public class ContextManager {
 
                 deactivateSurface();
             }
+
+            // The lifecycle manager is shutting down, so any task queued from now on
+            // is cancelled by the closed queue, and all remaining tasks are canceled
+            tasks.close();
+
             releaseContext();
             // This thread is the owner of the shared context
             sharedContext.destroy();
-
-            // At this point, the task queue is no longer being modified.
-            // The lifecycle manager is shutting down, so any calls to queue()
-            // will have the tasks automatically canceled.
-
-            // All remaining tasks need to be canceled
-            for (Sync<?> sync : tasks) {
-                sync.cancel(false);
-            }
-            tasks.clear();
         }
     }
 
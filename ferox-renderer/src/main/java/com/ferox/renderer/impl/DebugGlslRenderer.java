@@ -32,11 +32,11 @@ import com.ferox.renderer.*;
 /**
  *
  */
-public class DebugGlslRenderer implements GlslRenderer, Activateable {
-    private final GlslRenderer delegate;
+public class DebugGlslRenderer implements ValidatedGlslRenderer, Activateable {
+    private final ValidatedGlslRenderer delegate;
     private final OpenGLContext context;
 
-    public DebugGlslRenderer(OpenGLContext context, GlslRenderer delegate) {
+    public DebugGlslRenderer(OpenGLContext context, ValidatedGlslRenderer delegate) {
         this.delegate = delegate;
         this.context = context;
     }
@@ -263,6 +263,18 @@ public class DebugGlslRenderer implements GlslRenderer, Activateable {
         checkGLErrors();
     }
 
+    @Override
+    public void setAttributeDivisor(Shader.Attribute var, int divisor) {
+        delegate.setAttributeDivisor(var, divisor);
+        checkGLErrors();
+    }
+
+    @Override
+    public void setAttributeArrayDivisor(Shader.Attribute var, int index, int divisor) {
+        delegate.setAttributeArrayDivisor(var, index, divisor);
+        checkGLErrors();
+    }
+
     @Override
     public void setAttributeArray(Shader.Attribute var, int index, double val) {
         delegate.setAttributeArray(var, index, val);
@@ -440,6 +452,12 @@ public class DebugGlslRenderer implements GlslRenderer, Activateable {
         checkGLErrors();
     }
 
+    @Override
+    public void setUniformBlock(Shader.UniformBlock block, UniformBlockData data) {
+        delegate.setUniformBlock(block, data);
+        checkGLErrors();
+    }
+
     @Override
     public void setPointAntiAliasingEnabled(boolean enable) {
         delegate.setPointAntiAliasingEnabled(enable);
@@ -612,6 +630,13 @@ public class DebugGlslRenderer implements GlslRenderer, Activateable {
         return rendered;
     }
 
+    @Override
+    public int render(PolygonType polyType, int offset, int count, int instanceCount) {
+        int rendered = delegate.render(polyType, offset, count, instanceCount);
+        checkGLErrors();
+        return rendered;
+    }
+
     @Override
     public void reset() {
         delegate.reset();
@@ -637,6 +662,42 @@ public class DebugGlslRenderer implements GlslRenderer, Activateable {
         checkGLErrors();
     }
 
+    @Override
+    public void setValidatedUniform(Shader.Uniform var, int index, float[] values, int offset) {
+        delegate.setValidatedUniform(var, index, values, offset);
+        checkGLErrors();
+    }
+
+    @Override
+    public void setValidatedUniform(Shader.Uniform var, int index, int[] values, int offset) {
+        delegate.setValidatedUniform(var, index, values, offset);
+        checkGLErrors();
+    }
+
+    @Override
+    public void setValidatedUniform(Shader.Uniform var, int index, Sampler texture) {
+        delegate.setValidatedUniform(var, index, texture);
+        checkGLErrors();
+    }
+
+    @Override
+    public void setValidatedAttribute(Shader.Attribute var, int index, float[] values, int offset) {
+        delegate.setValidatedAttribute(var, index, values, offset);
+        checkGLErrors();
+    }
+
+    @Override
+    public void setValidatedAttribute(Shader.Attribute var, int index, int[] values, int offset) {
+        delegate.setValidatedAttribute(var, index, values, offset);
+        checkGLErrors();
+    }
+
+    @Override
+    public void bindValidatedAttribute(Shader.Attribute var, int index, int column, VertexAttribute attr) {
+        delegate.bindValidatedAttribute(var, index, column, attr);
+        checkGLErrors();
+    }
+
     @Override
     public void activate(AbstractSurface active) {
         if (delegate instanceof Activateable) {
@@ -28,8 +28,11 @@ package com.ferox.renderer.impl;
 
 import com.ferox.renderer.*;
 import com.ferox.renderer.builder.*;
+import com.ferox.renderer.impl.resources.AbstractBuilder;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
@@ -43,6 +46,7 @@ import java.util.concurrent.Future;
  */
 public class FrameworkImpl implements Framework {
     private final ManagedFramework impl;
+    private final ResourceMemoryManager memoryManager;
 
     // fullscreen support
     private volatile WeakReference<OnscreenSurface> fullscreenSurface;
@@ -68,6 +72,7 @@ public class FrameworkImpl implements Framework {
         ContextManager contextManager = new ContextManager();
         impl = new ManagedFramework(surfaceFactory, new LifeCycleManager(getClass().getSimpleName()),
                                     new DestructibleManager(), resourceFactory, contextManager);
+        memoryManager = new ResourceMemoryManager(this);
 
         fullscreenSurface = null;
     }
@@ -128,7 +133,7 @@ public class FrameworkImpl implements Framework {
 
     @Override
     public Future<Void> flush(final Surface surface) {
-        return invoke(new Task<Void>() {
+        Future<Void> flush = invoke(new Task<Void>() {
             public Void run(HardwareAccessLayer access) {
                 Context context = access.setActiveSurface(surface);
                 if (context != null) {
@@ -137,16 +142,47 @@ public class FrameworkImpl implements Framework {
                 return null;
             }
         });
+        // a flush usually ends a frame, which is when resources become idle enough to evict
+        memoryManager.checkBudget();
+        return flush;
+    }
+
+    @Override
+    public long getSamplerMemoryUsage() {
+        return memoryManager.getSamplerMemory();
+    }
+
+    @Override
+    public long getBufferMemoryUsage() {
+        return memoryManager.getBufferMemory();
+    }
+
+    @Override
+    public long getMemoryBudget() {
+        return memoryManager.getBudget();
+    }
+
+    @Override
+    public void setMemoryBudget(long bytes, EvictionPolicy policy) {
+        memoryManager.setBudget(bytes, policy);
     }
 
     @Override
     public void sync() {
-        getFuture(invoke(new Task<Void>() {
-            @Override
-            public Void run(HardwareAccessLayer access) {
-                return null;
-            }
-        }));
+        // tasks in different lanes are not ordered with each other, so a barrier is needed in every lane
+        ContextManager.Lane[] lanes = ContextManager.Lane.values();
+        List<Future<Void>> barriers = new ArrayList<>(lanes.length);
+        for (ContextManager.Lane lane : lanes) {
+            barriers.add(impl.contextManager.invokeOnContextThread(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    return null;
+                }
+            }, lane, false));
+        }
+        for (Future<Void> f : barriers) {
+            getFuture(f);
+        }
     }
 
     @Override
@@ -204,6 +240,11 @@ public class FrameworkImpl implements Framework {
         return impl.resourceFactory.newDepthCubeMapBuilder(this);
     }
 
+    @Override
+    public Future<List<Resource>> buildAll(List<? extends Builder<?>> builders) {
+        return AbstractBuilder.buildAll(this, builders);
+    }
+
     private <T> T getFuture(Future<T> future) {
         try {
             return future.get();
@@ -250,6 +291,13 @@ public class FrameworkImpl implements Framework {
         return impl.contextManager;
     }
 
+    /**
+     * @return The ResourceMemoryManager that tracks GPU memory and evicts resources over budget
+     */
+    public ResourceMemoryManager getResourceMemoryManager() {
+        return memoryManager;
+    }
+
     /**
      * @return The LifeCycleManager that controls the Framework's lifecycle implementation
      */
@@ -33,6 +33,10 @@ import com.ferox.renderer.Renderer;
 import com.ferox.renderer.Renderer.*;
 import com.ferox.renderer.ResourceException;
 import com.ferox.renderer.impl.resources.BufferImpl;
+import com.ferox.renderer.impl.resources.ShaderImpl;
+import com.ferox.renderer.impl.resources.TextureImpl;
+
+import java.util.Arrays;
 
 /**
  * <p/>
@@ -51,6 +55,10 @@ public abstract class RendererDelegate {
     protected final SharedState defaultState;
     protected final OpenGLContext context;
 
+    // counters for setCurrentState(), only touched on the context thread
+    private long restoredStateChanges;
+    private long elidedStateChanges;
+
     /**
      * Create a new delegate that renders for the given context. The SharedState must be the same shared state
      * instance used by all renderers for the given context (so that it is shared).
@@ -87,60 +95,208 @@ public abstract class RendererDelegate {
         return new SharedState(state);
     }
 
+    /**
+     * Restore the given state, which must have been returned by {@link #getCurrentState()} of a delegate for
+     * the same framework. The incoming state is compared against the tracked state and low-level calls are
+     * only made for the groups of state that differ. The values are not validated again since they were
+     * validated when originally assigned.
+     *
+     * @param state The state to restore
+     */
     public void setCurrentState(SharedState state) {
-        setBlendColor(state.blendColor);
-        setBlendModeRgb(state.blendFuncRgb, state.blendSrcRgb, state.blendDstRgb);
-        setBlendModeAlpha(state.blendFuncAlpha, state.blendSrcAlpha, state.blendDstAlpha);
-        setBlendingEnabled(state.blendEnabled);
-
-        setColorWriteMask(state.colorMask[0], state.colorMask[1], state.colorMask[2], state.colorMask[3]);
-
-        setDepthOffsets(state.depthOffsetFactor, state.depthOffsetUnits);
-        setDepthOffsetsEnabled(state.depthOffsetEnabled);
-        setDepthTest(state.depthTest);
-        setDepthWriteMask(state.depthMask);
-
-        setDrawStyle(state.styleFront, state.styleBack);
-
-        setStencilTestFront(state.stencilTestFront, state.stencilRefFront, state.stencilTestMaskFront);
-        setStencilTestBack(state.stencilTestBack, state.stencilRefBack, state.stencilTestMaskBack);
-        setStencilUpdateFront(state.stencilFailFront, state.depthFailFront, state.depthPassFront);
-        setStencilUpdateBack(state.stencilFailBack, state.depthFailBack, state.depthPassBack);
-        setStencilTestEnabled(state.stencilEnabled);
-
-        setLineAntiAliasingEnabled(state.lineAAEnabled);
-        setPointAntiAliasingEnabled(state.pointAAEnabled);
-        setPolygonAntiAliasingEnabled(state.pointAAEnabled);
-
-        setLineSize(state.lineWidth);
-        setPointSize(state.pointWidth);
-
-        if (state.viewWidth >= 0 && state.viewHeight >= 0) {
-            setViewport(state.viewX, state.viewY, state.viewWidth, state.viewHeight);
+        SharedState current = this.state;
+
+        if (isDirty(!current.blendColor.equals(state.blendColor))) {
+            current.blendColor.set(state.blendColor);
+            glBlendColor(state.blendColor);
+        }
+        if (isDirty(current.blendFuncRgb != state.blendFuncRgb ||
+                    current.blendFuncAlpha != state.blendFuncAlpha)) {
+            current.blendFuncRgb = state.blendFuncRgb;
+            current.blendFuncAlpha = state.blendFuncAlpha;
+            glBlendEquations(state.blendFuncRgb, state.blendFuncAlpha);
+        }
+        if (isDirty(current.blendSrcRgb != state.blendSrcRgb || current.blendDstRgb != state.blendDstRgb ||
+                    current.blendSrcAlpha != state.blendSrcAlpha ||
+                    current.blendDstAlpha != state.blendDstAlpha)) {
+            current.blendSrcRgb = state.blendSrcRgb;
+            current.blendDstRgb = state.blendDstRgb;
+            current.blendSrcAlpha = state.blendSrcAlpha;
+            current.blendDstAlpha = state.blendDstAlpha;
+            glBlendFactors(state.blendSrcRgb, state.blendDstRgb, state.blendSrcAlpha, state.blendDstAlpha);
+        }
+        if (isDirty(current.blendEnabled != state.blendEnabled)) {
+            current.blendEnabled = state.blendEnabled;
+            glEnableBlending(state.blendEnabled);
+        }
+
+        if (isDirty(!Arrays.equals(current.colorMask, state.colorMask))) {
+            System.arraycopy(state.colorMask, 0, current.colorMask, 0, current.colorMask.length);
+            glColorMask(state.colorMask[0], state.colorMask[1], state.colorMask[2], state.colorMask[3]);
+        }
+
+        if (isDirty(current.depthOffsetFactor != state.depthOffsetFactor ||
+                    current.depthOffsetUnits != state.depthOffsetUnits)) {
+            current.depthOffsetFactor = state.depthOffsetFactor;
+            current.depthOffsetUnits = state.depthOffsetUnits;
+            glDepthOffset(state.depthOffsetFactor, state.depthOffsetUnits);
+        }
+        if (isDirty(current.depthOffsetEnabled != state.depthOffsetEnabled)) {
+            current.depthOffsetEnabled = state.depthOffsetEnabled;
+            glEnableDepthOffset(state.depthOffsetEnabled);
+        }
+        if (isDirty(current.depthTest != state.depthTest)) {
+            current.depthTest = state.depthTest;
+            glDepthTest(state.depthTest);
+        }
+        if (isDirty(current.depthMask != state.depthMask)) {
+            current.depthMask = state.depthMask;
+            glDepthMask(state.depthMask);
+        }
+
+        if (isDirty(current.styleFront != state.styleFront || current.styleBack != state.styleBack)) {
+            current.styleFront = state.styleFront;
+            current.styleBack = state.styleBack;
+            glDrawStyle(state.styleFront, state.styleBack);
+        }
+
+        if (isDirty(current.stencilTestFront != state.stencilTestFront ||
+                    current.stencilRefFront != state.stencilRefFront ||
+                    current.stencilTestMaskFront != state.stencilTestMaskFront)) {
+            current.stencilTestFront = state.stencilTestFront;
+            current.stencilRefFront = state.stencilRefFront;
+            current.stencilTestMaskFront = state.stencilTestMaskFront;
+            glStencilTest(state.stencilTestFront, state.stencilRefFront, state.stencilTestMaskFront, true);
+        }
+        if (isDirty(current.stencilTestBack != state.stencilTestBack ||
+                    current.stencilRefBack != state.stencilRefBack ||
+                    current.stencilTestMaskBack != state.stencilTestMaskBack)) {
+            current.stencilTestBack = state.stencilTestBack;
+            current.stencilRefBack = state.stencilRefBack;
+            current.stencilTestMaskBack = state.stencilTestMaskBack;
+            glStencilTest(state.stencilTestBack, state.stencilRefBack, state.stencilTestMaskBack, false);
+        }
+        if (isDirty(current.stencilFailFront != state.stencilFailFront ||
+                    current.depthFailFront != state.depthFailFront ||
+                    current.depthPassFront != state.depthPassFront)) {
+            current.stencilFailFront = state.stencilFailFront;
+            current.depthFailFront = state.depthFailFront;
+            current.depthPassFront = state.depthPassFront;
+            glStencilUpdate(state.stencilFailFront, state.depthFailFront, state.depthPassFront, true);
+        }
+        if (isDirty(current.stencilFailBack != state.stencilFailBack ||
+                    current.depthFailBack != state.depthFailBack ||
+                    current.depthPassBack != state.depthPassBack)) {
+            current.stencilFailBack = state.stencilFailBack;
+            current.depthFailBack = state.depthFailBack;
+            current.depthPassBack = state.depthPassBack;
+            glStencilUpdate(state.stencilFailBack, state.depthFailBack, state.depthPassBack, false);
+        }
+        if (isDirty(current.stencilMaskFront != state.stencilMaskFront)) {
+            current.stencilMaskFront = state.stencilMaskFront;
+            glStencilMask(true, state.stencilMaskFront);
+        }
+        if (isDirty(current.stencilMaskBack != state.stencilMaskBack)) {
+            current.stencilMaskBack = state.stencilMaskBack;
+            glStencilMask(false, state.stencilMaskBack);
+        }
+        if (isDirty(current.stencilEnabled != state.stencilEnabled)) {
+            current.stencilEnabled = state.stencilEnabled;
+            glEnableStencilTest(state.stencilEnabled);
+        }
+
+        if (isDirty(current.lineAAEnabled != state.lineAAEnabled)) {
+            current.lineAAEnabled = state.lineAAEnabled;
+            glEnableLineAntiAliasing(state.lineAAEnabled);
+        }
+        if (isDirty(current.pointAAEnabled != state.pointAAEnabled)) {
+            current.pointAAEnabled = state.pointAAEnabled;
+            glEnablePointAntiAliasing(state.pointAAEnabled);
+        }
+        if (isDirty(current.polyAAEnabled != state.polyAAEnabled)) {
+            current.polyAAEnabled = state.polyAAEnabled;
+            glEnablePolyAntiAliasing(state.polyAAEnabled);
+        }
+        if (isDirty(current.lineWidth != state.lineWidth)) {
+            current.lineWidth = state.lineWidth;
+            glLineWidth(state.lineWidth);
+        }
+        if (isDirty(current.pointWidth != state.pointWidth)) {
+            current.pointWidth = state.pointWidth;
+            glPointWidth(state.pointWidth);
         }
 
-        // note that these bypass the destroyed check that throws an exception from the public interface
-        setIndicesHandle(state.elementVBO);
-        context.bindShader(state.shader);
-        for (int i = 0; i < state.textures.length; i++) {
-            context.bindTexture(i, state.textures[i]);
+        if (state.viewWidth >= 0 && state.viewHeight >= 0) {
+            if (isDirty(current.viewX != state.viewX || current.viewY != state.viewY ||
+                        current.viewWidth != state.viewWidth || current.viewHeight != state.viewHeight)) {
+                current.viewX = state.viewX;
+                current.viewY = state.viewY;
+                current.viewWidth = state.viewWidth;
+                current.viewHeight = state.viewHeight;
+                glViewport(state.viewX, state.viewY, state.viewWidth, state.viewHeight);
+            }
         }
 
-        // so we have to clean out resource bindings that marked destroyed
-        if (state.shader != null && state.shader.isDestroyed()) {
-            context.bindShader(null);
+        // resources destroyed since the state was captured are restored as unbound, note that this
+        // bypasses the destroyed check that throws an exception from the public interface
+        BufferImpl.BufferHandle elementVBO = (state.elementVBO == null || state.elementVBO.isDestroyed()
+                                              ? null : state.elementVBO);
+        if (isDirty(current.elementVBO != elementVBO)) {
+            context.bindElementVBO(elementVBO);
         }
-        if (state.arrayVBO != null && state.arrayVBO.isDestroyed()) {
+        if (state.arrayVBO != null && state.arrayVBO.isDestroyed() && current.arrayVBO != null) {
             context.bindArrayVBO(null);
         }
-        if (state.elementVBO != null && state.elementVBO.isDestroyed()) {
-            context.bindElementVBO(null);
+
+        ShaderImpl.ShaderHandle shader = (state.shader == null || state.shader.isDestroyed() ? null
+                                                                                           : state.shader);
+        if (isDirty(current.shader != shader)) {
+            context.bindShader(shader);
         }
+
         for (int i = 0; i < state.textures.length; i++) {
-            if (state.textures[i] != null && state.textures[i].isDestroyed()) {
-                context.bindTexture(i, null);
+            TextureImpl.TextureHandle texture = state.textures[i];
+            if (texture != null && texture.isDestroyed()) {
+                texture = null;
             }
+            if (isDirty(current.textures[i] != texture)) {
+                context.bindTexture(i, texture);
+            }
+        }
+    }
+
+    private boolean isDirty(boolean dirty) {
+        if (dirty) {
+            restoredStateChanges++;
+        } else {
+            elidedStateChanges++;
         }
+        return dirty;
+    }
+
+    /**
+     * @return The number of state groups that differed and were changed by {@link
+     *         #setCurrentState(SharedState)} since the counters were last reset
+     */
+    public long getRestoredStateChanges() {
+        return restoredStateChanges;
+    }
+
+    /**
+     * @return The number of state groups that already matched and were skipped by {@link
+     *         #setCurrentState(SharedState)} since the counters were last reset
+     */
+    public long getElidedStateChanges() {
+        return elidedStateChanges;
+    }
+
+    /**
+     * Reset the counters reported by {@link #getRestoredStateChanges()} and {@link
+     * #getElidedStateChanges()}.
+     */
+    public void resetStateChangeCounters() {
+        restoredStateChanges = 0;
+        elidedStateChanges = 0;
     }
 
     /**
@@ -423,12 +579,12 @@ public abstract class RendererDelegate {
         if (test == null) {
             throw new NullPointerException("Stencil test comparison can't be null");
         }
-        if (state.stencilTestFront != test || state.stencilRefFront != refValue ||
-            state.stencilTestMaskFront != testMask) {
-            state.stencilTestFront = test;
-            state.stencilRefFront = refValue;
-            state.stencilTestMaskFront = testMask;
-            glStencilTest(test, refValue, testMask, true);
+        if (state.stencilTestBack != test || state.stencilRefBack != refValue ||
+            state.stencilTestMaskBack != testMask) {
+            state.stencilTestBack = test;
+            state.stencilRefBack = refValue;
+            state.stencilTestMaskBack = testMask;
+            glStencilTest(test, refValue, testMask, false);
         }
     }
 
@@ -436,12 +592,12 @@ public abstract class RendererDelegate {
         if (test == null) {
             throw new NullPointerException("Stencil test comparison can't be null");
         }
-        if (state.stencilTestBack != test || state.stencilRefBack != refValue ||
-            state.stencilTestMaskBack != testMask) {
-            state.stencilTestBack = test;
-            state.stencilRefBack = refValue;
-            state.stencilTestMaskBack = testMask;
-            glStencilTest(test, refValue, testMask, false);
+        if (state.stencilTestFront != test || state.stencilRefFront != refValue ||
+            state.stencilTestMaskFront != testMask) {
+            state.stencilTestFront = test;
+            state.stencilRefFront = refValue;
+            state.stencilTestMaskFront = testMask;
+            glStencilTest(test, refValue, testMask, true);
         }
     }
 
@@ -525,7 +681,9 @@ public abstract class RendererDelegate {
             if (indices.isDestroyed()) {
                 throw new ResourceException("Cannot use a destroyed resource");
             }
-            setIndicesHandle(((BufferImpl) indices).getHandle());
+            BufferImpl.BufferHandle handle = ((BufferImpl) indices).getHandle();
+            handle.markUsed();
+            setIndicesHandle(handle);
         }
     }
 
@@ -556,6 +714,37 @@ public abstract class RendererDelegate {
         return polyType.getPolygonCount(count);
     }
 
+    /**
+     * Render multiple instances, as exposed by {@link com.ferox.renderer.GlslRenderer#render(PolygonType,
+     * int, int, int)}. This validates the arguments, but it is up to the caller to check that instancing is
+     * supported. An instance count of 1 falls back to the regular draw commands.
+     */
+    public int render(PolygonType polyType, int offset, int count, int instanceCount) {
+        if (instanceCount < 0) {
+            throw new IllegalArgumentException("Instance count must be at least 0, not: " + instanceCount);
+        }
+        if (instanceCount == 1) {
+            return render(polyType, offset, count);
+        }
+        if (polyType == null) {
+            throw new NullPointerException("PolygonType cannot be null");
+        }
+        if (offset < 0 || count < 0) {
+            throw new IllegalArgumentException("First and count must be at least 0, not: " + offset + ", " +
+                                               count);
+        }
+        if (instanceCount == 0) {
+            return 0;
+        }
+
+        if (state.elementVBO != null) {
+            glDrawElementsInstanced(polyType, state.elementVBO, offset, count, instanceCount);
+        } else {
+            glDrawArraysInstanced(polyType, offset, count, instanceCount);
+        }
+        return polyType.getPolygonCount(count) * instanceCount;
+    }
+
     /**
      * Perform the glDrawElements rendering command. The inputs will be valid.
      */
@@ -566,4 +755,17 @@ public abstract class RendererDelegate {
      * Perform the glDrawArrays rendering command. The inputs will be valid.
      */
     protected abstract void glDrawArrays(PolygonType type, int first, int count);
+
+    /**
+     * Perform the glDrawElementsInstanced rendering command. The inputs will be valid and instanceCount will
+     * be greater than 1.
+     */
+    protected abstract void glDrawElementsInstanced(PolygonType type, BufferImpl.BufferHandle handle,
+                                                    int offset, int count, int instanceCount);
+
+    /**
+     * Perform the glDrawArraysInstanced rendering command. The inputs will be valid and instanceCount will be
+     * greater than 1.
+     */
+    protected abstract void glDrawArraysInstanced(PolygonType type, int first, int count, int instanceCount);
 }
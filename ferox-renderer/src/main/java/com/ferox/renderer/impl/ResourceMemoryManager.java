@@ -0,0 +1,238 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl;
+
+import com.ferox.renderer.EvictionPolicy;
+import com.ferox.renderer.impl.resources.BufferImpl;
+import com.ferox.renderer.impl.resources.ResourceHandle;
+import com.ferox.renderer.impl.resources.TextureImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ResourceMemoryManager accounts for the GPU memory held by the sampler and buffer resources of a framework,
+ * and destroys idle resources through an {@link EvictionPolicy} when a memory budget is exceeded. Builders
+ * register handles once their data is on the GPU, and handles unregister themselves when destroyed.
+ * <p/>
+ * Budget checks are cheap and can happen on any thread. When the budget is exceeded, a single eviction task
+ * is queued on the context thread's {@link ContextManager.Lane#DESTROY destroy lane}, so it runs after any
+ * render task that was queued before the check.
+ *
+ * @author Michael Ludwig
+ */
+public class ResourceMemoryManager {
+    private final FrameworkImpl framework;
+
+    private final Set<ResourceHandle> tracked;
+    private final AtomicLong samplerMemory;
+    private final AtomicLong bufferMemory;
+    private final AtomicLong evictedCount;
+
+    private volatile long budget;
+    private volatile EvictionPolicy policy;
+    private final AtomicBoolean evictionQueued;
+
+    /**
+     * Create a new ResourceMemoryManager for the given framework. It has no budget by default.
+     *
+     * @param framework The owning framework
+     */
+    public ResourceMemoryManager(FrameworkImpl framework) {
+        this.framework = framework;
+        tracked = Collections.newSetFromMap(new ConcurrentHashMap<ResourceHandle, Boolean>());
+        samplerMemory = new AtomicLong();
+        bufferMemory = new AtomicLong();
+        evictedCount = new AtomicLong();
+        evictionQueued = new AtomicBoolean(false);
+        budget = 0;
+        policy = null;
+    }
+
+    /**
+     * Start tracking the given handle with the given size. Only sampler and buffer handles are tracked;
+     * other handles are ignored. This checks the budget afterwards.
+     *
+     * @param handle     The newly created handle
+     * @param memorySize The number of bytes of GPU memory it holds
+     */
+    public void register(ResourceHandle handle, long memorySize) {
+        if (memorySize <= 0 || getCounter(handle) == null) {
+            return;
+        }
+        handle.setMemorySize(memorySize);
+        if (tracked.add(handle)) {
+            getCounter(handle).addAndGet(memorySize);
+        }
+        checkBudget();
+    }
+
+    /**
+     * Stop tracking the given handle, this is invoked when the handle is destroyed.
+     *
+     * @param handle The destroyed handle
+     */
+    public void unregister(ResourceHandle handle) {
+        if (tracked.remove(handle)) {
+            getCounter(handle).addAndGet(-handle.getMemorySize());
+        }
+    }
+
+    private AtomicLong getCounter(ResourceHandle handle) {
+        if (handle instanceof TextureImpl.TextureHandle) {
+            return samplerMemory;
+        } else if (handle instanceof BufferImpl.BufferHandle) {
+            return bufferMemory;
+        } else {
+            return null;
+        }
+    }
+
+    public long getSamplerMemory() {
+        return samplerMemory.get();
+    }
+
+    public long getBufferMemory() {
+        return bufferMemory.get();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Set the budget and policy, as described in {@link com.ferox.renderer.Framework#setMemoryBudget(long,
+     * EvictionPolicy)}.
+     *
+     * @param budget The budget in bytes, 0 or less disables eviction
+     * @param policy The policy, null disables eviction
+     */
+    public void setBudget(long budget, EvictionPolicy policy) {
+        this.policy = policy;
+        this.budget = (policy == null ? 0 : Math.max(0, budget));
+        checkBudget();
+    }
+
+    /**
+     * Queue an eviction task if the tracked memory exceeds the budget and one isn't already queued.
+     */
+    public void checkBudget() {
+        long limit = budget;
+        if (limit <= 0 || policy == null) {
+            return;
+        }
+        if (samplerMemory.get() + bufferMemory.get() > limit && evictionQueued.compareAndSet(false, true)) {
+            // this is often called from the context thread while building, so it must not block or run
+            // inline; if the lane is full the next check will try again
+            Future<Void> queued = framework.getContextManager()
+                                           .tryQueueOnContextThread(new Callable<Void>() {
+                                               @Override
+                                               public Void call() throws Exception {
+                                                   try {
+                                                       evict();
+                                                   } finally {
+                                                       evictionQueued.set(false);
+                                                   }
+                                                   return null;
+                                               }
+                                           }, ContextManager.Lane.DESTROY);
+            if (queued == null) {
+                evictionQueued.set(false);
+            }
+        }
+    }
+
+    private void evict() {
+        EvictionPolicy policy = this.policy;
+        long over = samplerMemory.get() + bufferMemory.get() - budget;
+        if (policy == null || budget <= 0 || over <= 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        List<EvictionPolicy.Candidate> candidates = new ArrayList<>(tracked.size());
+        for (ResourceHandle h : tracked) {
+            if (!h.isDestroyed()) {
+                candidates.add(new CandidateImpl(h, now));
+            }
+        }
+
+        List<EvictionPolicy.Candidate> evict = policy.selectEvictions(candidates, over);
+        if (evict == null || evict.isEmpty()) {
+            return;
+        }
+
+        OpenGLContext ctx = framework.getContextManager().ensureContext();
+        for (EvictionPolicy.Candidate c : evict) {
+            if (!(c instanceof CandidateImpl)) {
+                throw new IllegalStateException("EvictionPolicy returned a foreign candidate: " + c);
+            }
+            ResourceHandle h = ((CandidateImpl) c).handle;
+            if (!h.isDestroyed()) {
+                h.destroy(ctx);
+                evictedCount.incrementAndGet();
+            }
+        }
+    }
+
+    private class CandidateImpl implements EvictionPolicy.Candidate {
+        private final ResourceHandle handle;
+        private final long idleTime;
+
+        public CandidateImpl(ResourceHandle handle, long now) {
+            this.handle = handle;
+            idleTime = Math.max(0, now - handle.getLastUsedTime());
+        }
+
+        @Override
+        public EvictionPolicy.Kind getKind() {
+            return (handle instanceof TextureImpl.TextureHandle ? EvictionPolicy.Kind.SAMPLER
+                                                               : EvictionPolicy.Kind.BUFFER);
+        }
+
+        @Override
+        public long getMemorySize() {
+            return handle.getMemorySize();
+        }
+
+        @Override
+        public long getIdleTime() {
+            return idleTime;
+        }
+    }
+}
@@ -32,103 +32,109 @@ import com.ferox.renderer.builder.ShaderBuilder;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- *
+ * ShaderFixedFunctionEmulator implements the FixedFunctionRenderer on top of a GlslRenderer. The emulated
+ * state is tracked in a {@link FixedFunctionState} and pushed to a shader variant right before rendering.
+ * Each variant is compiled from ffp.vert and ffp.frag with preprocessor defines for the enabled features
+ * (lighting, each light, fog, alpha testing and each texture unit), so disabled features cost nothing
+ * instead of being skipped by branching on uniforms. Variants are compiled lazily and cached for the
+ * lifetime of the emulator.
  */
 public class ShaderFixedFunctionEmulator implements FixedFunctionRenderer, Activateable {
     private static final String VERTEX_SHADER = "ffp.vert";
     private static final String FRAGMENT_SHADER = "ffp.frag";
 
+    // feature bits of the variant key, light and texture bits are offset by the light or unit
+    private static final int LIGHTING = 1;
+    private static final int LIGHT0 = 1 << 1;
+    private static final int FOG = 1 << 9;
+    private static final int ALPHA_TEST = 1 << 10;
+    private static final int TEXTURE0 = 1 << 11;
+
+    // groups of uniforms and attributes that must be pushed to the current variant before rendering
+    private static final int DIRTY_TRANSFORM = 1;
+    private static final int DIRTY_LIGHTING = 1 << 1;
+    private static final int DIRTY_MATERIAL = 1 << 2;
+    private static final int DIRTY_FOG = 1 << 3;
+    private static final int DIRTY_ALPHA_TEST = 1 << 4;
+    private static final int DIRTY_TEXTURES = 1 << 5;
+    private static final int DIRTY_ATTRIBUTES = 1 << 6;
+    private static final int DIRTY_ALL = (1 << 7) - 1;
+
+    private static final Vector4 DEFAULT_VERTEX = new Vector4(0, 0, 0, 1);
+    private static final Vector3 DEFAULT_NORMAL = new Vector3(0, 0, 1);
+    private static final Vector4 DEFAULT_TEXCOORD = new Vector4(0, 0, 0, 1);
+
     private final GlslRenderer glsl;
 
     private final Vector3 temp3 = new Vector3();
-    private final Vector4 temp4 = new Vector4();
-    private final Matrix4 tempM = new Matrix4();
 
-    private final Matrix4 modelview = new Matrix4();
     private final Matrix4 inverseModelview = new Matrix4();
     private final Matrix3 normal = new Matrix3();
 
-    // must remember the default model view to properly reset this additional state tracked
-    // outside of the uniform state
-    private final Matrix4 defaultModelview = new Matrix4();
+    // the emulated state, every variant has its own uniform values so this is the authoritative copy
+    private FixedFunctionState state;
+    private final Sampler[] textures;
+    private VertexAttribute vertexBinding;
+    private VertexAttribute normalBinding;
+    private VertexAttribute colorBinding;
+    private final VertexAttribute[] texCoordBindings;
+    private int dirty;
 
     // lazily allocated during the first activate()
-    private Shader shader;
-    private ContextState<GlslRenderer> defaultState;
+    private FrameworkImpl framework;
+    private String vertexSource;
+    private String fragmentSource;
+    private WrappedState defaultState;
+
+    private final Map<Integer, Variant> variants;
+    private Variant variant;
+
+    private long variantHits;
+    private long variantMisses;
 
     // the getCurrentState() records the valid viewport dimensions of the original surface, which
     // we don't want to preserve so we remember the surface dimensions in activate() and apply them in reset()
     private int resetSurfaceWidth;
     private int resetSurfaceHeight;
 
-    /*
-     * Vertex shader uniforms
-     */
-    private Shader.Uniform modelviewMatrix; // mat4
-    private Shader.Uniform projectionMatrix; // mat4
-    private Shader.Uniform normalMatrix; // mat3
-
-    private Shader.Uniform enableLighting; // bool
-
-    private Shader.Uniform globalAmbient; // vec4
-    private Shader.Uniform enableSingleLight; // bool[8]
-    private Shader.Uniform lightPosition; // vec4[8]
-    private Shader.Uniform ambientLightColors; // vec4[8]
-    private Shader.Uniform diffuseLightColors; // vec4[8]
-    private Shader.Uniform specularLightColors; // vec4[8]
-    private Shader.Uniform spotlightDirections; // vec3[8]
-    private Shader.Uniform spotlightCutoffs; // float[8]
-    private Shader.Uniform spotlightExponents; // float[8]
-    private Shader.Uniform lightAttenuations; // vec3[8]
-
-    private Shader.Uniform ambientMaterial; // vec4
-    private Shader.Uniform specularMaterial; // vec4
-    private Shader.Uniform emittedMaterial; // vec4
-    private Shader.Uniform shininess; // float
-
-    private Shader.Uniform textureMatrix; // mat4[4]
-    private Shader.Uniform objPlanes; // mat4[4]
-    private Shader.Uniform eyePlanes; // mat4[4]
-    private Shader.Uniform texCoordSource; // int[4]
+    public ShaderFixedFunctionEmulator(GlslRenderer shaderRenderer) {
+        glsl = shaderRenderer;
 
-    /*
-     * Fragment shader uniforms
+        state = new FixedFunctionState();
+        textures = new Sampler[FixedFunctionState.MAX_TEXTURES];
+        texCoordBindings = new VertexAttribute[FixedFunctionState.MAX_TEXTURES];
+        variants = new HashMap<>();
+    }
+
+    /**
+     * @return The number of times rendering switched to a shader variant that was already compiled, since
+     *         the counters were last reset
      */
-    private Shader.Uniform alphaTest; // int
-    private Shader.Uniform alphaRefValue; // float
-
-    private Shader.Uniform fogConfig; // vec3 0 = start/density 1 = end 2 = signal (0 = linear, > = exp, < = exp squared)
-    private Shader.Uniform fogColor; // vec4
-    private Shader.Uniform enableFog; // bool
-
-    private Shader.Uniform sampler1D; // sampler1D[4]
-    private Shader.Uniform sampler2D; // sampler2D[4]
-    private Shader.Uniform samplerCube; // samplerCube[4]
-    private Shader.Uniform sampler2DShadow; // sampler2DShadow[4]
-    private Shader.Uniform texConfig; // int[4]
-
-    private Shader.Uniform combineSrcAlpha; // ivec3[4]
-    private Shader.Uniform combineSrcRGB; // ivec3[4]
-    private Shader.Uniform combineOpAlpha; // ivec3[4]
-    private Shader.Uniform combineOpRGB; // ivec3[4]
-    private Shader.Uniform combineFuncAlpha; // int[4]
-    private Shader.Uniform combineFuncRGB; // int[4]
-    private Shader.Uniform combineColor; // vec4[4]
+    public long getVariantHits() {
+        return variantHits;
+    }
 
-    /*
-     * Shader attributes
+    /**
+     * @return The number of times rendering required a shader variant that had to be compiled, since the
+     *         counters were last reset
      */
-    private Shader.Attribute vertices;
-    private Shader.Attribute normals;
-    private Shader.Attribute colors;
-    private Shader.Attribute texCoords; // vec4[4]
+    public long getVariantMisses() {
+        return variantMisses;
+    }
 
-    public ShaderFixedFunctionEmulator(GlslRenderer shaderRenderer) {
-        glsl = shaderRenderer;
-        shader = null;
+    /**
+     * Reset the counters reported by {@link #getVariantHits()} and {@link #getVariantMisses()}.
+     */
+    public void resetVariantCounters() {
+        variantHits = 0;
+        variantMisses = 0;
     }
 
     @Override
@@ -246,6 +252,13 @@ public class ShaderFixedFunctionEmulator implements FixedFunctionRenderer, Activ
 
     @Override
     public int render(PolygonType polyType, int offset, int count) {
+        int features = getFeatures();
+        if (variant.features != features) {
+            useVariant(features);
+        }
+        if (dirty != 0) {
+            flush();
+        }
         return glsl.render(polyType, offset, count);
     }
 
@@ -267,16 +280,13 @@ public class ShaderFixedFunctionEmulator implements FixedFunctionRenderer, Activ
 
     @Override
     public ContextState<FixedFunctionRenderer> getCurrentState() {
-        return new WrappedState(glsl.getCurrentState(), modelview);
+        return new WrappedState(this);
     }
 
     @Override
     public void reset() {
-        glsl.setCurrentState(defaultState);
+        setCurrentState(defaultState);
         glsl.setViewport(0, 0, resetSurfaceWidth, resetSurfaceHeight);
-
-        // must speciall update our cached modelview state for related uniform computations
-        setModelViewMatrices(defaultModelview);
     }
 
     @Override
@@ -284,30 +294,49 @@ public class ShaderFixedFunctionEmulator implements FixedFunctionRenderer, Activ
         WrappedState s = (WrappedState) state;
         glsl.setCurrentState(s.realState);
 
+        // copy the emulated state since the wrapped state can be restored more than once
+        this.state = new FixedFunctionState(s.state);
+        System.arraycopy(s.textures, 0, textures, 0, textures.length);
+        vertexBinding = s.vertexBinding;
+        normalBinding = s.normalBinding;
+        colorBinding = s.colorBinding;
+        System.arraycopy(s.texCoordBindings, 0, texCoordBindings, 0, texCoordBindings.length);
+
         // must specially update our cached modelview state for related uniform computations
-        setModelViewMatrices(s.modelview);
+        setModelViewMatrices(this.state.modelView);
+
+        // the real state bound the variant's shader but its uniforms might predate the wrapped state
+        variant = s.variant;
+        dirty = DIRTY_ALL;
     }
 
     @Override
     public void setFogEnabled(boolean enable) {
-        glsl.setUniform(enableFog, enable);
+        state.fogEnabled = enable;
     }
 
     @Override
     public void setFogColor(@Const Vector4 color) {
-        glsl.setUniform(fogColor, color);
+        if (color == null) {
+            throw new NullPointerException("Null fog color");
+        }
+        state.fogColor.set(color);
+        dirty |= DIRTY_FOG;
     }
 
     @Override
     public void setFogLinear(double start, double end) {
-        temp3.set(start, end, 0.0);
-        glsl.setUniform(fogConfig, temp3);
+        state.fogStart = start;
+        state.fogEnd = end;
+        state.fogMode = FixedFunctionState.FogMode.LINEAR;
+        dirty |= DIRTY_FOG;
     }
 
     @Override
     public void setFogExponential(double density, boolean squared) {
-        temp3.set(density, 0.0, squared ? -1.0 : 1.0);
-        glsl.setUniform(fogConfig, temp3);
+        state.fogDensity = density;
+        state.fogMode = (squared ? FixedFunctionState.FogMode.EXP_SQUARED : FixedFunctionState.FogMode.EXP);
+        dirty |= DIRTY_FOG;
     }
 
     @Override
@@ -337,24 +366,31 @@ public class ShaderFixedFunctionEmulator implements FixedFunctionRenderer, Activ
 
     @Override
     public void setAlphaTest(Comparison test, double refValue) {
-        // pass -1 to disable completely
-        glsl.setUniform(alphaTest, test == Comparison.ALWAYS ? -1 : test.ordinal());
-        glsl.setUniform(alphaRefValue, refValue);
+        if (test == null) {
+            throw new NullPointerException("Null comparison");
+        }
+        state.alphaTest = test;
+        state.alphaRefValue = refValue;
+        dirty |= DIRTY_ALPHA_TEST;
     }
 
     @Override
     public void setLightingEnabled(boolean enable) {
-        glsl.setUniform(enableLighting, enable);
+        state.lightingEnabled = enable;
     }
 
     @Override
     public void setGlobalAmbientLight(@Const Vector4 ambient) {
-        glsl.setUniform(globalAmbient, ambient);
+        if (ambient == null) {
+            throw new NullPointerException("Null global ambient color");
+        }
+        state.globalAmbient.set(ambient);
+        dirty |= DIRTY_LIGHTING;
     }
 
     @Override
     public void setLightEnabled(int light, boolean enable) {
-        glsl.setUniformArray(enableSingleLight, light, enable);
+        state.lights[light].enabled = enable;
     }
 
     @Override
@@ -363,29 +399,38 @@ public class ShaderFixedFunctionEmulator implements FixedFunctionRenderer, Activ
             throw new IllegalArgumentException("Light position must have a w component of 0 or 1, not: " +
                                                pos.w);
         }
-        temp4.mul(modelview, pos);
-        glsl.setUniformArray(lightPosition, light, temp4);
+        state.lights[light].position.mul(state.modelView, pos);
+        dirty |= DIRTY_LIGHTING;
     }
 
     @Override
     public void setLightColor(int light, @Const Vector4 amb, @Const Vector4 diff, @Const Vector4 spec) {
-        glsl.setUniformArray(ambientLightColors, light, amb);
-        glsl.setUniformArray(diffuseLightColors, light, diff);
-        glsl.setUniformArray(specularLightColors, light, spec);
+        if (amb == null || diff == null || spec == null) {
+            throw new NullPointerException("Colors cannot be null");
+        }
+        FixedFunctionState.LightState l = state.lights[light];
+        l.ambient.set(amb);
+        l.diffuse.set(diff);
+        l.specular.set(spec);
+        dirty |= DIRTY_LIGHTING;
     }
 
     @Override
     public void setSpotlight(int light, @Const Vector3 dir, double angle, double exponent) {
-        temp3.transform(modelview, dir, 0.0).normalize();
-        glsl.setUniformArray(spotlightDirections, light, temp3);
-        glsl.setUniformArray(spotlightCutoffs, light, Math.cos(Math.toRadians(angle)));
-        glsl.setUniformArray(spotlightExponents, light, exponent);
+        FixedFunctionState.LightState l = state.lights[light];
+        l.spotlightDirection.transform(state.modelView, dir, 0.0).normalize();
+        l.spotAngle = angle;
+        l.spotExponent = exponent;
+        dirty |= DIRTY_LIGHTING;
     }
 
     @Override
     public void setLightAttenuation(int light, double constant, double linear, double quadratic) {
-        temp3.set(constant, linear, quadratic);
-        glsl.setUniformArray(lightAttenuations, light, temp3);
+        FixedFunctionState.LightState l = state.lights[light];
+        l.constAtt = constant;
+        l.linAtt = linear;
+        l.quadAtt = quadratic;
+        dirty |= DIRTY_LIGHTING;
     }
 
     @Override
@@ -399,137 +444,207 @@ public class ShaderFixedFunctionEmulator implements FixedFunctionRenderer, Activ
 
     @Override
     public void setMaterialDiffuse(@Const Vector4 diff) {
-        glsl.setAttribute(colors, diff);
+        if (diff == null) {
+            throw new NullPointerException("Color cannot be null");
+        }
+        // the diffuse color is a constant vertex attribute so it replaces any color array
+        state.matDiffuse.set(diff);
+        colorBinding = null;
+        dirty |= DIRTY_ATTRIBUTES;
     }
 
     @Override
     public void setMaterialAmbient(@Const Vector4 amb) {
-        glsl.setUniform(ambientMaterial, amb);
+        if (amb == null) {
+            throw new NullPointerException("Color cannot be null");
+        }
+        state.matAmbient.set(amb);
+        dirty |= DIRTY_MATERIAL;
     }
 
     @Override
     public void setMaterialSpecular(@Const Vector4 spec) {
-        glsl.setUniform(specularMaterial, spec);
+        if (spec == null) {
+            throw new NullPointerException("Color cannot be null");
+        }
+        state.matSpecular.set(spec);
+        dirty |= DIRTY_MATERIAL;
     }
 
     @Override
     public void setMaterialEmissive(@Const Vector4 emm) {
-        glsl.setUniform(emittedMaterial, emm);
+        if (emm == null) {
+            throw new NullPointerException("Color cannot be null");
+        }
+        state.matEmissive.set(emm);
+        dirty |= DIRTY_MATERIAL;
     }
 
     @Override
     public void setMaterialShininess(double shininess) {
-        glsl.setUniform(this.shininess, shininess);
+        state.matShininess = shininess;
+        dirty |= DIRTY_MATERIAL;
     }
 
     @Override
     public void setTexture(int tex, Sampler image) {
-        if (image instanceof Texture1D) {
-            glsl.setUniformArray(sampler1D, tex, image);
-            glsl.setUniformArray(texConfig, tex, 0);
-        } else if (image instanceof Texture2D) {
-            glsl.setUniformArray(sampler2D, tex, image);
-            glsl.setUniformArray(texConfig, tex, 1);
-        } else if (image instanceof TextureCubeMap) {
-            glsl.setUniformArray(samplerCube, tex, image);
-            glsl.setUniformArray(texConfig, tex, 2);
-        } else if (image instanceof DepthMap2D) {
-            DepthMap2D map = (DepthMap2D) image;
-
-            if (map.getDepthComparison() != null) {
-                // use shadow sampler
-                glsl.setUniformArray(sampler2DShadow, tex, image);
-                glsl.setUniformArray(texConfig, tex, 3);
-            } else {
-                // treat it like its a regular 2d texture but with special flag to convert r value
-                // into a luminance value for ffp
-                glsl.setUniformArray(sampler2D, tex, image);
-                glsl.setUniformArray(texConfig, tex, 4);
-            }
-        } else if (image != null) {
+        if (image != null && !(image instanceof Texture1D) && !(image instanceof Texture2D) &&
+            !(image instanceof TextureCubeMap) && !(image instanceof DepthMap2D)) {
             throw new UnsupportedOperationException(image.getClass() +
                                                     " not supported in FixedFunctionRenderer");
-        } else {
-            glsl.setUniformArray(texConfig, tex, -1);
         }
+        if (image != null) {
+            // validate now like the other setters, instead of failing later in render()
+            if (image.isDestroyed()) {
+                throw new ResourceException("Cannot use a destroyed resource");
+            }
+            if (!image.getDataType().isDecimalNumber() && image.getDataType() != DataType.INT_BIT_FIELD) {
+                throw new IllegalArgumentException("FixedFunctionRenderer expects decimal texture formats");
+            }
+        }
+        textures[tex] = image;
+        dirty |= DIRTY_TEXTURES;
     }
 
     @Override
     public void setTextureColor(int tex, @Const Vector4 color) {
-        glsl.setUniformArray(combineColor, tex, color);
+        if (color == null) {
+            throw new NullPointerException("Texture color can't be null");
+        }
+        state.textures[tex].color.set(color);
+        dirty |= DIRTY_TEXTURES;
     }
 
     @Override
     public void setTextureCoordinateSource(int tex, TexCoordSource gen) {
-        glsl.setUniformArray(texCoordSource, tex, gen.ordinal());
+        if (gen == null) {
+            throw new NullPointerException("TexCoordSource can't be null");
+        }
+        state.textures[tex].source = gen;
+        dirty |= DIRTY_TEXTURES;
     }
 
     @Override
     public void setTextureObjectPlanes(int tex, @Const Matrix4 planes) {
-        glsl.setUniformArray(objPlanes, tex, planes);
+        if (planes == null) {
+            throw new NullPointerException("Object planes cannot be null");
+        }
+        state.textures[tex].objPlanes.set(planes);
+        dirty |= DIRTY_TEXTURES;
     }
 
     @Override
     public void setTextureEyePlanes(int tex, @Const Matrix4 planes) {
-        tempM.mul(planes, inverseModelview);
-        glsl.setUniformArray(eyePlanes, tex, tempM);
+        if (planes == null) {
+            throw new NullPointerException("Eye planes cannot be null");
+        }
+        state.textures[tex].eyePlanes.mul(planes, inverseModelview);
+        dirty |= DIRTY_TEXTURES;
     }
 
     @Override
     public void setTextureTransform(int tex, @Const Matrix4 matrix) {
-        glsl.setUniformArray(textureMatrix, tex, matrix);
+        if (matrix == null) {
+            throw new NullPointerException("Matrix cannot be null");
+        }
+        state.textures[tex].textureMatrix.set(matrix);
+        dirty |= DIRTY_TEXTURES;
     }
 
     @Override
     public void setTextureCombineRGB(int tex, CombineFunction function, CombineSource src0,
                                      CombineOperand op0, CombineSource src1, CombineOperand op1,
                                      CombineSource src2, CombineOperand op2) {
-        glsl.setUniformArray(combineFuncRGB, tex, function.ordinal());
-        glsl.setUniformArray(combineSrcRGB, tex, src0.ordinal(), src1.ordinal(), src2.ordinal());
-        glsl.setUniformArray(combineOpRGB, tex, op0.ordinal(), op1.ordinal(), op2.ordinal());
+        if (function == null || src0 == null || src1 == null || src2 == null || op0 == null ||
+            op1 == null || op2 == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        FixedFunctionState.TextureState t = state.textures[tex];
+        t.rgbFunc = function;
+        t.srcRgb[0] = src0;
+        t.srcRgb[1] = src1;
+        t.srcRgb[2] = src2;
+        t.opRgb[0] = op0;
+        t.opRgb[1] = op1;
+        t.opRgb[2] = op2;
+        dirty |= DIRTY_TEXTURES;
     }
 
     @Override
     public void setTextureCombineAlpha(int tex, CombineFunction function, CombineSource src0,
                                        CombineOperand op0, CombineSource src1, CombineOperand op1,
                                        CombineSource src2, CombineOperand op2) {
-        glsl.setUniformArray(combineFuncAlpha, tex, function.ordinal());
-        glsl.setUniformArray(combineSrcAlpha, tex, src0.ordinal(), src1.ordinal(), src2.ordinal());
-        glsl.setUniformArray(combineOpAlpha, tex, op0.ordinal(), op1.ordinal(), op2.ordinal());
+        if (function == null || src0 == null || src1 == null || src2 == null || op0 == null ||
+            op1 == null || op2 == null) {
+            throw new NullPointerException("Arguments cannot be null");
+        }
+        FixedFunctionState.TextureState t = state.textures[tex];
+        t.alphaFunc = function;
+        t.srcAlpha[0] = src0;
+        t.srcAlpha[1] = src1;
+        t.srcAlpha[2] = src2;
+        t.opAlpha[0] = op0;
+        t.opAlpha[1] = op1;
+        t.opAlpha[2] = op2;
+        dirty |= DIRTY_TEXTURES;
     }
 
     @Override
     public void setProjectionMatrix(@Const Matrix4 projection) {
-        glsl.setUniform(projectionMatrix, projection);
+        if (projection == null) {
+            throw new NullPointerException("Matrix cannot be null");
+        }
+        state.projection.set(projection);
+        dirty |= DIRTY_TRANSFORM;
     }
 
     @Override
     public void setModelViewMatrix(@Const Matrix4 modelView) {
+        if (modelView == null) {
+            throw new NullPointerException("Matrix cannot be null");
+        }
         setModelViewMatrices(modelView);
-        glsl.setUniform(modelviewMatrix, modelView);
-        glsl.setUniform(normalMatrix, normal);
+        dirty |= DIRTY_TRANSFORM;
     }
 
-    // FIXME validate element size and or type? type should be handled, but element size is more flexible
-    // in glsl renderer compared to ffp spec
+    private static void validateBinding(VertexAttribute attr) {
+        if (attr != null) {
+            // validate now like setTexture(), instead of failing later in render()
+            if (attr.getVBO().isDestroyed()) {
+                throw new ResourceException("Cannot use a destroyed resource");
+            }
+            // the emulation shader declares every attribute with a floating point type
+            AbstractGlslRenderer.validateBufferType(Shader.VariableType.VEC4, attr);
+        }
+    }
+
+    // FIXME validate element size? it is more flexible in glsl renderer compared to ffp spec
     @Override
     public void setVertices(VertexAttribute vertices) {
-        glsl.bindAttribute(this.vertices, vertices);
+        validateBinding(vertices);
+        vertexBinding = vertices;
+        dirty |= DIRTY_ATTRIBUTES;
     }
 
     @Override
     public void setNormals(VertexAttribute normals) {
-        glsl.bindAttribute(this.normals, normals);
+        validateBinding(normals);
+        normalBinding = normals;
+        dirty |= DIRTY_ATTRIBUTES;
     }
 
     @Override
     public void setColors(VertexAttribute colors) {
-        glsl.bindAttribute(this.colors, colors);
+        validateBinding(colors);
+        colorBinding = colors;
+        dirty |= DIRTY_ATTRIBUTES;
     }
 
     @Override
     public void setTextureCoordinates(int tex, VertexAttribute texCoords) {
-        glsl.bindAttributeArray(this.texCoords, tex, texCoords);
+        validateBinding(texCoords);
+        texCoordBindings[tex] = texCoords;
+        dirty |= DIRTY_ATTRIBUTES;
     }
 
     @Override
@@ -538,202 +653,506 @@ public class ShaderFixedFunctionEmulator implements FixedFunctionRenderer, Activ
             ((Activateable) glsl).activate(surface);
         }
 
-        if (shader == null) {
-            ShaderBuilder shaderBuilder = surface.getFramework().newShader();
+        if (framework == null) {
+            framework = surface.getFramework();
+            vertexSource = loadSource(VERTEX_SHADER, "vertex");
+            fragmentSource = loadSource(FRAGMENT_SHADER, "fragment");
+
+            // compile the variant for the default state and issue the defaults so that we can snapshot
+            // that state as the default
+            loadDefaultState();
+        }
+
+        resetSurfaceWidth = surface.getWidth();
+        resetSurfaceHeight = surface.getHeight();
+    }
+
+    private String loadSource(String resource, String stage) {
+        InputStream source = getClass().getResourceAsStream(resource);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(source))) {
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null) {
+                sb.append(line).append('\n');
+            }
+            return sb.toString();
+        } catch (IOException e) {
+            throw new FrameworkException("Unable to load " + stage + " shader for FFP emulation", e);
+        }
+    }
 
-            try (BufferedReader vertIn = new BufferedReader(new InputStreamReader(getClass()
-                                                                                          .getResourceAsStream(VERTEX_SHADER)))) {
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = vertIn.readLine()) != null) {
-                    sb.append(line).append('\n');
+    private int getFeatures() {
+        int features = 0;
+        if (state.lightingEnabled) {
+            // the individual lights only matter when lighting is enabled
+            features |= LIGHTING;
+            for (int i = 0; i < FixedFunctionState.MAX_LIGHTS; i++) {
+                if (state.lights[i].enabled) {
+                    features |= LIGHT0 << i;
                 }
-                shaderBuilder.withVertexShader(sb.toString());
-            } catch (IOException e) {
-                throw new FrameworkException("Unable to load vertex shader for FFP emulation", e);
             }
+        }
+        if (state.fogEnabled) {
+            features |= FOG;
+        }
+        if (state.alphaTest != Comparison.ALWAYS) {
+            features |= ALPHA_TEST;
+        }
+        for (int i = 0; i < FixedFunctionState.MAX_TEXTURES; i++) {
+            // like the GlslRenderer, a texture destroyed after it was assigned is treated as unbound
+            if (textures[i] != null && !textures[i].isDestroyed()) {
+                features |= TEXTURE0 << i;
+            }
+        }
+        return features;
+    }
 
-            try (BufferedReader fragIn = new BufferedReader(new InputStreamReader(getClass()
-                                                                                          .getResourceAsStream(FRAGMENT_SHADER)))) {
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = fragIn.readLine()) != null) {
-                    sb.append(line).append('\n');
+    private void useVariant(int features) {
+        Variant v = variants.get(features);
+        if (v == null) {
+            v = new Variant(features, compileVariant(features));
+            variants.put(features, v);
+            variantMisses++;
+        } else {
+            variantHits++;
+        }
+
+        glsl.setShader(v.shader);
+        variant = v;
+        // the new variant's uniforms hold whatever was last pushed to it, if anything
+        dirty = DIRTY_ALL;
+    }
+
+    private Shader compileVariant(int features) {
+        StringBuilder defines = new StringBuilder();
+        if ((features & LIGHTING) != 0) {
+            defines.append("#define FFP_LIGHTING\n");
+        }
+        for (int i = 0; i < FixedFunctionState.MAX_LIGHTS; i++) {
+            if ((features & (LIGHT0 << i)) != 0) {
+                defines.append("#define FFP_LIGHT").append(i).append('\n');
+            }
+        }
+        if ((features & FOG) != 0) {
+            defines.append("#define FFP_FOG\n");
+        }
+        if ((features & ALPHA_TEST) != 0) {
+            defines.append("#define FFP_ALPHA_TEST\n");
+        }
+        for (int i = 0; i < FixedFunctionState.MAX_TEXTURES; i++) {
+            if ((features & (TEXTURE0 << i)) != 0) {
+                defines.append("#define FFP_TEXTURE").append(i).append('\n');
+            }
+        }
+
+        ShaderBuilder shaderBuilder = framework.newShader();
+        shaderBuilder.withVertexShader(specialize(vertexSource, defines))
+                     .withFragmentShader(specialize(fragmentSource, defines));
+        shaderBuilder.bindColorBuffer("fColor", 0);
+        return shaderBuilder.build();
+    }
+
+    private static String specialize(String source, CharSequence defines) {
+        // the defines must follow the #version directive, and #line keeps compiler messages aligned with
+        // the line numbers of the original source
+        int versionEnd = source.indexOf('\n') + 1;
+        return source.substring(0, versionEnd) + defines + "#line 2\n" + source.substring(versionEnd);
+    }
+
+    private static boolean isActive(Shader.Variable var, int index) {
+        // the compiler removes variables unused by a variant, and can shorten arrays as well
+        return var != null && index < var.getLength();
+    }
+
+    private void flush() {
+        Variant v = variant;
+
+        if ((dirty & DIRTY_TRANSFORM) != 0) {
+            if (isActive(v.modelviewMatrix, 0)) {
+                glsl.setUniform(v.modelviewMatrix, state.modelView);
+            }
+            if (isActive(v.normalMatrix, 0)) {
+                glsl.setUniform(v.normalMatrix, normal);
+            }
+            if (isActive(v.projectionMatrix, 0)) {
+                glsl.setUniform(v.projectionMatrix, state.projection);
+            }
+        }
+
+        if ((v.features & LIGHTING) != 0) {
+            if ((dirty & DIRTY_LIGHTING) != 0) {
+                flushLighting(v);
+            }
+            if ((dirty & DIRTY_MATERIAL) != 0) {
+                if (isActive(v.ambientMaterial, 0)) {
+                    glsl.setUniform(v.ambientMaterial, state.matAmbient);
+                }
+                if (isActive(v.specularMaterial, 0)) {
+                    glsl.setUniform(v.specularMaterial, state.matSpecular);
+                }
+                if (isActive(v.emittedMaterial, 0)) {
+                    glsl.setUniform(v.emittedMaterial, state.matEmissive);
+                }
+                if (isActive(v.shininess, 0)) {
+                    glsl.setUniform(v.shininess, state.matShininess);
+                }
+            }
+        }
+
+        if ((v.features & FOG) != 0 && (dirty & DIRTY_FOG) != 0) {
+            if (isActive(v.fogColor, 0)) {
+                glsl.setUniform(v.fogColor, state.fogColor);
+            }
+            if (isActive(v.fogConfig, 0)) {
+                if (state.fogMode == FixedFunctionState.FogMode.EXP) {
+                    temp3.set(state.fogDensity, 0.0, 1.0);
+                } else if (state.fogMode == FixedFunctionState.FogMode.EXP_SQUARED) {
+                    temp3.set(state.fogDensity, 0.0, -1.0);
+                } else {
+                    temp3.set(state.fogStart, state.fogEnd, 0.0);
                 }
-                shaderBuilder.withFragmentShader(sb.toString());
-            } catch (IOException e) {
-                throw new FrameworkException("Unable to load fragment shader for FFP emulation", e);
+                glsl.setUniform(v.fogConfig, temp3);
             }
+        }
 
-            shaderBuilder.bindColorBuffer("fColor", 0);
-            shader = shaderBuilder.build();
+        if ((v.features & ALPHA_TEST) != 0 && (dirty & DIRTY_ALPHA_TEST) != 0) {
+            if (isActive(v.alphaTest, 0)) {
+                glsl.setUniform(v.alphaTest, state.alphaTest.ordinal());
+            }
+            if (isActive(v.alphaRefValue, 0)) {
+                glsl.setUniform(v.alphaRefValue, state.alphaRefValue);
+            }
+        }
 
-            // get references to every uniform available and
-            // issue defaults to the uniforms so that we can snapshot that state as the default
-            loadVariables();
-            loadDefaultState();
+        if ((dirty & DIRTY_TEXTURES) != 0) {
+            for (int i = 0; i < FixedFunctionState.MAX_TEXTURES; i++) {
+                if ((v.features & (TEXTURE0 << i)) != 0) {
+                    flushTexture(v, i);
+                }
+            }
         }
 
-        resetSurfaceWidth = surface.getWidth();
-        resetSurfaceHeight = surface.getHeight();
+        if ((dirty & DIRTY_ATTRIBUTES) != 0) {
+            if (isActive(v.vertices, 0)) {
+                if (vertexBinding != null) {
+                    glsl.bindAttribute(v.vertices, vertexBinding);
+                } else {
+                    glsl.setAttribute(v.vertices, DEFAULT_VERTEX);
+                }
+            }
+            if (isActive(v.normals, 0)) {
+                if (normalBinding != null) {
+                    glsl.bindAttribute(v.normals, normalBinding);
+                } else {
+                    glsl.setAttribute(v.normals, DEFAULT_NORMAL);
+                }
+            }
+            if (isActive(v.colors, 0)) {
+                if (colorBinding != null) {
+                    glsl.bindAttribute(v.colors, colorBinding);
+                } else {
+                    glsl.setAttribute(v.colors, state.matDiffuse);
+                }
+            }
+            for (int i = 0; i < FixedFunctionState.MAX_TEXTURES; i++) {
+                if (isActive(v.texCoords, i)) {
+                    if (texCoordBindings[i] != null) {
+                        glsl.bindAttributeArray(v.texCoords, i, texCoordBindings[i]);
+                    } else {
+                        glsl.setAttributeArray(v.texCoords, i, DEFAULT_TEXCOORD);
+                    }
+                }
+            }
+        }
+
+        // only cleared once every group is pushed, so a group that failed is pushed again by the next render
+        dirty = 0;
     }
 
-    private void loadVariables() {
-        alphaRefValue = shader.getUniform("uAlphaRefValue");
-        alphaTest = shader.getUniform("uAlphaComparison");
-
-        enableFog = shader.getUniform("uEnableFog");
-        fogConfig = shader.getUniform("uFogConfig");
-        fogColor = shader.getUniform("uFogColor");
-
-        sampler1D = shader.getUniform("uTex1D");
-        sampler2D = shader.getUniform("uTex2D");
-        sampler2DShadow = shader.getUniform("uTexShadow");
-        samplerCube = shader.getUniform("uTexCube");
-        texConfig = shader.getUniform("uTexConfig");
-
-        combineSrcAlpha = shader.getUniform("uCombineSrcAlpha");
-        combineSrcRGB = shader.getUniform("uCombineSrcRGB");
-        combineOpAlpha = shader.getUniform("uCombineOpAlpha");
-        combineOpRGB = shader.getUniform("uCombineOpRGB");
-        combineFuncAlpha = shader.getUniform("uCombineFuncAlpha");
-        combineFuncRGB = shader.getUniform("uCombineFuncRGB");
-        combineColor = shader.getUniform("uCombineColor");
-
-        modelviewMatrix = shader.getUniform("uModelview");
-        projectionMatrix = shader.getUniform("uProjection");
-        normalMatrix = shader.getUniform("uNormalMatrix");
-        enableLighting = shader.getUniform("uEnableLighting");
-        globalAmbient = shader.getUniform("uGlobalLight");
-
-        ambientMaterial = shader.getUniform("uMatAmbient");
-        specularMaterial = shader.getUniform("uMatSpecular");
-        emittedMaterial = shader.getUniform("uMatEmissive");
-        shininess = shader.getUniform("uMatShininess");
-
-        enableSingleLight = shader.getUniform("uEnableLight");
-        lightPosition = shader.getUniform("uLightPos");
-        diffuseLightColors = shader.getUniform("uLightDiffuse");
-        specularLightColors = shader.getUniform("uLightSpecular");
-        ambientLightColors = shader.getUniform("uLightAmbient");
-        spotlightDirections = shader.getUniform("uSpotlightDirection");
-        spotlightExponents = shader.getUniform("uSpotlightExponent");
-        spotlightCutoffs = shader.getUniform("uSpotlightCutoff");
-        lightAttenuations = shader.getUniform("uLightAttenuation");
-
-        textureMatrix = shader.getUniform("uTextureMatrix");
-        objPlanes = shader.getUniform("uTexGenObjPlanes");
-        eyePlanes = shader.getUniform("uTexGenEyePlanes");
-        texCoordSource = shader.getUniform("uTexCoordSource");
-
-        vertices = shader.getAttribute("aVertex");
-        normals = shader.getAttribute("aNormal");
-        colors = shader.getAttribute("aDiffuse");
-        texCoords = shader.getAttribute("aTexCoord");
+    private void flushLighting(Variant v) {
+        if (isActive(v.globalAmbient, 0)) {
+            glsl.setUniform(v.globalAmbient, state.globalAmbient);
+        }
+
+        if (v.lightBlock != null) {
+            // the entire block is rewritten, the renderer skips the upload if the contents were seen before
+            for (int i = 0; i < FixedFunctionState.MAX_LIGHTS; i++) {
+                FixedFunctionState.LightState l = state.lights[i];
+                v.lights.setArray(v.lightPosition, i, l.position);
+                v.lights.setArray(v.ambientLightColors, i, l.ambient);
+                v.lights.setArray(v.diffuseLightColors, i, l.diffuse);
+                v.lights.setArray(v.specularLightColors, i, l.specular);
+                v.lights.setArray(v.spotlightDirections, i, l.spotlightDirection);
+                v.lights.setArray(v.spotlightCutoffs, i, Math.cos(Math.toRadians(l.spotAngle)));
+                v.lights.setArray(v.spotlightExponents, i, l.spotExponent);
+                temp3.set(l.constAtt, l.linAtt, l.quadAtt);
+                v.lights.setArray(v.lightAttenuations, i, temp3);
+            }
+            glsl.setUniformBlock(v.lightBlock, v.lights);
+        }
+    }
+
+    private void flushTexture(Variant v, int unit) {
+        Sampler image = textures[unit];
+        int config;
+        if (image instanceof Texture1D) {
+            config = 0;
+            if (isActive(v.sampler1D, unit)) {
+                glsl.setUniformArray(v.sampler1D, unit, image);
+            }
+        } else if (image instanceof Texture2D) {
+            config = 1;
+            if (isActive(v.sampler2D, unit)) {
+                glsl.setUniformArray(v.sampler2D, unit, image);
+            }
+        } else if (image instanceof TextureCubeMap) {
+            config = 2;
+            if (isActive(v.samplerCube, unit)) {
+                glsl.setUniformArray(v.samplerCube, unit, image);
+            }
+        } else if (((DepthMap2D) image).getDepthComparison() != null) {
+            // use shadow sampler
+            config = 3;
+            if (isActive(v.sampler2DShadow, unit)) {
+                glsl.setUniformArray(v.sampler2DShadow, unit, image);
+            }
+        } else {
+            // treat it like its a regular 2d texture but with special flag to convert r value
+            // into a luminance value for ffp
+            config = 4;
+            if (isActive(v.sampler2D, unit)) {
+                glsl.setUniformArray(v.sampler2D, unit, image);
+            }
+        }
+        if (isActive(v.texConfig, unit)) {
+            glsl.setUniformArray(v.texConfig, unit, config);
+        }
+
+        FixedFunctionState.TextureState t = state.textures[unit];
+        if (isActive(v.textureMatrix, unit)) {
+            glsl.setUniformArray(v.textureMatrix, unit, t.textureMatrix);
+        }
+        if (isActive(v.objPlanes, unit)) {
+            glsl.setUniformArray(v.objPlanes, unit, t.objPlanes);
+        }
+        if (isActive(v.eyePlanes, unit)) {
+            glsl.setUniformArray(v.eyePlanes, unit, t.eyePlanes);
+        }
+        if (isActive(v.texCoordSource, unit)) {
+            glsl.setUniformArray(v.texCoordSource, unit, t.source.ordinal());
+        }
+
+        if (isActive(v.combineSrcAlpha, unit)) {
+            glsl.setUniformArray(v.combineSrcAlpha, unit, t.srcAlpha[0].ordinal(), t.srcAlpha[1].ordinal(),
+                                 t.srcAlpha[2].ordinal());
+        }
+        if (isActive(v.combineSrcRGB, unit)) {
+            glsl.setUniformArray(v.combineSrcRGB, unit, t.srcRgb[0].ordinal(), t.srcRgb[1].ordinal(),
+                                 t.srcRgb[2].ordinal());
+        }
+        if (isActive(v.combineOpAlpha, unit)) {
+            glsl.setUniformArray(v.combineOpAlpha, unit, t.opAlpha[0].ordinal(), t.opAlpha[1].ordinal(),
+                                 t.opAlpha[2].ordinal());
+        }
+        if (isActive(v.combineOpRGB, unit)) {
+            glsl.setUniformArray(v.combineOpRGB, unit, t.opRgb[0].ordinal(), t.opRgb[1].ordinal(),
+                                 t.opRgb[2].ordinal());
+        }
+        if (isActive(v.combineFuncAlpha, unit)) {
+            glsl.setUniformArray(v.combineFuncAlpha, unit, t.alphaFunc.ordinal());
+        }
+        if (isActive(v.combineFuncRGB, unit)) {
+            glsl.setUniformArray(v.combineFuncRGB, unit, t.rgbFunc.ordinal());
+        }
+        if (isActive(v.combineColor, unit)) {
+            glsl.setUniformArray(v.combineColor, unit, t.color);
+        }
     }
 
     private void setModelViewMatrices(@Const Matrix4 mat) {
-        modelview.set(mat);
+        state.modelView.set(mat);
         inverseModelview.inverse(mat);
         normal.setUpper(inverseModelview).transpose();
     }
 
     private void loadDefaultState() {
         glsl.reset();
-        glsl.setShader(shader);
-        FixedFunctionState defaults = new FixedFunctionState();
-
-        // alpha test uniforms
-        glsl.setUniform(alphaRefValue, defaults.alphaRefValue);
-        glsl.setUniform(alphaTest,
-                        defaults.alphaTest == Comparison.ALWAYS ? -1 : defaults.alphaTest.ordinal());
-
-        // fog uniforms
-        glsl.setUniform(fogColor, defaults.fogColor);
-        glsl.setUniform(enableFog, defaults.fogEnabled);
-
-        if (defaults.fogMode == FixedFunctionState.FogMode.EXP) {
-            temp3.set(defaults.fogDensity, 0.0, 1.0);
-        } else if (defaults.fogMode == FixedFunctionState.FogMode.EXP_SQUARED) {
-            temp3.set(defaults.fogDensity, 0.0, -1.0);
-        } else {
-            temp3.set(defaults.fogStart, defaults.fogEnd, 0.0);
-        }
-        glsl.setUniform(fogConfig, temp3);
 
-        // transform uniforms
-        defaultModelview.set(defaults.modelView);
-        setModelViewMatrices(defaults.modelView);
+        state = new FixedFunctionState();
+        Arrays.fill(textures, null);
+        vertexBinding = null;
+        normalBinding = null;
+        colorBinding = null;
+        Arrays.fill(texCoordBindings, null);
+        setModelViewMatrices(state.modelView);
 
-        glsl.setUniform(modelviewMatrix, defaults.modelView);
-        glsl.setUniform(normalMatrix, normal);
-        glsl.setUniform(projectionMatrix, defaults.projection);
+        useVariant(getFeatures());
+        flush();
 
-        // lighting
-        glsl.setUniform(enableLighting, defaults.lightingEnabled);
-        glsl.setUniform(globalAmbient, defaults.globalAmbient);
-        for (int i = 0; i < FixedFunctionState.MAX_LIGHTS; i++) {
-            // the default position and spotlight are given post modelview anyways
-            glsl.setUniformArray(enableSingleLight, i, defaults.lights[i].enabled);
-            glsl.setUniformArray(lightPosition, i, defaults.lights[i].position);
-            glsl.setUniformArray(diffuseLightColors, i, defaults.lights[i].diffuse);
-            glsl.setUniformArray(specularLightColors, i, defaults.lights[i].specular);
-            glsl.setUniformArray(ambientLightColors, i, defaults.lights[i].ambient);
-            glsl.setUniformArray(spotlightDirections, i, defaults.lights[i].spotlightDirection);
-            glsl.setUniformArray(spotlightCutoffs, i, Math.cos(Math.toRadians(defaults.lights[i].spotAngle)));
-            glsl.setUniformArray(spotlightExponents, i, defaults.lights[i].spotExponent);
-            temp3.set(defaults.lights[i].constAtt, defaults.lights[i].linAtt, defaults.lights[i].quadAtt);
-            glsl.setUniformArray(lightAttenuations, i, temp3);
-        }
-
-        // material
-        glsl.setUniform(ambientMaterial, defaults.matAmbient);
-        glsl.setUniform(specularMaterial, defaults.matSpecular);
-        glsl.setUniform(emittedMaterial, defaults.matEmissive);
-        glsl.setUniform(shininess, defaults.matShininess);
-
-        // texturing
-        for (int i = 0; i < FixedFunctionState.MAX_TEXTURES; i++) {
-            glsl.setUniformArray(textureMatrix, i, defaults.textures[i].textureMatrix);
-            glsl.setUniformArray(objPlanes, i, defaults.textures[i].objPlanes);
-            glsl.setUniformArray(eyePlanes, i, defaults.textures[i].eyePlanes);
-            glsl.setUniformArray(texCoordSource, i, defaults.textures[i].source.ordinal());
+        defaultState = new WrappedState(this);
+    }
 
-            glsl.setUniformArray(combineSrcAlpha, i, defaults.textures[i].srcAlpha[0].ordinal(),
-                                 defaults.textures[i].srcAlpha[1].ordinal(),
-                                 defaults.textures[i].srcAlpha[2].ordinal());
-            glsl.setUniformArray(combineSrcRGB, i, defaults.textures[i].srcRgb[0].ordinal(),
-                                 defaults.textures[i].srcRgb[1].ordinal(),
-                                 defaults.textures[i].srcRgb[2].ordinal());
-            glsl.setUniformArray(combineOpAlpha, i, defaults.textures[i].opAlpha[0].ordinal(),
-                                 defaults.textures[i].opAlpha[1].ordinal(),
-                                 defaults.textures[i].opAlpha[2].ordinal());
-            glsl.setUniformArray(combineOpRGB, i, defaults.textures[i].opRgb[0].ordinal(),
-                                 defaults.textures[i].opRgb[1].ordinal(),
-                                 defaults.textures[i].opRgb[2].ordinal());
-            glsl.setUniformArray(combineFuncAlpha, i, defaults.textures[i].alphaFunc.ordinal());
-            glsl.setUniformArray(combineFuncRGB, i, defaults.textures[i].rgbFunc.ordinal());
-            glsl.setUniformArray(combineColor, i, defaults.textures[i].color);
+    /*
+     * A compiled permutation of the FFP shaders and its variables, any of which can be null when the
+     * compiler determined that the variant does not use it.
+     */
+    private static class Variant {
+        private final int features;
+        private final Shader shader;
+
+        /*
+         * Vertex shader uniforms
+         */
+        private final Shader.Uniform modelviewMatrix; // mat4
+        private final Shader.Uniform projectionMatrix; // mat4
+        private final Shader.Uniform normalMatrix; // mat3
+
+        private final Shader.Uniform globalAmbient; // vec4
+        // the per-light state is packed into the Lights block, null when lighting is disabled
+        private final Shader.UniformBlock lightBlock;
+        private final UniformBlockData lights;
+
+        private final Shader.BlockMember lightPosition; // vec4[8]
+        private final Shader.BlockMember ambientLightColors; // vec4[8]
+        private final Shader.BlockMember diffuseLightColors; // vec4[8]
+        private final Shader.BlockMember specularLightColors; // vec4[8]
+        private final Shader.BlockMember spotlightDirections; // vec3[8]
+        private final Shader.BlockMember spotlightCutoffs; // float[8]
+        private final Shader.BlockMember spotlightExponents; // float[8]
+        private final Shader.BlockMember lightAttenuations; // vec3[8]
+
+        private final Shader.Uniform ambientMaterial; // vec4
+        private final Shader.Uniform specularMaterial; // vec4
+        private final Shader.Uniform emittedMaterial; // vec4
+        private final Shader.Uniform shininess; // float
+
+        private final Shader.Uniform textureMatrix; // mat4[4]
+        private final Shader.Uniform objPlanes; // mat4[4]
+        private final Shader.Uniform eyePlanes; // mat4[4]
+        private final Shader.Uniform texCoordSource; // int[4]
+
+        /*
+         * Fragment shader uniforms
+         */
+        private final Shader.Uniform alphaTest; // int
+        private final Shader.Uniform alphaRefValue; // float
+
+        private final Shader.Uniform fogConfig; // vec3 start/density, end and mode (see ffp.frag)
+        private final Shader.Uniform fogColor; // vec4
+
+        private final Shader.Uniform sampler1D; // sampler1D[4]
+        private final Shader.Uniform sampler2D; // sampler2D[4]
+        private final Shader.Uniform samplerCube; // samplerCube[4]
+        private final Shader.Uniform sampler2DShadow; // sampler2DShadow[4]
+        private final Shader.Uniform texConfig; // int[4]
+
+        private final Shader.Uniform combineSrcAlpha; // ivec3[4]
+        private final Shader.Uniform combineSrcRGB; // ivec3[4]
+        private final Shader.Uniform combineOpAlpha; // ivec3[4]
+        private final Shader.Uniform combineOpRGB; // ivec3[4]
+        private final Shader.Uniform combineFuncAlpha; // int[4]
+        private final Shader.Uniform combineFuncRGB; // int[4]
+        private final Shader.Uniform combineColor; // vec4[4]
+
+        /*
+         * Shader attributes
+         */
+        private final Shader.Attribute vertices;
+        private final Shader.Attribute normals;
+        private final Shader.Attribute colors;
+        private final Shader.Attribute texCoords; // vec4[4]
+
+        public Variant(int features, Shader shader) {
+            this.features = features;
+            this.shader = shader;
+
+            alphaRefValue = shader.getUniform("uAlphaRefValue");
+            alphaTest = shader.getUniform("uAlphaComparison");
+
+            fogConfig = shader.getUniform("uFogConfig");
+            fogColor = shader.getUniform("uFogColor");
+
+            sampler1D = shader.getUniform("uTex1D");
+            sampler2D = shader.getUniform("uTex2D");
+            sampler2DShadow = shader.getUniform("uTexShadow");
+            samplerCube = shader.getUniform("uTexCube");
+            texConfig = shader.getUniform("uTexConfig");
+
+            combineSrcAlpha = shader.getUniform("uCombineSrcAlpha");
+            combineSrcRGB = shader.getUniform("uCombineSrcRGB");
+            combineOpAlpha = shader.getUniform("uCombineOpAlpha");
+            combineOpRGB = shader.getUniform("uCombineOpRGB");
+            combineFuncAlpha = shader.getUniform("uCombineFuncAlpha");
+            combineFuncRGB = shader.getUniform("uCombineFuncRGB");
+            combineColor = shader.getUniform("uCombineColor");
+
+            modelviewMatrix = shader.getUniform("uModelview");
+            projectionMatrix = shader.getUniform("uProjection");
+            normalMatrix = shader.getUniform("uNormalMatrix");
+            globalAmbient = shader.getUniform("uGlobalLight");
+
+            ambientMaterial = shader.getUniform("uMatAmbient");
+            specularMaterial = shader.getUniform("uMatSpecular");
+            emittedMaterial = shader.getUniform("uMatEmissive");
+            shininess = shader.getUniform("uMatShininess");
+
+            lightBlock = shader.getUniformBlock("Lights");
+            if (lightBlock != null) {
+                // std140 keeps every member active, so these are non-null when the block is
+                lights = new UniformBlockData(lightBlock);
+                lightPosition = lightBlock.getMember("uLightPos");
+                diffuseLightColors = lightBlock.getMember("uLightDiffuse");
+                specularLightColors = lightBlock.getMember("uLightSpecular");
+                ambientLightColors = lightBlock.getMember("uLightAmbient");
+                spotlightDirections = lightBlock.getMember("uSpotlightDirection");
+                spotlightExponents = lightBlock.getMember("uSpotlightExponent");
+                spotlightCutoffs = lightBlock.getMember("uSpotlightCutoff");
+                lightAttenuations = lightBlock.getMember("uLightAttenuation");
+            } else {
+                lights = null;
+                lightPosition = null;
+                diffuseLightColors = null;
+                specularLightColors = null;
+                ambientLightColors = null;
+                spotlightDirections = null;
+                spotlightExponents = null;
+                spotlightCutoffs = null;
+                lightAttenuations = null;
+            }
 
-            glsl.setUniformArray(texConfig, i, -1); // no textures enabled by default
+            textureMatrix = shader.getUniform("uTextureMatrix");
+            objPlanes = shader.getUniform("uTexGenObjPlanes");
+            eyePlanes = shader.getUniform("uTexGenEyePlanes");
+            texCoordSource = shader.getUniform("uTexCoordSource");
 
-            glsl.setAttribute(texCoords, new Vector4(0, 0, 0, 1));
+            vertices = shader.getAttribute("aVertex");
+            normals = shader.getAttribute("aNormal");
+            colors = shader.getAttribute("aDiffuse");
+            texCoords = shader.getAttribute("aTexCoord");
         }
-
-        glsl.setAttribute(colors, defaults.matDiffuse);
-        glsl.setAttribute(vertices, new Vector4(0, 0, 0, 1));
-        glsl.setAttribute(normals, new Vector3(0, 0, 1));
-
-        defaultState = glsl.getCurrentState();
     }
 
     private static class WrappedState implements ContextState<FixedFunctionRenderer> {
         private final ContextState<GlslRenderer> realState;
-        private final Matrix4 modelview;
-
-        public WrappedState(ContextState<GlslRenderer> realState, @Const Matrix4 modelview) {
-            this.realState = realState;
-            this.modelview = new Matrix4(modelview);
+        private final Variant variant;
+
+        private final FixedFunctionState state;
+        private final Sampler[] textures;
+        private final VertexAttribute vertexBinding;
+        private final VertexAttribute normalBinding;
+        private final VertexAttribute colorBinding;
+        private final VertexAttribute[] texCoordBindings;
+
+        public WrappedState(ShaderFixedFunctionEmulator emulator) {
+            realState = emulator.glsl.getCurrentState();
+            variant = emulator.variant;
+
+            state = new FixedFunctionState(emulator.state);
+            textures = Arrays.copyOf(emulator.textures, emulator.textures.length);
+            vertexBinding = emulator.vertexBinding;
+            normalBinding = emulator.normalBinding;
+            colorBinding = emulator.colorBinding;
+            texCoordBindings = Arrays.copyOf(emulator.texCoordBindings, emulator.texCoordBindings.length);
         }
     }
 }
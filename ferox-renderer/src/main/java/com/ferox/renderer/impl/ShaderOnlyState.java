@@ -27,6 +27,7 @@
 package com.ferox.renderer.impl;
 
 import com.ferox.renderer.DataType;
+import com.ferox.renderer.UniformBlockData;
 import com.ferox.renderer.impl.resources.BufferImpl;
 
 import java.util.Arrays;
@@ -52,6 +53,9 @@ public class ShaderOnlyState {
         public int stride;
         public int elementSize;
 
+        // instance divisor, 0 for per-vertex data
+        public int divisor;
+
         // otherwise attribute data comes from these values
         public final float[] floatAttrValues;
         public final int[] intAttrValues;
@@ -66,6 +70,7 @@ public class ShaderOnlyState {
             offset = 0;
             stride = 0;
             elementSize = 0;
+            divisor = 0;
 
             floatAttrValues = new float[4];
             intAttrValues = new int[4];
@@ -78,6 +83,7 @@ public class ShaderOnlyState {
             offset = state.offset;
             stride = state.stride;
             elementSize = state.elementSize;
+            divisor = state.divisor;
 
             floatAttrValues = Arrays.copyOf(state.floatAttrValues, state.floatAttrValues.length);
             intAttrValues = Arrays.copyOf(state.intAttrValues, state.intAttrValues.length);
@@ -88,11 +94,16 @@ public class ShaderOnlyState {
 
     public final AttributeState[] attributes;
 
-    public ShaderOnlyState(int numAttributes) {
+    // the data bound to each uniform block binding point, these are private copies owned by the renderer's
+    // upload cache that are never modified so they can be shared between state instances
+    public final UniformBlockData[] uniformBlocks;
+
+    public ShaderOnlyState(int numAttributes, int numUniformBlocks) {
         attributes = new AttributeState[numAttributes];
         for (int i = 0; i < numAttributes; i++) {
             attributes[i] = new AttributeState(i);
         }
+        uniformBlocks = new UniformBlockData[numUniformBlocks];
     }
 
     public ShaderOnlyState(ShaderOnlyState toClone) {
@@ -100,5 +111,6 @@ public class ShaderOnlyState {
         for (int i = 0; i < attributes.length; i++) {
             attributes[i] = new AttributeState(toClone.attributes[i]);
         }
+        uniformBlocks = Arrays.copyOf(toClone.uniformBlocks, toClone.uniformBlocks.length);
     }
 }
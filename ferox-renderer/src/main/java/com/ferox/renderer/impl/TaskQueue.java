@@ -0,0 +1,325 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl;
+
+import com.ferox.renderer.impl.ContextManager.Lane;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TaskQueue is the multi-lane queue feeding the context thread of a {@link ContextManager}. Each {@link
+ * Lane} is a lock-free queue with a bounded capacity. Producers block only on their own lane's capacity and
+ * never while holding a lock, and the single consumer chooses the next task with a simple priority scheme:
+ * render tasks come first, but after every render task a budgeted number of upload and destroy tasks are
+ * allowed through so that background work cannot be starved by a busy render loop. When there are no render
+ * tasks pending, the other lanes are drained freely. Destroy tasks never run ahead of render tasks that were
+ * queued before them, since those may still use the resource; upload tasks create new resources so they can
+ * be reordered freely.
+ * <p/>
+ * The queue also tracks per-lane depth and wait times (from being queued to being taken by the consumer),
+ * so contention on the context thread can be observed.
+ *
+ * @author Michael Ludwig
+ */
+class TaskQueue {
+    private static final Lane[] LANES = Lane.values();
+
+    private final int uploadBudget;
+    private final int destroyBudget;
+
+    private final Queue<Entry>[] lanes;
+    private final Semaphore[] capacity;
+    private final Semaphore available; // total number of queued entries across all lanes
+    private final AtomicLong sequence;
+
+    private volatile boolean closed;
+
+    // only accessed by the consumer thread
+    private int uploadCredit;
+    private int destroyCredit;
+
+    // metrics, indexed by lane ordinal
+    private final AtomicInteger[] depth;
+    private final AtomicInteger[] maxDepth;
+    private final AtomicLong[] dequeued;
+    private final AtomicLong[] totalWait;
+    private final AtomicLong[] maxWait;
+
+    /**
+     * Create a new TaskQueue.
+     *
+     * @param laneCapacity  The maximum number of pending tasks in each lane
+     * @param uploadBudget  The number of upload tasks that may run after each render task
+     * @param destroyBudget The number of destroy tasks that may run after each render task
+     *
+     * @throws IllegalArgumentException if laneCapacity is less than 1 or a budget is negative
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public TaskQueue(int laneCapacity, int uploadBudget, int destroyBudget) {
+        if (laneCapacity < 1) {
+            throw new IllegalArgumentException("Lane capacity must be at least 1, not: " + laneCapacity);
+        }
+        if (uploadBudget < 0 || destroyBudget < 0) {
+            throw new IllegalArgumentException("Budgets cannot be negative");
+        }
+        this.uploadBudget = uploadBudget;
+        this.destroyBudget = destroyBudget;
+
+        lanes = new Queue[LANES.length];
+        capacity = new Semaphore[LANES.length];
+        depth = new AtomicInteger[LANES.length];
+        maxDepth = new AtomicInteger[LANES.length];
+        dequeued = new AtomicLong[LANES.length];
+        totalWait = new AtomicLong[LANES.length];
+        maxWait = new AtomicLong[LANES.length];
+        for (int i = 0; i < LANES.length; i++) {
+            lanes[i] = new ConcurrentLinkedQueue<>();
+            capacity[i] = new Semaphore(laneCapacity);
+            depth[i] = new AtomicInteger();
+            maxDepth[i] = new AtomicInteger();
+            dequeued[i] = new AtomicLong();
+            totalWait[i] = new AtomicLong();
+            maxWait[i] = new AtomicLong();
+        }
+        available = new Semaphore(0);
+        sequence = new AtomicLong();
+        closed = false;
+    }
+
+    /**
+     * Queue the task into the given lane, blocking while the lane is full. Interrupts do not abort the
+     * offer, but the interrupt status of the calling thread is restored before returning. False is returned
+     * if the queue was closed; the task has been cancelled in that case.
+     *
+     * @param task The task to queue
+     * @param lane The lane to queue the task into
+     *
+     * @return True if the task was queued and will be run or cancelled by the consumer
+     */
+    public boolean offer(Sync<?> task, Lane lane) {
+        int l = lane.ordinal();
+        boolean interrupted = false;
+        try {
+            boolean acquired = false;
+            while (!acquired) {
+                if (closed) {
+                    task.cancel(false);
+                    return false;
+                }
+                try {
+                    acquired = capacity[l].tryAcquire(5, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            return enqueue(task, l);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Queue the task into the given lane if it has room, without blocking. This is safe to call from the
+     * consumer thread. The task is left untouched if false is returned because the lane was full, and it is
+     * cancelled if the queue was closed.
+     *
+     * @param task The task to queue
+     * @param lane The lane to queue the task into
+     *
+     * @return True if the task was queued and will be run or cancelled by the consumer
+     */
+    public boolean tryOffer(Sync<?> task, Lane lane) {
+        if (closed) {
+            task.cancel(false);
+            return false;
+        }
+        int l = lane.ordinal();
+        return capacity[l].tryAcquire() && enqueue(task, l);
+    }
+
+    private boolean enqueue(Sync<?> task, int lane) {
+        lanes[lane].add(new Entry(task, lane, sequence.getAndIncrement(), System.nanoTime()));
+        updateMax(maxDepth[lane], depth[lane].incrementAndGet());
+        available.release();
+
+        if (closed) {
+            // the consumer may have already drained the lanes before our entry showed up
+            cancelRemaining();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Block until a task is available and return it, choosing between lanes based on the priority and
+     * budget rules. This must only be called by the consumer thread.
+     *
+     * @return The next task to run
+     *
+     * @throws InterruptedException if interrupted while waiting for a task
+     */
+    public Sync<?> take() throws InterruptedException {
+        available.acquire();
+
+        // producers add their entry before releasing a permit, so some lane must have an entry for us;
+        // the only concurrent removal is cancelRemaining(), which happens after the consumer has stopped
+        Entry e = poll();
+
+        capacity[e.lane].release();
+        depth[e.lane].decrementAndGet();
+        dequeued[e.lane].incrementAndGet();
+        long wait = System.nanoTime() - e.queuedAt;
+        totalWait[e.lane].addAndGet(wait);
+        updateMax(maxWait[e.lane], wait);
+        return e.task;
+    }
+
+    private Entry poll() {
+        Queue<Entry> render = lanes[Lane.RENDER.ordinal()];
+        Queue<Entry> upload = lanes[Lane.UPLOAD.ordinal()];
+        Queue<Entry> destroy = lanes[Lane.DESTROY.ordinal()];
+
+        Entry e;
+        // background work that was granted by the last render task
+        if (uploadCredit > 0 && (e = upload.poll()) != null) {
+            uploadCredit--;
+            return e;
+        }
+        if (destroyCredit > 0 && canDestroy() && (e = destroy.poll()) != null) {
+            destroyCredit--;
+            return e;
+        }
+
+        if ((e = render.poll()) != null) {
+            uploadCredit = uploadBudget;
+            destroyCredit = destroyBudget;
+            return e;
+        }
+
+        // no render work is pending so the background lanes are not limited
+        if ((e = upload.poll()) != null) {
+            return e;
+        }
+        return destroy.poll();
+    }
+
+    private boolean canDestroy() {
+        Entry render = lanes[Lane.RENDER.ordinal()].peek();
+        Entry destroy = lanes[Lane.DESTROY.ordinal()].peek();
+        return destroy != null && (render == null || destroy.sequence < render.sequence);
+    }
+
+    /**
+     * Close the queue so that no more tasks are accepted, and cancel every task that is still pending.
+     */
+    public void close() {
+        closed = true;
+        cancelRemaining();
+    }
+
+    private void cancelRemaining() {
+        for (Queue<Entry> lane : lanes) {
+            Entry e;
+            while ((e = lane.poll()) != null) {
+                e.task.cancel(false);
+            }
+        }
+    }
+
+    public int getDepth(Lane lane) {
+        return depth[lane.ordinal()].get();
+    }
+
+    public int getMaxDepth(Lane lane) {
+        return maxDepth[lane.ordinal()].get();
+    }
+
+    public long getDequeuedCount(Lane lane) {
+        return dequeued[lane.ordinal()].get();
+    }
+
+    public long getTotalWaitTime(Lane lane) {
+        return totalWait[lane.ordinal()].get();
+    }
+
+    public long getMaxWaitTime(Lane lane) {
+        return maxWait[lane.ordinal()].get();
+    }
+
+    /**
+     * Reset the accumulated metrics of every lane. The current depth is not reset, but the maximum depth
+     * restarts from the current depth.
+     */
+    public void resetMetrics() {
+        for (int i = 0; i < LANES.length; i++) {
+            maxDepth[i].set(depth[i].get());
+            dequeued[i].set(0);
+            totalWait[i].set(0);
+            maxWait[i].set(0);
+        }
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    private static class Entry {
+        final Sync<?> task;
+        final int lane;
+        final long sequence;
+        final long queuedAt;
+
+        Entry(Sync<?> task, int lane, long sequence, long queuedAt) {
+            this.task = task;
+            this.lane = lane;
+            this.sequence = sequence;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.impl;
+
+import com.ferox.renderer.GlslRenderer;
+import com.ferox.renderer.Sampler;
+import com.ferox.renderer.Shader;
+import com.ferox.renderer.VertexAttribute;
+
+/**
+ * ValidatedGlslRenderer is implemented by the GlslRenderers of the OpenGL backends so that {@link
+ * com.ferox.renderer.GlslCommandBuffer} can replay commands whose arguments were checked against the
+ * variable's type and converted to the values OpenGL consumes when they were recorded. These methods only
+ * perform the checks that depend on the context when they're called: whether the variable belongs to the
+ * bound shader and whether a resource has been destroyed. They throw the same exceptions as the matching
+ * {@link GlslRenderer} methods for those cases.
+ *
+ * @author Michael Ludwig
+ */
+public interface ValidatedGlslRenderer extends GlslRenderer {
+    /**
+     * Set the value of a uniform with a FLOAT, VECn or MATn type. <var>values</var> holds the type's
+     * primitive count of floats starting at <var>offset</var>, matrices in column-major order.
+     *
+     * @param var    The uniform to modify, its type and index have been validated
+     * @param index  The array index within the uniform
+     * @param values The packed values
+     * @param offset The offset into values of the first value
+     */
+    public void setValidatedUniform(Shader.Uniform var, int index, float[] values, int offset);
+
+    /**
+     * Set the value of a uniform with an INT, UINT or BOOL type or vector of those types. <var>values</var>
+     * holds the type's primitive count of ints starting at <var>offset</var>, booleans as 0 or 1.
+     *
+     * @param var    The uniform to modify, its type and index have been validated
+     * @param index  The array index within the uniform
+     * @param values The packed values
+     * @param offset The offset into values of the first value
+     */
+    public void setValidatedUniform(Shader.Uniform var, int index, int[] values, int offset);
+
+    /**
+     * Set the texture of a sampler uniform.
+     *
+     * @param var     The uniform to modify, its index has been validated
+     * @param index   The array index within the uniform
+     * @param texture The texture, already checked against the sampler type, or null to unbind
+     */
+    public void setValidatedUniform(Shader.Uniform var, int index, Sampler texture);
+
+    /**
+     * Set the value of an attribute with a floating point type. <var>values</var> holds 4 floats for each
+     * column of the type starting at <var>offset</var>, of which only the type's row count are used.
+     *
+     * @param var    The attribute to modify, its type and index have been validated
+     * @param index  The array index within the attribute
+     * @param values The packed values
+     * @param offset The offset into values of the first value
+     */
+    public void setValidatedAttribute(Shader.Attribute var, int index, float[] values, int offset);
+
+    /**
+     * Set the value of an attribute with a signed or unsigned integer type. <var>values</var> holds 4 ints
+     * starting at <var>offset</var>, of which only the type's row count are used.
+     *
+     * @param var    The attribute to modify, its type and index have been validated
+     * @param index  The array index within the attribute
+     * @param values The packed values
+     * @param offset The offset into values of the first value
+     */
+    public void setValidatedAttribute(Shader.Attribute var, int index, int[] values, int offset);
+
+    /**
+     * Bind a vertex attribute to a column of an attribute.
+     *
+     * @param var    The attribute to modify, its index and column have been validated
+     * @param index  The array index within the attribute
+     * @param column The column of the attribute
+     * @param attr   The vertex attribute, already checked against the attribute type, or null to unbind
+     */
+    public void bindValidatedAttribute(Shader.Attribute var, int index, int column, VertexAttribute attr);
+}
@@ -29,9 +29,15 @@ package com.ferox.renderer.impl.resources;
 import com.ferox.renderer.Resource;
 import com.ferox.renderer.ResourceException;
 import com.ferox.renderer.builder.Builder;
+import com.ferox.renderer.impl.ContextManager;
 import com.ferox.renderer.impl.FrameworkImpl;
 import com.ferox.renderer.impl.OpenGLContext;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -50,39 +56,111 @@ public abstract class AbstractBuilder<T extends Resource, H extends ResourceHand
 
     @Override
     public T build() {
-        if (built) {
-            throw new IllegalStateException("Cannot call build() multiple times");
+        Future<T> resource = buildAsync();
+        try {
+            return resource.get();
+        } catch (InterruptedException e) {
+            throw new ResourceException("Interrupted while blocking on resource creation", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ResourceException) {
+                throw ((ResourceException) e.getCause());
+            } else {
+                throw new ResourceException("Unexpected exception while building resource", e.getCause());
+            }
         }
+    }
 
-        built = true;
-        validate();
-        Future<T> resource = framework.getContextManager().invokeOnContextThread(new Callable<T>() {
+    @Override
+    public Future<T> buildAsync() {
+        prepare();
+        return framework.getContextManager().invokeOnContextThread(new Callable<T>() {
             @Override
             public T call() throws Exception {
+                return create(framework.getContextManager().ensureContext());
+            }
+        }, ContextManager.Lane.UPLOAD, false);
+    }
+
+    /**
+     * Build all of the given builders in a single task on the context thread, as described in {@link
+     * com.ferox.renderer.Framework#buildAll(List)}.
+     *
+     * @param framework The framework that must own every builder
+     * @param builders  The builders to build
+     *
+     * @return A future that completes with the resources in the same order as builders
+     */
+    public static Future<List<Resource>> buildAll(final FrameworkImpl framework,
+                                                  List<? extends Builder<?>> builders) {
+        final List<AbstractBuilder<?, ?>> batch = new ArrayList<>(builders.size());
+        Set<AbstractBuilder<?, ?>> seen = Collections.newSetFromMap(
+                new IdentityHashMap<AbstractBuilder<?, ?>, Boolean>());
+        for (Builder<?> b : builders) {
+            if (b == null) {
+                throw new NullPointerException("Builder cannot be null");
+            }
+            if (!(b instanceof AbstractBuilder) || ((AbstractBuilder<?, ?>) b).framework != framework) {
+                throw new IllegalArgumentException("Builder was not created by this Framework");
+            }
+            if (!seen.add((AbstractBuilder<?, ?>) b)) {
+                throw new IllegalStateException("Cannot build the same builder twice");
+            }
+            batch.add((AbstractBuilder<?, ?>) b);
+        }
+
+        // validate the whole batch before marking any builder, so a bad builder leaves the rest usable
+        for (AbstractBuilder<?, ?> b : batch) {
+            b.checkBuildable();
+            b.validate();
+        }
+        for (AbstractBuilder<?, ?> b : batch) {
+            b.built = true;
+        }
+
+        return framework.getContextManager().invokeOnContextThread(new Callable<List<Resource>>() {
+            @Override
+            public List<Resource> call() throws Exception {
                 OpenGLContext ctx = framework.getContextManager().ensureContext();
-                H handle = allocate(ctx);
+                List<Resource> resources = new ArrayList<>(batch.size());
                 try {
-                    pushToGPU(ctx, handle);
-                    T resource = wrap(handle);
-                    framework.getDestructibleManager().manage(resource, handle);
-                    return resource;
+                    for (AbstractBuilder<?, ?> b : batch) {
+                        resources.add(b.create(ctx));
+                    }
                 } catch (Exception e) {
-                    handle.destroy(ctx);
+                    // don't leave part of the batch allocated, this runs immediately on the context thread
+                    for (Resource r : resources) {
+                        r.destroy();
+                    }
                     throw e;
                 }
+                return resources;
             }
-        }, false);
+        }, ContextManager.Lane.UPLOAD, false);
+    }
+
+    private void prepare() {
+        checkBuildable();
+        validate();
+        built = true;
+    }
+
+    private void checkBuildable() {
+        if (built) {
+            throw new IllegalStateException("Cannot call build() multiple times");
+        }
+    }
 
+    private T create(OpenGLContext ctx) throws Exception {
+        H handle = allocate(ctx);
         try {
-            return resource.get();
-        } catch (InterruptedException e) {
-            throw new ResourceException("Interrupted while blocking on resource creation", e);
-        } catch (ExecutionException e) {
-            if (e.getCause() instanceof ResourceException) {
-                throw ((ResourceException) e.getCause());
-            } else {
-                throw new ResourceException("Unexpected exception while building resource", e.getCause());
-            }
+            pushToGPU(ctx, handle);
+            T resource = wrap(handle);
+            framework.getDestructibleManager().manage(resource, handle);
+            framework.getResourceMemoryManager().register(handle, getMemorySize(handle));
+            return resource;
+        } catch (Exception e) {
+            handle.destroy(ctx);
+            throw e;
         }
     }
 
@@ -93,4 +171,16 @@ public abstract class AbstractBuilder<T extends Resource, H extends ResourceHand
     protected abstract void pushToGPU(OpenGLContext ctx, H handle);
 
     protected abstract T wrap(H handle);
+
+    /**
+     * Compute the number of bytes of GPU memory that the handle holds after {@link #pushToGPU(OpenGLContext,
+     * ResourceHandle)}. The default returns 0, which leaves the resource out of memory accounting.
+     *
+     * @param handle The handle that was pushed to the GPU
+     *
+     * @return The GPU memory size in bytes
+     */
+    protected long getMemorySize(H handle) {
+        return 0;
+    }
 }
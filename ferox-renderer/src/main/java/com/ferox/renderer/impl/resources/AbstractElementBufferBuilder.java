@@ -46,6 +46,7 @@ public abstract class AbstractElementBufferBuilder
     protected DataType type;
 
     protected boolean dynamic;
+    protected boolean streaming;
 
     public AbstractElementBufferBuilder(FrameworkImpl framework) {
         super(framework);
@@ -87,6 +88,14 @@ public abstract class AbstractElementBufferBuilder
     @Override
     public ElementBufferBuilder dynamic() {
         dynamic = true;
+        streaming = false;
+        return this;
+    }
+
+    @Override
+    public ElementBufferBuilder streaming() {
+        streaming = true;
+        dynamic = false;
         return this;
     }
 
@@ -104,7 +113,7 @@ public abstract class AbstractElementBufferBuilder
             return new BufferImpl.BufferHandle(framework, type, BufferUtil.newBuffer(array));
         } else {
             // get a new vbo id and use that
-            return new BufferImpl.BufferHandle(framework, type, generateNewBufferID(ctx));
+            return new BufferImpl.BufferHandle(framework, type, generateNewBufferID(ctx), streaming);
         }
     }
 
@@ -121,6 +130,12 @@ public abstract class AbstractElementBufferBuilder
         return new ElementBufferImpl(handle, length, array);
     }
 
+    @Override
+    protected long getMemorySize(BufferImpl.BufferHandle handle) {
+        // in-memory buffers don't use any GPU memory
+        return (handle.vboID > 0 ? (long) length * type.getByteCount() : 0);
+    }
+
     protected abstract int generateNewBufferID(OpenGLContext ctx);
 
     protected abstract void pushBufferData(OpenGLContext ctx, DataType type, ByteBuffer buffer);
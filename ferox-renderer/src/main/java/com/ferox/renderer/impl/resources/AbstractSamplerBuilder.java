@@ -254,7 +254,11 @@ public abstract class AbstractSamplerBuilder<T extends Sampler, B extends Sample
             for (int i = 0; i < imageCount; i++) {
                 if (imageData[i][mipmap] != null) {
                     b.position(i * perImage).limit((i + 1) * perImage);
-                    b.put((byte[]) imageData[i][mipmap]);
+                    if (imageData[i][mipmap] instanceof ByteBuffer) {
+                        b.put(((ByteBuffer) imageData[i][mipmap]).duplicate());
+                    } else {
+                        b.put((byte[]) imageData[i][mipmap]);
+                    }
                 }
             }
         }
@@ -458,6 +462,17 @@ public abstract class AbstractSamplerBuilder<T extends Sampler, B extends Sample
         setDepthComparison(ctx, depthComparison);
     }
 
+    @Override
+    protected long getMemorySize(TextureImpl.TextureHandle handle) {
+        // generated mipmaps fill the rest of the chain below the base level
+        int maxMipmap = (generateMipmaps ? imageFormats[0].length - 1 : detectedMaxMipmap);
+        long size = 0;
+        for (int j = detectedBaseMipmap; j <= maxMipmap; j++) {
+            size += (long) getBufferSize(j) * detectedFormat.getType().getByteCount();
+        }
+        return size * imageCount;
+    }
+
     protected abstract int generateTextureID(OpenGLContext context);
 
     protected abstract void generateMipmaps(OpenGLContext context);
@@ -58,6 +58,7 @@ public abstract class AbstractShaderBuilder extends AbstractBuilder<Shader, Shad
     private int detectedShaderVersion; // cached in validate()
     private List<ShaderImpl.UniformImpl> detectedUniforms; // cached in pushToGPU()
     private List<ShaderImpl.AttributeImpl> detectedAttributes; // cached in pushToGPU()
+    private List<ShaderImpl.UniformBlockImpl> detectedUniformBlocks; // cached in pushToGPU()
     private Map<String, Integer> detectedBufferMapping; // cached in pushToGPU()
 
     public AbstractShaderBuilder(FrameworkImpl framework) {
@@ -198,6 +199,28 @@ public abstract class AbstractShaderBuilder extends AbstractBuilder<Shader, Shad
         detectedAttributes = getAttributes(ctx, handle);
         Collections.sort(detectedAttributes, indexSorter);
 
+        // each block is bound to the binding point equal to its index, so the renderer can bind data for a
+        // block without any per-program lookups
+        int maxBindings = framework.getCapabilities().getMaxUniformBlockBindings();
+        if (maxBindings > 0) {
+            detectedUniformBlocks = getUniformBlocks(ctx, handle);
+            for (ShaderImpl.UniformBlockImpl block : detectedUniformBlocks) {
+                if (block.getIndex() >= maxBindings) {
+                    throw new ResourceException("Shader declares more uniform blocks than the " +
+                                                maxBindings + " supported by current hardware");
+                }
+                bindUniformBlock(ctx, handle.programID, block.getIndex(), block.getIndex());
+            }
+            Collections.sort(detectedUniformBlocks, new Comparator<ShaderImpl.UniformBlockImpl>() {
+                @Override
+                public int compare(ShaderImpl.UniformBlockImpl o1, ShaderImpl.UniformBlockImpl o2) {
+                    return o1.getIndex() - o2.getIndex();
+                }
+            });
+        } else {
+            detectedUniformBlocks = Collections.emptyList();
+        }
+
         detectedBufferMapping = new HashMap<>();
         for (String variable : mappedBuffers.keySet()) {
             int location = getFragmentLocation(ctx, handle.programID, variable);
@@ -216,8 +239,9 @@ public abstract class AbstractShaderBuilder extends AbstractBuilder<Shader, Shad
     protected Shader wrap(ShaderImpl.ShaderHandle handle) {
         handle.uniforms = detectedUniforms;
         handle.attributes = detectedAttributes;
+        handle.uniformBlocks = detectedUniformBlocks;
         return new ShaderImpl(handle, detectedShaderVersion, detectedUniforms, detectedAttributes,
-                              detectedBufferMapping);
+                              detectedUniformBlocks, detectedBufferMapping);
     }
 
     protected abstract int createNewProgram(OpenGLContext context);
@@ -236,6 +260,16 @@ public abstract class AbstractShaderBuilder extends AbstractBuilder<Shader, Shad
     protected abstract List<ShaderImpl.AttributeImpl> getAttributes(OpenGLContext context,
                                                                     ShaderImpl.ShaderHandle handle);
 
+    /**
+     * Query the active uniform blocks of the linked program. This is only invoked when uniform blocks are
+     * supported.
+     */
+    protected abstract List<ShaderImpl.UniformBlockImpl> getUniformBlocks(OpenGLContext context,
+                                                                          ShaderImpl.ShaderHandle handle);
+
+    protected abstract void bindUniformBlock(OpenGLContext context, int programID, int blockIndex,
+                                             int binding);
+
     protected abstract void bindFragmentLocation(OpenGLContext context, int programID, String variable,
                                                  int buffer);
 
@@ -46,6 +46,7 @@ public abstract class AbstractVertexBufferBuilder
     protected DataType type;
 
     protected boolean dynamic;
+    protected boolean streaming;
 
     public AbstractVertexBufferBuilder(FrameworkImpl framework) {
         super(framework);
@@ -131,6 +132,14 @@ public abstract class AbstractVertexBufferBuilder
     @Override
     public VertexBufferBuilder dynamic() {
         dynamic = true;
+        streaming = false;
+        return this;
+    }
+
+    @Override
+    public VertexBufferBuilder streaming() {
+        streaming = true;
+        dynamic = false;
         return this;
     }
 
@@ -148,7 +157,7 @@ public abstract class AbstractVertexBufferBuilder
             return new BufferImpl.BufferHandle(framework, type, BufferUtil.newBuffer(array));
         } else {
             // get a new vbo id and use that
-            return new BufferImpl.BufferHandle(framework, type, generateNewBufferID(ctx));
+            return new BufferImpl.BufferHandle(framework, type, generateNewBufferID(ctx), streaming);
         }
     }
 
@@ -165,6 +174,12 @@ public abstract class AbstractVertexBufferBuilder
         return new VertexBufferImpl(handle, length, array);
     }
 
+    @Override
+    protected long getMemorySize(BufferImpl.BufferHandle handle) {
+        // in-memory buffers don't use any GPU memory
+        return (handle.vboID > 0 ? (long) length * type.getByteCount() : 0);
+    }
+
     protected abstract int generateNewBufferID(OpenGLContext ctx);
 
     protected abstract void pushBufferData(OpenGLContext ctx, DataType type, ByteBuffer buffer);
@@ -32,18 +32,29 @@ import com.ferox.renderer.impl.FrameworkImpl;
 import com.ferox.renderer.impl.OpenGLContext;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Future;
 
 /**
  *
  */
 public abstract class BufferImpl extends AbstractResource<BufferImpl.BufferHandle> implements Buffer {
+    // past this many disjoint ranges they are collapsed into a single span
+    private static final int MAX_DIRTY_RANGES = 8;
+
     private final int length;
     private final Object dataArray;
 
+    // sorted, disjoint (offset, length) pairs, guarded by this
+    private final int[] dirtyRanges;
+    private int dirtyRangeCount;
+    private boolean rangesMarked;
+
     public BufferImpl(BufferHandle handle, int length, Object dataArray) {
         super(handle);
         this.length = length;
         this.dataArray = dataArray;
+        dirtyRanges = new int[MAX_DIRTY_RANGES * 2];
     }
 
     public Object getDataArray() {
@@ -60,15 +71,97 @@ public abstract class BufferImpl extends AbstractResource<BufferImpl.BufferHandl
         return getHandle().type;
     }
 
+    @Override
+    public synchronized void markDirty(int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > this.length) {
+            throw new IndexOutOfBoundsException("Invalid range [" + offset + ", " + (offset + length) +
+                                                ") for buffer of length " + this.length);
+        }
+        rangesMarked = true;
+        if (length == 0) {
+            return;
+        }
+
+        // merge with every range that overlaps or touches [offset, end)
+        int end = offset + length;
+        int insert = 0;
+        int write = 0;
+        for (int i = 0; i < dirtyRangeCount; i++) {
+            int rOffset = dirtyRanges[i * 2];
+            int rEnd = rOffset + dirtyRanges[i * 2 + 1];
+            if (rEnd < offset) {
+                // strictly before the new range
+                dirtyRanges[write * 2] = rOffset;
+                dirtyRanges[write * 2 + 1] = rEnd - rOffset;
+                write++;
+                insert = write;
+            } else if (rOffset > end) {
+                // strictly after the new range
+                dirtyRanges[write * 2] = rOffset;
+                dirtyRanges[write * 2 + 1] = rEnd - rOffset;
+                write++;
+            } else {
+                offset = Math.min(offset, rOffset);
+                end = Math.max(end, rEnd);
+            }
+        }
+        dirtyRangeCount = write;
+
+        if (dirtyRangeCount == MAX_DIRTY_RANGES) {
+            // too fragmented, collapse everything into one span
+            offset = Math.min(offset, dirtyRanges[0]);
+            end = Math.max(end, dirtyRanges[dirtyRangeCount * 2 - 2] + dirtyRanges[dirtyRangeCount * 2 - 1]);
+            dirtyRangeCount = 0;
+            insert = 0;
+        }
+
+        System.arraycopy(dirtyRanges, insert * 2, dirtyRanges, insert * 2 + 2,
+                         (dirtyRangeCount - insert) * 2);
+        dirtyRanges[insert * 2] = offset;
+        dirtyRanges[insert * 2 + 1] = end - offset;
+        dirtyRangeCount++;
+    }
+
+    @Override
+    public Future<Void> refresh(int offset, int length) {
+        markDirty(offset, length);
+        return refresh();
+    }
+
+    /**
+     * Get the ranges of the data array that must be pushed to the GPU by a refresh, and reset the dirty
+     * tracking. The returned array holds (offset, length) pairs measured in elements, sorted by offset. If
+     * no range was marked since the last refresh, the entire buffer is returned as a single range.
+     *
+     * @return The dirty ranges, which may be empty if only empty ranges were marked
+     */
+    public synchronized int[] takeDirtyRanges() {
+        int[] ranges;
+        if (rangesMarked) {
+            ranges = Arrays.copyOf(dirtyRanges, dirtyRangeCount * 2);
+        } else {
+            ranges = new int[] { 0, length };
+        }
+        dirtyRangeCount = 0;
+        rangesMarked = false;
+        return ranges;
+    }
+
     public static class BufferHandle extends ResourceHandle {
         public final int vboID;
         public final DataType type;
         public final ByteBuffer inmemoryBuffer;
+        public final boolean streaming;
 
         public BufferHandle(FrameworkImpl framework, DataType type, int vboID) {
+            this(framework, type, vboID, false);
+        }
+
+        public BufferHandle(FrameworkImpl framework, DataType type, int vboID, boolean streaming) {
             super(framework);
             this.vboID = vboID;
             this.type = type;
+            this.streaming = streaming;
             inmemoryBuffer = null;
         }
 
@@ -77,6 +170,7 @@ public abstract class BufferImpl extends AbstractResource<BufferImpl.BufferHandl
             this.inmemoryBuffer = inmemoryBuffer;
             this.type = type;
             vboID = 0;
+            streaming = false;
         }
 
         @Override
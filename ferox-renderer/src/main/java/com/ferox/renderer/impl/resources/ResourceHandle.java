@@ -27,6 +27,7 @@
 package com.ferox.renderer.impl.resources;
 
 import com.ferox.renderer.impl.CompletedFuture;
+import com.ferox.renderer.impl.ContextManager;
 import com.ferox.renderer.impl.DestructibleManager;
 import com.ferox.renderer.impl.FrameworkImpl;
 import com.ferox.renderer.impl.OpenGLContext;
@@ -42,19 +43,56 @@ public abstract class ResourceHandle implements DestructibleManager.ManagedDestr
     private final FrameworkImpl framework;
     private final AtomicBoolean destroyed;
 
+    private volatile long memorySize;
+    private volatile long lastUsed;
+
     public ResourceHandle(FrameworkImpl framework) {
         this.framework = framework;
         destroyed = new AtomicBoolean(false);
+        lastUsed = System.nanoTime();
     }
 
     public FrameworkImpl getFramework() {
         return framework;
     }
 
+    /**
+     * @return The number of bytes of GPU memory accounted to this resource, 0 if it is not tracked
+     */
+    public long getMemorySize() {
+        return memorySize;
+    }
+
+    /**
+     * Set the number of bytes of GPU memory this resource holds. This should only be called by the {@link
+     * com.ferox.renderer.impl.ResourceMemoryManager} when the resource is registered.
+     *
+     * @param memorySize The size in bytes
+     */
+    public void setMemorySize(long memorySize) {
+        this.memorySize = memorySize;
+    }
+
+    /**
+     * Record that the resource was used by a renderer, which feeds the last-use time that eviction policies
+     * rely on.
+     */
+    public void markUsed() {
+        lastUsed = System.nanoTime();
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} of the last call to {@link #markUsed()}, or of creation
+     */
+    public long getLastUsedTime() {
+        return lastUsed;
+    }
+
     public void destroy(OpenGLContext context) {
         // simple guard to destroy this one time only
         if (destroyed.compareAndSet(false, true)) {
             destroyImpl(context);
+            framework.getResourceMemoryManager().unregister(this);
         }
     }
 
@@ -71,7 +109,7 @@ public abstract class ResourceHandle implements DestructibleManager.ManagedDestr
                     destroy(ctx);
                     return null;
                 }
-            }, true);
+            }, ContextManager.Lane.DESTROY, true);
         } else {
             return new CompletedFuture<>(null);
         }
@@ -34,10 +34,7 @@ import com.ferox.renderer.impl.OpenGLContext;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  *
@@ -46,15 +43,18 @@ public class ShaderImpl extends AbstractResource<ShaderImpl.ShaderHandle> implem
     private final int glslVersion;
     private final List<UniformImpl> uniforms;
     private final List<AttributeImpl> attributes;
+    private final List<UniformBlockImpl> uniformBlocks;
     private final Map<String, Integer> bufferMap;
 
     public ShaderImpl(ShaderHandle handle, int glslVersion, List<UniformImpl> uniforms,
-                      List<AttributeImpl> attributes, Map<String, Integer> bufferMap) {
+                      List<AttributeImpl> attributes, List<UniformBlockImpl> uniformBlocks,
+                      Map<String, Integer> bufferMap) {
         super(handle);
         this.glslVersion = glslVersion;
 
         this.uniforms = Collections.unmodifiableList(uniforms);
         this.attributes = Collections.unmodifiableList(attributes);
+        this.uniformBlocks = Collections.unmodifiableList(uniformBlocks);
         this.bufferMap = Collections.unmodifiableMap(bufferMap);
     }
 
@@ -88,6 +88,21 @@ public class ShaderImpl extends AbstractResource<ShaderImpl.ShaderHandle> implem
         return null;
     }
 
+    @Override
+    public List<? extends UniformBlock> getUniformBlocks() {
+        return uniformBlocks;
+    }
+
+    @Override
+    public UniformBlock getUniformBlock(String name) {
+        for (UniformBlock b : uniformBlocks) {
+            if (b.getName().equals(name)) {
+                return b;
+            }
+        }
+        return null;
+    }
+
     @Override
     public int getColorBuffer(String outVariableName) {
         Integer mappedBuffer = bufferMap.get(outVariableName);
@@ -269,6 +284,138 @@ public class ShaderImpl extends AbstractResource<ShaderImpl.ShaderHandle> implem
         }
     }
 
+    public static class UniformBlockImpl implements UniformBlock {
+        public final ShaderHandle owner;
+
+        private final String name;
+        private final int index;
+        private final int size;
+        private final List<BlockMemberImpl> members;
+
+        public UniformBlockImpl(ShaderHandle owner, String name, int index, int size,
+                                List<BlockMemberImpl> members) {
+            this.owner = owner;
+            this.name = name;
+            this.index = index;
+            this.size = size;
+
+            List<BlockMemberImpl> sorted = new ArrayList<>(members);
+            Collections.sort(sorted, new Comparator<BlockMemberImpl>() {
+                @Override
+                public int compare(BlockMemberImpl o1, BlockMemberImpl o2) {
+                    return o1.getOffset() - o2.getOffset();
+                }
+            });
+            this.members = Collections.unmodifiableList(sorted);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public List<? extends BlockMember> getMembers() {
+            return members;
+        }
+
+        @Override
+        public BlockMember getMember(String name) {
+            for (BlockMember m : members) {
+                if (m.getName().equals(name)) {
+                    return m;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("uniform block %s (%d bytes) at %d", name, size, index);
+        }
+    }
+
+    public static class BlockMemberImpl implements BlockMember {
+        private final VariableType type;
+        private final String name;
+        private final int index;
+        private final int length;
+
+        private final int offset;
+        private final int arrayStride;
+        private final int matrixStride;
+
+        public BlockMemberImpl(VariableType type, String name, int index, int length, int offset,
+                               int arrayStride, int matrixStride) {
+            this.type = type;
+            this.name = name;
+            this.index = index;
+            this.length = length;
+            this.offset = offset;
+            this.arrayStride = arrayStride;
+            this.matrixStride = matrixStride;
+        }
+
+        @Override
+        public int getOffset() {
+            return offset;
+        }
+
+        @Override
+        public int getArrayStride() {
+            return arrayStride;
+        }
+
+        @Override
+        public int getMatrixStride() {
+            return matrixStride;
+        }
+
+        @Override
+        public VariableType getType() {
+            return type;
+        }
+
+        @Override
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public boolean isReserved() {
+            return name.startsWith("gl_");
+        }
+
+        @Override
+        public String toString() {
+            if (length > 1) {
+                return String.format("member %s[%d] %s at +%d", type, length, name, offset);
+            } else {
+                return String.format("member %s %s at +%d", type, name, offset);
+            }
+        }
+    }
+
     public static class ShaderHandle extends ResourceHandle {
         public final int programID;
         public final int vertexShaderID;
@@ -279,6 +426,7 @@ public class ShaderImpl extends AbstractResource<ShaderImpl.ShaderHandle> implem
         // once they've been detected
         public List<UniformImpl> uniforms;
         public List<AttributeImpl> attributes;
+        public List<UniformBlockImpl> uniformBlocks;
 
         public ShaderHandle(FrameworkImpl framework, int programID, int vertexShaderID, int fragmentShaderID,
                             int geometryShaderID) {
@@ -29,6 +29,8 @@ package com.ferox.renderer.impl.resources;
 import com.ferox.renderer.builder.DepthMapBuilder;
 import com.ferox.renderer.builder.TextureBuilder;
 
+import java.nio.ByteBuffer;
+
 /**
  *
  */
@@ -253,6 +255,12 @@ public final class TextureDatas {
                 builder.setImageData(image, mipmap, data, TextureImpl.FullFormat.RGB_DXT1);
             }
 
+            @Override
+            public void fromDXT1(ByteBuffer data) {
+                // slice so the range is fixed even if the caller moves the buffer's position later
+                builder.setImageData(image, mipmap, data.slice(), TextureImpl.FullFormat.RGB_DXT1);
+            }
+
             @Override
             public void fromPackedFloats(int[] data) {
                 builder.setImageData(image, mipmap, data, TextureImpl.FullFormat.RGB_PACKED_FLOAT);
@@ -383,15 +391,33 @@ public final class TextureDatas {
                 builder.setImageData(image, mipmap, data, TextureImpl.FullFormat.RGBA_DXT1);
             }
 
+            @Override
+            public void fromDXT1(ByteBuffer data) {
+                // slice so the range is fixed even if the caller moves the buffer's position later
+                builder.setImageData(image, mipmap, data.slice(), TextureImpl.FullFormat.RGBA_DXT1);
+            }
+
             @Override
             public void fromDXT3(byte[] data) {
                 builder.setImageData(image, mipmap, data, TextureImpl.FullFormat.RGBA_DXT3);
             }
 
+            @Override
+            public void fromDXT3(ByteBuffer data) {
+                // slice so the range is fixed even if the caller moves the buffer's position later
+                builder.setImageData(image, mipmap, data.slice(), TextureImpl.FullFormat.RGBA_DXT3);
+            }
+
             @Override
             public void fromDXT5(byte[] data) {
                 builder.setImageData(image, mipmap, data, TextureImpl.FullFormat.RGBA_DXT5);
             }
+
+            @Override
+            public void fromDXT5(ByteBuffer data) {
+                // slice so the range is fixed even if the caller moves the buffer's position later
+                builder.setImageData(image, mipmap, data.slice(), TextureImpl.FullFormat.RGBA_DXT5);
+            }
         };
     }
 
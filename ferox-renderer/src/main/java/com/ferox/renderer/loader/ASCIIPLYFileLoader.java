@@ -26,321 +26,290 @@
  */
 package com.ferox.renderer.loader;
 
-import com.ferox.math.AxisAlignedBox;
-import com.ferox.renderer.ElementBuffer;
 import com.ferox.renderer.Framework;
-import com.ferox.renderer.Renderer;
-import com.ferox.renderer.VertexAttribute;
 import com.ferox.renderer.geom.Geometry;
-import com.ferox.renderer.geom.Tangents;
-import com.ferox.renderer.geom.TriangleIterator;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.*;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
+ * ASCIIPLYFileLoader loads PLY files stored in the {@code ascii 1.0} format. Element data is parsed by a
+ * hand-written tokenizer directly from the stream's bytes into the mesh's primitive arrays, so no strings
+ * or other objects are created per vertex or face.
  *
+ * @author Michael Ludwig
  */
-public class ASCIIPLYFileLoader implements GeometryFileLoader {
+public class ASCIIPLYFileLoader implements StagedGeometryFileLoader {
     @Override
     public Geometry read(Framework framework, BufferedInputStream input) throws IOException {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(input))) {
-            VertexElementDefinition vertices = null;
-            FaceElementDefinition faces = null;
+        PLYMeshData mesh = decodeMesh(input);
+        return (mesh == null ? null : mesh.createGeometry(framework));
+    }
 
-            List<ElementDefinition> elements = new ArrayList<>();
-            boolean headerDone = false;
-            int currentElement = 0;
-            int elementCount = 0;
+    @Override
+    public DecodedGeometry decode(BufferedInputStream input) throws IOException {
+        return decodeMesh(input);
+    }
 
-            // FIXME if this file is total hocum, then a new line could read way more than 32 bytes
-            // and then mark is hosed, should handle the whole parsing more like how it's done in Radiance or DDS loaders
-            input.mark(32);
-            String line = in.readLine();
-            if (!"ply".equalsIgnoreCase(line)) {
-                input.reset();
-                return null;
-            }
-            line = in.readLine();
-            if (!"format ascii 1.0".equalsIgnoreCase(line)) {
-                input.reset();
-                return null;
-            }
+    private static PLYMeshData decodeMesh(BufferedInputStream input) throws IOException {
+        if (PLYHeader.detectFormat(input) != PLYHeader.Format.ASCII) {
+            return null;
+        }
 
-            while ((line = in.readLine()) != null) {
-                if (!headerDone) {
-                    // header
-                    if (line.trim().equalsIgnoreCase("end_header")) {
-                        // start elements
-                        headerDone = true;
-                    } else {
-                        String[] parts = line.trim().split("\\s+");
-                        if (parts.length == 3 && parts[0].equalsIgnoreCase("element")) {
-                            if (parts[1].equalsIgnoreCase("vertex")) {
-                                vertices = new VertexElementDefinition(Integer.parseInt(parts[2]));
-                                elements.add(vertices);
-                            } else if (parts[1].equalsIgnoreCase("face")) {
-                                faces = new FaceElementDefinition(Integer.parseInt(parts[2]));
-                                elements.add(faces);
-                            } else {
-                                elements.add(new ElementDefinition(parts[1], Integer.parseInt(parts[2])));
-                            }
-                        } else if (parts.length > 0 && parts[0].equalsIgnoreCase("property")) {
-                            elements.get(elements.size() - 1).addProperty(parts);
+        PLYHeader header = PLYHeader.read(input);
+        PLYMeshData mesh = new PLYMeshData(header);
+        Tokenizer in = new Tokenizer(input);
+
+        int[] polygon = new int[16];
+        for (PLYHeader.Element e : header.elements) {
+            if (e == mesh.vertexElement) {
+                for (int i = 0; i < e.count; i++) {
+                    for (int p = 0; p < mesh.vertexSlots.length; p++) {
+                        if (mesh.vertexSlots[p] != PLYMeshData.IGNORE) {
+                            mesh.setVertexValue(i, mesh.vertexSlots[p], (float) in.nextDouble());
+                        } else {
+                            skipProperty(in, e.properties.get(p));
                         }
                     }
-                } else {
-                    String[] parts = line.trim().split("\\s+");
-                    ElementDefinition e = elements.get(currentElement);
-                    e.processElement(parts, elementCount++);
-                    if (elementCount >= e.count) {
-                        // next element
-                        currentElement++;
-                        elementCount = 0;
+                }
+            } else if (e == mesh.faceElement) {
+                for (int i = 0; i < e.count; i++) {
+                    for (int p = 0; p < e.properties.size(); p++) {
+                        if (p == mesh.faceIndexProperty) {
+                            int count = in.nextInt();
+                            if (count < 0) {
+                                throw new IOException("Bad face vertex count: " + count);
+                            }
+                            if (count > polygon.length) {
+                                polygon = new int[count];
+                            }
+                            for (int v = 0; v < count; v++) {
+                                polygon[v] = in.nextInt();
+                            }
+                            mesh.addFace(polygon, count);
+                        } else {
+                            skipProperty(in, e.properties.get(p));
+                        }
                     }
                 }
-            }
-
-            return new PLYGeometryImpl(framework, vertices, faces);
-        } catch (IndexOutOfBoundsException e) {
-            throw new IOException("Bad element or property definition", e);
-        } catch (NumberFormatException e) {
-            throw new IOException("Bad element entry, unable to parse float value", e);
-        }
-    }
-
-    private static class PLYGeometryImpl implements Geometry {
-        private final VertexAttribute vertices;
-        private final VertexAttribute normals;
-        private final VertexAttribute texCoords;
-        private final VertexAttribute tangents;
-
-        private final ElementBuffer indices;
-
-        private final AxisAlignedBox bounds;
-
-        public PLYGeometryImpl(Framework framework, VertexElementDefinition v, FaceElementDefinition f) {
-            // finalize triangle index list
-            int[] i = new int[f.indices.size()];
-            for (int j = 0; j < i.length; j++) {
-                i[j] = f.indices.get(j);
-            }
-
-            // compute additional vector attributes
-            // FIXME compute normals here as well, if they're not provided
-            if (v.hasTexCoords()) {
-                TriangleIterator ti = TriangleIterator.Builder.newBuilder().vertices(v.pos).normals(v.norm)
-                                                              .textureCoordinates(v.tc).tangents(v.tan)
-                                                              .fromElements(i, 0, i.length).build();
-                Tangents.compute(ti);
-            }
-
-            vertices = new VertexAttribute(framework.newVertexBuffer().from(v.pos).build(), 3);
-            normals = new VertexAttribute(framework.newVertexBuffer().from(v.norm).build(), 3);
-            if (v.hasTexCoords()) {
-                texCoords = new VertexAttribute(framework.newVertexBuffer().from(v.tc).build(), 2);
-                tangents = new VertexAttribute(framework.newVertexBuffer().from(v.tan).build(), 4);
             } else {
-                texCoords = null;
-                tangents = null;
+                // ignore unknown element types
+                for (int i = 0; i < e.count; i++) {
+                    for (PLYHeader.Property p : e.properties) {
+                        skipProperty(in, p);
+                    }
+                }
             }
-
-
-            indices = framework.newElementBuffer().fromUnsigned(i).build();
-            bounds = new AxisAlignedBox(v.pos, 0, 0, v.count);
-        }
-
-        @Override
-        public AxisAlignedBox getBounds() {
-            return bounds;
-        }
-
-        @Override
-        public Renderer.PolygonType getPolygonType() {
-            return Renderer.PolygonType.TRIANGLES;
-        }
-
-        @Override
-        public ElementBuffer getIndices() {
-            return indices;
-        }
-
-        @Override
-        public int getIndexOffset() {
-            return 0;
-        }
-
-        @Override
-        public int getIndexCount() {
-            return indices.getLength();
-        }
-
-        @Override
-        public VertexAttribute getVertices() {
-            return vertices;
-        }
-
-        @Override
-        public VertexAttribute getNormals() {
-            return normals;
-        }
-
-        @Override
-        public VertexAttribute getTextureCoordinates() {
-            return texCoords;
         }
 
-        @Override
-        public VertexAttribute getTangents() {
-            return tangents;
-        }
+        mesh.complete();
+        return mesh;
     }
 
-    private static class ElementDefinition {
-        final String name;
-        final int count;
-
-        final Map<String, Integer> properties;
-
-        public ElementDefinition(String name, int count) {
-            this.name = name;
-            this.count = count;
-            properties = new HashMap<>();
+    private static void skipProperty(Tokenizer in, PLYHeader.Property p) throws IOException {
+        int count = (p.isList() ? in.nextInt() : 1);
+        for (int i = 0; i < count; i++) {
+            in.skipToken();
         }
+    }
 
-        // assumes line[0] == "property"
-        void addProperty(String[] line) throws IOException {
-            properties.put(line[line.length - 1], properties.size());
+    /*
+     * Splits whitespace separated numbers out of a byte stream, parsing them
+     * in place without creating strings for the common decimal forms.
+     */
+    private static class Tokenizer {
+        private static final int BUFFER_SIZE = 1 << 16;
+        private static final double[] POWERS_OF_TEN = new double[23];
+
+        static {
+            POWERS_OF_TEN[0] = 1.0;
+            for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+                POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+            }
         }
 
-        void processElement(String[] line, int i) {
-            // do nothing in base class, i.e. ignore unknown element types
+        private final InputStream in;
+        private final byte[] buffer;
+        private int position;
+        private int limit;
+        private int tokenStart; // kept in the buffer across refills, or -1
+
+        public Tokenizer(InputStream in) {
+            this.in = in;
+            buffer = new byte[BUFFER_SIZE];
+            position = 0;
+            limit = 0;
+            tokenStart = -1;
         }
-    }
-
-    private static class VertexElementDefinition extends ElementDefinition {
-        private static final List<String> SPECIAL = Arrays.asList("x", "y", "z", "nx", "ny", "nz", "u", "v",
-                                                                  "s", "t");
-
-        final float[] pos;
-        final float[] norm;
-        final float[] tc;
-        final float[] tan;
 
-        public VertexElementDefinition(int count) {
-            super("vertex", count);
-            pos = new float[count * 3];
-            norm = new float[count * 3];
-            tc = new float[count * 2];
-            tan = new float[count * 4];
+        // returns the next byte without consuming it, or -1 at the end of the stream
+        private int peek() throws IOException {
+            if (position == limit) {
+                int keep = 0;
+                if (tokenStart >= 0) {
+                    keep = limit - tokenStart;
+                    if (keep == buffer.length) {
+                        throw new IOException("Bad element entry, token is too long");
+                    }
+                    System.arraycopy(buffer, tokenStart, buffer, 0, keep);
+                    tokenStart = 0;
+                }
+                int read = in.read(buffer, keep, buffer.length - keep);
+                position = keep;
+                limit = keep + Math.max(read, 0);
+                if (read <= 0) {
+                    return -1;
+                }
+            }
+            return buffer[position] & 0xff;
         }
 
-        boolean hasPosition() {
-            return properties.containsKey("x") && properties.containsKey("y") && properties.containsKey("z");
+        private static boolean isWhitespace(int c) {
+            return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
         }
 
-        boolean hasNormal() {
-            return properties.containsKey("nx") && properties.containsKey("ny") &&
-                   properties.containsKey("nz");
+        // position at the first byte of the next token
+        private void startToken() throws IOException {
+            tokenStart = -1;
+            int c;
+            while ((c = peek()) >= 0 && isWhitespace(c)) {
+                position++;
+            }
+            if (c < 0) {
+                throw new IOException("Unexpected end of stream");
+            }
+            tokenStart = position;
         }
 
-        boolean hasTexCoords() {
-            return (properties.containsKey("u") && properties.containsKey("v")) ||
-                   (properties.containsKey("s") && properties.containsKey("t"));
+        public void skipToken() throws IOException {
+            startToken();
+            int c;
+            while ((c = peek()) >= 0 && !isWhitespace(c)) {
+                position++;
+            }
         }
 
-        // TODO add support for vertex colors and the red, green, blue properties
+        public int nextInt() throws IOException {
+            startToken();
+            boolean negative = false;
+            int c = peek();
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                position++;
+            }
 
-        @Override
-        void addProperty(String[] line) throws IOException {
-            if (SPECIAL.contains(line[line.length - 1])) {
-                // require type to be float
-                if (!line[1].equalsIgnoreCase("float")) {
-                    throw new IOException("Vertex property type other than float is unsupported");
+            long value = 0;
+            int digits = 0;
+            while ((c = peek()) >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE + 1L) {
+                    throw new IOException("Integer value is out of range");
                 }
-            } else if (line[1].equalsIgnoreCase("list")) {
-                // FIXME we could get rid of this restriction if we walked past unknown properties and handled lists correctly
-                throw new IOException("List vertex properties are not supported");
+                digits++;
+                position++;
+            }
+            if (digits == 0 || (c >= 0 && !isWhitespace(c))) {
+                throw new IOException("Bad element entry, unable to parse integer value");
+            }
+            value = (negative ? -value : value);
+            if (value > Integer.MAX_VALUE) {
+                throw new IOException("Integer value is out of range");
             }
-            super.addProperty(line);
+            return (int) value;
         }
 
-        @Override
-        void processElement(String[] line, int i) {
-            if (hasPosition()) {
-                pos[i * 3] = Float.parseFloat(line[properties.get("x")]);
-                pos[i * 3 + 1] = Float.parseFloat(line[properties.get("y")]);
-                pos[i * 3 + 2] = Float.parseFloat(line[properties.get("z")]);
+        public double nextDouble() throws IOException {
+            startToken();
+            boolean negative = false;
+            int c = peek();
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                position++;
             }
-            if (hasNormal()) {
-                norm[i * 3] = Float.parseFloat(line[properties.get("nx")]);
-                norm[i * 3 + 1] = Float.parseFloat(line[properties.get("ny")]);
-                norm[i * 3 + 2] = Float.parseFloat(line[properties.get("nz")]);
-            }
-            if (hasTexCoords()) {
-                if (properties.containsKey("u") && properties.containsKey("v")) {
-                    tc[i * 2] = Float.parseFloat(line[properties.get("u")]);
-                    tc[i * 2 + 1] = Float.parseFloat(line[properties.get("v")]);
+
+            // accumulate up to 18 significant digits exactly, further digits only shift the exponent
+            long mantissa = 0;
+            int significant = 0;
+            int exponent = 0;
+            int digits = 0;
+            while ((c = peek()) >= '0' && c <= '9') {
+                if (significant < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) {
+                        significant++;
+                    }
                 } else {
-                    tc[i * 2] = Float.parseFloat(line[properties.get("s")]);
-                    tc[i * 2 + 1] = Float.parseFloat(line[properties.get("t")]);
+                    exponent++;
                 }
+                digits++;
+                position++;
             }
-        }
-    }
-
-    private static class FaceElementDefinition extends ElementDefinition {
-        final List<Integer> indices;
-
-        public FaceElementDefinition(int count) {
-            super("face", count);
-            indices = new ArrayList<>();
-        }
-
-        @Override
-        void addProperty(String[] line) throws IOException {
-            if (line[line.length - 1].equalsIgnoreCase("vertex_index") ||
-                line[line.length - 1].equalsIgnoreCase("vertex_indices")) {
-                if (line.length != 5 || !line[1].equalsIgnoreCase("list") ||
-                    line[2].equalsIgnoreCase("float") || line[3].equalsIgnoreCase("float")) {
-                    throw new IOException("Face vertex_index property must be list with integer params, any other type is unsupported");
+            if (c == '.') {
+                position++;
+                while ((c = peek()) >= '0' && c <= '9') {
+                    if (significant < 18) {
+                        mantissa = mantissa * 10 + (c - '0');
+                        if (mantissa != 0) {
+                            significant++;
+                        }
+                        exponent--;
+                    }
+                    digits++;
+                    position++;
                 }
             }
-            super.addProperty(line);
-        }
+            if (digits > 0 && (c == 'e' || c == 'E')) {
+                position++;
+                boolean negativeExp = false;
+                c = peek();
+                if (c == '-' || c == '+') {
+                    negativeExp = c == '-';
+                    position++;
+                }
+                int exp = 0;
+                int expDigits = 0;
+                while ((c = peek()) >= '0' && c <= '9') {
+                    exp = Math.min(exp * 10 + (c - '0'), 10000);
+                    expDigits++;
+                    position++;
+                }
+                if (expDigits == 0) {
+                    digits = 0; // malformed
+                }
+                exponent += (negativeExp ? -exp : exp);
+            }
 
-        @Override
-        void processElement(String[] line, int i) {
-            // skip if we don't have the conventional vertex_index list defined
-            int base;
-            if (properties.containsKey("vertex_index")) {
-                base = properties.get("vertex_index");
-            } else if (properties.containsKey("vertex_indices")) {
-                base = properties.get("vertex_indices");
-            } else {
-                return;
+            if (digits == 0 || (c >= 0 && !isWhitespace(c))) {
+                return parseFallback();
             }
 
-            int ct = Integer.parseInt(line[base]);
-            if (ct == 3) {
-                // plain triangle
-                indices.add(Integer.parseInt(line[base + 1]));
-                indices.add(Integer.parseInt(line[base + 2]));
-                indices.add(Integer.parseInt(line[base + 3]));
-            } else if (ct == 4) {
-                // split quad into 2 triangles
-                indices.add(Integer.parseInt(line[base + 1]));
-                indices.add(Integer.parseInt(line[base + 2]));
-                indices.add(Integer.parseInt(line[base + 3]));
+            double value;
+            if (mantissa == 0) {
+                value = 0.0;
+            } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+                value = mantissa * POWERS_OF_TEN[exponent];
+            } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+                value = mantissa / POWERS_OF_TEN[-exponent];
+            } else {
+                value = mantissa * Math.pow(10.0, exponent);
+            }
+            return (negative ? -value : value);
+        }
 
-                indices.add(Integer.parseInt(line[base + 1]));
-                indices.add(Integer.parseInt(line[base + 3]));
-                indices.add(Integer.parseInt(line[base + 4]));
+        // handles tokens such as nan and inf by falling back to Double.parseDouble()
+        private double parseFallback() throws IOException {
+            int c;
+            while ((c = peek()) >= 0 && !isWhitespace(c)) {
+                position++;
+            }
+            String token = new String(buffer, tokenStart, position - tokenStart, StandardCharsets.US_ASCII);
+            try {
+                return Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad element entry, unable to parse float value: " + token, e);
             }
-            // else ignore the face format
         }
     }
 }
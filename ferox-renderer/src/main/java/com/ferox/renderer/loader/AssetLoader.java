@@ -0,0 +1,664 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.loader;
+
+import com.ferox.renderer.Framework;
+import com.ferox.renderer.HardwareAccessLayer;
+import com.ferox.renderer.Sampler;
+import com.ferox.renderer.Task;
+import com.ferox.renderer.builder.Builder;
+import com.ferox.renderer.geom.Geometry;
+
+import java.io.*;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p/>
+ * AssetLoader loads textures and geometry in the background so that streaming assets does not stall the
+ * thread driving the frame loop. Each request goes through two stages:
+ * <ol>
+ * <li>The file is read and decoded into memory on one of a bounded pool of worker threads, using the
+ * loaders registered with {@link TextureLoader} and {@link GeometryLoader}.</li>
+ * <li>The decoded resources are built on the Framework's context thread. Pending builds are run from
+ * {@link Task Tasks} that stop after a configurable time slice and re-queue themselves, so rendering tasks
+ * queued in the meantime are not blocked behind a large backlog of uploads.</li>
+ * </ol>
+ * <p/>
+ * Requests with a higher priority are decoded and uploaded before requests with a lower priority, and
+ * requests of equal priority are processed in the order they were submitted. A request can be canceled with
+ * its Future until its resources start being built. To bound memory use, the file sizes of the requests
+ * that have been decoded but not yet built are limited. A request larger than the limit is still loaded, but
+ * only when nothing else is in flight.
+ * <p/>
+ * AssetLoader is thread safe.
+ *
+ * @author Michael Ludwig
+ */
+public class AssetLoader {
+    /**
+     * The default limit on the bytes in flight, 64 MB.
+     */
+    public static final long DEFAULT_MAX_BYTES_IN_FLIGHT = 64L << 20;
+    /**
+     * The default time in nanoseconds spent building resources per context thread Task, 2 ms.
+     */
+    public static final long DEFAULT_UPLOAD_SLICE = 2000000L;
+
+    // the size charged for URLs that don't report a content length
+    private static final long UNKNOWN_SIZE = 1L << 20;
+
+    // request states
+    private static final int QUEUED = 0;
+    private static final int DECODING = 1;
+    private static final int DECODED = 2;
+    private static final int UPLOADING = 3;
+    private static final int DONE = 4;
+    private static final int CANCELED = 5;
+
+    private final Framework framework;
+    private final ThreadPoolExecutor workers;
+    private final long uploadSlice;
+
+    private final AtomicLong sequence;
+
+    private final PriorityBlockingQueue<Request<?>> uploads;
+    private final AtomicBoolean uploadScheduled;
+    private final UploadTask uploadTask;
+
+    // requeues the upload task from off the context thread, where Framework.invoke() would run it inline,
+    // and watches queued upload tasks for cancellation
+    private final ThreadPoolExecutor uploadScheduler;
+    private final Runnable rescheduleUploads;
+
+    private final Object budgetLock;
+    private final long maxBytesInFlight;
+    private long bytesInFlight; // guarded by budgetLock
+
+    /**
+     * Create an AssetLoader for the given Framework that uses one fewer worker thread than available
+     * processors, {@link #DEFAULT_MAX_BYTES_IN_FLIGHT} and {@link #DEFAULT_UPLOAD_SLICE}.
+     *
+     * @param framework The Framework that builds the loaded resources
+     *
+     * @throws NullPointerException if framework is null
+     */
+    public AssetLoader(Framework framework) {
+        this(framework, Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+             DEFAULT_MAX_BYTES_IN_FLIGHT, DEFAULT_UPLOAD_SLICE);
+    }
+
+    /**
+     * Create an AssetLoader for the given Framework.
+     *
+     * @param framework        The Framework that builds the loaded resources
+     * @param threadCount      The number of worker threads that decode files
+     * @param maxBytesInFlight The total file size of requests that can be decoding or waiting to be built
+     * @param uploadSlice      The time in nanoseconds a single context thread Task will spend building
+     *                         resources before yielding to other tasks
+     *
+     * @throws NullPointerException     if framework is null
+     * @throws IllegalArgumentException if threadCount, maxBytesInFlight or uploadSlice are less than 1
+     */
+    public AssetLoader(Framework framework, int threadCount, long maxBytesInFlight, long uploadSlice) {
+        if (framework == null) {
+            throw new NullPointerException("Framework cannot be null");
+        }
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threadCount);
+        }
+        if (maxBytesInFlight < 1) {
+            throw new IllegalArgumentException("Max bytes in flight must be at least 1: " + maxBytesInFlight);
+        }
+        if (uploadSlice < 1) {
+            throw new IllegalArgumentException("Upload time slice must be at least 1: " + uploadSlice);
+        }
+
+        this.framework = framework;
+        this.maxBytesInFlight = maxBytesInFlight;
+        this.uploadSlice = uploadSlice;
+
+        workers = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                                         new PriorityBlockingQueue<Runnable>(), new WorkerThreadFactory());
+        sequence = new AtomicLong();
+        uploads = new PriorityBlockingQueue<>();
+        uploadScheduled = new AtomicBoolean(false);
+        uploadTask = new UploadTask();
+        // a single thread that exits when idle, so it doesn't need its own shutdown
+        uploadScheduler = new ThreadPoolExecutor(0, 1, 1L, TimeUnit.SECONDS,
+                                                 new LinkedBlockingQueue<Runnable>(),
+                                                 new WorkerThreadFactory());
+        rescheduleUploads = new Runnable() {
+            @Override
+            public void run() {
+                scheduleUploads();
+            }
+        };
+        budgetLock = new Object();
+        bytesInFlight = 0;
+    }
+
+    /**
+     * @return The Framework that builds the resources loaded by this AssetLoader
+     */
+    public Framework getFramework() {
+        return framework;
+    }
+
+    /**
+     * @return The total file size of the requests that are currently decoding or waiting to be built
+     */
+    public long getBytesInFlight() {
+        synchronized (budgetLock) {
+            return bytesInFlight;
+        }
+    }
+
+    /**
+     * @return The maximum bytes in flight allowed by this loader
+     */
+    public long getMaxBytesInFlight() {
+        return maxBytesInFlight;
+    }
+
+    /**
+     * Asynchronously load a texture from the given file, as if by {@link TextureLoader#readTexture(Framework,
+     * File)} followed by building the returned builder.
+     *
+     * @param file     The file to load
+     * @param priority The priority of the request, higher priorities are loaded first
+     *
+     * @return A Future for the built texture
+     *
+     * @throws NullPointerException       if file is null
+     * @throws RejectedExecutionException if the loader has been shutdown
+     */
+    public Future<Sampler> loadTexture(final File file, int priority) {
+        if (file == null) {
+            throw new NullPointerException("File cannot be null");
+        }
+        return submit(new TextureRequest(priority) {
+            @Override
+            long getSize() {
+                return file.length();
+            }
+
+            @Override
+            Builder<? extends Sampler> decodeTexture() throws IOException {
+                return TextureLoader.readTexture(framework, file);
+            }
+        });
+    }
+
+    /**
+     * Asynchronously load a texture from the given URL, as if by {@link TextureLoader#readTexture(Framework,
+     * URL)} followed by building the returned builder.
+     *
+     * @param url      The URL to load
+     * @param priority The priority of the request, higher priorities are loaded first
+     *
+     * @return A Future for the built texture
+     *
+     * @throws NullPointerException       if url is null
+     * @throws RejectedExecutionException if the loader has been shutdown
+     */
+    public Future<Sampler> loadTexture(final URL url, int priority) {
+        if (url == null) {
+            throw new NullPointerException("URL cannot be null");
+        }
+        return submit(new TextureRequest(priority) {
+            @Override
+            long getSize() throws IOException {
+                return getContentLength(url);
+            }
+
+            @Override
+            Builder<? extends Sampler> decodeTexture() throws IOException {
+                return TextureLoader.readTexture(framework, url);
+            }
+        });
+    }
+
+    /**
+     * Asynchronously load a geometry from the given file. The file is parsed with {@link
+     * GeometryLoader#decodeGeometry(InputStream)} on a worker thread and only its buffers are created on the
+     * context thread.
+     *
+     * @param file     The file to load
+     * @param priority The priority of the request, higher priorities are loaded first
+     *
+     * @return A Future for the loaded geometry
+     *
+     * @throws NullPointerException       if file is null
+     * @throws RejectedExecutionException if the loader has been shutdown
+     */
+    public Future<Geometry> loadGeometry(final File file, int priority) {
+        if (file == null) {
+            throw new NullPointerException("File cannot be null");
+        }
+        return submit(new GeometryRequest(priority) {
+            @Override
+            long getSize() {
+                return file.length();
+            }
+
+            @Override
+            InputStream open() throws IOException {
+                return new FileInputStream(file);
+            }
+        });
+    }
+
+    /**
+     * Asynchronously load a geometry from the given URL. The data is parsed with {@link
+     * GeometryLoader#decodeGeometry(InputStream)} on a worker thread and only its buffers are created on the
+     * context thread.
+     *
+     * @param url      The URL to load
+     * @param priority The priority of the request, higher priorities are loaded first
+     *
+     * @return A Future for the loaded geometry
+     *
+     * @throws NullPointerException       if url is null
+     * @throws RejectedExecutionException if the loader has been shutdown
+     */
+    public Future<Geometry> loadGeometry(final URL url, int priority) {
+        if (url == null) {
+            throw new NullPointerException("URL cannot be null");
+        }
+        return submit(new GeometryRequest(priority) {
+            @Override
+            long getSize() throws IOException {
+                return getContentLength(url);
+            }
+
+            @Override
+            InputStream open() throws IOException {
+                return url.openStream();
+            }
+        });
+    }
+
+    /**
+     * Shutdown the loader. Requests that have not started decoding are canceled, requests that are already
+     * being decoded will still be completed. Any later load requests are rejected.
+     */
+    public void shutdown() {
+        workers.shutdown();
+
+        List<Runnable> queued = new ArrayList<>();
+        workers.getQueue().drainTo(queued);
+        for (Runnable r : queued) {
+            ((Request<?>) r).cancel(false);
+        }
+    }
+
+    private <T> Future<T> submit(Request<T> request) {
+        workers.execute(request);
+        return request;
+    }
+
+    private static long getContentLength(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return new File(url.toURI()).length();
+            } catch (Exception e) {
+                // fall through and ask the connection
+            }
+        }
+
+        URLConnection connection = url.openConnection();
+        long length = connection.getContentLengthLong();
+        return (length < 0 ? UNKNOWN_SIZE : length);
+    }
+
+    private void acquireBytes(long bytes) throws InterruptedException {
+        synchronized (budgetLock) {
+            // an oversized request is allowed through when it's the only one, otherwise it would never run
+            while (bytesInFlight > 0 && bytesInFlight + bytes > maxBytesInFlight) {
+                budgetLock.wait();
+            }
+            bytesInFlight += bytes;
+        }
+    }
+
+    private void releaseBytes(long bytes) {
+        synchronized (budgetLock) {
+            bytesInFlight -= bytes;
+            budgetLock.notifyAll();
+        }
+    }
+
+    private void scheduleUploads() {
+        if (!uploads.isEmpty() && uploadScheduled.compareAndSet(false, true)) {
+            final Future<Void> task = framework.invoke(uploadTask);
+            if (task.isCancelled()) {
+                // the framework has been destroyed so nothing more can be built
+                failPendingUploads();
+            } else {
+                // the framework can also be destroyed while the task is queued, which cancels it without
+                // running it, so wait for it off the context thread to catch that case
+                uploadScheduler.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            task.get();
+                        } catch (CancellationException e) {
+                            failPendingUploads();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } catch (ExecutionException e) {
+                            // the task has reset the flag itself
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private void failPendingUploads() {
+        // clear the flag first, a request added after the queue is drained fails in its own scheduleUploads()
+        uploadScheduled.set(false);
+        Request<?> r;
+        while ((r = uploads.poll()) != null) {
+            r.fail(new IllegalStateException("Framework was destroyed before resources were built"));
+        }
+    }
+
+    private class UploadTask implements Task<Void> {
+        @Override
+        public Void run(HardwareAccessLayer access) {
+            long start = System.nanoTime();
+            try {
+                Request<?> r;
+                while ((r = uploads.poll()) != null) {
+                    r.upload();
+                    if (System.nanoTime() - start >= uploadSlice) {
+                        break;
+                    }
+                }
+            } finally {
+                uploadScheduled.set(false);
+            }
+
+            // any remaining uploads get a new task, so that tasks queued in the meantime run first, but it
+            // can't be invoked from here because the context thread would run it immediately
+            if (!uploads.isEmpty()) {
+                uploadScheduler.execute(rescheduleUploads);
+            }
+            return null;
+        }
+    }
+
+    private abstract class TextureRequest extends Request<Sampler> {
+        private Builder<? extends Sampler> builder;
+
+        public TextureRequest(int priority) {
+            super(priority);
+        }
+
+        abstract Builder<? extends Sampler> decodeTexture() throws IOException;
+
+        @Override
+        void decode() throws IOException {
+            builder = decodeTexture();
+        }
+
+        @Override
+        Sampler build() {
+            Sampler s = builder.build();
+            builder = null;
+            return s;
+        }
+    }
+
+    private abstract class GeometryRequest extends Request<Geometry> {
+        private StagedGeometryFileLoader.DecodedGeometry geometry;
+
+        public GeometryRequest(int priority) {
+            super(priority);
+        }
+
+        abstract InputStream open() throws IOException;
+
+        @Override
+        void decode() throws IOException {
+            try (InputStream in = open()) {
+                geometry = GeometryLoader.decodeGeometry(in);
+            }
+        }
+
+        @Override
+        Geometry build() {
+            Geometry g = geometry.createGeometry(framework);
+            geometry = null;
+            return g;
+        }
+    }
+
+    private abstract class Request<T> implements Future<T>, Runnable, Comparable<Request<?>> {
+        private final int priority;
+        private final long order;
+
+        // all guarded by this
+        private int state;
+        private Thread worker;
+        private long reservedBytes;
+        private T result;
+        private Throwable failure;
+
+        public Request(int priority) {
+            this.priority = priority;
+            order = sequence.getAndIncrement();
+            state = QUEUED;
+        }
+
+        // estimated size of the request, charged against the bytes in flight
+        abstract long getSize() throws IOException;
+
+        // called on a worker thread
+        abstract void decode() throws IOException;
+
+        // called on the context thread
+        abstract T build();
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (state != QUEUED) {
+                    return;
+                }
+                state = DECODING;
+                worker = Thread.currentThread();
+            }
+
+            try {
+                long size = Math.max(0L, getSize());
+                acquireBytes(size);
+                synchronized (this) {
+                    reservedBytes = size;
+                    if (state != DECODING) {
+                        // canceled while waiting for the budget
+                        releaseReservedBytes();
+                        return;
+                    }
+                }
+
+                decode();
+            } catch (Throwable t) {
+                fail(t);
+                return;
+            } finally {
+                synchronized (this) {
+                    worker = null;
+                }
+                // clear any interrupt from cancel() before the thread returns to the pool
+                Thread.interrupted();
+            }
+
+            synchronized (this) {
+                if (state != DECODING) {
+                    return;
+                }
+                state = DECODED;
+            }
+            uploads.add(this);
+            scheduleUploads();
+        }
+
+        void upload() {
+            synchronized (this) {
+                if (state != DECODED) {
+                    return;
+                }
+                state = UPLOADING;
+            }
+
+            try {
+                T built = build();
+                synchronized (this) {
+                    result = built;
+                    state = DONE;
+                    releaseReservedBytes();
+                    notifyAll();
+                }
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        synchronized void fail(Throwable t) {
+            if (state < DONE) {
+                failure = t;
+                state = DONE;
+                releaseReservedBytes();
+                notifyAll();
+            }
+        }
+
+        private void releaseReservedBytes() {
+            if (reservedBytes > 0) {
+                releaseBytes(reservedBytes);
+            }
+            reservedBytes = 0;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            int previous;
+            synchronized (this) {
+                if (state >= UPLOADING) {
+                    // too late to cancel once resources are being built
+                    return false;
+                }
+
+                previous = state;
+                state = CANCELED;
+                releaseReservedBytes();
+                if (mayInterruptIfRunning && worker != null) {
+                    worker.interrupt();
+                }
+                notifyAll();
+            }
+
+            if (previous == QUEUED) {
+                workers.remove(this);
+            } else if (previous == DECODED) {
+                uploads.remove(this);
+            }
+            return true;
+        }
+
+        @Override
+        public synchronized boolean isCancelled() {
+            return state == CANCELED;
+        }
+
+        @Override
+        public synchronized boolean isDone() {
+            return state >= DONE;
+        }
+
+        @Override
+        public synchronized T get() throws InterruptedException, ExecutionException {
+            while (state < DONE) {
+                wait();
+            }
+            return getResult();
+        }
+
+        @Override
+        public synchronized T get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (state < DONE) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return getResult();
+        }
+
+        private T getResult() throws ExecutionException {
+            if (state == CANCELED) {
+                throw new CancellationException();
+            } else if (failure != null) {
+                throw new ExecutionException(failure);
+            } else {
+                return result;
+            }
+        }
+
+        @Override
+        public int compareTo(Request<?> o) {
+            if (priority != o.priority) {
+                return (priority > o.priority ? -1 : 1);
+            }
+            return (order < o.order ? -1 : (order > o.order ? 1 : 0));
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private static final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "asset-loader-" + count.getAndIncrement());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        }
+    }
+}
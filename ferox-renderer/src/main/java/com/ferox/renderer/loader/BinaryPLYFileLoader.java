@@ -0,0 +1,199 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.loader;
+
+import com.ferox.renderer.Framework;
+import com.ferox.renderer.geom.Geometry;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * BinaryPLYFileLoader loads PLY files stored in the {@code binary_little_endian 1.0} and {@code
+ * binary_big_endian 1.0} formats. After the header, the element data is streamed through an NIO channel into
+ * a reusable buffer with the file's byte order and decoded straight into the mesh's primitive arrays.
+ * Properties of any numeric type are converted to floats, and unknown properties, lists and elements are
+ * skipped.
+ *
+ * @author Michael Ludwig
+ */
+public class BinaryPLYFileLoader implements StagedGeometryFileLoader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Override
+    public Geometry read(Framework framework, BufferedInputStream input) throws IOException {
+        PLYMeshData mesh = decodeMesh(input);
+        return (mesh == null ? null : mesh.createGeometry(framework));
+    }
+
+    @Override
+    public DecodedGeometry decode(BufferedInputStream input) throws IOException {
+        return decodeMesh(input);
+    }
+
+    private static PLYMeshData decodeMesh(BufferedInputStream input) throws IOException {
+        PLYHeader.Format format = PLYHeader.detectFormat(input);
+        if (format != PLYHeader.Format.BINARY_LITTLE_ENDIAN && format != PLYHeader.Format.BINARY_BIG_ENDIAN) {
+            return null;
+        }
+
+        PLYHeader header = PLYHeader.read(input);
+        PLYMeshData mesh = new PLYMeshData(header);
+
+        // the channel is not closed since that would close the caller's stream
+        ReadableByteChannel channel = Channels.newChannel(input);
+        ByteBuffer data = ByteBuffer.allocate(BUFFER_SIZE);
+        data.order(format == PLYHeader.Format.BINARY_LITTLE_ENDIAN ? ByteOrder.LITTLE_ENDIAN
+                                                                   : ByteOrder.BIG_ENDIAN);
+        data.flip();
+
+        int[] polygon = new int[16];
+        for (PLYHeader.Element e : header.elements) {
+            if (e == mesh.vertexElement) {
+                for (int i = 0; i < e.count; i++) {
+                    for (int p = 0; p < mesh.vertexSlots.length; p++) {
+                        PLYHeader.Property prop = e.properties.get(p);
+                        if (mesh.vertexSlots[p] != PLYMeshData.IGNORE) {
+                            fill(channel, data, prop.type.getByteCount());
+                            mesh.setVertexValue(i, mesh.vertexSlots[p], (float) getDouble(data, prop.type));
+                        } else {
+                            skipProperty(channel, data, prop);
+                        }
+                    }
+                }
+            } else if (e == mesh.faceElement) {
+                for (int i = 0; i < e.count; i++) {
+                    for (int p = 0; p < e.properties.size(); p++) {
+                        PLYHeader.Property prop = e.properties.get(p);
+                        if (p == mesh.faceIndexProperty) {
+                            fill(channel, data, prop.countType.getByteCount());
+                            long count = getLong(data, prop.countType);
+                            if (count < 0 || count > Integer.MAX_VALUE) {
+                                throw new IOException("Bad face vertex count: " + count);
+                            }
+                            if (count > polygon.length) {
+                                polygon = new int[(int) count];
+                            }
+                            for (int v = 0; v < count; v++) {
+                                fill(channel, data, prop.type.getByteCount());
+                                polygon[v] = (int) getLong(data, prop.type);
+                            }
+                            mesh.addFace(polygon, (int) count);
+                        } else {
+                            skipProperty(channel, data, prop);
+                        }
+                    }
+                }
+            } else {
+                // ignore unknown element types
+                for (int i = 0; i < e.count; i++) {
+                    for (PLYHeader.Property p : e.properties) {
+                        skipProperty(channel, data, p);
+                    }
+                }
+            }
+        }
+
+        mesh.complete();
+        return mesh;
+    }
+
+    // make sure at least bytes are remaining in data, refilling it from the channel as needed
+    private static void fill(ReadableByteChannel channel, ByteBuffer data, int bytes) throws IOException {
+        if (data.remaining() < bytes) {
+            data.compact();
+            while (data.position() < bytes) {
+                if (channel.read(data) < 0) {
+                    throw new IOException("Unexpected end of stream");
+                }
+            }
+            data.flip();
+        }
+    }
+
+    private static void skip(ReadableByteChannel channel, ByteBuffer data, long bytes) throws IOException {
+        while (bytes > 0) {
+            if (!data.hasRemaining()) {
+                fill(channel, data, 1);
+            }
+            int skipped = (int) Math.min(bytes, data.remaining());
+            data.position(data.position() + skipped);
+            bytes -= skipped;
+        }
+    }
+
+    private static void skipProperty(ReadableByteChannel channel, ByteBuffer data, PLYHeader.Property p)
+            throws IOException {
+        long count = 1;
+        if (p.isList()) {
+            fill(channel, data, p.countType.getByteCount());
+            count = getLong(data, p.countType);
+            if (count < 0) {
+                throw new IOException("Bad list length: " + count);
+            }
+        }
+        skip(channel, data, count * p.type.getByteCount());
+    }
+
+    private static long getLong(ByteBuffer data, PLYHeader.Type type) {
+        switch (type) {
+        case CHAR:
+            return data.get();
+        case UCHAR:
+            return data.get() & 0xff;
+        case SHORT:
+            return data.getShort();
+        case USHORT:
+            return data.getShort() & 0xffff;
+        case INT:
+            return data.getInt();
+        case UINT:
+            return data.getInt() & 0xffffffffL;
+        case FLOAT:
+            return (long) data.getFloat();
+        case DOUBLE:
+            return (long) data.getDouble();
+        default:
+            throw new IllegalStateException("Unknown property type: " + type);
+        }
+    }
+
+    private static double getDouble(ByteBuffer data, PLYHeader.Type type) {
+        switch (type) {
+        case FLOAT:
+            return data.getFloat();
+        case DOUBLE:
+            return data.getDouble();
+        default:
+            return getLong(data, type);
+        }
+    }
+}
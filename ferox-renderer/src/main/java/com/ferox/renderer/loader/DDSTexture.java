@@ -33,10 +33,15 @@ import com.ferox.renderer.builder.CubeImageData;
 import com.ferox.renderer.builder.ImageData;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * <p/>
@@ -92,6 +97,57 @@ public class DDSTexture {
         return new DDSTexture(framework, stream).texBuilder;
     }
 
+    /**
+     * <p/>
+     * Read in and create a new Texture from the given file, as in {@link #readTexture(Framework,
+     * BufferedInputStream)}. The file is memory-mapped instead of streamed. DXT compressed mipmaps and faces
+     * are handed to the image builders as slices of the mapped file, so they are uploaded without copying
+     * them onto the Java heap. Other formats are still converted into primitive arrays.
+     *
+     * @param framework The Framework that creates the texture
+     * @param file      The DDS file to read
+     *
+     * @return The Texture read from file
+     *
+     * @throws IOException if the file can't be mapped, or if it is an invalid or unsupported DDS texture
+     */
+    public static Builder<? extends Sampler> readTexture(Framework framework, File file) throws IOException {
+        if (file == null) {
+            throw new IOException("Cannot read a texture from a null file");
+        }
+        return readTexture(framework, file.toPath());
+    }
+
+    /**
+     * <p/>
+     * Read in and create a new Texture from the file at the given path. This behaves identically to {@link
+     * #readTexture(Framework, File)}.
+     *
+     * @param framework The Framework that creates the texture
+     * @param path      The path of the DDS file to read
+     *
+     * @return The Texture read from the path
+     *
+     * @throws IOException if the file can't be mapped, or if it is an invalid or unsupported DDS texture
+     */
+    public static Builder<? extends Sampler> readTexture(Framework framework, Path path) throws IOException {
+        if (path == null) {
+            throw new IOException("Cannot read a texture from a null path");
+        }
+
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("DDS file is too large to map: " + path);
+            }
+            // the mapping remains valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        ByteBufferInputStream in = new ByteBufferInputStream(mapped);
+        return new DDSTexture(framework, in, new MappedLevelSource(in.getBuffer())).texBuilder;
+    }
+
     /**
      * <p/>
      * Determine if the given stream represents the start of a valid DDS file. All it checks is the header
@@ -148,6 +204,14 @@ public class DDSTexture {
      * constructor.
      */
     private DDSTexture(Framework framework, InputStream in) throws IOException {
+        this(framework, in, null);
+    }
+
+    /*
+     * As above, but the image data after the header is provided by the given
+     * level source. If the source is null, the data is read from the stream.
+     */
+    private DDSTexture(Framework framework, InputStream in, LevelSource source) throws IOException {
         header = readHeader(in);
 
         // validate and interpret the header
@@ -158,12 +222,15 @@ public class DDSTexture {
         texBuilder = createSamplerBuilder(framework);
         Object imageBuilder = createImageBuilder();
 
+        if (source == null) {
+            source = new StreamLevelSource(in);
+        }
         if (imageBuilder instanceof ImageData) {
-            readData(in, (ImageData<?>) imageBuilder);
+            readData(source, (ImageData<?>) imageBuilder);
         } else if (imageBuilder instanceof ArrayImageData) {
-            readData(in, (ArrayImageData<?>) imageBuilder);
+            readData(source, (ArrayImageData<?>) imageBuilder);
         } else {
-            readData(in, (CubeImageData<?>) imageBuilder);
+            readData(source, (CubeImageData<?>) imageBuilder);
         }
     }
 
@@ -832,59 +899,116 @@ public class DDSTexture {
         return h;
     }
 
-    private void readData(InputStream in, ImageData<?> img) throws IOException {
-        for (int m = 0; m < mipmapCount; m++) {
-            byte[] raw = new byte[getBufferSize(m)];
+    /*
+     * Provides the data of each mipmap and image in the order they're stored
+     * in the file, as a primitive array or a ByteBuffer accepted by the data
+     * builders.
+     */
+    private static interface LevelSource {
+        public Object next(DDSTexture texture, int mipmap) throws IOException;
+    }
+
+    // reads every level into a new array
+    private static class StreamLevelSource implements LevelSource {
+        private final InputStream in;
+
+        public StreamLevelSource(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public Object next(DDSTexture texture, int mipmap) throws IOException {
+            byte[] raw = new byte[texture.getBufferSize(mipmap)];
             readAll(in, raw);
-            setImageData(img.mipmap(m), createBuffer(raw));
+            return texture.createBuffer(raw);
+        }
+    }
+
+    // slices levels out of a mapped file, compressed levels are passed along without copying
+    private static class MappedLevelSource implements LevelSource {
+        private final ByteBuffer data;
+
+        public MappedLevelSource(ByteBuffer data) {
+            // data's position is just past the header
+            this.data = data;
+        }
+
+        @Override
+        public Object next(DDSTexture texture, int mipmap) throws IOException {
+            int size = texture.getBufferSize(mipmap);
+            if (size > data.remaining()) {
+                throw new IOException("Unexpected end of file");
+            }
+
+            ByteBuffer level = data.slice();
+            level.limit(size);
+            data.position(data.position() + size);
+
+            if (texture.isCompressed()) {
+                return level;
+            } else {
+                byte[] raw = new byte[size];
+                level.get(raw);
+                return texture.createBuffer(raw);
+            }
+        }
+    }
+
+    private void readData(LevelSource in, ImageData<?> img) throws IOException {
+        for (int m = 0; m < mipmapCount; m++) {
+            setImageData(img.mipmap(m), in.next(this, m));
         }
     }
 
-    private void readData(InputStream in, ArrayImageData<?> img) throws IOException {
+    private void readData(LevelSource in, ArrayImageData<?> img) throws IOException {
         for (int i = 0; i < imageCount; i++) {
             for (int m = 0; m < mipmapCount; m++) {
-                byte[] raw = new byte[getBufferSize(m)];
-                readAll(in, raw);
-                setImageData(img.mipmap(i, m), createBuffer(raw));
+                setImageData(img.mipmap(i, m), in.next(this, m));
             }
         }
     }
 
-    private void readData(InputStream in, CubeImageData<?> img) throws IOException {
+    private void readData(LevelSource in, CubeImageData<?> img) throws IOException {
         for (int m = 0; m < mipmapCount; m++) {
-            byte[] raw = new byte[getBufferSize(m)];
-            readAll(in, raw);
-            setImageData(img.positiveX(m), createBuffer(raw));
+            setImageData(img.positiveX(m), in.next(this, m));
         }
 
         for (int m = 0; m < mipmapCount; m++) {
-            byte[] raw = new byte[getBufferSize(m)];
-            readAll(in, raw);
-            setImageData(img.negativeX(m), createBuffer(raw));
+            setImageData(img.negativeX(m), in.next(this, m));
         }
 
         for (int m = 0; m < mipmapCount; m++) {
-            byte[] raw = new byte[getBufferSize(m)];
-            readAll(in, raw);
-            setImageData(img.positiveY(m), createBuffer(raw));
+            setImageData(img.positiveY(m), in.next(this, m));
         }
 
         for (int m = 0; m < mipmapCount; m++) {
-            byte[] raw = new byte[getBufferSize(m)];
-            readAll(in, raw);
-            setImageData(img.negativeY(m), createBuffer(raw));
+            setImageData(img.negativeY(m), in.next(this, m));
         }
 
         for (int m = 0; m < mipmapCount; m++) {
-            byte[] raw = new byte[getBufferSize(m)];
-            readAll(in, raw);
-            setImageData(img.positiveZ(m), createBuffer(raw));
+            setImageData(img.positiveZ(m), in.next(this, m));
         }
 
         for (int m = 0; m < mipmapCount; m++) {
-            byte[] raw = new byte[getBufferSize(m)];
-            readAll(in, raw);
-            setImageData(img.negativeZ(m), createBuffer(raw));
+            setImageData(img.negativeZ(m), in.next(this, m));
+        }
+    }
+
+    // true if the format is one of the DXT formats that the data builders accept as a ByteBuffer
+    private boolean isCompressed() {
+        switch (format == null ? DXGIPixelFormat.DXGI_FORMAT_UNKNOWN : format) {
+        case DXGI_FORMAT_BC1_TYPELESS:
+        case DXGI_FORMAT_BC1_UNORM:
+        case DXGI_FORMAT_BC1_UNORM_SRGB:
+        case DXGI_FORMAT_BC2_TYPELESS:
+        case DXGI_FORMAT_BC2_UNORM:
+        case DXGI_FORMAT_BC2_UNORM_SRGB:
+        case DXGI_FORMAT_BC3_TYPELESS:
+        case DXGI_FORMAT_BC3_UNORM:
+        case DXGI_FORMAT_BC3_UNORM_SRGB:
+            return true;
+        default:
+            return false;
         }
     }
 
@@ -927,7 +1051,8 @@ public class DDSTexture {
         }
 
         try {
-            Class<?> arrayType = data.getClass();
+            // mapped slices are subclasses of ByteBuffer, so look up the declared parameter type
+            Class<?> arrayType = (data instanceof ByteBuffer ? ByteBuffer.class : data.getClass());
             Method m = layer.getClass().getMethod(methodName, arrayType);
             m.setAccessible(true);
             m.invoke(layer, data);
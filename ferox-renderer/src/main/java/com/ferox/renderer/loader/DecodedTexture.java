@@ -0,0 +1,393 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.loader;
+
+import com.ferox.renderer.*;
+import com.ferox.renderer.builder.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DecodedTexture holds the final texel arrays produced by the built-in image loaders before they are handed
+ * to a texture builder. This lets the loaders share the code that configures builders, and gives {@link
+ * TextureCache} a single representation to store on disk.
+ * <p/>
+ * The serialized form is a small header and image table followed by the raw texel arrays in the writer's
+ * native byte order, with each array aligned to 8 bytes so that it can be read from a memory-mapped file
+ * with bulk copies.
+ *
+ * @author Michael Ludwig
+ */
+final class DecodedTexture {
+    private static final int MAGIC = 0x46544558; // FTEX
+    private static final int HEADER_SIZE = 36;
+    private static final int IMAGE_ENTRY_SIZE = 32;
+
+    /**
+     * The type of sampler the decoded data is for. IMAGES is used for data that is not turned into a
+     * builder directly, such as the parts and levels of an OpenEXR file.
+     */
+    public static enum Target {
+        TEXTURE_1D,
+        TEXTURE_2D,
+        CUBE_MAP,
+        IMAGES
+    }
+
+    /**
+     * The primitive type of the texel arrays and how they are interpreted.
+     */
+    public static enum DataKind {
+        UNSIGNED_NORMALIZED_BYTE(1),
+        UNSIGNED_NORMALIZED_SHORT(2),
+        FLOAT(4);
+
+        private final int byteSize;
+
+        private DataKind(int byteSize) {
+            this.byteSize = byteSize;
+        }
+    }
+
+    /**
+     * A single image of the texture. For cube maps the layer is the face, in the order positive x, y, z and
+     * then negative x, y, z. For IMAGES the layer is the part of the source file.
+     */
+    public static final class Image {
+        public final int layer;
+        public final int level;
+        public final int width;
+        public final int height;
+        public final Object data;
+
+        public Image(int layer, int level, int width, int height, Object data) {
+            this.layer = layer;
+            this.level = level;
+            this.width = width;
+            this.height = height;
+            this.data = data;
+        }
+    }
+
+    public final Target target;
+    public final Sampler.TexelFormat format;
+    public final DataKind kind;
+    // if true, the sampler is interpolated with repeat wrapping, as RadianceImageLoader configures it
+    public final boolean linearRepeat;
+
+    private final List<Image> images;
+
+    public DecodedTexture(Target target, Sampler.TexelFormat format, DataKind kind, boolean linearRepeat) {
+        this.target = target;
+        this.format = format;
+        this.kind = kind;
+        this.linearRepeat = linearRepeat;
+        images = new ArrayList<>();
+    }
+
+    /**
+     * Add an image to the texture. The data must be a byte[], short[] or float[] matching the data kind.
+     */
+    public void addImage(int layer, int level, int width, int height, Object data) {
+        images.add(new Image(layer, level, width, height, data));
+    }
+
+    public List<Image> getImages() {
+        return Collections.unmodifiableList(images);
+    }
+
+    /**
+     * @return A builder for the decoded texture of the appropriate type
+     *
+     * @throws IllegalStateException if the target is IMAGES
+     */
+    public Builder<? extends Sampler> createBuilder(Framework framework) {
+        switch (target) {
+        case TEXTURE_1D:
+            return create1D(framework);
+        case TEXTURE_2D:
+            return create2D(framework);
+        case CUBE_MAP:
+            return createCubeMap(framework);
+        default:
+            throw new IllegalStateException("Decoded images cannot be converted to a texture builder");
+        }
+    }
+
+    public Builder<Texture1D> create1D(Framework framework) {
+        Texture1DBuilder b = framework.newTexture1D();
+        b.length(images.get(0).width);
+        if (linearRepeat) {
+            b.interpolated().wrap(Sampler.WrapMode.REPEAT).anisotropy(1.0);
+        }
+
+        ImageData<? extends TextureBuilder.BasicColorData> i;
+        if (format == Sampler.TexelFormat.RGBA) {
+            i = b.rgba();
+        } else if (format == Sampler.TexelFormat.RGB) {
+            i = b.rgb();
+        } else {
+            i = b.r();
+        }
+
+        for (Image image : images) {
+            setData(i.mipmap(image.level), image.data);
+        }
+        return b;
+    }
+
+    public Builder<Texture2D> create2D(Framework framework) {
+        Texture2DBuilder b = framework.newTexture2D();
+        b.width(images.get(0).width).height(images.get(0).height);
+        if (linearRepeat) {
+            b.interpolated().wrap(Sampler.WrapMode.REPEAT).anisotropy(1.0);
+        }
+
+        ImageData<? extends TextureBuilder.BasicColorData> i;
+        if (format == Sampler.TexelFormat.RGBA) {
+            i = b.rgba();
+        } else if (format == Sampler.TexelFormat.RGB) {
+            i = b.rgb();
+        } else {
+            i = b.r();
+        }
+
+        for (Image image : images) {
+            setData(i.mipmap(image.level), image.data);
+        }
+        return b;
+    }
+
+    public Builder<TextureCubeMap> createCubeMap(Framework framework) {
+        TextureCubeMapBuilder b = framework.newTextureCubeMap();
+        b.side(images.get(0).width);
+        if (linearRepeat) {
+            b.interpolated().wrap(Sampler.WrapMode.REPEAT).anisotropy(1.0);
+        }
+
+        CubeImageData<? extends TextureBuilder.BasicColorData> i;
+        if (format == Sampler.TexelFormat.RGBA) {
+            i = b.rgba();
+        } else if (format == Sampler.TexelFormat.RGB) {
+            i = b.rgb();
+        } else {
+            i = b.r();
+        }
+
+        for (Image image : images) {
+            TextureBuilder.BasicColorData face;
+            switch (image.layer) {
+            case 0:
+                face = i.positiveX(image.level);
+                break;
+            case 1:
+                face = i.positiveY(image.level);
+                break;
+            case 2:
+                face = i.positiveZ(image.level);
+                break;
+            case 3:
+                face = i.negativeX(image.level);
+                break;
+            case 4:
+                face = i.negativeY(image.level);
+                break;
+            default:
+                face = i.negativeZ(image.level);
+                break;
+            }
+            setData(face, image.data);
+        }
+        return b;
+    }
+
+    private void setData(TextureBuilder.BasicColorData target, Object data) {
+        switch (kind) {
+        case UNSIGNED_NORMALIZED_BYTE:
+            target.fromUnsignedNormalized((byte[]) data);
+            break;
+        case UNSIGNED_NORMALIZED_SHORT:
+            target.fromUnsignedNormalized((short[]) data);
+            break;
+        case FLOAT:
+            target.from((float[]) data);
+            break;
+        }
+    }
+
+    private static int getLength(Object data) {
+        if (data instanceof byte[]) {
+            return ((byte[]) data).length;
+        } else if (data instanceof short[]) {
+            return ((short[]) data).length;
+        } else {
+            return ((float[]) data).length;
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * Write the texture to the channel, starting at its current position.
+     *
+     * @param out     The channel to write to
+     * @param version A version number that is validated when the texture is read back
+     *
+     * @throws IOException if the channel cannot be written to
+     */
+    public void write(FileChannel out, int version) throws IOException {
+        ByteOrder order = ByteOrder.nativeOrder();
+        int tableSize = HEADER_SIZE + IMAGE_ENTRY_SIZE * images.size();
+
+        ByteBuffer table = ByteBuffer.allocate(tableSize).order(order);
+        table.put((byte) (order == ByteOrder.LITTLE_ENDIAN ? 1 : 0)).put((byte) 0).put((byte) 0)
+             .put((byte) 0);
+        table.putInt(MAGIC).putInt(version).putInt(target.ordinal()).putInt(format.ordinal())
+             .putInt(kind.ordinal()).putInt(linearRepeat ? 1 : 0).putInt(images.size()).putInt(0);
+
+        long offset = align(tableSize);
+        for (Image image : images) {
+            int length = getLength(image.data);
+            table.putInt(image.layer).putInt(image.level).putInt(image.width).putInt(image.height)
+                 .putInt(length).putInt(0).putLong(offset);
+            offset = align(offset + (long) length * kind.byteSize);
+        }
+        table.flip();
+        writeFully(out, table, 0);
+
+        long start = align(tableSize);
+        for (Image image : images) {
+            int length = getLength(image.data);
+            ByteBuffer data = ByteBuffer.allocate(length * kind.byteSize).order(order);
+            switch (kind) {
+            case UNSIGNED_NORMALIZED_BYTE:
+                data.put((byte[]) image.data);
+                break;
+            case UNSIGNED_NORMALIZED_SHORT:
+                data.asShortBuffer().put((short[]) image.data);
+                break;
+            case FLOAT:
+                data.asFloatBuffer().put((float[]) image.data);
+                break;
+            }
+            data.rewind();
+            writeFully(out, data, start);
+            start = align(start + data.capacity());
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += out.write(data, position);
+        }
+    }
+
+    /**
+     * Read a texture previously written with {@link #write(FileChannel, int)}. The texel arrays are bulk
+     * copied out of <var>data</var>, which is typically a memory-mapped file.
+     *
+     * @param data    The serialized texture, starting at position 0
+     * @param version The expected version
+     *
+     * @return The texture, or null if the data has a different version
+     *
+     * @throws IOException if the data is not a valid decoded texture
+     */
+    public static DecodedTexture read(ByteBuffer data, int version) throws IOException {
+        if (data.limit() < HEADER_SIZE) {
+            throw new IOException("Decoded texture is truncated");
+        }
+        ByteOrder order = (data.get(0) == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        ByteBuffer in = data.duplicate().order(order);
+        in.position(4);
+
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a decoded texture");
+        }
+        if (in.getInt() != version) {
+            return null;
+        }
+
+        Target target = Target.values()[in.getInt()];
+        Sampler.TexelFormat format = Sampler.TexelFormat.values()[in.getInt()];
+        DataKind kind = DataKind.values()[in.getInt()];
+        boolean linearRepeat = in.getInt() != 0;
+        int count = in.getInt();
+        in.getInt();
+
+        if (count < 0 || HEADER_SIZE + (long) count * IMAGE_ENTRY_SIZE > data.limit()) {
+            throw new IOException("Decoded texture is truncated");
+        }
+
+        DecodedTexture texture = new DecodedTexture(target, format, kind, linearRepeat);
+        for (int i = 0; i < count; i++) {
+            int layer = in.getInt();
+            int level = in.getInt();
+            int width = in.getInt();
+            int height = in.getInt();
+            int length = in.getInt();
+            in.getInt();
+            long offset = in.getLong();
+
+            if (length < 0 || offset < 0 || offset + (long) length * kind.byteSize > data.limit()) {
+                throw new IOException("Decoded texture is truncated");
+            }
+
+            ByteBuffer block = data.duplicate();
+            block.position((int) offset);
+            block.order(order);
+            Object array;
+            switch (kind) {
+            case UNSIGNED_NORMALIZED_BYTE:
+                byte[] b = new byte[length];
+                block.get(b);
+                array = b;
+                break;
+            case UNSIGNED_NORMALIZED_SHORT:
+                short[] s = new short[length];
+                block.asShortBuffer().get(s);
+                array = s;
+                break;
+            default:
+                float[] f = new float[length];
+                block.asFloatBuffer().get(f);
+                array = f;
+                break;
+            }
+            texture.addImage(layer, level, width, height, array);
+        }
+        return texture;
+    }
+}
@@ -43,11 +43,19 @@ public final class GeometryLoader {
     // register some default loaders
     static {
         registerLoader(new ASCIIPLYFileLoader());
+        registerLoader(new BinaryPLYFileLoader());
     }
 
     private GeometryLoader() {
     }
 
+    // the loaders are stateless, so files are parsed against a copy and several can be parsed at once
+    private static List<GeometryFileLoader> getLoaders() {
+        synchronized (loaders) {
+            return new ArrayList<>(loaders);
+        }
+    }
+
     /**
      * <p/>
      * Register the given loader, so that it can be used in subsequent readGeometry() calls. The newer loaders
@@ -153,15 +161,86 @@ public final class GeometryLoader {
         // load the file
         Geometry t;
 
-        synchronized (loaders) {
-            for (int i = loaders.size() - 1; i >= 0; i--) {
-                t = loaders.get(i).read(framework, in);
-                if (t != null) {
-                    return t; // we've loaded it
-                }
+        List<GeometryFileLoader> loaders = getLoaders();
+        for (int i = loaders.size() - 1; i >= 0; i--) {
+            t = loaders.get(i).read(framework, in);
+            if (t != null) {
+                return t; // we've loaded it
+            }
+        }
+
+        throw new IOException("Unable to load the given geometry, no registered loader with support");
+    }
+
+    /**
+     * <p/>
+     * Decode a mesh from the given stream without creating any GPU resources. The returned geometry's buffers
+     * are created later with {@link StagedGeometryFileLoader.DecodedGeometry#createGeometry(Framework)}, which
+     * lets the file be parsed on a background thread.
+     * <p/>
+     * Loaders are consulted in the same order as readGeometry(). If a loader that is not a {@link
+     * StagedGeometryFileLoader} would be consulted first, the remaining bytes of the stream are buffered in
+     * memory instead and are parsed when the geometry is created.
+     * <p/>
+     * This method does not close the stream, in case it's to be used later on.
+     *
+     * @param stream The InputStream to read the mesh from
+     *
+     * @return The decoded geometry
+     *
+     * @throws IOException if the stream can't be read from, it represents an invalid or unsupported mesh file
+     *                     type, etc.
+     */
+    public static StagedGeometryFileLoader.DecodedGeometry decodeGeometry(InputStream stream)
+            throws IOException {
+        BufferedInputStream in;
+        if (stream instanceof BufferedInputStream) {
+            in = (BufferedInputStream) stream;
+        } else {
+            in = new BufferedInputStream(stream);
+        }
+
+        List<GeometryFileLoader> loaders = getLoaders();
+        for (int i = loaders.size() - 1; i >= 0; i--) {
+            GeometryFileLoader loader = loaders.get(i);
+            if (!(loader instanceof StagedGeometryFileLoader)) {
+                return new BufferedGeometry(readFully(in));
+            }
+
+            StagedGeometryFileLoader.DecodedGeometry t = ((StagedGeometryFileLoader) loader).decode(in);
+            if (t != null) {
+                return t; // we've decoded it
             }
         }
 
         throw new IOException("Unable to load the given geometry, no registered loader with support");
     }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    // fallback for loaders that cannot decode separately, the file is parsed when the geometry is created
+    private static class BufferedGeometry implements StagedGeometryFileLoader.DecodedGeometry {
+        private final byte[] data;
+
+        public BufferedGeometry(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public Geometry createGeometry(Framework framework) {
+            try {
+                return readGeometry(framework, new ByteArrayInputStream(data));
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to parse buffered geometry", e);
+            }
+        }
+    }
 }
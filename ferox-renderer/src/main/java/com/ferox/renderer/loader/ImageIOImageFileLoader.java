@@ -45,15 +45,26 @@ public class ImageIOImageFileLoader implements ImageFileLoader {
     @Override
     public Builder<? extends Texture> read(Framework framework, BufferedInputStream stream)
             throws IOException {
+        DecodedTexture t = decode(stream);
+        if (t == null) {
+            return null;
+        } else if (t.target == DecodedTexture.Target.TEXTURE_1D) {
+            return t.create1D(framework);
+        } else {
+            return t.create2D(framework);
+        }
+    }
+
+    DecodedTexture decode(BufferedInputStream stream) throws IOException {
         // I'm assuming that read() will restore the stream's position
         // if no reader is found
 
         BufferedImage b = ImageIO.read(stream);
         if (b != null) {
             if (b.getHeight() == 1) {
-                return TextureLoader.createTexture1D(framework, b);
+                return TextureLoader.decodeTexture1D(b);
             } else {
-                return TextureLoader.createTexture2D(framework, b);
+                return TextureLoader.decodeTexture2D(b);
             }
         } else {
             return null;
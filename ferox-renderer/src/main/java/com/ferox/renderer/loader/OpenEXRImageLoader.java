@@ -31,11 +31,14 @@ import com.ferox.math.Functions;
 import javax.swing.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -43,6 +46,8 @@ import java.util.zip.Inflater;
  *
  */
 public class OpenEXRImageLoader {
+    private final PizDecompressor piz = new PizDecompressor();
+
     public static void main(String[] args) throws IOException {
         InputStream in = new BufferedInputStream(new FileInputStream("/Users/mludwig/Desktop/scene-uncompressed.exr"));
         RadianceImageLoader.Image img = readSimple(in);
@@ -86,6 +91,93 @@ public class OpenEXRImageLoader {
         return finalResult;
     }
 
+    /**
+     * Read every part and level of the OpenEXR image stored in <var>file</var>. The file is memory-mapped
+     * and its chunks are decompressed concurrently by <var>pool</var>, writing directly into the returned
+     * images. If <var>pool</var> is null the chunks are decoded on the calling thread.
+     *
+     * @param file The OpenEXR file
+     * @param pool The pool that decodes chunks, may be null
+     *
+     * @return The images for each part, with one image per level
+     *
+     * @throws IOException if the file cannot be read or is not a supported OpenEXR image
+     */
+    public static RadianceImageLoader.Image[][] read(File file, ForkJoinPool pool) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("OpenEXR file is too large to map: " + file);
+            }
+            // the mapping remains valid after the channel is closed
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), pool);
+        }
+    }
+
+    /**
+     * Read every part and level of the OpenEXR image at <var>url</var>, decoding its chunks concurrently
+     * with <var>pool</var>. File URLs are memory-mapped as in {@link #read(File, ForkJoinPool)}, other URLs
+     * are read fully into memory before decoding.
+     *
+     * @param url  The location of the OpenEXR image
+     * @param pool The pool that decodes chunks, may be null
+     *
+     * @return The images for each part, with one image per level
+     *
+     * @throws IOException if the URL cannot be read or is not a supported OpenEXR image
+     */
+    public static RadianceImageLoader.Image[][] read(URL url, ForkJoinPool pool) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return read(new File(url.toURI()), pool);
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // fall through and read it as a stream
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = url.openStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        return read(ByteBuffer.wrap(bytes.toByteArray()), pool);
+    }
+
+    /**
+     * Read every part and level of the OpenEXR image held in <var>data</var>, starting at its current
+     * position. The chunks are located with the file's offset tables and decompressed concurrently by
+     * <var>pool</var>, or on the calling thread if <var>pool</var> is null. The buffer's position is not
+     * modified.
+     *
+     * @param data The OpenEXR file contents
+     * @param pool The pool that decodes chunks, may be null
+     *
+     * @return The images for each part, with one image per level
+     *
+     * @throws IOException if the data is not a supported OpenEXR image
+     */
+    public static RadianceImageLoader.Image[][] read(ByteBuffer data, ForkJoinPool pool) throws IOException {
+        // chunk offsets are relative to the start of the file
+        ByteBuffer file = data.slice();
+        InputStream in = new ByteBufferInputStream(file.duplicate());
+
+        OpenEXRImageLoader loader = new OpenEXRImageLoader();
+        ImageFormat format = loader.readPreHeader(in);
+        List<Header> headers = loader.readHeaders(in, format);
+        List<OffsetTable> offsets = loader.readOffsetTables(in, format, headers);
+        Map<Header, RadianceImageLoader.Image[]> images = loader.readChunks(file, format, headers, offsets,
+                                                                            pool);
+
+        RadianceImageLoader.Image[][] finalResult = new RadianceImageLoader.Image[headers.size()][];
+        for (int i = 0; i < finalResult.length; i++) {
+            finalResult[i] = images.get(headers.get(i));
+        }
+        return finalResult;
+    }
+
     private static enum ImageFormat {
         SCANLINE,
         TILE,
@@ -604,6 +696,8 @@ public class OpenEXRImageLoader {
 
     private static interface OffsetTable {
         public int getTotalOffsets();
+
+        public long[] getAllOffsets();
     }
 
     private static class ScanLineOffsetTable implements OffsetTable {
@@ -619,6 +713,11 @@ public class OpenEXRImageLoader {
             return offsets.length;
         }
 
+        @Override
+        public long[] getAllOffsets() {
+            return offsets;
+        }
+
         public static ScanLineOffsetTable read(Header header, InputStream in) throws IOException {
             int linesInBuffer = header.compression.getLinesInBuffer();
             int size = (header.dataWindow.maxY - header.dataWindow.minY) / linesInBuffer + 1;
@@ -661,7 +760,7 @@ public class OpenEXRImageLoader {
 
             int total = 0;
             for (int i = 0; i < offsets.length; i++) {
-                for (int j = 0; j < offsets.length; j++) {
+                for (int j = 0; j < offsets[i].length; j++) {
                     total += offsets[i][j].length;
                 }
             }
@@ -673,6 +772,19 @@ public class OpenEXRImageLoader {
             return totalTiles;
         }
 
+        @Override
+        public long[] getAllOffsets() {
+            long[] all = new long[totalTiles];
+            int i = 0;
+            for (long[][] level : offsets) {
+                for (long[] row : level) {
+                    System.arraycopy(row, 0, all, i, row.length);
+                    i += row.length;
+                }
+            }
+            return all;
+        }
+
         public long getOffset(int dx, int dy, int l) {
             return getOffset(dx, dy, l, l);
         }
@@ -729,9 +841,9 @@ public class OpenEXRImageLoader {
                 for (int ly = 0; ly < numY; ly++) {
                     for (int lx = 0; lx < numX; lx++) {
                         int l = ly * numX + lx;
-                        offsets[l] = new long[levelCounts[1][l]][];
+                        offsets[l] = new long[levelCounts[1][ly]][];
                         for (int dy = 0; dy < offsets[l].length; dy++) {
-                            offsets[l][dy] = new long[levelCounts[0][l]];
+                            offsets[l][dy] = new long[levelCounts[0][lx]];
                             for (int dx = 0; dx < offsets[l][dy].length; dx++) {
                                 offsets[l][dy][dx] = bytesToLong(data, offset);
                                 offset += 8;
@@ -963,21 +1075,93 @@ public class OpenEXRImageLoader {
         }
     }
 
-    private byte[] unzipBlock(byte[] compressed, Box2Int blockWindow, int bytesPerPixel) {
-        byte[] uncompressed = new byte[blockWindow.width() * blockWindow.height() * bytesPerPixel];
+    private byte[] decompressBlock(byte[] rawData, Header h, Box2Int blockWindow) throws IOException {
+        PixelFormat type = h.channels.get(0).type;
+        int numChannels = h.channels.size();
+        int uncompressedSize = blockWindow.width() * blockWindow.height() * numChannels * type.getByteCount();
+        if (rawData.length >= uncompressedSize) {
+            // the writer stores blocks uncompressed when compression doesn't reduce their size
+            return rawData;
+        }
+
+        switch (h.compression) {
+        case NO_COMPRESSION:
+            // the byte array is as expected
+            return rawData;
+        case ZIP_COMPRESSION:
+        case ZIPS_COMPRESSION:
+            // these both use the ZIP compression algorithm, they just differ in line block height
+            return unzipBlock(rawData, uncompressedSize);
+        case RLE_COMPRESSION:
+            return unRLEBlock(rawData, uncompressedSize);
+        case PIZ_COMPRESSION:
+            int[] channelShorts = new int[numChannels];
+            Arrays.fill(channelShorts, type.getByteCount() / 2);
+            return piz.decompress(rawData, blockWindow.width(), blockWindow.height(), channelShorts);
+        case PXR24_COMPRESSION:
+        case B44_COMPRESSION:
+        case B44A_COMPRESSION:
+        default:
+            throw new IllegalStateException("Compression mode is not supported: " + h.compression);
+        }
+    }
+
+    private byte[] unzipBlock(byte[] compressed, int uncompressedSize) {
+        byte[] uncompressed = new byte[uncompressedSize];
         Inflater decompressor = new Inflater();
         decompressor.setInput(compressed);
         int read = 0;
-        while (read < uncompressed.length) {
-            try {
-                read += decompressor.inflate(uncompressed, read, uncompressed.length - read);
-            } catch (DataFormatException e) {
-                throw new IllegalStateException("Expected ZIP formatted scanline block", e);
+        try {
+            while (read < uncompressed.length) {
+                int inflated = decompressor.inflate(uncompressed, read, uncompressed.length - read);
+                if (inflated == 0 && (decompressor.finished() || decompressor.needsInput())) {
+                    throw new IllegalStateException("ZIP block ended before all pixel data was inflated");
+                }
+                read += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Expected ZIP formatted scanline block", e);
+        } finally {
+            decompressor.end();
+        }
+
+        return reconstructBlock(uncompressed);
+    }
+
+    // port of rleUncompress() in ImfRle.cpp, a negative count is followed by that many literal bytes,
+    // otherwise the next byte is repeated count + 1 times
+    private byte[] unRLEBlock(byte[] compressed, int uncompressedSize) throws IOException {
+        byte[] uncompressed = new byte[uncompressedSize];
+        int in = 0;
+        int out = 0;
+        while (in < compressed.length) {
+            int count = compressed[in++];
+            if (count < 0) {
+                count = -count;
+                if (out + count > uncompressed.length || in + count > compressed.length) {
+                    throw new IOException("Malformed RLE block");
+                }
+                System.arraycopy(compressed, in, uncompressed, out, count);
+                in += count;
+                out += count;
+            } else {
+                if (out + count + 1 > uncompressed.length || in >= compressed.length) {
+                    throw new IOException("Malformed RLE block");
+                }
+                Arrays.fill(uncompressed, out, out + count + 1, compressed[in++]);
+                out += count + 1;
             }
         }
-        decompressor.end();
+        if (out != uncompressed.length) {
+            throw new IOException("RLE block ended before all pixel data was decoded");
+        }
 
-        // predictor (FIXME I don't know what this means, but it's from ImfZip.cpp
+        return reconstructBlock(uncompressed);
+    }
+
+    // undo the delta predictor and byte splitting shared by the ZIP and RLE compressors (see ImfZip.cpp)
+    private byte[] reconstructBlock(byte[] uncompressed) {
+        // predictor, each byte was stored as the difference from the previous byte
         for (int i = 1; i < uncompressed.length; i++) {
             int d = (0xff & uncompressed[i - 1]) + (0xff & uncompressed[i]) - 128;
             uncompressed[i] = (byte) d;
@@ -1022,25 +1206,8 @@ public class OpenEXRImageLoader {
         PixelFormat type = h.channels.get(0).type;
         int numChannels = h.channels.size();
 
-        switch (h.compression) {
-        case NO_COMPRESSION:
-            // the byte array is as expected
-            blitUncompressedData(rawData, type, dataWindow, image[0], h.dataWindow, numChannels);
-            break;
-        case ZIP_COMPRESSION:
-        case ZIPS_COMPRESSION:
-            // these both use the ZIP compression algorithm, they just differ in line block height
-            byte[] uncompressed = unzipBlock(rawData, dataWindow, numChannels * type.getByteCount());
-            blitUncompressedData(uncompressed, type, dataWindow, image[0], h.dataWindow, numChannels);
-            break;
-        case PIZ_COMPRESSION:
-        case RLE_COMPRESSION:
-            // FIXME I have intentions to implement RLE and PIZ
-        case PXR24_COMPRESSION:
-        case B44_COMPRESSION:
-        case B44A_COMPRESSION:
-            throw new IllegalStateException("Compression mode is not supported: " + h.compression);
-        }
+        byte[] uncompressed = decompressBlock(rawData, h, dataWindow);
+        blitUncompressedData(uncompressed, type, dataWindow, image[0], h.dataWindow, numChannels);
     }
 
     private void readTileChunk(InputStream in, Header h, RadianceImageLoader.Image[] image)
@@ -1062,25 +1229,33 @@ public class OpenEXRImageLoader {
         PixelFormat type = h.channels.get(0).type;
         int numChannels = h.channels.size();
 
-        switch (h.compression) {
-        case NO_COMPRESSION:
-            // the byte array is as expected
-            blitUncompressedData(rawData, h.channels.get(0).type, dataWindow, image[level], levelWindow,
-                                 numChannels);
-            break;
-        case ZIP_COMPRESSION:
-        case ZIPS_COMPRESSION:
-            // these both use the ZIP compression algorithm, they just differ in line block height
-            byte[] uncompressed = unzipBlock(rawData, dataWindow, numChannels * type.getByteCount());
-            blitUncompressedData(uncompressed, type, dataWindow, image[level], levelWindow, numChannels);
-            break;
-        case PIZ_COMPRESSION:
-        case RLE_COMPRESSION:
-            // FIXME I have intentions to implement RLE and PIZ
-        case PXR24_COMPRESSION:
-        case B44_COMPRESSION:
-        case B44A_COMPRESSION:
-            throw new IllegalStateException("Compression mode is not supported: " + h.compression);
+        byte[] uncompressed = decompressBlock(rawData, h, dataWindow);
+        blitUncompressedData(uncompressed, type, dataWindow, image[level], levelWindow, numChannels);
+    }
+
+    // read the chunk starting at the stream's current position, a multipart chunk begins with its part number
+    private void readChunk(InputStream in, ImageFormat format, List<Header> headers,
+                           Map<Header, RadianceImageLoader.Image[]> chunks) throws IOException {
+        if (format == ImageFormat.MULTIPART_DEEP || format == ImageFormat.MULTIPART) {
+            int part = readLEInt(in);
+            if (part < 0 || part >= headers.size()) {
+                throw new IOException("Invalid part number: " + part);
+            }
+            Header h = headers.get(part);
+            if (h.type == PartFormat.TILE) {
+                readTileChunk(in, h, chunks.get(h));
+            } else if (h.type == PartFormat.SCANLINE) {
+                readScanlineChunk(in, h, chunks.get(h));
+            } else {
+                throw new IOException("Unsupported part type: " + h.type);
+            }
+        } else {
+            Header h = headers.get(0);
+            if (format == ImageFormat.TILE) {
+                readTileChunk(in, h, chunks.get(h));
+            } else {
+                readScanlineChunk(in, h, chunks.get(h));
+            }
         }
     }
 
@@ -1132,9 +1307,7 @@ public class OpenEXRImageLoader {
         }
     }
 
-    private Map<Header, RadianceImageLoader.Image[]> readChunks(InputStream in, ImageFormat format,
-                                                                List<Header> headers,
-                                                                List<OffsetTable> offsets)
+    private Map<Header, RadianceImageLoader.Image[]> createImages(ImageFormat format, List<Header> headers)
             throws IOException {
         boolean multiPart = format == ImageFormat.MULTIPART_DEEP || format == ImageFormat.MULTIPART;
         Map<Header, RadianceImageLoader.Image[]> chunks = new HashMap<>();
@@ -1200,39 +1373,130 @@ public class OpenEXRImageLoader {
             }
         }
 
+        return chunks;
+    }
+
+    private Map<Header, RadianceImageLoader.Image[]> readChunks(InputStream in, ImageFormat format,
+                                                                List<Header> headers,
+                                                                List<OffsetTable> offsets)
+            throws IOException {
+        Map<Header, RadianceImageLoader.Image[]> chunks = createImages(format, headers);
+
         // read chunks, blitting them into their appropriate frame buffers
-        if (multiPart) {
-            // must read part number first to get appropriate header
-            int blocks = 0;
-            for (OffsetTable t : offsets) {
-                blocks += t.getTotalOffsets();
+        int blocks = 0;
+        for (OffsetTable t : offsets) {
+            blocks += t.getTotalOffsets();
+        }
+        for (int i = 0; i < blocks; i++) {
+            readChunk(in, format, headers, chunks);
+        }
+
+        return chunks;
+    }
+
+    private Map<Header, RadianceImageLoader.Image[]> readChunks(ByteBuffer data, ImageFormat format,
+                                                                List<Header> headers,
+                                                                List<OffsetTable> offsets,
+                                                                ForkJoinPool pool) throws IOException {
+        Map<Header, RadianceImageLoader.Image[]> chunks = createImages(format, headers);
+
+        int blocks = 0;
+        for (OffsetTable t : offsets) {
+            blocks += t.getTotalOffsets();
+        }
+        long[] chunkOffsets = new long[blocks];
+        int i = 0;
+        for (OffsetTable t : offsets) {
+            long[] o = t.getAllOffsets();
+            System.arraycopy(o, 0, chunkOffsets, i, o.length);
+            i += o.length;
+        }
+
+        // every chunk is located by the offset tables and writes to a disjoint region of its level's
+        // float array, so chunks can be decoded in any order and on any thread
+        DecodeChunksAction task = new DecodeChunksAction(this, data, format, headers, chunks, chunkOffsets, 0,
+                                                         blocks, pool != null);
+        try {
+            if (pool == null) {
+                task.compute();
+            } else {
+                pool.invoke(task);
             }
-            for (int i = 0; i < blocks; i++) {
-                int part = readLEInt(in);
-                Header h = headers.get(part);
-                if (h.type == PartFormat.TILE) {
-                    readTileChunk(in, h, chunks.get(h));
-                } else if (h.type == PartFormat.SCANLINE) {
-                    readScanlineChunk(in, h, chunks.get(h));
-                } else {
-                    throw new IOException("Unsupported part type: " + h.type);
-                }
+        } catch (ChunkDecodeException e) {
+            // the fork-join pool may wrap the exception again when rethrowing it across threads
+            Throwable cause = e.getCause();
+            while (cause instanceof ChunkDecodeException) {
+                cause = cause.getCause();
             }
-        } else {
-            Header h = headers.get(0);
-            int blocks = offsets.get(0).getTotalOffsets();
-            if (format == ImageFormat.TILE) {
-                for (int i = 0; i < blocks; i++) {
-                    readTileChunk(in, h, chunks.get(h));
+            throw (IOException) cause;
+        }
+
+        return chunks;
+    }
+
+    private static class DecodeChunksAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private static final int CHUNKS_PER_TASK = 4;
+
+        private final OpenEXRImageLoader loader;
+        private final ByteBuffer data;
+        private final ImageFormat format;
+        private final List<Header> headers;
+        private final Map<Header, RadianceImageLoader.Image[]> chunks;
+        private final long[] chunkOffsets;
+        private final int start;
+        private final int end;
+        // getPool() is the common pool when compute() is called directly, so it can't decide this
+        private final boolean parallel;
+
+        public DecodeChunksAction(OpenEXRImageLoader loader, ByteBuffer data, ImageFormat format,
+                                  List<Header> headers, Map<Header, RadianceImageLoader.Image[]> chunks,
+                                  long[] chunkOffsets, int start, int end, boolean parallel) {
+            this.loader = loader;
+            this.data = data;
+            this.format = format;
+            this.headers = headers;
+            this.chunks = chunks;
+            this.chunkOffsets = chunkOffsets;
+            this.start = start;
+            this.end = end;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= CHUNKS_PER_TASK || !parallel) {
+                try {
+                    for (int i = start; i < end; i++) {
+                        if (chunkOffsets[i] < 0 || chunkOffsets[i] >= data.limit()) {
+                            throw new IOException("Invalid chunk offset: " + chunkOffsets[i]);
+                        }
+                        // each chunk gets its own view of the buffer so positions aren't shared
+                        ByteBuffer chunk = data.duplicate();
+                        chunk.position((int) chunkOffsets[i]);
+                        loader.readChunk(new ByteBufferInputStream(chunk), format, headers, chunks);
+                    }
+                } catch (IOException e) {
+                    throw new ChunkDecodeException(e);
                 }
             } else {
-                for (int i = 0; i < blocks; i++) {
-                    readScanlineChunk(in, h, chunks.get(h));
-                }
+                int mid = (start + end) >>> 1;
+                invokeAll(new DecodeChunksAction(loader, data, format, headers, chunks, chunkOffsets, start,
+                                                 mid, true),
+                          new DecodeChunksAction(loader, data, format, headers, chunks, chunkOffsets, mid,
+                                                 end, true));
             }
         }
+    }
 
-        return chunks;
+    // carries IOExceptions out of the fork-join tasks
+    private static class ChunkDecodeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public ChunkDecodeException(Throwable cause) {
+            super(cause);
+        }
     }
 
     // as bytesToInt, but for shorts (converts 2 bytes instead of 4)
@@ -0,0 +1,293 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.loader;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * PLYHeader is the parsed header of a PLY file, shared by the ASCII and binary PLY loaders. It describes the
+ * storage format and the elements, in file order, with their typed properties.
+ *
+ * @author Michael Ludwig
+ */
+final class PLYHeader {
+    // the format line is short, anything longer than this isn't a PLY file
+    private static final int MAX_DETECT_LENGTH = 64;
+    private static final int MAX_LINE_LENGTH = 1 << 16;
+
+    public static enum Format {
+        ASCII,
+        BINARY_LITTLE_ENDIAN,
+        BINARY_BIG_ENDIAN
+    }
+
+    public static enum Type {
+        CHAR(1),
+        UCHAR(1),
+        SHORT(2),
+        USHORT(2),
+        INT(4),
+        UINT(4),
+        FLOAT(4),
+        DOUBLE(8);
+
+        private final int bytes;
+
+        private Type(int bytes) {
+            this.bytes = bytes;
+        }
+
+        public int getByteCount() {
+            return bytes;
+        }
+
+        public boolean isInteger() {
+            return this != FLOAT && this != DOUBLE;
+        }
+
+        public static Type parse(String name) throws IOException {
+            switch (name.toLowerCase()) {
+            case "char":
+            case "int8":
+                return CHAR;
+            case "uchar":
+            case "uint8":
+                return UCHAR;
+            case "short":
+            case "int16":
+                return SHORT;
+            case "ushort":
+            case "uint16":
+                return USHORT;
+            case "int":
+            case "int32":
+                return INT;
+            case "uint":
+            case "uint32":
+                return UINT;
+            case "float":
+            case "float32":
+                return FLOAT;
+            case "double":
+            case "float64":
+                return DOUBLE;
+            default:
+                throw new IOException("Unknown property type: " + name);
+            }
+        }
+    }
+
+    public static class Property {
+        final String name;
+        final Type type;
+        final Type countType; // null if the property is not a list
+
+        public Property(String name, Type type, Type countType) {
+            this.name = name;
+            this.type = type;
+            this.countType = countType;
+        }
+
+        public boolean isList() {
+            return countType != null;
+        }
+    }
+
+    public static class Element {
+        final String name;
+        final int count;
+        final List<Property> properties;
+
+        public Element(String name, int count) {
+            this.name = name;
+            this.count = count;
+            properties = new ArrayList<>();
+        }
+
+        public int indexOf(String property) {
+            for (int i = 0; i < properties.size(); i++) {
+                if (properties.get(i).name.equalsIgnoreCase(property)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    final Format format;
+    final List<Element> elements;
+
+    private PLYHeader(Format format, List<Element> elements) {
+        this.format = format;
+        this.elements = Collections.unmodifiableList(elements);
+    }
+
+    /**
+     * Get the first element with the given name, or null if the file doesn't define it.
+     *
+     * @param name The element name
+     *
+     * @return The element
+     */
+    public Element getElement(String name) {
+        for (Element e : elements) {
+            if (e.name.equalsIgnoreCase(name)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determine the storage format of the PLY file starting at the stream's current position. Only the magic
+     * number and format line are read, and the stream is always reset back to where it started.
+     *
+     * @param in The stream to inspect
+     *
+     * @return The format, or null if the stream isn't a PLY file
+     *
+     * @throws IOException if the stream can't be read
+     */
+    public static Format detectFormat(BufferedInputStream in) throws IOException {
+        // each line may read one byte past the limit before giving up, plus its newline
+        in.mark(2 * MAX_DETECT_LENGTH + 4);
+        try {
+            if (!"ply".equalsIgnoreCase(readLine(in, MAX_DETECT_LENGTH))) {
+                return null;
+            }
+            return parseFormat(readLine(in, MAX_DETECT_LENGTH));
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Read the complete header from the stream, leaving it positioned at the first byte of element data.
+     *
+     * @param in The stream to read
+     *
+     * @return The parsed header
+     *
+     * @throws IOException if the stream can't be read, or if the header is malformed
+     */
+    public static PLYHeader read(InputStream in) throws IOException {
+        if (!"ply".equalsIgnoreCase(readLine(in, MAX_LINE_LENGTH))) {
+            throw new IOException("Stream is not a PLY file");
+        }
+        Format format = parseFormat(readLine(in, MAX_LINE_LENGTH));
+        if (format == null) {
+            throw new IOException("Unsupported PLY format");
+        }
+
+        List<Element> elements = new ArrayList<>();
+        String line;
+        while ((line = readLine(in, MAX_LINE_LENGTH)) != null) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts[0].equalsIgnoreCase("end_header")) {
+                return new PLYHeader(format, elements);
+            } else if (parts[0].equalsIgnoreCase("element")) {
+                if (parts.length != 3) {
+                    throw new IOException("Bad element definition: " + line);
+                }
+                try {
+                    int count = Integer.parseInt(parts[2]);
+                    if (count < 0) {
+                        throw new IOException("Bad element count: " + line);
+                    }
+                    elements.add(new Element(parts[1], count));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad element count: " + line, e);
+                }
+            } else if (parts[0].equalsIgnoreCase("property")) {
+                if (elements.isEmpty()) {
+                    throw new IOException("Property defined before any element: " + line);
+                }
+                Property p;
+                if (parts.length == 5 && parts[1].equalsIgnoreCase("list")) {
+                    p = new Property(parts[4], Type.parse(parts[3]), Type.parse(parts[2]));
+                    if (!p.countType.isInteger()) {
+                        throw new IOException("List count type must be an integer: " + line);
+                    }
+                } else if (parts.length == 3) {
+                    p = new Property(parts[2], Type.parse(parts[1]), null);
+                } else {
+                    throw new IOException("Bad property definition: " + line);
+                }
+                elements.get(elements.size() - 1).properties.add(p);
+            }
+            // otherwise it's a comment, obj_info or blank line and is ignored
+        }
+
+        throw new IOException("Unexpected end of stream before end_header");
+    }
+
+    private static Format parseFormat(String line) {
+        if (line == null) {
+            return null;
+        }
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length != 3 || !parts[0].equalsIgnoreCase("format") || !parts[2].equals("1.0")) {
+            return null;
+        }
+        switch (parts[1].toLowerCase()) {
+        case "ascii":
+            return Format.ASCII;
+        case "binary_little_endian":
+            return Format.BINARY_LITTLE_ENDIAN;
+        case "binary_big_endian":
+            return Format.BINARY_BIG_ENDIAN;
+        default:
+            return null;
+        }
+    }
+
+    // read a line of ASCII text one byte at a time so nothing past the newline is consumed,
+    // returns null at the end of the stream or if the line is longer than maxLength
+    private static String readLine(InputStream in, int maxLength) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int read;
+        while ((read = in.read()) >= 0) {
+            if (read == '\n') {
+                int end = sb.length();
+                if (end > 0 && sb.charAt(end - 1) == '\r') {
+                    sb.setLength(end - 1);
+                }
+                return sb.toString();
+            }
+            if (sb.length() >= maxLength) {
+                return null;
+            }
+            sb.append((char) read);
+        }
+        return null;
+    }
+}
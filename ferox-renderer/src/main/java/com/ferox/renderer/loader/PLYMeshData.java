@@ -0,0 +1,299 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.loader;
+
+import com.ferox.math.AxisAlignedBox;
+import com.ferox.renderer.ElementBuffer;
+import com.ferox.renderer.Framework;
+import com.ferox.renderer.Renderer;
+import com.ferox.renderer.VertexAttribute;
+import com.ferox.renderer.geom.Geometry;
+import com.ferox.renderer.geom.Tangents;
+import com.ferox.renderer.geom.TriangleIterator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * PLYMeshData accumulates the vertex and face elements of a PLY file into primitive arrays, independent of
+ * how the file is encoded. Vertex properties are mapped to slots once from the header so the parsers can
+ * store each value without any per-element lookups or allocations. Once {@link #complete()} has been
+ * called, all CPU work is finished and {@link #createGeometry(Framework)} only builds the GPU buffers.
+ *
+ * @author Michael Ludwig
+ */
+final class PLYMeshData implements StagedGeometryFileLoader.DecodedGeometry {
+    static final int IGNORE = -1;
+    static final int X = 0;
+    static final int Y = 1;
+    static final int Z = 2;
+    static final int NX = 3;
+    static final int NY = 4;
+    static final int NZ = 5;
+    static final int U = 6;
+    static final int V = 7;
+
+    // TODO add support for vertex colors and the red, green, blue properties
+
+    final PLYHeader.Element vertexElement;
+    final PLYHeader.Element faceElement;
+
+    // slot of each vertex property, or IGNORE
+    final int[] vertexSlots;
+    // index of the vertex_index list within the face properties, or -1
+    final int faceIndexProperty;
+
+    final int vertexCount;
+    final float[] pos;
+    final float[] norm;
+    final float[] tc;
+    final float[] tan;
+    final boolean hasTexCoords;
+
+    private int[] indices;
+    private int indexCount;
+
+    public PLYMeshData(PLYHeader header) throws IOException {
+        vertexElement = header.getElement("vertex");
+        faceElement = header.getElement("face");
+        if (vertexElement == null) {
+            throw new IOException("PLY file does not define a vertex element");
+        }
+
+        vertexSlots = new int[vertexElement.properties.size()];
+        boolean hasU = false;
+        boolean hasV = false;
+        for (int i = 0; i < vertexSlots.length; i++) {
+            PLYHeader.Property p = vertexElement.properties.get(i);
+            vertexSlots[i] = (p.isList() ? IGNORE : getSlot(p.name));
+            hasU |= vertexSlots[i] == U;
+            hasV |= vertexSlots[i] == V;
+        }
+        hasTexCoords = hasU && hasV;
+
+        if (faceElement != null) {
+            int index = faceElement.indexOf("vertex_index");
+            if (index < 0) {
+                index = faceElement.indexOf("vertex_indices");
+            }
+            if (index >= 0) {
+                PLYHeader.Property p = faceElement.properties.get(index);
+                if (!p.isList() || !p.type.isInteger()) {
+                    throw new IOException("Face vertex_index property must be list with integer params, any other type is unsupported");
+                }
+            }
+            faceIndexProperty = index;
+        } else {
+            faceIndexProperty = -1;
+        }
+
+        vertexCount = vertexElement.count;
+        pos = new float[vertexCount * 3];
+        norm = new float[vertexCount * 3];
+        tc = new float[vertexCount * 2];
+        tan = new float[vertexCount * 4];
+
+        indices = new int[faceElement == null ? 0 : faceElement.count * 3];
+        indexCount = 0;
+    }
+
+    private static int getSlot(String name) {
+        switch (name.toLowerCase()) {
+        case "x":
+            return X;
+        case "y":
+            return Y;
+        case "z":
+            return Z;
+        case "nx":
+            return NX;
+        case "ny":
+            return NY;
+        case "nz":
+            return NZ;
+        case "u":
+        case "s":
+            return U;
+        case "v":
+        case "t":
+            return V;
+        default:
+            return IGNORE;
+        }
+    }
+
+    /**
+     * Store the value of a vertex property previously mapped to <var>slot</var>.
+     *
+     * @param vertex The vertex index
+     * @param slot   The slot of the property, must not be IGNORE
+     * @param value  The property value
+     */
+    public void setVertexValue(int vertex, int slot, float value) {
+        switch (slot) {
+        case X:
+        case Y:
+        case Z:
+            pos[vertex * 3 + slot - X] = value;
+            break;
+        case NX:
+        case NY:
+        case NZ:
+            norm[vertex * 3 + slot - NX] = value;
+            break;
+        case U:
+        case V:
+            tc[vertex * 2 + slot - U] = value;
+            break;
+        }
+    }
+
+    /**
+     * Add a polygon face, it is triangulated as a fan around its first vertex. Faces with fewer than 3
+     * vertices are ignored.
+     *
+     * @param polygon The vertex indices of the face
+     * @param count   The number of vertices in the face
+     *
+     * @throws IOException if a vertex index is out of range
+     */
+    public void addFace(int[] polygon, int count) throws IOException {
+        if (count < 3) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (polygon[i] < 0 || polygon[i] >= vertexCount) {
+                throw new IOException("Face references invalid vertex: " + polygon[i]);
+            }
+        }
+
+        int required = indexCount + (count - 2) * 3;
+        if (required > indices.length) {
+            indices = Arrays.copyOf(indices, Math.max(required, indices.length * 2));
+        }
+        for (int i = 2; i < count; i++) {
+            indices[indexCount++] = polygon[0];
+            indices[indexCount++] = polygon[i - 1];
+            indices[indexCount++] = polygon[i];
+        }
+    }
+
+    /**
+     * Finish the mesh after all elements have been parsed by trimming the triangle index list and computing
+     * any additional vector attributes. This must be called before {@link #createGeometry(Framework)}.
+     */
+    public void complete() {
+        if (indexCount != indices.length) {
+            indices = Arrays.copyOf(indices, indexCount);
+        }
+
+        // FIXME compute normals here as well, if they're not provided
+        if (hasTexCoords) {
+            TriangleIterator ti = TriangleIterator.Builder.newBuilder().vertices(pos).normals(norm)
+                                                          .textureCoordinates(tc).tangents(tan)
+                                                          .fromElements(indices, 0, indices.length).build();
+            Tangents.compute(ti);
+        }
+    }
+
+    @Override
+    public Geometry createGeometry(Framework framework) {
+        return new PLYGeometryImpl(framework, this);
+    }
+
+    private static class PLYGeometryImpl implements Geometry {
+        private final VertexAttribute vertices;
+        private final VertexAttribute normals;
+        private final VertexAttribute texCoords;
+        private final VertexAttribute tangents;
+
+        private final ElementBuffer indices;
+
+        private final AxisAlignedBox bounds;
+
+        public PLYGeometryImpl(Framework framework, PLYMeshData v) {
+            vertices = new VertexAttribute(framework.newVertexBuffer().from(v.pos).build(), 3);
+            normals = new VertexAttribute(framework.newVertexBuffer().from(v.norm).build(), 3);
+            if (v.hasTexCoords) {
+                texCoords = new VertexAttribute(framework.newVertexBuffer().from(v.tc).build(), 2);
+                tangents = new VertexAttribute(framework.newVertexBuffer().from(v.tan).build(), 4);
+            } else {
+                texCoords = null;
+                tangents = null;
+            }
+
+
+            indices = framework.newElementBuffer().fromUnsigned(v.indices).build();
+            bounds = new AxisAlignedBox(v.pos, 0, 0, v.vertexCount);
+        }
+
+        @Override
+        public AxisAlignedBox getBounds() {
+            return bounds;
+        }
+
+        @Override
+        public Renderer.PolygonType getPolygonType() {
+            return Renderer.PolygonType.TRIANGLES;
+        }
+
+        @Override
+        public ElementBuffer getIndices() {
+            return indices;
+        }
+
+        @Override
+        public int getIndexOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getIndexCount() {
+            return indices.getLength();
+        }
+
+        @Override
+        public VertexAttribute getVertices() {
+            return vertices;
+        }
+
+        @Override
+        public VertexAttribute getNormals() {
+            return normals;
+        }
+
+        @Override
+        public VertexAttribute getTextureCoordinates() {
+            return texCoords;
+        }
+
+        @Override
+        public VertexAttribute getTangents() {
+            return tangents;
+        }
+    }
+}
@@ -0,0 +1,496 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.loader;
+
+import java.io.IOException;
+
+/**
+ * PizDecompressor decodes blocks of OpenEXR's PIZ compression. It is a port of the decoding halves of the
+ * ImfPizCompressor.cpp, ImfHuf.cpp and ImfWav.cpp files provided in the IlmImf library as part of OpenEXR.
+ * PIZ compresses the 16-bit words of a block with a range-reducing lookup table, a 2D Haar wavelet per
+ * channel, and finally Huffman coding.
+ * <p/>
+ * Instances are stateless, so one decompressor can be used by many threads at once.
+ */
+final class PizDecompressor {
+    private static final int USHORT_RANGE = 1 << 16;
+    private static final int BITMAP_SIZE = USHORT_RANGE >> 3;
+
+    private static final int HUF_ENCBITS = 16;
+    private static final int HUF_DECBITS = 14;
+    private static final int HUF_ENCSIZE = (1 << HUF_ENCBITS) + 1;
+    private static final int HUF_DECSIZE = 1 << HUF_DECBITS;
+    private static final int HUF_DECMASK = HUF_DECSIZE - 1;
+
+    private static final int SHORT_ZEROCODE_RUN = 59;
+    private static final int LONG_ZEROCODE_RUN = 63;
+    private static final int SHORTEST_LONG_RUN = 2 + LONG_ZEROCODE_RUN - SHORT_ZEROCODE_RUN;
+
+    private static final int NBITS = 16;
+    private static final int A_OFFSET = 1 << (NBITS - 1);
+    private static final int MOD_MASK = (1 << NBITS) - 1;
+
+    /**
+     * Decompress a PIZ block. The block covers <var>width</var> x <var>height</var> pixels of channels that
+     * all have unit sampling, where <var>channelShorts</var> holds the number of 16-bit words per pixel of
+     * each channel (1 for HALF, 2 for FLOAT and UINT). The result has the uncompressed OpenEXR layout: each
+     * scanline holds each channel's samples in order, as little endian bytes.
+     *
+     * @param compressed    The compressed data
+     * @param width         The width of the block in pixels
+     * @param height        The height of the block in pixels
+     * @param channelShorts The words per pixel of each channel
+     *
+     * @return The uncompressed block
+     *
+     * @throws IOException if the compressed data is malformed
+     */
+    public byte[] decompress(byte[] compressed, int width, int height, int[] channelShorts)
+            throws IOException {
+        int totalShorts = 0;
+        int[] channelStart = new int[channelShorts.length];
+        for (int i = 0; i < channelShorts.length; i++) {
+            channelStart[i] = totalShorts;
+            totalShorts += width * height * channelShorts[i];
+        }
+        short[] tmp = new short[totalShorts];
+
+        // range compression bitmap
+        int pos = 0;
+        int minNonZero = readUShort(compressed, pos);
+        int maxNonZero = readUShort(compressed, pos + 2);
+        pos += 4;
+        if (maxNonZero >= BITMAP_SIZE) {
+            throw new IOException("Invalid PIZ bitmap size");
+        }
+        byte[] bitmap = new byte[BITMAP_SIZE];
+        if (minNonZero <= maxNonZero) {
+            System.arraycopy(compressed, pos, bitmap, minNonZero, maxNonZero - minNonZero + 1);
+            pos += maxNonZero - minNonZero + 1;
+        }
+        short[] lut = new short[USHORT_RANGE];
+        int maxValue = reverseLutFromBitmap(bitmap, lut);
+
+        int length = readInt(compressed, pos);
+        pos += 4;
+        if (length > compressed.length - pos) {
+            throw new IOException("PIZ block is truncated");
+        }
+        hufUncompress(compressed, pos, length, tmp, totalShorts);
+
+        for (int i = 0; i < channelShorts.length; i++) {
+            int size = channelShorts[i];
+            for (int j = 0; j < size; j++) {
+                wav2Decode(tmp, channelStart[i] + j, width, size, height, width * size, maxValue);
+            }
+        }
+
+        for (int i = 0; i < totalShorts; i++) {
+            tmp[i] = lut[tmp[i] & 0xffff];
+        }
+
+        // interleave the channels back into scanline order
+        byte[] out = new byte[totalShorts * 2];
+        int o = 0;
+        int[] channelEnd = channelStart.clone();
+        for (int y = 0; y < height; y++) {
+            for (int i = 0; i < channelShorts.length; i++) {
+                int n = width * channelShorts[i];
+                for (int k = channelEnd[i]; k < channelEnd[i] + n; k++) {
+                    out[o++] = (byte) tmp[k];
+                    out[o++] = (byte) (tmp[k] >> 8);
+                }
+                channelEnd[i] += n;
+            }
+        }
+        return out;
+    }
+
+    private static int reverseLutFromBitmap(byte[] bitmap, short[] lut) {
+        int k = 0;
+        for (int i = 0; i < USHORT_RANGE; i++) {
+            if (i == 0 || (bitmap[i >> 3] & (1 << (i & 7))) != 0) {
+                lut[k++] = (short) i;
+            }
+        }
+        int n = k - 1;
+        while (k < USHORT_RANGE) {
+            lut[k++] = 0;
+        }
+        return n;
+    }
+
+    /*
+     * Wavelet decoding
+     */
+
+    private static void wav2Decode(short[] in, int start, int nx, int ox, int ny, int oy, int mx) {
+        boolean w14 = mx < (1 << 14);
+        int n = Math.min(nx, ny);
+        int p = 1;
+        while (p <= n) {
+            p <<= 1;
+        }
+        p >>= 1;
+        int p2 = p;
+        p >>= 1;
+
+        int[] pair = new int[2];
+        while (p >= 1) {
+            int py = start;
+            int ey = start + oy * (ny - p2);
+            int oy1 = oy * p;
+            int oy2 = oy * p2;
+            int ox1 = ox * p;
+            int ox2 = ox * p2;
+
+            for (; py <= ey; py += oy2) {
+                int px = py;
+                int ex = py + ox * (nx - p2);
+                for (; px <= ex; px += ox2) {
+                    int p01 = px + ox1;
+                    int p10 = px + oy1;
+                    int p11 = p10 + ox1;
+
+                    wdec(w14, in[px], in[p10], pair);
+                    int i00 = pair[0];
+                    int i10 = pair[1];
+                    wdec(w14, in[p01], in[p11], pair);
+                    int i01 = pair[0];
+                    int i11 = pair[1];
+                    wdec(w14, i00, i01, pair);
+                    in[px] = (short) pair[0];
+                    in[p01] = (short) pair[1];
+                    wdec(w14, i10, i11, pair);
+                    in[p10] = (short) pair[0];
+                    in[p11] = (short) pair[1];
+                }
+
+                // odd column
+                if ((nx & p) != 0) {
+                    int p10 = px + oy1;
+                    wdec(w14, in[px], in[p10], pair);
+                    in[px] = (short) pair[0];
+                    in[p10] = (short) pair[1];
+                }
+            }
+
+            // odd line
+            if ((ny & p) != 0) {
+                int px = py;
+                int ex = py + ox * (nx - p2);
+                for (; px <= ex; px += ox2) {
+                    int p01 = px + ox1;
+                    wdec(w14, in[px], in[p01], pair);
+                    in[px] = (short) pair[0];
+                    in[p01] = (short) pair[1];
+                }
+            }
+
+            p2 = p;
+            p >>= 1;
+        }
+    }
+
+    private static void wdec(boolean w14, int l, int h, int[] result) {
+        if (w14) {
+            // 14-bit values decode with signed arithmetic
+            int hi = (short) h;
+            int ai = (short) l + (hi & 1) + (hi >> 1);
+            result[0] = (short) ai & 0xffff;
+            result[1] = (short) (ai - hi) & 0xffff;
+        } else {
+            int m = l & 0xffff;
+            int d = h & 0xffff;
+            int bb = (m - (d >> 1)) & MOD_MASK;
+            int aa = (d + bb - A_OFFSET) & MOD_MASK;
+            result[0] = aa;
+            result[1] = bb;
+        }
+    }
+
+    /*
+     * Huffman decoding
+     */
+
+    private static void hufUncompress(byte[] data, int offset, int length, short[] raw, int nRaw)
+            throws IOException {
+        if (length == 0) {
+            if (nRaw != 0) {
+                throw new IOException("Not enough PIZ data");
+            }
+            return;
+        }
+
+        int im = readInt(data, offset);
+        int iM = readInt(data, offset + 4);
+        int nBits = readInt(data, offset + 12);
+        if (im < 0 || im >= HUF_ENCSIZE || iM < 0 || iM >= HUF_ENCSIZE) {
+            throw new IOException("Invalid Huffman table size");
+        }
+
+        long[] hcode = new long[HUF_ENCSIZE];
+        int pos = offset + 20;
+        int end = offset + length;
+        pos = hufUnpackEncTable(data, pos, end, im, iM, hcode);
+        if (nBits > 8 * (end - pos)) {
+            throw new IOException("Invalid Huffman bit count");
+        }
+
+        // a decoding entry either holds a short code's length and literal, or the literals of all long
+        // codes sharing the same prefix
+        int[] decLength = new int[HUF_DECSIZE];
+        int[] decLiteral = new int[HUF_DECSIZE];
+        int[][] decLong = new int[HUF_DECSIZE][];
+        hufBuildDecTable(hcode, im, iM, decLength, decLiteral, decLong);
+        hufDecode(hcode, decLength, decLiteral, decLong, data, pos, nBits, iM, nRaw, raw);
+    }
+
+    private static int hufUnpackEncTable(byte[] data, int pos, int end, int im, int iM, long[] hcode)
+            throws IOException {
+        long[] bits = new long[2]; // bit buffer, bit count
+        for (; im <= iM; im++) {
+            if (pos > end) {
+                throw new IOException("Unexpected end of Huffman table");
+            }
+
+            long c = bits[0];
+            int lc = (int) bits[1];
+            while (lc < 6) {
+                c = (c << 8) | (data[pos++] & 0xff);
+                lc += 8;
+            }
+            lc -= 6;
+            int l = (int) ((c >> lc) & 0x3f);
+            hcode[im] = l;
+
+            if (l == LONG_ZEROCODE_RUN) {
+                if (pos > end) {
+                    throw new IOException("Unexpected end of Huffman table");
+                }
+                while (lc < 8) {
+                    c = (c << 8) | (data[pos++] & 0xff);
+                    lc += 8;
+                }
+                lc -= 8;
+                int zerun = (int) ((c >> lc) & 0xff) + SHORTEST_LONG_RUN;
+                if (im + zerun > iM + 1) {
+                    throw new IOException("Huffman table is too long");
+                }
+                while (zerun-- > 0) {
+                    hcode[im++] = 0;
+                }
+                im--;
+            } else if (l >= SHORT_ZEROCODE_RUN) {
+                int zerun = l - SHORT_ZEROCODE_RUN + 2;
+                if (im + zerun > iM + 1) {
+                    throw new IOException("Huffman table is too long");
+                }
+                while (zerun-- > 0) {
+                    hcode[im++] = 0;
+                }
+                im--;
+            }
+
+            bits[0] = c;
+            bits[1] = lc;
+        }
+
+        hufCanonicalCodeTable(hcode);
+        return pos;
+    }
+
+    private static void hufCanonicalCodeTable(long[] hcode) {
+        long[] n = new long[59];
+        for (int i = 0; i < HUF_ENCSIZE; i++) {
+            n[(int) hcode[i]] += 1;
+        }
+
+        long c = 0;
+        for (int i = 58; i > 0; i--) {
+            long nc = (c + n[i]) >> 1;
+            n[i] = c;
+            c = nc;
+        }
+
+        for (int i = 0; i < HUF_ENCSIZE; i++) {
+            int l = (int) hcode[i];
+            if (l > 0) {
+                hcode[i] = l | (n[l]++ << 6);
+            }
+        }
+    }
+
+    private static void hufBuildDecTable(long[] hcode, int im, int iM, int[] decLength, int[] decLiteral,
+                                         int[][] decLong) throws IOException {
+        for (; im <= iM; im++) {
+            long c = hcode[im] >> 6;
+            int l = (int) (hcode[im] & 63);
+            if ((c >> l) != 0) {
+                throw new IOException("Invalid Huffman table entry");
+            }
+
+            if (l > HUF_DECBITS) {
+                int index = (int) (c >> (l - HUF_DECBITS));
+                if (decLength[index] != 0) {
+                    throw new IOException("Invalid Huffman table entry");
+                }
+                int[] literals = decLong[index];
+                if (literals == null) {
+                    literals = new int[1];
+                } else {
+                    int[] grown = new int[literals.length + 1];
+                    System.arraycopy(literals, 0, grown, 0, literals.length);
+                    literals = grown;
+                }
+                literals[literals.length - 1] = im;
+                decLong[index] = literals;
+            } else if (l != 0) {
+                int index = (int) (c << (HUF_DECBITS - l));
+                for (int i = 1 << (HUF_DECBITS - l); i > 0; i--, index++) {
+                    if (decLength[index] != 0 || decLong[index] != null) {
+                        throw new IOException("Invalid Huffman table entry");
+                    }
+                    decLength[index] = l;
+                    decLiteral[index] = im;
+                }
+            }
+        }
+    }
+
+    private static void hufDecode(long[] hcode, int[] decLength, int[] decLiteral, int[][] decLong,
+                                  byte[] data, int pos, int nBits, int rlc, int nRaw, short[] out)
+            throws IOException {
+        long c = 0;
+        int lc = 0;
+        int o = 0;
+        int end = pos + (nBits + 7) / 8;
+
+        while (pos < end) {
+            c = (c << 8) | (data[pos++] & 0xff);
+            lc += 8;
+
+            while (lc >= HUF_DECBITS) {
+                int index = (int) ((c >> (lc - HUF_DECBITS)) & HUF_DECMASK);
+                if (decLength[index] != 0) {
+                    lc -= decLength[index];
+                    // run-length codes consume another 8 bits, so refill before decoding
+                    if (decLiteral[index] == rlc && lc < 8) {
+                        c = (c << 8) | (data[pos++] & 0xff);
+                        lc += 8;
+                    }
+                    long state = getCode(decLiteral[index], rlc, c, lc, out, o, nRaw);
+                    lc = (int) (state >>> 32);
+                    o = (int) state;
+                } else {
+                    int[] literals = decLong[index];
+                    if (literals == null) {
+                        throw new IOException("Invalid Huffman code");
+                    }
+
+                    int j;
+                    for (j = 0; j < literals.length; j++) {
+                        int l = (int) (hcode[literals[j]] & 63);
+                        while (lc < l && pos < end) {
+                            c = (c << 8) | (data[pos++] & 0xff);
+                            lc += 8;
+                        }
+                        if (lc >= l) {
+                            if ((hcode[literals[j]] >> 6) == ((c >> (lc - l)) & ((1L << l) - 1))) {
+                                lc -= l;
+                                if (literals[j] == rlc && lc < 8) {
+                                    c = (c << 8) | (data[pos++] & 0xff);
+                                    lc += 8;
+                                }
+                                long state = getCode(literals[j], rlc, c, lc, out, o, nRaw);
+                                lc = (int) (state >>> 32);
+                                o = (int) state;
+                                break;
+                            }
+                        }
+                    }
+                    if (j == literals.length) {
+                        throw new IOException("Invalid Huffman code");
+                    }
+                }
+            }
+        }
+
+        // remaining short codes in the final partial byte
+        int i = (8 - nBits) & 7;
+        c >>= i;
+        lc -= i;
+        while (lc > 0) {
+            int index = (int) ((c << (HUF_DECBITS - lc)) & HUF_DECMASK);
+            if (decLength[index] != 0) {
+                lc -= decLength[index];
+                long state = getCode(decLiteral[index], rlc, c, lc, out, o, nRaw);
+                lc = (int) (state >>> 32);
+                o = (int) state;
+            } else {
+                throw new IOException("Invalid Huffman code");
+            }
+        }
+
+        if (o != nRaw) {
+            throw new IOException("Not enough PIZ data");
+        }
+    }
+
+    // emits a literal or a run, returning the updated bit count and output position packed in a long;
+    // for runs the caller must have ensured that at least 8 bits are buffered
+    private static long getCode(int literal, int rlc, long c, int lc, short[] out, int o, int nRaw)
+            throws IOException {
+        if (literal == rlc) {
+            lc -= 8;
+            int count = (int) ((c >> lc) & 0xff);
+            if (o + count > nRaw) {
+                throw new IOException("Too much PIZ data");
+            } else if (o == 0) {
+                throw new IOException("Not enough PIZ data");
+            }
+            short s = out[o - 1];
+            while (count-- > 0) {
+                out[o++] = s;
+            }
+        } else if (o < nRaw) {
+            out[o++] = (short) literal;
+        } else {
+            throw new IOException("Too much PIZ data");
+        }
+        return ((long) lc << 32) | (o & 0xffffffffL);
+    }
+
+    private static int readUShort(byte[] data, int offset) {
+        return (data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8);
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8) | ((data[offset + 2] & 0xff) << 16) |
+               ((data[offset + 3] & 0xff) << 24);
+    }
+}
@@ -30,7 +30,6 @@ import com.ferox.renderer.Framework;
 import com.ferox.renderer.Sampler;
 import com.ferox.renderer.Texture2D;
 import com.ferox.renderer.builder.Builder;
-import com.ferox.renderer.builder.Texture2DBuilder;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
@@ -62,15 +61,20 @@ public class RadianceImageLoader implements ImageFileLoader {
 
     @Override
     public Builder<Texture2D> read(Framework framework, BufferedInputStream stream) throws IOException {
+        DecodedTexture t = decode(stream);
+        return (t == null ? null : t.create2D(framework));
+    }
+
+    DecodedTexture decode(BufferedInputStream stream) throws IOException {
         Image img = read(stream);
         if (img == null) {
             return null;
         }
 
-        Texture2DBuilder builder = framework.newTexture2D().width(img.width).height(img.height).interpolated()
-                                            .wrap(Sampler.WrapMode.REPEAT).anisotropy(1.0);
-        builder.rgb().mipmap(0).from(img.data);
-        return builder;
+        DecodedTexture t = new DecodedTexture(DecodedTexture.Target.TEXTURE_2D, Sampler.TexelFormat.RGB,
+                                              DecodedTexture.DataKind.FLOAT, true);
+        t.addImage(0, 0, img.width, img.height, img.data);
+        return t;
     }
 
     public Image read(BufferedInputStream stream) throws IOException {
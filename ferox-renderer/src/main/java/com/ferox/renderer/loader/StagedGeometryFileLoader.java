@@ -0,0 +1,71 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.loader;
+
+import com.ferox.renderer.Framework;
+import com.ferox.renderer.geom.Geometry;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+
+/**
+ * StagedGeometryFileLoader is a GeometryFileLoader that can split loading into two stages: decoding the file
+ * into memory, which may happen on any thread, and creating the geometry's GPU resources from the decoded
+ * data. {@link AssetLoader} relies on this to keep parsing off of the Framework's context thread. Loaders
+ * that only implement GeometryFileLoader are still supported, but they parse while their buffers are built.
+ *
+ * @author Michael Ludwig
+ */
+public interface StagedGeometryFileLoader extends GeometryFileLoader {
+    /**
+     * DecodedGeometry holds the fully parsed and processed data of a geometry that has not yet been given
+     * any GPU resources.
+     */
+    public static interface DecodedGeometry {
+        /**
+         * Create the geometry's buffers with the given Framework. All expensive CPU work should have been
+         * completed while decoding, so this only builds resources.
+         *
+         * @param framework The Framework that creates the buffers
+         *
+         * @return The new geometry
+         */
+        public Geometry createGeometry(Framework framework);
+    }
+
+    /**
+     * Decode the geometry from the stream without creating any resources. If the stream is not in a format
+     * supported by this loader, null must be returned and the stream left at its original position.
+     *
+     * @param in The stream to read from
+     *
+     * @return The decoded geometry, or null if the format is unsupported
+     *
+     * @throws IOException if the stream is supported but could not be read
+     */
+    public DecodedGeometry decode(BufferedInputStream in) throws IOException;
+}
@@ -0,0 +1,303 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.renderer.loader;
+
+import com.ferox.renderer.Framework;
+import com.ferox.renderer.Sampler;
+import com.ferox.renderer.TextureCubeMap;
+import com.ferox.renderer.builder.Builder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <p/>
+ * TextureCache is an optional on-disk cache of decoded texture data. Decoding PNG, Radiance and OpenEXR
+ * images, converting half floats and slicing cube maps is much more expensive than reading the final texel
+ * arrays back, so repeated loads of the same files can skip all of that work.
+ * <p/>
+ * Entries are content addressed: the key is a SHA-1 hash of the source file's bytes together with the
+ * loading options and the cache format version, so an entry is never stale and a modified file simply
+ * produces a new entry. Entries store the final texel arrays and all mipmap levels or faces in a compact
+ * binary format that is memory-mapped when read. Textures that are loaded by a loader that cannot produce
+ * decoded data, such as DDS files (which are already memory-mapped) or custom {@link ImageFileLoader
+ * ImageFileLoaders}, bypass the cache.
+ * <p/>
+ * Entries are written to a temporary file and then moved into place, so a TextureCache directory can be
+ * shared by multiple threads and processes. Corrupt entries are treated as misses and overwritten.
+ *
+ * @author Michael Ludwig
+ */
+public class TextureCache {
+    // increment when the decoded texture format or any cached decoder's output changes
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".ftex";
+
+    private final File directory;
+
+    /**
+     * Create a TextureCache that stores its entries in the given directory. The directory is created if it
+     * does not exist.
+     *
+     * @param directory The cache directory
+     *
+     * @throws NullPointerException     if directory is null
+     * @throws IllegalArgumentException if directory is not a directory and can't be created
+     */
+    public TextureCache(File directory) {
+        if (directory == null) {
+            throw new NullPointerException("Cache directory cannot be null");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Unable to create cache directory: " + directory);
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * @return The directory the cache entries are stored in
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Read the texture from the given file, as {@link TextureLoader#readTexture(Framework, File)} would. The
+     * decoded texel data is taken from the cache if possible, otherwise it is decoded and stored in the cache
+     * for subsequent calls.
+     *
+     * @param framework The Framework using the created texture
+     * @param file      The File to read a texture from
+     *
+     * @return The read texture's builder
+     *
+     * @throws IOException if the file can't be read, if it's unsupported, etc.
+     */
+    public Builder<? extends Sampler> readTexture(Framework framework, File file) throws IOException {
+        if (file == null) {
+            throw new IOException("Cannot load a texture image from a null file");
+        }
+
+        File entry = getEntry(file, "texture");
+        DecodedTexture t = readEntry(entry);
+        if (t == null) {
+            t = TextureLoader.decodeTexture(file);
+            if (t == null) {
+                // the selected loader has no decoded form, so just read it normally
+                return TextureLoader.readTexture(framework, file);
+            }
+            writeEntry(entry, t);
+        }
+        return t.createBuilder(framework);
+    }
+
+    /**
+     * Read a cube map from the given image file, as {@link TextureLoader#createTextureCubeMap(Framework,
+     * BufferedImage)} would after reading the image with ImageIO. The sliced faces are taken from the cache
+     * if possible, otherwise they are stored in the cache for subsequent calls.
+     *
+     * @param framework The Framework using the created texture
+     * @param file      The image file holding the unfolded cube
+     *
+     * @return The cube map's builder
+     *
+     * @throws IOException              if the file can't be read or is not an image
+     * @throws IllegalArgumentException if the image doesn't have a 4x3 aspect ratio
+     */
+    public Builder<TextureCubeMap> readTextureCubeMap(Framework framework, File file) throws IOException {
+        if (file == null) {
+            throw new IOException("Cannot load a texture image from a null file");
+        }
+
+        File entry = getEntry(file, "cubemap");
+        DecodedTexture t = readEntry(entry);
+        if (t == null || t.target != DecodedTexture.Target.CUBE_MAP) {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IOException("Unable to read image: " + file);
+            }
+            t = TextureLoader.decodeTextureCubeMap(image);
+            writeEntry(entry, t);
+        }
+        return t.createCubeMap(framework);
+    }
+
+    /**
+     * Read every part and level of the OpenEXR image, as {@link OpenEXRImageLoader#read(File, ForkJoinPool)}
+     * would. The images are taken from the cache if possible, otherwise they are decoded with <var>pool</var>
+     * and stored in the cache for subsequent calls.
+     *
+     * @param file The OpenEXR file
+     * @param pool The pool that decodes chunks on a miss, may be null
+     *
+     * @return The images for each part, with one image per level
+     *
+     * @throws IOException if the file cannot be read or is not a supported OpenEXR image
+     */
+    public RadianceImageLoader.Image[][] readOpenEXR(File file, ForkJoinPool pool) throws IOException {
+        if (file == null) {
+            throw new IOException("Cannot load an OpenEXR image from a null file");
+        }
+
+        File entry = getEntry(file, "openexr");
+        DecodedTexture t = readEntry(entry);
+        if (t != null && t.target == DecodedTexture.Target.IMAGES) {
+            List<DecodedTexture.Image> images = t.getImages();
+            int parts = 0;
+            for (DecodedTexture.Image image : images) {
+                parts = Math.max(parts, image.layer + 1);
+            }
+
+            RadianceImageLoader.Image[][] result = new RadianceImageLoader.Image[parts][];
+            int index = 0;
+            for (int p = 0; p < parts; p++) {
+                int start = index;
+                while (index < images.size() && images.get(index).layer == p) {
+                    index++;
+                }
+                result[p] = new RadianceImageLoader.Image[index - start];
+                for (int i = start; i < index; i++) {
+                    DecodedTexture.Image image = images.get(i);
+                    result[p][image.level] = new RadianceImageLoader.Image(image.width, image.height,
+                                                                           (float[]) image.data);
+                }
+            }
+            return result;
+        }
+
+        RadianceImageLoader.Image[][] result = OpenEXRImageLoader.read(file, pool);
+        t = new DecodedTexture(DecodedTexture.Target.IMAGES, Sampler.TexelFormat.RGB,
+                               DecodedTexture.DataKind.FLOAT, false);
+        for (int p = 0; p < result.length; p++) {
+            for (int l = 0; l < result[p].length; l++) {
+                t.addImage(p, l, result[p][l].width, result[p][l].height, result[p][l].data);
+            }
+        }
+        writeEntry(entry, t);
+        return result;
+    }
+
+    /**
+     * Delete every entry in the cache.
+     */
+    public void clear() {
+        File[] entries = directory.listFiles();
+        if (entries != null) {
+            for (File f : entries) {
+                if (f.getName().endsWith(EXTENSION)) {
+                    f.delete();
+                }
+            }
+        }
+    }
+
+    private File getEntry(File source, String options) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 is not available", e);
+        }
+
+        digest.update((VERSION + ":" + options + ":").getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                // map in windows so arbitrarily large files can be hashed
+                long length = Math.min(size - position, Integer.MAX_VALUE);
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                position += length;
+            }
+        }
+
+        byte[] hash = digest.digest();
+        StringBuilder name = new StringBuilder();
+        for (byte b : hash) {
+            name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return new File(directory, name.append(EXTENSION).toString());
+    }
+
+    private DecodedTexture readEntry(File entry) {
+        if (!entry.isFile()) {
+            return null;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(entry, "r")) {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return DecodedTexture.read(data, VERSION);
+        } catch (IOException | RuntimeException e) {
+            // a corrupt or unreadable entry is a miss and will be replaced
+            return null;
+        }
+    }
+
+    private void writeEntry(File entry, DecodedTexture texture) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory.toPath(), "entry", ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                texture.write(out, VERSION);
+            }
+
+            try {
+                Files.move(temp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                           StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+        } catch (IOException e) {
+            // failing to populate the cache is not fatal, the texture was still decoded
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
@@ -60,6 +60,13 @@ public final class TextureLoader {
     private TextureLoader() {
     }
 
+    // the loaders are stateless, so files are parsed against a copy and several can be parsed at once
+    private static List<ImageFileLoader> getLoaders() {
+        synchronized (loaders) {
+            return new ArrayList<>(loaders);
+        }
+    }
+
     /**
      * <p/>
      * Register the given loader, so that it can be used in subsequent readTexture() calls. The newer loaders
@@ -97,7 +104,9 @@ public final class TextureLoader {
     }
 
     /**
-     * Read the texture from the given file, functions identically to readTexture(stream).
+     * Read the texture from the given file, functions identically to readTexture(stream). DDS files are
+     * memory-mapped with {@link DDSTexture#readTexture(Framework, File)} when the DDS loader is the one
+     * selected.
      *
      * @param framework The Framework using the created texture
      * @param file      The File to read a texture from
@@ -113,8 +122,8 @@ public final class TextureLoader {
             throw new IOException("Cannot load a texture image from a null file");
         }
 
-        try (InputStream stream = new FileInputStream(file)) {
-            return readTexture(framework, stream);
+        try (BufferedInputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            return readTexture(framework, stream, file);
         }
     }
 
@@ -166,15 +175,60 @@ public final class TextureLoader {
         } else {
             in = new BufferedInputStream(stream);
         }
+        return readTexture(framework, in, null);
+    }
 
+    /*
+     * Try each loader from newest to oldest. If the stream came from a file,
+     * DDS textures map the file instead of reading them from the stream.
+     */
+    private static Builder<? extends Sampler> readTexture(Framework framework, BufferedInputStream in,
+                                                          File source) throws IOException {
         // load the file
         Builder<? extends Sampler> t;
 
-        synchronized (loaders) {
+        List<ImageFileLoader> loaders = getLoaders();
+        for (int i = loaders.size() - 1; i >= 0; i--) {
+            ImageFileLoader loader = loaders.get(i);
+            if (source != null && loader instanceof DDSImageFileLoader && DDSTexture.isDDSTexture(in)) {
+                t = DDSTexture.readTexture(framework, source);
+            } else {
+                t = loader.read(framework, in);
+            }
+            if (t != null) {
+                return t; // we've loaded it
+            }
+        }
+
+        throw new IOException("Unable to load the given texture, no registered loader with support");
+    }
+
+    /*
+     * Decode the texture in the file with the first loader that supports it, as
+     * readTexture() would, but without creating a builder. Null is returned if the
+     * selected loader cannot produce decoded texel data (e.g. DDS or a custom loader).
+     */
+    static DecodedTexture decodeTexture(File file) throws IOException {
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            List<ImageFileLoader> loaders = getLoaders();
             for (int i = loaders.size() - 1; i >= 0; i--) {
-                t = loaders.get(i).read(framework, in);
+                ImageFileLoader loader = loaders.get(i);
+                DecodedTexture t;
+                if (loader instanceof ImageIOImageFileLoader) {
+                    t = ((ImageIOImageFileLoader) loader).decode(in);
+                } else if (loader instanceof RadianceImageLoader) {
+                    t = ((RadianceImageLoader) loader).decode(in);
+                } else if (loader instanceof DDSImageFileLoader) {
+                    t = null;
+                    if (DDSTexture.isDDSTexture(in)) {
+                        return null;
+                    }
+                } else {
+                    return null;
+                }
+
                 if (t != null) {
-                    return t; // we've loaded it
+                    return t;
                 }
             }
         }
@@ -204,33 +258,24 @@ public final class TextureLoader {
                                                image.getHeight());
         }
 
+        return decodeTexture1D(image).create1D(framework);
+    }
+
+    /*
+     * Convert a 1 pixel tall image into the texel data of a 1D texture.
+     */
+    static DecodedTexture decodeTexture1D(BufferedImage image) {
         // draw the image into a known color model
         RasterImage im = new RasterImage(image.getType(), image.getWidth(), 1);
         BufferedImage formatted = new BufferedImage(im.colorModel, im.data, false, null);
         Graphics2D g2 = formatted.createGraphics();
-        g2.drawImage(formatted, 0, 0, null);
+        g2.drawImage(image, 0, 0, null);
         g2.dispose();
 
-        Texture1DBuilder b = framework.newTexture1D();
-        b.length(image.getWidth());
-        ImageData<? extends TextureBuilder.BasicColorData> i;
-        if (im.format == Sampler.TexelFormat.RGBA) {
-            i = b.rgba();
-        } else if (im.format == Sampler.TexelFormat.RGB) {
-            i = b.rgb();
-        } else {
-            i = b.r();
-        }
-
-        if (im.type.equals(DataType.BYTE)) {
-            byte[] rd = ((DataBufferByte) formatted.getRaster().getDataBuffer()).getData();
-            i.mipmap(0).fromUnsignedNormalized(rd);
-        } else { // assumes ShortBuffer
-            short[] rd = ((DataBufferUShort) formatted.getRaster().getDataBuffer()).getData();
-            i.mipmap(0).fromUnsignedNormalized(rd);
-        }
-
-        return b;
+        DecodedTexture t = new DecodedTexture(DecodedTexture.Target.TEXTURE_1D, im.format, im.getDataKind(),
+                                              false);
+        t.addImage(0, 0, image.getWidth(), 1, getRasterData(formatted));
+        return t;
     }
 
     /**
@@ -251,6 +296,13 @@ public final class TextureLoader {
             throw new NullPointerException("Cannot convert a null BufferedImage");
         }
 
+        return decodeTexture2D(image).create2D(framework);
+    }
+
+    /*
+     * Convert the image into the texel data of a 2D texture, flipped to have its origin at the lower left.
+     */
+    static DecodedTexture decodeTexture2D(BufferedImage image) {
         // draw the image into a known color model
         RasterImage im = new RasterImage(image.getType(), image.getWidth(), image.getHeight());
         BufferedImage formatted = new BufferedImage(im.colorModel, im.data, false, null);
@@ -262,26 +314,10 @@ public final class TextureLoader {
         g2.drawImage(image, t, null);
         g2.dispose();
 
-        Texture2DBuilder b = framework.newTexture2D();
-        b.width(image.getWidth()).height(image.getHeight());
-        ImageData<? extends TextureBuilder.BasicColorData> i;
-        if (im.format == Sampler.TexelFormat.RGBA) {
-            i = b.rgba();
-        } else if (im.format == Sampler.TexelFormat.RGB) {
-            i = b.rgb();
-        } else {
-            i = b.r();
-        }
-
-        if (im.type.equals(DataType.BYTE)) {
-            byte[] rd = ((DataBufferByte) formatted.getRaster().getDataBuffer()).getData();
-            i.mipmap(0).fromUnsignedNormalized(rd);
-        } else { // assumes ShortBuffer
-            short[] rd = ((DataBufferUShort) formatted.getRaster().getDataBuffer()).getData();
-            i.mipmap(0).fromUnsignedNormalized(rd);
-        }
-
-        return b;
+        DecodedTexture d = new DecodedTexture(DecodedTexture.Target.TEXTURE_2D, im.format, im.getDataKind(),
+                                              false);
+        d.addImage(0, 0, image.getWidth(), image.getHeight(), getRasterData(formatted));
+        return d;
     }
 
     /**
@@ -317,6 +353,13 @@ public final class TextureLoader {
             throw new NullPointerException("Cannot create a cube map from a null BufferedImage");
         }
 
+        return decodeTextureCubeMap(image).createCubeMap(framework);
+    }
+
+    /*
+     * Slice a 4x3 unfolded cube image into the texel data of the six cube map faces.
+     */
+    static DecodedTexture decodeTextureCubeMap(BufferedImage image) {
         int side = image.getWidth() / 4;
         if (side * 4 != image.getWidth() || side * 3 != image.getHeight()) {
             throw new IllegalArgumentException("Base image doesn't have the 4x3 aspect ration necessary for a cube map");
@@ -325,34 +368,20 @@ public final class TextureLoader {
         RasterImage im = new RasterImage(image.getType(), side, side);
         BufferedImage formatted = new BufferedImage(im.colorModel, im.data, false, null);
 
-        TextureCubeMapBuilder b = framework.newTextureCubeMap();
-        b.side(side);
-        CubeImageData<? extends TextureBuilder.BasicColorData> i;
-        if (im.format == Sampler.TexelFormat.RGBA) {
-            i = b.rgba();
-        } else if (im.format == Sampler.TexelFormat.RGB) {
-            i = b.rgb();
-        } else {
-            i = b.r();
+        DecodedTexture d = new DecodedTexture(DecodedTexture.Target.CUBE_MAP, im.format, im.getDataKind(),
+                                              false);
+        for (int face = 0; face < 6; face++) {
+            createCubeMapFace(image, formatted, face);
+            d.addImage(face, 0, side, side, copyRasterData(formatted));
         }
-
-        createCubeMapFace(image, formatted, i.positiveX(0), 0, im);
-        createCubeMapFace(image, formatted, i.positiveY(0), 1, im);
-        createCubeMapFace(image, formatted, i.positiveZ(0), 2, im);
-        createCubeMapFace(image, formatted, i.negativeX(0), 3, im);
-        createCubeMapFace(image, formatted, i.negativeY(0), 4, im);
-        createCubeMapFace(image, formatted, i.negativeZ(0), 5, im);
-
-        return b;
+        return d;
     }
 
     /*
-     * Internal method that redraws fullImage into faceStore, and then copies
-     * out the raster data into a new BufferData. A copy is made since it is
-     * assumed that faceStore is re-used for each cube face.
+     * Internal method that redraws fullImage into faceStore. The caller must copy
+     * out the raster data since faceStore is re-used for each cube face.
      */
-    private static void createCubeMapFace(BufferedImage fullImage, BufferedImage faceStore,
-                                          TextureBuilder.BasicColorData target, int face, RasterImage im) {
+    private static void createCubeMapFace(BufferedImage fullImage, BufferedImage faceStore, int face) {
         Graphics2D g2 = faceStore.createGraphics();
         AffineTransform t = AffineTransform.getScaleInstance(1, 1);
 
@@ -421,13 +450,23 @@ public final class TextureLoader {
 
         g2.drawImage(fullImage, t, null);
         g2.dispose();
+    }
 
-        if (im.type.equals(DataType.BYTE)) {
-            byte[] rd = ((DataBufferByte) faceStore.getRaster().getDataBuffer()).getData();
-            target.fromUnsignedNormalized(rd);
+    private static Object getRasterData(BufferedImage image) {
+        DataBuffer data = image.getRaster().getDataBuffer();
+        if (data instanceof DataBufferByte) {
+            return ((DataBufferByte) data).getData();
         } else { // assumes ShortBuffer
-            short[] rd = ((DataBufferUShort) faceStore.getRaster().getDataBuffer()).getData();
-            target.fromUnsignedNormalized(rd);
+            return ((DataBufferUShort) data).getData();
+        }
+    }
+
+    private static Object copyRasterData(BufferedImage image) {
+        Object data = getRasterData(image);
+        if (data instanceof byte[]) {
+            return ((byte[]) data).clone();
+        } else {
+            return ((short[]) data).clone();
         }
     }
 
@@ -489,5 +528,10 @@ public final class TextureLoader {
                 break;
             }
         }
+
+        public DecodedTexture.DataKind getDataKind() {
+            return (type.equals(DataType.BYTE) ? DecodedTexture.DataKind.UNSIGNED_NORMALIZED_BYTE
+                                               : DecodedTexture.DataKind.UNSIGNED_NORMALIZED_SHORT);
+        }
     }
 }
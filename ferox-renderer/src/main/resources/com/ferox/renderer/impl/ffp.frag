@@ -1,11 +1,13 @@
 #version 150
 
-uniform int uAlphaComparison; // ordinal of Comparison, or -1 to disable
+// Variants of this shader are compiled with defines inserted after the version line that select the
+// enabled features: FFP_FOG, FFP_ALPHA_TEST and FFP_TEXTURE0 - FFP_TEXTURE3
+
+uniform int uAlphaComparison; // ordinal of Comparison
 uniform float uAlphaRefValue;
 
 uniform vec3 uFogConfig; // 0 = start/density 1 = end 2 = signal (0 = linear, > = exp, < = exp squared)
 uniform vec4 uFogColor;
-uniform bool uEnableFog;
 
 // only one of the 4 sampler types will actually be in use, but we know 16 units are available because that
 // is the minimum required for OpenGL 3
@@ -13,7 +15,7 @@ uniform sampler1D uTex1D[4];
 uniform sampler2D uTex2D[4];
 uniform samplerCube uTexCube[4];
 uniform sampler2DShadow uTexShadow[4];
-uniform int uTexConfig[4]; // neg. value is disabled, 0 = 1D, 1 = 2D, 2 = cube, 3 = 2D shadow with comparison, 4 = 2D shadow no comparison (uses uTex2D)
+uniform int uTexConfig[4]; // 0 = 1D, 1 = 2D, 2 = cube, 3 = 2D shadow with comparison, 4 = 2D shadow no comparison (uses uTex2D)
 
 uniform ivec3 uCombineSrcAlpha[4]; // xyz represent 0,1,2 arguments to the functions
 uniform ivec3 uCombineSrcRGB[4]; // values are ordinal of CombineSource and CombineOperand
@@ -224,64 +226,80 @@ vec4 evaluateUnit(const int unit, const vec4 tex[4], const vec4 prevColor) {
 }
 
 void main() {
-    // texturing
-    // FIXME hella slow
+    // texturing, only the enabled units are sampled but any unit can be a combine source
     vec4 tex[4];
+    vec4 noTex = vec4(0.0, 0.0, 0.0, 1.0);
+#ifdef FFP_TEXTURE0
     tex[0] = sampleTexture(0);
+#else
+    tex[0] = noTex;
+#endif
+#ifdef FFP_TEXTURE1
     tex[1] = sampleTexture(1);
+#else
+    tex[1] = noTex;
+#endif
+#ifdef FFP_TEXTURE2
     tex[2] = sampleTexture(2);
+#else
+    tex[2] = noTex;
+#endif
+#ifdef FFP_TEXTURE3
     tex[3] = sampleTexture(3);
+#else
+    tex[3] = noTex;
+#endif
 
     vec4 prev = vPrimaryColor;
-    if (uTexConfig[0] >= 0) {
-        prev = evaluateUnit(0, tex, prev);
-    }
-    if (uTexConfig[1] >= 0) {
-        prev = evaluateUnit(1, tex, prev);
-    }
-    if (uTexConfig[2] >= 0) {
-        prev = evaluateUnit(2, tex, prev);
-    }
-    if (uTexConfig[3] >= 0) {
-        prev = evaluateUnit(3, tex, prev);
-    }
+#ifdef FFP_TEXTURE0
+    prev = evaluateUnit(0, tex, prev);
+#endif
+#ifdef FFP_TEXTURE1
+    prev = evaluateUnit(1, tex, prev);
+#endif
+#ifdef FFP_TEXTURE2
+    prev = evaluateUnit(2, tex, prev);
+#endif
+#ifdef FFP_TEXTURE3
+    prev = evaluateUnit(3, tex, prev);
+#endif
 
     // combine primary and secondary colors
     vec4 color = prev + vSecondaryColor;
 
     // fog
-    if (uEnableFog) {
-        float eyeDepth = abs(vEyePos.z);
-
-        float factor = 0.0;
-        if (uFogConfig.z > 0) {
-            // EXP
-            factor = exp(-uFogConfig.x * eyeDepth);
-        } else if (uFogConfig.z < 0) {
-            // EXP2
-            factor = exp(-(uFogConfig.x * uFogConfig.x * eyeDepth * eyeDepth));
-        } else {
-            // LINEAR
-            factor = (uFogConfig.y - eyeDepth) / (uFogConfig.y - uFogConfig.x);
-        }
+#ifdef FFP_FOG
+    float eyeDepth = abs(vEyePos.z);
 
-        // clamp to [0, 1]
-        if (factor < 0.0) {
-            factor = 0.0;
-        } else if (factor > 1.0) {
-            factor = 1.0;
-        }
+    float factor = 0.0;
+    if (uFogConfig.z > 0) {
+        // EXP
+        factor = exp(-uFogConfig.x * eyeDepth);
+    } else if (uFogConfig.z < 0) {
+        // EXP2
+        factor = exp(-(uFogConfig.x * uFogConfig.x * eyeDepth * eyeDepth));
+    } else {
+        // LINEAR
+        factor = (uFogConfig.y - eyeDepth) / (uFogConfig.y - uFogConfig.x);
+    }
 
-        // blend with fog color
-        color = factor * color + (1.0 - factor) * uFogColor;
+    // clamp to [0, 1]
+    if (factor < 0.0) {
+        factor = 0.0;
+    } else if (factor > 1.0) {
+        factor = 1.0;
     }
 
+    // blend with fog color
+    color = factor * color + (1.0 - factor) * uFogColor;
+#endif
+
     // alpha test
-    if (uAlphaComparison >= 0) {
-        if (!compare(color.a, uAlphaRefValue, uAlphaComparison)) {
-            discard;
-        }
+#ifdef FFP_ALPHA_TEST
+    if (!compare(color.a, uAlphaRefValue, uAlphaComparison)) {
+        discard;
     }
+#endif
 
     fColor = color;
 }
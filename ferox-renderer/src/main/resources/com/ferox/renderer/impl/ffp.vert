@@ -1,21 +1,26 @@
 #version 150
 
+// Variants of this shader are compiled with defines inserted after the version line that select the
+// enabled features: FFP_LIGHTING, FFP_LIGHT0 - FFP_LIGHT7, FFP_TEXTURE0 - FFP_TEXTURE3 (and FFP_FOG and
+// FFP_ALPHA_TEST, which only the fragment shader uses)
+
 uniform mat4 uModelview;
 uniform mat3 uNormalMatrix; // compute on CPU to improve performance when vertex bound
 uniform mat4 uProjection;
 
-uniform bool uEnableLighting;
 uniform vec4 uGlobalLight;
 
-uniform bool uEnableLight[8];
-uniform vec4 uLightPos[8];
-uniform vec4 uLightDiffuse[8];
-uniform vec4 uLightAmbient[8];
-uniform vec4 uLightSpecular[8];
-uniform vec3 uSpotlightDirection[8]; // assumed to be normalized
-uniform float uSpotlightCutoff[8]; // cached to cos of actual angle, so 180 -> -1.0
-uniform float uSpotlightExponent[8];
-uniform vec3 uLightAttenuation[8];
+// per-light state is packed into one block so it's sent with a single buffer bind
+layout(std140) uniform Lights {
+    vec4 uLightPos[8];
+    vec4 uLightDiffuse[8];
+    vec4 uLightAmbient[8];
+    vec4 uLightSpecular[8];
+    vec3 uSpotlightDirection[8]; // assumed to be normalized
+    float uSpotlightCutoff[8]; // cached to cos of actual angle, so 180 -> -1.0
+    float uSpotlightExponent[8];
+    vec3 uLightAttenuation[8];
+};
 
 uniform vec4 uMatAmbient;
 uniform vec4 uMatSpecular;
@@ -38,6 +43,7 @@ out vec4 vSecondaryColor;
 out vec4 vTexCoord[4];
 out vec4 vEyePos;
 
+#ifdef FFP_LIGHTING
 void computeLighting(const int light, const vec4 eyePos, const vec3 eyeNorm,
                      out vec4 primaryColor, out vec4 secondaryColor) {
     vec3 vp;
@@ -76,6 +82,16 @@ void computeLighting(const int light, const vec4 eyePos, const vec3 eyeNorm,
     }
 }
 
+void addLight(const int light, const vec4 eyePos, const vec3 eyeNorm,
+              inout vec4 primaryColor, inout vec4 secondaryColor) {
+    vec4 fp, fs;
+    computeLighting(light, eyePos, eyeNorm, fp, fs);
+
+    primaryColor += fp;
+    secondaryColor += fs;
+}
+#endif
+
 vec4 computeTextureCoord(const int tex, vec4 eyePos, vec3 eyeNorm) {
     vec4 tc;
     switch(uTexCoordSource[tex]) {
@@ -110,24 +126,56 @@ void main() {
     vec4 primaryColor = aDiffuse;
     vec4 secondaryColor = vec4(0.0, 0.0, 0.0, 0.0);
 
-    if (uEnableLighting) {
-        primaryColor = uMatEmissive + uMatAmbient * uGlobalLight;
-
-        for (int i = 0; i < 8; i++) {
-            if (uEnableLight[i]) {
-                vec4 fp, fs;
-                computeLighting(i, eyePos, eyeNorm, fp, fs);
-
-                primaryColor += fp;
-                secondaryColor += fs;
-            }
-        }
-    }
-
+#ifdef FFP_LIGHTING
+    primaryColor = uMatEmissive + uMatAmbient * uGlobalLight;
+#ifdef FFP_LIGHT0
+    addLight(0, eyePos, eyeNorm, primaryColor, secondaryColor);
+#endif
+#ifdef FFP_LIGHT1
+    addLight(1, eyePos, eyeNorm, primaryColor, secondaryColor);
+#endif
+#ifdef FFP_LIGHT2
+    addLight(2, eyePos, eyeNorm, primaryColor, secondaryColor);
+#endif
+#ifdef FFP_LIGHT3
+    addLight(3, eyePos, eyeNorm, primaryColor, secondaryColor);
+#endif
+#ifdef FFP_LIGHT4
+    addLight(4, eyePos, eyeNorm, primaryColor, secondaryColor);
+#endif
+#ifdef FFP_LIGHT5
+    addLight(5, eyePos, eyeNorm, primaryColor, secondaryColor);
+#endif
+#ifdef FFP_LIGHT6
+    addLight(6, eyePos, eyeNorm, primaryColor, secondaryColor);
+#endif
+#ifdef FFP_LIGHT7
+    addLight(7, eyePos, eyeNorm, primaryColor, secondaryColor);
+#endif
+#endif
+
+    // disabled units never read their coordinates, so skip texgen for them
+    vec4 noCoord = vec4(0.0, 0.0, 0.0, 1.0);
+#ifdef FFP_TEXTURE0
     vTexCoord[0] = computeTextureCoord(0, eyePos, eyeNorm);
+#else
+    vTexCoord[0] = noCoord;
+#endif
+#ifdef FFP_TEXTURE1
     vTexCoord[1] = computeTextureCoord(1, eyePos, eyeNorm);
+#else
+    vTexCoord[1] = noCoord;
+#endif
+#ifdef FFP_TEXTURE2
     vTexCoord[2] = computeTextureCoord(2, eyePos, eyeNorm);
+#else
+    vTexCoord[2] = noCoord;
+#endif
+#ifdef FFP_TEXTURE3
     vTexCoord[3] = computeTextureCoord(3, eyePos, eyeNorm);
+#else
+    vTexCoord[3] = noCoord;
+#endif
 
     vPrimaryColor = vec4(primaryColor.xyz, aDiffuse.w);
     vSecondaryColor = vec4(secondaryColor.xyz, 0.0);
@@ -30,13 +30,22 @@ import com.ferox.math.Const;
 import com.ferox.math.Matrix4;
 import com.ferox.math.entreri.Matrix4Property.DefaultMatrix4;
 import com.lhkbob.entreri.Component;
+import com.lhkbob.entreri.Entity;
 import com.lhkbob.entreri.ReturnValue;
+import com.lhkbob.entreri.property.Reference;
 
 /**
  * <p/>
  * Transform represents an affine transform that transforms an Entity from its local coordinate space into a
  * coordinate space shared by all Entities within a system (i.e. the world). This can be used to place lights,
  * physics objects, or objects to be rendered.
+ * <p/>
+ * Transforms can be arranged into a hierarchy by assigning a parent Entity. When an Entity has a parent with
+ * its own Transform, the world matrix is the parent's world matrix multiplied by this Transform's local
+ * matrix. The world matrices of child Transforms are computed by {@link com.ferox.scene.task.UpdateWorldTransformTask},
+ * which overwrites any value assigned with {@link #setMatrix(Matrix4)}. Transforms without a parent (or whose
+ * parent does not have a Transform) are roots, and their world matrix is assigned directly with {@link
+ * #setMatrix(Matrix4)}; their local matrix is ignored.
  *
  * @author Michael Ludwig
  */
@@ -63,4 +72,48 @@ public interface Transform extends Component {
                     m20 = 0.0, m21 = 0.0, m22 = 1.0, m23 = 0.0,
                     m30 = 0.0, m31 = 0.0, m32 = 0.0, m33 = 1.0)
     public Matrix4 getMatrix(@ReturnValue Matrix4 result);
+
+    /**
+     * Copy the given transform matrix into this Transform's local matrix. The local matrix transforms from
+     * this Entity's coordinate space into its parent's coordinate space. It is ignored if the Transform has
+     * no parent.
+     *
+     * @param m The new local affine transform
+     *
+     * @return This Transform for chaining purposes
+     *
+     * @throws NullPointerException if m is null
+     */
+    public Transform setLocalMatrix(@Const Matrix4 m);
+
+    /**
+     * Return the local matrix of this Transform. The returned Matrix4 instance is reused by this Transform
+     * instance so it should be cloned before changing which Component is referenced.
+     *
+     * @return The current local affine transform matrix, relative to the parent
+     */
+    @DefaultMatrix4(m00 = 1.0, m01 = 0.0, m02 = 0.0, m03 = 0.0,
+                    m10 = 0.0, m11 = 1.0, m12 = 0.0, m13 = 0.0,
+                    m20 = 0.0, m21 = 0.0, m22 = 1.0, m23 = 0.0,
+                    m30 = 0.0, m31 = 0.0, m32 = 0.0, m33 = 1.0)
+    public Matrix4 getLocalMatrix(@ReturnValue Matrix4 result);
+
+    /**
+     * Get the parent Entity of this Transform. If the parent is null, or if the parent does not have a
+     * Transform, this Transform is a root of the hierarchy.
+     *
+     * @return The parent entity, may be null
+     */
+    @Reference(nullable = true)
+    public Entity getParent();
+
+    /**
+     * Set the parent Entity of this Transform. The parent must belong to the same EntitySystem. Cycles in the
+     * hierarchy are not allowed; if one is found, it is broken by treating one of its Transforms as a root.
+     *
+     * @param parent The new parent, or null to make this Transform a root
+     *
+     * @return This Transform for chaining purposes
+     */
+    public Transform setParent(Entity parent);
 }
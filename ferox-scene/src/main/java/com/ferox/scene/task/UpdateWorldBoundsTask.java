@@ -27,9 +27,12 @@
 package com.ferox.scene.task;
 
 import com.ferox.math.AxisAlignedBox;
+import com.ferox.math.BatchMath;
 import com.ferox.math.Matrix3;
 import com.ferox.math.Matrix4;
+import com.ferox.math.entreri.AxisAlignedBoxProperty;
 import com.ferox.math.entreri.BoundsResult;
+import com.ferox.math.entreri.Matrix4Property;
 import com.ferox.scene.Renderable;
 import com.ferox.scene.Transform;
 import com.ferox.util.profile.Profiler;
@@ -40,10 +43,20 @@ import com.lhkbob.entreri.task.Job;
 import com.lhkbob.entreri.task.ParallelAware;
 import com.lhkbob.entreri.task.Task;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * UpdateWorldBoundsTask computes the world bounds of every {@link Renderable} by transforming the local
+ * bounds of its geometry by the entity's {@link Transform}, and reports the union of all bounds as a {@link
+ * BoundsResult}. If an {@link UpdateWorldTransformTask} runs earlier in the same job, only the renderables
+ * whose transform moved or whose component changed have their bounds recomputed, the rest reuse the bounds
+ * from the previous frame.
+ *
+ * @author Michael Ludwig
+ */
 @ParallelAware(readOnlyComponents = {Transform.class}, modifiedComponents = {Renderable.class}, entitySetModified = false)
 public class UpdateWorldBoundsTask implements Task {
      // cached local instances
@@ -51,6 +64,21 @@ public class UpdateWorldBoundsTask implements Task {
     private Transform transform;
     private ComponentIterator iterator;
 
+    // the moved transforms for the current frame, or null if no hierarchy task reported
+    private WorldTransformResult moved;
+    // renderable versions when their bounds were last computed, indexed by component index
+    private int[] lastVersions = new int[0];
+
+    // packed inputs and outputs for the renderables whose bounds are recomputed
+    private Renderable[] pending = new Renderable[0];
+    private final Matrix4Property matrices = new Matrix4Property();
+    private final AxisAlignedBoxProperty localBounds = new AxisAlignedBoxProperty();
+    private final AxisAlignedBoxProperty transformedBounds = new AxisAlignedBoxProperty();
+
+    public void report(WorldTransformResult result) {
+        moved = result;
+    }
+
     @Override
     public void reset(EntitySystem system) {
         if (iterator == null) {
@@ -59,6 +87,7 @@ public class UpdateWorldBoundsTask implements Task {
             transform = iterator.addRequired(Transform.class);
         }
 
+        moved = null;
         iterator.reset();
     }
 
@@ -71,9 +100,51 @@ public class UpdateWorldBoundsTask implements Task {
         boolean first = true;
         Matrix4 mat = new Matrix4();
 
+        // gather the renderables that need new bounds into packed arrays, unchanged bounds are unioned
+        // immediately
+        int count = 0;
         while (iterator.next()) {
-            worldBounds.transform(renderable.getGeometry().getBounds(), transform.getMatrix(mat));
-            renderable.setWorldBounds(worldBounds);
+            int index = renderable.getIndex();
+            if (index >= lastVersions.length) {
+                int oldSize = lastVersions.length;
+                lastVersions = Arrays.copyOf(lastVersions, Math.max(index + 1, 2 * oldSize));
+                Arrays.fill(lastVersions, oldSize, lastVersions.length, -1);
+            }
+
+            int version = renderable.getVersion();
+            if (moved != null && lastVersions[index] == version && !moved.hasMoved(transform)) {
+                // neither the geometry nor the transform changed, so the previous bounds are still valid
+                renderable.getWorldBounds(worldBounds);
+                if (first) {
+                    sceneBounds.set(worldBounds);
+                    first = false;
+                } else {
+                    sceneBounds.union(worldBounds);
+                }
+            } else {
+                if (count == pending.length) {
+                    int newSize = Math.max(16, 2 * count);
+                    pending = Arrays.copyOf(pending, newSize);
+                    matrices.setCapacity(newSize);
+                    localBounds.setCapacity(newSize);
+                    transformedBounds.setCapacity(newSize);
+                }
+
+                pending[count] = renderable.getEntity().get(Renderable.class);
+                matrices.set(count, transform.getMatrix(mat));
+                localBounds.set(count, renderable.getGeometry().getBounds());
+                lastVersions[index] = version;
+                count++;
+            }
+        }
+
+        BatchMath.transformAxisAlignedBoxes(matrices.getIndexedData(), localBounds.getIndexedData(),
+                                            transformedBounds.getIndexedData(), 0, count);
+
+        for (int i = 0; i < count; i++) {
+            transformedBounds.get(i, worldBounds);
+            pending[i].setWorldBounds(worldBounds);
+            pending[i] = null;
 
             if (first) {
                 sceneBounds.set(worldBounds);
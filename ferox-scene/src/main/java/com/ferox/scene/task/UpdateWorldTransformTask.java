@@ -0,0 +1,377 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.scene.task;
+
+import com.ferox.math.BatchMath;
+import com.ferox.math.Matrix4;
+import com.ferox.math.entreri.Matrix4Property;
+import com.ferox.scene.Transform;
+import com.ferox.util.profile.Profiler;
+import com.lhkbob.entreri.ComponentIterator;
+import com.lhkbob.entreri.Entity;
+import com.lhkbob.entreri.EntitySystem;
+import com.lhkbob.entreri.task.Job;
+import com.lhkbob.entreri.task.ParallelAware;
+import com.lhkbob.entreri.task.Task;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * UpdateWorldTransformTask computes the world matrices of every {@link Transform} that has a parent, by
+ * multiplying the parent's world matrix with the child's local matrix. Transforms are sorted by their depth
+ * in the hierarchy so that every parent is processed before its children, and the matrices are copied into
+ * packed {@link Matrix4Property} arrays in that order before being multiplied.
+ * <p/>
+ * Only the subtrees whose root transform or local transform changed since the last frame are recomputed.
+ * Changes are detected using the component versions, so any call to {@link Transform#setMatrix(Matrix4)},
+ * {@link Transform#setLocalMatrix(Matrix4)} or {@link Transform#setParent(Entity)} marks the transform and its
+ * descendants as moved. The set of moved transforms is reported with a {@link WorldTransformResult}, which
+ * {@link UpdateWorldBoundsTask} uses to skip unchanged entities. This task should run before any other task
+ * that reads world matrices.
+ * <p/>
+ * If a ForkJoinPool is provided, large depth levels of the hierarchy are split into batches that are
+ * multiplied in parallel. Transforms within a level never depend on each other so no synchronization is
+ * needed beyond the level boundaries.
+ *
+ * @author Michael Ludwig
+ */
+@ParallelAware(readOnlyComponents = {}, modifiedComponents = {Transform.class}, entitySetModified = false)
+public class UpdateWorldTransformTask implements Task {
+    private static final int UNKNOWN_DEPTH = -1;
+    private static final int PARALLEL_BATCH_SIZE = 512;
+
+    private final ForkJoinPool pool;
+
+    // could be local scope but we can save GC work
+    private Transform transform;
+    private ComponentIterator iterator;
+
+    // state indexed by component index
+    private Transform[] nodes;
+    private int[] parents;
+    private int[] depths;
+    private int[] positions;
+    private int[] lastVersions;
+    private boolean[] changed;
+
+    // the component indices of all transforms seen this frame, and the depth-sorted order
+    private int[] indices;
+    private int[] order;
+    private int[] levelOffsets;
+    private int[] walkStack;
+    private int count;
+
+    // state indexed by sorted position
+    private int[] parentPositions;
+    private boolean[] dirty;
+    private boolean[] loaded;
+    private final Matrix4Property localMatrices;
+    private final Matrix4Property worldMatrices;
+
+    /**
+     * Create a new UpdateWorldTransformTask that processes the hierarchy on the calling thread.
+     */
+    public UpdateWorldTransformTask() {
+        this(null);
+    }
+
+    /**
+     * Create a new UpdateWorldTransformTask that uses the given pool to process large depth levels in
+     * parallel. If the pool is null, all work is done on the calling thread.
+     *
+     * @param pool The pool used for parallel batches, may be null
+     */
+    public UpdateWorldTransformTask(ForkJoinPool pool) {
+        this.pool = pool;
+
+        localMatrices = new Matrix4Property();
+        worldMatrices = new Matrix4Property();
+
+        nodes = new Transform[0];
+        parents = new int[0];
+        depths = new int[0];
+        positions = new int[0];
+        lastVersions = new int[0];
+        changed = new boolean[0];
+
+        indices = new int[0];
+        order = new int[0];
+        levelOffsets = new int[2];
+        walkStack = new int[0];
+
+        parentPositions = new int[0];
+        dirty = new boolean[0];
+        loaded = new boolean[0];
+    }
+
+    @Override
+    public void reset(EntitySystem system) {
+        if (iterator == null) {
+            iterator = system.fastIterator();
+            transform = iterator.addRequired(Transform.class);
+        }
+
+        iterator.reset();
+    }
+
+    @Override
+    public Task process(EntitySystem system, Job job) {
+        Profiler.push("update-world-transform");
+
+        Profiler.push("gather");
+        gatherTransforms();
+        Profiler.pop();
+
+        Profiler.push("sort-hierarchy");
+        sortByDepth();
+        Profiler.pop();
+
+        BitSet moved = new BitSet(nodes.length);
+
+        Profiler.push("load-matrices");
+        loadDirtyMatrices(moved);
+        Profiler.pop();
+
+        Profiler.push("multiply");
+        int levels = levelOffsets.length - 1;
+        for (int d = 1; d < levels; d++) {
+            int start = levelOffsets[d];
+            int end = levelOffsets[d + 1];
+            if (pool != null && end - start > PARALLEL_BATCH_SIZE) {
+                pool.invoke(new LevelAction(start, end));
+            } else {
+                multiplyRange(start, end);
+            }
+        }
+        Profiler.pop();
+
+        Profiler.push("store");
+        storeWorldMatrices();
+        Profiler.pop();
+
+        // release canonical components so removed entities can be collected
+        Arrays.fill(nodes, null);
+
+        job.report(new WorldTransformResult(moved));
+
+        Profiler.pop();
+        return null;
+    }
+
+    private void gatherTransforms() {
+        count = 0;
+        while (iterator.next()) {
+            int index = transform.getIndex();
+            ensureIndexCapacity(index + 1);
+
+            if (count == indices.length) {
+                indices = Arrays.copyOf(indices, Math.max(16, 2 * count));
+            }
+            indices[count++] = index;
+
+            nodes[index] = transform.getEntity().get(Transform.class);
+            changed[index] = lastVersions[index] != transform.getVersion();
+            depths[index] = UNKNOWN_DEPTH;
+
+            Entity parent = transform.getParent();
+            Transform parentTransform = (parent == null ? null : parent.get(Transform.class));
+            parents[index] = (parentTransform == null ? -1 : parentTransform.getIndex());
+        }
+    }
+
+    private void sortByDepth() {
+        int maxDepth = 0;
+        for (int i = 0; i < count; i++) {
+            maxDepth = Math.max(maxDepth, computeDepth(indices[i]));
+        }
+
+        // counting sort of the transforms by depth, which keeps the original iteration order within a level
+        levelOffsets = new int[maxDepth + 2];
+        for (int i = 0; i < count; i++) {
+            levelOffsets[depths[indices[i]] + 1]++;
+        }
+        for (int d = 1; d < levelOffsets.length; d++) {
+            levelOffsets[d] += levelOffsets[d - 1];
+        }
+
+        if (order.length < count) {
+            order = new int[count];
+            parentPositions = new int[count];
+            dirty = new boolean[count];
+            loaded = new boolean[count];
+        }
+
+        int[] next = Arrays.copyOf(levelOffsets, levelOffsets.length);
+        for (int i = 0; i < count; i++) {
+            int index = indices[i];
+            int pos = next[depths[index]]++;
+            order[pos] = index;
+            positions[index] = pos;
+        }
+
+        for (int pos = 0; pos < count; pos++) {
+            int parent = parents[order[pos]];
+            parentPositions[pos] = (parent < 0 ? -1 : positions[parent]);
+        }
+    }
+
+    private int computeDepth(int index) {
+        if (walkStack.length < count) {
+            walkStack = new int[count];
+        }
+
+        int top = 0;
+        int current = index;
+        while (current >= 0 && depths[current] == UNKNOWN_DEPTH) {
+            if (top == count) {
+                // the walk is longer than the number of transforms so it must be stuck in a cycle, break it
+                // by making the current transform a root and then restart the walk
+                parents[current] = -1;
+                return computeDepth(index);
+            }
+            walkStack[top++] = current;
+            current = parents[current];
+        }
+
+        for (int i = top - 1; i >= 0; i--) {
+            int node = walkStack[i];
+            int parent = parents[node];
+            depths[node] = (parent < 0 ? 0 : depths[parent] + 1);
+        }
+        return depths[index];
+    }
+
+    private void loadDirtyMatrices(BitSet moved) {
+        Matrix4 m = new Matrix4();
+        for (int pos = 0; pos < count; pos++) {
+            int index = order[pos];
+            int parentPos = parentPositions[pos];
+
+            dirty[pos] = changed[index] || (parentPos >= 0 && dirty[parentPos]);
+            loaded[pos] = false;
+        }
+
+        worldMatrices.setCapacity(count);
+        localMatrices.setCapacity(count);
+
+        for (int pos = 0; pos < count; pos++) {
+            if (!dirty[pos]) {
+                continue;
+            }
+
+            int index = order[pos];
+            moved.set(index);
+
+            int parentPos = parentPositions[pos];
+            if (parentPos < 0) {
+                // a dirty root, its world matrix is the source for any children
+                worldMatrices.set(pos, nodes[index].getMatrix(m));
+                loaded[pos] = true;
+            } else {
+                localMatrices.set(pos, nodes[index].getLocalMatrix(m));
+                if (!dirty[parentPos] && !loaded[parentPos]) {
+                    // the parent did not move, but its world matrix is still needed for the child
+                    worldMatrices.set(parentPos, nodes[order[parentPos]].getMatrix(m));
+                    loaded[parentPos] = true;
+                }
+            }
+        }
+    }
+
+    private void multiplyRange(int start, int end) {
+        double[] world = worldMatrices.getIndexedData();
+        double[] local = localMatrices.getIndexedData();
+
+        // multiply contiguous runs of dirty transforms in a single batch
+        int pos = start;
+        while (pos < end) {
+            while (pos < end && !dirty[pos]) {
+                pos++;
+            }
+            int runStart = pos;
+            while (pos < end && dirty[pos]) {
+                pos++;
+            }
+            if (pos > runStart) {
+                BatchMath.mul(world, parentPositions, local, world, runStart, pos - runStart);
+            }
+        }
+    }
+
+    private void storeWorldMatrices() {
+        Matrix4 m = new Matrix4();
+        for (int pos = 0; pos < count; pos++) {
+            int index = order[pos];
+            if (dirty[pos] && parentPositions[pos] >= 0) {
+                worldMatrices.get(pos, m);
+                nodes[index].setMatrix(m);
+            }
+            // record the version after the world matrix has been stored so the task's own update is not
+            // treated as a change next frame
+            lastVersions[index] = nodes[index].getVersion();
+        }
+    }
+
+    private void ensureIndexCapacity(int size) {
+        if (nodes.length < size) {
+            int newSize = Math.max(size, 2 * nodes.length);
+            int oldSize = nodes.length;
+
+            nodes = Arrays.copyOf(nodes, newSize);
+            parents = Arrays.copyOf(parents, newSize);
+            depths = Arrays.copyOf(depths, newSize);
+            positions = Arrays.copyOf(positions, newSize);
+            changed = Arrays.copyOf(changed, newSize);
+            lastVersions = Arrays.copyOf(lastVersions, newSize);
+            // force new indices to be considered changed
+            Arrays.fill(lastVersions, oldSize, newSize, -1);
+        }
+    }
+
+    private class LevelAction extends RecursiveAction {
+        private final int start;
+        private final int end;
+
+        public LevelAction(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= PARALLEL_BATCH_SIZE) {
+                multiplyRange(start, end);
+            } else {
+                int mid = (start + end) >>> 1;
+                invokeAll(new LevelAction(start, mid), new LevelAction(mid, end));
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.scene.task;
+
+import com.ferox.scene.Transform;
+import com.lhkbob.entreri.task.Result;
+
+import java.util.BitSet;
+
+/**
+ * WorldTransformResult is reported by {@link UpdateWorldTransformTask} once the world matrices of every
+ * {@link Transform} have been brought up to date. It records exactly which Transforms had their world matrix
+ * change during the frame so that later tasks, such as {@link UpdateWorldBoundsTask}, can skip work for
+ * entities that did not move.
+ *
+ * @author Michael Ludwig
+ */
+public class WorldTransformResult extends Result {
+    private final BitSet moved;
+
+    /**
+     * Create a new result that wraps the given set of moved component indices. The bit set is not copied, so
+     * it must not be modified after the result has been reported.
+     *
+     * @param moved The indices of the Transform components whose world matrix changed
+     *
+     * @throws NullPointerException if moved is null
+     */
+    public WorldTransformResult(BitSet moved) {
+        if (moved == null) {
+            throw new NullPointerException("Moved set cannot be null");
+        }
+        this.moved = moved;
+    }
+
+    /**
+     * Return whether or not the world matrix of the given Transform changed this frame. This includes root
+     * transforms that were assigned a new matrix, children whose local matrix or parent changed, and every
+     * descendant of those transforms. Newly added transforms are always considered moved.
+     *
+     * @param transform The transform to check
+     *
+     * @return True if the transform's world matrix changed
+     *
+     * @throws NullPointerException if transform is null
+     */
+    public boolean hasMoved(Transform transform) {
+        return moved.get(transform.getIndex());
+    }
+
+    /**
+     * @return The number of transforms that moved this frame
+     */
+    public int getMovedCount() {
+        return moved.cardinality();
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+}
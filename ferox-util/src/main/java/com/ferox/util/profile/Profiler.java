@@ -26,28 +26,122 @@
  */
 package com.ferox.util.profile;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * <p/>
+ * Profiler is a hierarchical, per-thread timer. Code blocks are timed by calling {@link #push(int)} before
+ * and {@link #pop()} after them, and nested blocks form a tree. Each time the outermost block of a thread is
+ * popped, the elapsed times are accumulated into that thread's tree and the last 100 frames of each node
+ * can be inspected with {@link #getDataSnapshot()}.
+ * <p/>
+ * Labels are interned into integer probe ids with {@link #register(String)}. Hot code should register its
+ * labels once, e.g. in a static field, and push the probe id. Pushing and popping only writes into the
+ * calling thread's preallocated event arrays, without locking or allocating. The outermost pop merges the
+ * events into the thread's tree while holding that thread's lock, which is only ever contended by
+ * concurrent snapshots, so snapshots can safely be taken from any thread while the profiled threads run.
+ * <p/>
+ * The snapshots only keep per-node statistics. To diagnose individual slow frames, an opt-in timeline can be
+ * enabled with {@link #setTimelineCapacity(int)}. It keeps the raw spans of each thread in a bounded ring
+ * buffer, and the most recent frames can be exported with {@link #writeChromeTrace(Writer, int,
+ * ThreadGroupMonitor)} and viewed in Chrome's {@code about:tracing} or similar tools.
  *
+ * @author Michael Ludwig
  */
 public class Profiler {
     private static final int BUFFER_LENGTH = 100;
+    private static final int INITIAL_EVENT_CAPACITY = 256;
 
     private static final ThreadLocal<ThreadProfile> profiles = new ThreadLocal<>();
     private static final ConcurrentHashMap<Thread, ProfileRoot> roots = new ConcurrentHashMap<>();
 
+    private static final ConcurrentHashMap<String, Integer> probeIds = new ConcurrentHashMap<>();
+    private static final Object probeLock = new Object();
+    private static volatile String[] probeLabels = new String[0];
+
+    private static volatile int timelineCapacity = 0;
+
+    /**
+     * Get the probe id for the given label, registering it if necessary. The same label always maps to the
+     * same probe id.
+     *
+     * @param label The label of the probe
+     *
+     * @return The probe id to pass to {@link #push(int)}
+     *
+     * @throws NullPointerException if label is null
+     */
+    public static int register(String label) {
+        Integer id = probeIds.get(label);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (probeLock) {
+            id = probeIds.get(label);
+            if (id == null) {
+                String[] labels = Arrays.copyOf(probeLabels, probeLabels.length + 1);
+                labels[labels.length - 1] = label;
+                id = labels.length - 1;
+
+                // publish the label before the id can be used
+                probeLabels = labels;
+                probeIds.put(label, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * @param probe The probe id
+     *
+     * @return The label that was registered for the probe id
+     *
+     * @throws IndexOutOfBoundsException if probe was not returned by {@link #register(String)}
+     */
+    public static String getLabel(int probe) {
+        return probeLabels[probe];
+    }
+
+    /**
+     * Begin timing a block with the given label. This is equivalent to {@code push(register(label))}.
+     *
+     * @param label The label of the block
+     */
     public static void push(String label) {
+        push(register(label));
+    }
+
+    /**
+     * Begin timing a block identified by a probe id previously returned from {@link #register(String)}.
+     *
+     * @param probe The probe id of the block
+     *
+     * @throws IllegalArgumentException if probe has not been registered
+     */
+    public static void push(int probe) {
+        if (probe < 0 || probe >= probeLabels.length) {
+            throw new IllegalArgumentException("Unregistered probe id: " + probe);
+        }
+
         ThreadProfile p = profiles.get();
         if (p == null) {
-            roots.put(Thread.currentThread(), new ProfileRoot());
-            p = new ThreadProfile();
+            ProfileRoot root = new ProfileRoot();
+            roots.put(Thread.currentThread(), root);
+            p = new ThreadProfile(root);
             profiles.set(p);
         }
-        p.push(label);
+        p.push(probe);
     }
 
+    /**
+     * Finish timing the most recently pushed block on the calling thread.
+     *
+     * @throws IllegalStateException if there is no block to pop
+     */
     public static void pop() {
         ThreadProfile p = profiles.get();
         if (p == null) {
@@ -56,6 +150,134 @@ public class Profiler {
         p.pop();
     }
 
+    /**
+     * Set the number of raw spans that each thread keeps for the timeline. A span is recorded for every
+     * push/pop pair, and a thread's spans are added to its timeline when its outermost block is popped. The
+     * default capacity is 0, which disables the timeline. Changing the capacity discards previously recorded
+     * spans.
+     *
+     * @param spans The per-thread span capacity, or 0 to disable the timeline
+     *
+     * @throws IllegalArgumentException if spans is negative
+     */
+    public static void setTimelineCapacity(int spans) {
+        if (spans < 0) {
+            throw new IllegalArgumentException("Timeline capacity cannot be negative: " + spans);
+        }
+        timelineCapacity = spans;
+    }
+
+    /**
+     * @return The per-thread span capacity of the timeline, 0 if disabled
+     */
+    public static int getTimelineCapacity() {
+        return timelineCapacity;
+    }
+
+    /**
+     * Write the last <var>frames</var> frames of every profiled thread's timeline as Chrome trace-event JSON.
+     * A frame is a single outermost block of a thread, so each thread contributes its own most recent frames.
+     * Thread names are taken from the monitor's polled threads if possible, and otherwise from the Thread
+     * itself. Timestamps are in microseconds relative to the oldest exported span.
+     *
+     * @param out     The writer to write the JSON to, it is not closed
+     * @param frames  The number of frames to export per thread
+     * @param threads The monitor that provides thread names, may be null
+     *
+     * @throws IOException              if the writer fails
+     * @throws IllegalArgumentException if frames is less than 1
+     */
+    public static void writeChromeTrace(Writer out, int frames, ThreadGroupMonitor threads)
+            throws IOException {
+        if (frames < 1) {
+            throw new IllegalArgumentException("Must export at least one frame: " + frames);
+        }
+
+        Map<Long, String> names = new HashMap<>();
+        if (threads != null) {
+            synchronized (threads) {
+                for (ThreadMonitor m : threads.getDeadThreadMonitors()) {
+                    names.put(m.getId(), m.getName());
+                }
+                for (ThreadMonitor m : threads.getAliveThreadMonitors()) {
+                    names.put(m.getId(), m.getName());
+                }
+            }
+        }
+
+        List<Thread> traceThreads = new ArrayList<>();
+        List<TimelineBuffer> traces = new ArrayList<>();
+        long origin = Long.MAX_VALUE;
+        for (Map.Entry<Thread, ProfileRoot> e : roots.entrySet()) {
+            TimelineBuffer trace;
+            synchronized (e.getValue()) {
+                if (e.getValue().timeline == null) {
+                    continue;
+                }
+                trace = e.getValue().timeline.copyLastFrames(frames);
+            }
+
+            if (trace.size() > 0) {
+                traceThreads.add(e.getKey());
+                traces.add(trace);
+                origin = Math.min(origin, trace.getStart(0));
+            }
+        }
+
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        for (int t = 0; t < traces.size(); t++) {
+            long tid = traceThreads.get(t).getId();
+            String name = names.get(tid);
+            if (name == null) {
+                name = traceThreads.get(t).getName();
+            }
+
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + tid +
+                      ",\"args\":{\"name\":");
+            writeJSONString(out, name);
+            out.write("}}");
+
+            TimelineBuffer trace = traces.get(t);
+            for (int i = 0; i < trace.size(); i++) {
+                out.write(",\n{\"name\":");
+                writeJSONString(out, getLabel(trace.getProbe(i)));
+                out.write(String.format(Locale.ROOT,
+                                        ",\"ph\":\"X\",\"pid\":1,\"tid\":%d,\"ts\":%.3f,\"dur\":%.3f}", tid,
+                                        (trace.getStart(i) - origin) / 1e3,
+                                        (trace.getEnd(i) - trace.getStart(i)) / 1e3));
+            }
+        }
+        out.write("\n]}\n");
+        out.flush();
+    }
+
+    private static void writeJSONString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * Get a snapshot of the accumulated timings of every live thread that has used the profiler. This can be
+     * called from any thread, the returned data is not modified by later profiling.
+     *
+     * @return The timing tree of each profiled thread
+     */
     public static Map<Thread, ProfilerData> getDataSnapshot() {
         Map<Thread, ProfilerData> data = new HashMap<>();
         Iterator<Map.Entry<Thread, ProfileRoot>> threadData = roots.entrySet().iterator();
@@ -71,30 +293,31 @@ public class Profiler {
     }
 
     private static class ProfileRoot {
-        private final Map<String, ProfileNode> roots;
-
-        private final CyclicBuffer totalTimes;
+        // all guarded by this
+        private ProfileNode[] roots;
+        private int rootCount;
+        private TimelineBuffer timeline;
 
         public ProfileRoot() {
-            roots = new HashMap<>();
-            totalTimes = new CyclicBuffer(BUFFER_LENGTH);
+            roots = new ProfileNode[4];
+            rootCount = 0;
         }
 
-        public ProfilerData getSnapshot() {
+        public synchronized ProfilerData getSnapshot() {
             // compute children
             int histogramLength = 0;
             Map<String, ProfilerData> children = new HashMap<>();
             List<double[]> histograms = new ArrayList<>();
-            for (Map.Entry<String, ProfileNode> c : roots.entrySet()) {
-                ProfilerData data = c.getValue().getSnapshot();
+            for (int i = 0; i < rootCount; i++) {
+                ProfilerData data = roots[i].getSnapshot();
                 histogramLength = data.getHistogram().length; // every root should have the same length
                 histograms.add(data.getHistogram());
 
-                children.put(c.getKey(), data);
+                children.put(data.getLabel(), data);
             }
 
             // combine children into total histogram
-            totalTimes.clear();
+            CyclicBuffer totalTimes = new CyclicBuffer(BUFFER_LENGTH);
             for (int i = 0; i < histogramLength; i++) {
                 double sum = 0;
                 for (double[] h : histograms) {
@@ -106,34 +329,69 @@ public class Profiler {
             return new ProfilerData("root", totalTimes.average(), totalTimes.min(), totalTimes.max(),
                                     totalTimes.values(), children);
         }
+
+        public ProfileNode getRoot(int probe) {
+            for (int i = 0; i < rootCount; i++) {
+                if (roots[i].probe == probe) {
+                    return roots[i];
+                }
+            }
+
+            ProfileNode n = new ProfileNode(probe, null);
+            if (rootCount == roots.length) {
+                roots = Arrays.copyOf(roots, rootCount * 2);
+            }
+            roots[rootCount++] = n;
+            return n;
+        }
     }
 
     private static class ProfileNode {
-        private final String label;
+        private final int probe;
         private final CyclicBuffer records;
 
         private final ProfileNode parent;
-        private final Map<String, ProfileNode> children;
+        // children are searched linearly by probe id, there are rarely more than a handful
+        private ProfileNode[] children;
+        private int childCount;
 
         // temporary map index to build up the profile tree from the flat thread profile data
         private int reverseTreeIndex;
         // temporary time that is later logged once the given record has been accumulated
         private long totalTime;
 
-        public ProfileNode(String label, ProfileNode parent) {
+        public ProfileNode(int probe, ProfileNode parent) {
             this.parent = parent;
-            this.label = label;
+            this.probe = probe;
             records = new CyclicBuffer(BUFFER_LENGTH);
-            children = new HashMap<>(); // FIXME does this need to be thread safe?
+            children = new ProfileNode[2];
+            childCount = 0;
+            reverseTreeIndex = -1;
+        }
+
+        public ProfileNode getChild(int probe) {
+            for (int i = 0; i < childCount; i++) {
+                if (children[i].probe == probe) {
+                    return children[i];
+                }
+            }
+
+            ProfileNode n = new ProfileNode(probe, this);
+            if (childCount == children.length) {
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            children[childCount++] = n;
+            return n;
         }
 
         public ProfilerData getSnapshot() {
             Map<String, ProfilerData> children = new HashMap<>();
-            for (Map.Entry<String, ProfileNode> c : this.children.entrySet()) {
-                children.put(c.getKey(), c.getValue().getSnapshot());
+            for (int i = 0; i < childCount; i++) {
+                ProfilerData c = this.children[i].getSnapshot();
+                children.put(c.getLabel(), c);
             }
-            return new ProfilerData(label, records.average(), records.min(), records.max(), records.values(),
-                                    children);
+            return new ProfilerData(getLabel(probe), records.average(), records.min(), records.max(),
+                                    records.values(), children);
         }
 
         public void updateRecord() {
@@ -141,8 +399,8 @@ public class Profiler {
             // every node's record histogram is in sync. Multiple visits are merged and lack of a visit
             // is marked with a time of 0
             records.log(totalTime / 1e9);
-            for (ProfileNode c : children.values()) {
-                c.updateRecord();
+            for (int i = 0; i < childCount; i++) {
+                children[i].updateRecord();
             }
             reverseTreeIndex = -1;
             totalTime = 0;
@@ -150,7 +408,9 @@ public class Profiler {
     }
 
     private static class ThreadProfile {
-        private String[] records;
+        private final ProfileRoot root;
+
+        private int[] probes;
         private long[] recordStart;
         private long[] recordEnd;
         private int[] parentIndex;
@@ -158,45 +418,53 @@ public class Profiler {
         private int writeIndex;
         private int parent;
 
-        public ThreadProfile() {
-            records = new String[20];
-            recordStart = new long[20];
-            recordEnd = new long[20];
-            parentIndex = new int[20];
+        public ThreadProfile(ProfileRoot root) {
+            this.root = root;
+            probes = new int[INITIAL_EVENT_CAPACITY];
+            recordStart = new long[INITIAL_EVENT_CAPACITY];
+            recordEnd = new long[INITIAL_EVENT_CAPACITY];
+            parentIndex = new int[INITIAL_EVENT_CAPACITY];
 
             writeIndex = 0;
             parent = -1;
         }
 
-        public void push(String label) {
+        public void push(int probe) {
             int idx = writeIndex++;
-            if (idx >= records.length) {
-                // grow records, hopefully this doesn't happen too often
-                records = Arrays.copyOf(records, idx + 20);
-                recordStart = Arrays.copyOf(recordStart, idx + 20);
-                recordEnd = Arrays.copyOf(recordEnd, idx + 20);
-                parentIndex = Arrays.copyOf(parentIndex, idx + 20);
+            if (idx >= probes.length) {
+                // grow the events, the larger capacity is kept for later frames
+                int capacity = probes.length * 2;
+                probes = Arrays.copyOf(probes, capacity);
+                recordStart = Arrays.copyOf(recordStart, capacity);
+                recordEnd = Arrays.copyOf(recordEnd, capacity);
+                parentIndex = Arrays.copyOf(parentIndex, capacity);
             }
 
-            records[idx] = label;
-            recordStart[idx] = System.nanoTime();
-            recordEnd[idx] = -1L; // not finished yet
+            probes[idx] = probe;
             parentIndex[idx] = parent;
             parent = idx;
+            recordStart[idx] = System.nanoTime();
         }
 
         public void pop() {
+            long end = System.nanoTime();
             if (parent < 0) {
                 throw new IllegalStateException("Mismatched pop");
             }
 
             // parent contains the index of the last pushed label that hasn't been popped yet
-            recordEnd[parent] = System.nanoTime();
+            recordEnd[parent] = end;
             parent = parentIndex[parent];
 
             if (parent < 0) {
-                // report the accumulated timings
-                ProfileRoot root = roots.get(Thread.currentThread());
+                flush();
+                writeIndex = 0;
+            }
+        }
+
+        private void flush() {
+            // report the accumulated timings
+            synchronized (root) {
                 ProfileNode rootNode = null;
                 ProfileNode prev = null;
                 for (int i = 0; i < writeIndex; i++) {
@@ -206,19 +474,11 @@ public class Profiler {
 
                     ProfileNode current;
                     if (prev == null) {
-                        current = root.roots.get(records[i]);
-                        if (current == null) {
-                            current = new ProfileNode(records[i], null);
-                            root.roots.put(records[i], current);
-                        }
+                        current = root.getRoot(probes[i]);
                         // record the root node for later use
                         rootNode = current;
                     } else {
-                        current = prev.children.get(records[i]);
-                        if (current == null) {
-                            current = new ProfileNode(records[i], prev);
-                            prev.children.put(records[i], current);
-                        }
+                        current = prev.getChild(probes[i]);
                     }
 
                     current.reverseTreeIndex = i;
@@ -226,18 +486,28 @@ public class Profiler {
                     prev = current;
                 }
 
-                // now log the accumulated times into the cyclic buffers, which lets us keep nodes that weren't
-                // visited in sync and merge nodes that were visited multiple times into a single time block
+                // now log the accumulated times into the cyclic buffers, which lets us keep nodes that
+                // weren't visited in sync and merge nodes that were visited multiple times into a single
+                // time block
                 if (rootNode != null) {
                     rootNode.updateRecord();
                 } else {
                     throw new RuntimeException("Shouldn't happen!");
                 }
 
-                writeIndex = 0;
-                parent = -1;
+                int capacity = timelineCapacity;
+                if (capacity > 0) {
+                    if (root.timeline == null || root.timeline.getCapacity() != capacity) {
+                        root.timeline = new TimelineBuffer(capacity);
+                    }
+                    for (int i = 0; i < writeIndex; i++) {
+                        // the first event is always the outermost block that was just popped
+                        root.timeline.append(probes[i], recordStart[i], recordEnd[i], i == 0);
+                    }
+                } else {
+                    root.timeline = null;
+                }
             }
         }
     }
-
 }
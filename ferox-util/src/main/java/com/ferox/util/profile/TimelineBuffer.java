@@ -0,0 +1,123 @@
+/*
+ * Ferox, a graphics and game library in Java
+ *
+ * Copyright (c) 2012, Michael Ludwig
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     Redistributions of source code must retain the above copyright notice,
+ *         this list of conditions and the following disclaimer.
+ *     Redistributions in binary form must reproduce the above copyright notice,
+ *         this list of conditions and the following disclaimer in the
+ *         documentation and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.ferox.util.profile;
+
+/**
+ * TimelineBuffer is a bounded ring buffer of the raw spans recorded by a single thread's {@link Profiler}.
+ * Each span is a probe id with its start and end time in nanoseconds. The first span of every outermost block
+ * is flagged as the start of a frame, so that the most recent frames can be extracted after older spans have
+ * been overwritten.
+ * <p/>
+ * TimelineBuffer is not thread safe, the Profiler guards it with the owning thread's lock.
+ *
+ * @author Michael Ludwig
+ */
+final class TimelineBuffer {
+    private final int[] probes;
+    private final long[] starts;
+    private final long[] ends;
+    private final boolean[] frameStarts;
+
+    private long count; // total spans ever appended
+
+    public TimelineBuffer(int capacity) {
+        probes = new int[capacity];
+        starts = new long[capacity];
+        ends = new long[capacity];
+        frameStarts = new boolean[capacity];
+        count = 0;
+    }
+
+    public int getCapacity() {
+        return probes.length;
+    }
+
+    /**
+     * @return The number of spans currently held by the buffer
+     */
+    public int size() {
+        return (int) Math.min(count, probes.length);
+    }
+
+    public void append(int probe, long start, long end, boolean frameStart) {
+        int i = (int) (count % probes.length);
+        probes[i] = probe;
+        starts[i] = start;
+        ends[i] = end;
+        frameStarts[i] = frameStart;
+        count++;
+    }
+
+    /**
+     * @param i The span index, 0 is the oldest span still in the buffer
+     */
+    public int getProbe(int i) {
+        return probes[index(i)];
+    }
+
+    public long getStart(int i) {
+        return starts[index(i)];
+    }
+
+    public long getEnd(int i) {
+        return ends[index(i)];
+    }
+
+    public boolean isFrameStart(int i) {
+        return frameStarts[index(i)];
+    }
+
+    private int index(int i) {
+        return (int) ((count - size() + i) % probes.length);
+    }
+
+    /**
+     * Copy the spans of the most recent complete frames into a new buffer. Frames whose first span has
+     * already been overwritten are not included.
+     *
+     * @param frames The maximum number of frames to copy
+     *
+     * @return A new buffer holding only those frames, oldest first
+     */
+    public TimelineBuffer copyLastFrames(int frames) {
+        int size = size();
+        int first = size;
+        int found = 0;
+        for (int i = size - 1; i >= 0 && found < frames; i--) {
+            if (isFrameStart(i)) {
+                first = i;
+                found++;
+            }
+        }
+
+        TimelineBuffer copy = new TimelineBuffer(Math.max(1, size - first));
+        for (int i = first; i < size; i++) {
+            copy.append(getProbe(i), getStart(i), getEnd(i), isFrameStart(i));
+        }
+        return copy;
+    }
+}